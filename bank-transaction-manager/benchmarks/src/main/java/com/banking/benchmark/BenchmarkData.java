@@ -0,0 +1,75 @@
+package com.banking.benchmark;
+
+import com.banking.dto.BatchItemResult;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BenchmarkData 为基准测试预先填充存储。
+ */
+final class BenchmarkData {
+
+    /**
+     * 每批写入的记录数，不超过服务允许的最大批量。
+     */
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final String[] TYPES = {"Deposit", "Withdrawal", "Transfer", "Payment"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 向存储中写入 count 条交易记录。
+     *
+     * @return 按写入顺序排列的交易ID
+     */
+    static long[] populate(TransactionService service, int count) {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        int filled = 0;
+        while (filled < count) {
+            int size = Math.min(BATCH_SIZE, count - filled);
+            List<Transaction> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(newTransaction(filled + i));
+            }
+            for (BatchItemResult result : service.createTransactions(batch)) {
+                ids[filled++] = result.getData().getId();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 用 threads 个线程并发写入共 count 条记录，使按线程分配写入位置的存储（如分片存储）得到均匀的数据分布。
+     *
+     * @return 全部交易ID（顺序不确定）
+     */
+    static long[] populateConcurrently(TransactionService service, int count, int threads) throws InterruptedException {
+        long[] ids = new long[count];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) count * t / threads);
+            int to = (int) ((long) count * (t + 1) / threads);
+            workers[t] = new Thread(() -> {
+                long[] part = populate(service, to - from);
+                System.arraycopy(part, 0, ids, from, part.length);
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ids;
+    }
+
+    static Transaction newTransaction(long seed) {
+        return new Transaction(null, TYPES[(int) (seed & 3)], 1.0 + (seed % 10_000) / 100.0);
+    }
+}
@@ -0,0 +1,53 @@
+package com.banking.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * BenchmarkRunner 是基准测试 jar 的入口，接受与 JMH 相同的命令行参数。
+ *
+ * <p>未指定 {@code -rf}/{@code -rff} 时，结果默认以 JSON 格式写入
+ * {@code jmh-result-<被测版本>.json}，不同版本的结果文件可以直接对比。</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            String format = commandLine.getResultFormat().orElse(ResultFormatType.JSON).toString().toLowerCase();
+            options.result("jmh-result-" + bankingVersion() + "." + format);
+        }
+        new Runner(options.build()).run();
+    }
+
+    static String bankingVersion() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = BenchmarkRunner.class.getResourceAsStream("/benchmark.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+        return properties.getProperty("banking.version", "unknown");
+    }
+}
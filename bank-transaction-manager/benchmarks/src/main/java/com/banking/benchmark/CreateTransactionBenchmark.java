@@ -0,0 +1,40 @@
+package com.banking.benchmark;
+
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 衡量 {@link TransactionServiceImpl#createTransaction} 在不同存储规模下的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreateTransactionBenchmark {
+
+    @Param({"0", "100000", "1000000"})
+    private int storeSize;
+
+    private TransactionServiceImpl service;
+
+    private long seed;
+
+    /**
+     * 每轮迭代重建存储，避免存储随写入不断增长而偏离目标规模。
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        service = new TransactionServiceImpl();
+        BenchmarkData.populate(service, storeSize);
+    }
+
+    @Benchmark
+    public Transaction createTransaction() {
+        return service.createTransaction(BenchmarkData.newTransaction(seed++));
+    }
+}
@@ -0,0 +1,101 @@
+package com.banking.benchmark;
+
+import com.banking.dto.ApiResponse;
+import com.banking.exception.GlobalExceptionHandler;
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 衡量以 404 或 400 为主的流量下，按 ID 查询从服务层到生成错误响应的开销（不含 HTTP 和序列化）。
+ *
+ * <p>{@code mix} 为 notFound 时 90% 的请求查询不存在的ID，为 badRequest 时 90% 的请求ID非法，其余请求命中已有记录。
+ * {@code path} 为 optional 时走控制器现在的路径：{@code findTransactionById} 返回空时直接生成 404；
+ * 为 exception 时通过 {@code getTransactionById} 抛出异常，再由 {@link GlobalExceptionHandler} 生成响应；
+ * stackTrace 在 exception 的基础上为每个错误额外创建一个记录调用栈的异常，作为异常记录调用栈时的对照。
+ * 基准方法的调用栈远比经过 Spring MVC 分发时浅，对照组的开销在真实请求中只会更高。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorPathBenchmark {
+
+    private static final int STORE_SIZE = 10_000;
+
+    private static final int REQUESTS = 1 << 12;
+
+    private static final double ERROR_RATIO = 0.9;
+
+    @Param({"notFound", "badRequest"})
+    private String mix;
+
+    @Param({"optional", "exception", "stackTrace"})
+    private String path;
+
+    private TransactionServiceImpl service;
+
+    private GlobalExceptionHandler handler;
+
+    private long[] requests;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new TransactionServiceImpl();
+        long[] ids = BenchmarkData.populate(service, STORE_SIZE);
+        handler = new GlobalExceptionHandler();
+
+        SplittableRandom random = new SplittableRandom(42);
+        requests = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            if (random.nextDouble() >= ERROR_RATIO) {
+                requests[i] = ids[random.nextInt(ids.length)];
+            } else if ("notFound".equals(mix)) {
+                requests[i] = STORE_SIZE + 1 + random.nextInt(1_000_000);
+            } else {
+                requests[i] = -random.nextInt(1_000_000);
+            }
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<?> getTransactionById(Blackhole blackhole) {
+        long id = requests[next++ & (REQUESTS - 1)];
+        try {
+            if ("optional".equals(path)) {
+                Optional<Transaction> transaction = service.findTransactionById(id);
+                if (transaction.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(new ApiResponse<Void>(false, null, ResourceNotFoundException.transactionMessage(id)));
+                }
+                return ResponseEntity.ok(new ApiResponse<>(true, transaction.get(), "Transaction fetched successfully"));
+            }
+            return ResponseEntity.ok(new ApiResponse<>(true, service.getTransactionById(id), "Transaction fetched successfully"));
+        } catch (ResourceNotFoundException e) {
+            captureStackTrace(e, blackhole);
+            return handler.handleResourceNotFound(e);
+        } catch (InvalidInputException e) {
+            captureStackTrace(e, blackhole);
+            return handler.handleInvalidInput(e);
+        }
+    }
+
+    private void captureStackTrace(RuntimeException e, Blackhole blackhole) {
+        if ("stackTrace".equals(path)) {
+            blackhole.consume(new RuntimeException(e.getMessage()));
+        }
+    }
+}
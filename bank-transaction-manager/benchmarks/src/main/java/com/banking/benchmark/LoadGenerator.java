@@ -0,0 +1,489 @@
+package com.banking.benchmark;
+
+import com.banking.BankingApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator 以固定的到达速率（开环）通过真实的 HTTP 连接压测交易接口，按操作类型输出延迟分位数和吞吐量，
+ * 可与上一次的结果对比，作为性能改动的回归门禁。
+ *
+ * <p>请求按计划时间 {@code start + i / rate} 发出，不等待之前的响应；延迟从计划发出时间算起，
+ * 而不是从实际发出时间算起。服务变慢时，本该发出却因发送端落后而推迟的请求同样计入排队时间，
+ * 避免闭环压测的协调遗漏（coordinated omission）把停顿期间的延迟隐藏掉。另外单独统计从实际发出到收到响应的服务时间，
+ * 两者的差距即为发送端落后的程度。</p>
+ *
+ * <p>未指定 {@code -Dload.target} 时在本进程内启动一个监听随机端口的应用实例，命令行参数原样传给该实例
+ * （例如 {@code --banking.store.type=sharded}）。参数均通过系统属性指定：</p>
+ * <ul>
+ *     <li>{@code load.rate}：每秒请求数，默认 1000；</li>
+ *     <li>{@code load.duration} / {@code load.warmup}：测量时长和预热时长（秒），默认 30 和 10，预热期间的请求不计入结果；</li>
+ *     <li>{@code load.mix}：各操作的权重，默认 {@code create=20,get=50,list=15,update=10,delete=5}；</li>
+ *     <li>{@code load.seed}：开始前预先写入的记录数，默认 10000；</li>
+ *     <li>{@code load.timeout}：单个请求的超时（秒），默认 10，超时计为错误，延迟按超时时刻计入；</li>
+ *     <li>{@code load.output}：结果文件，默认 {@code load-<被测版本>.csv}，同时写出总体延迟分布 {@code .hgrm}；</li>
+ *     <li>{@code load.baseline} / {@code load.tolerance}：基线结果文件和允许的退化比例（默认 0.1）。
+ *     任一操作的 p99、p99.9 延迟高于基线或成功吞吐量低于基线超过该比例时，以退出码 1 结束。</li>
+ * </ul>
+ *
+ * <p>运行方式：{@code java -cp target/benchmarks.jar com.banking.benchmark.LoadGenerator [应用参数]}。</p>
+ */
+public final class LoadGenerator {
+
+    private static final String BASE_PATH = "/api/transactions";
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private static final int LIST_PAGE_SIZE = 20;
+
+    private static final int LIST_PAGES = 10;
+
+    /**
+     * 直方图可记录的最大延迟（微秒），超出的值按该值记录。
+     */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final String CSV_HEADER = "operation,requests,ok,not_found,shed,errors,ok_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 压测的操作类型。
+     */
+    enum Operation {
+        CREATE, GET, LIST, UPDATE, DELETE;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final HttpClient client;
+
+    private final String baseUrl;
+
+    private final Duration timeout;
+
+    private final IdPool ids = new IdPool(1 << 20);
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    /**
+     * 测量期间全部请求的延迟分布，由 {@link #report} 汇总。
+     */
+    private Histogram totalLatency;
+
+    private LoadGenerator(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "1000"));
+        long durationSeconds = Long.getLong("load.duration", 30);
+        long warmupSeconds = Long.getLong("load.warmup", 10);
+        Mix mix = Mix.parse(System.getProperty("load.mix", "create=20,get=50,list=15,update=10,delete=5"));
+        int seed = Integer.getInteger("load.seed", 10_000);
+        Duration timeout = Duration.ofSeconds(Long.getLong("load.timeout", 10));
+        String version = BenchmarkRunner.bankingVersion();
+        Path output = Paths.get(System.getProperty("load.output", "load-" + version + ".csv"));
+        String baseline = System.getProperty("load.baseline");
+        double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.1"));
+        if (rate <= 0 || durationSeconds <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("load.rate and load.duration must be positive, load.warmup must be >= 0");
+        }
+
+        String target = System.getProperty("load.target");
+        ConfigurableApplicationContext context = null;
+        if (target == null) {
+            String[] serverArgs = new String[args.length + 1];
+            serverArgs[0] = "--server.port=0";
+            System.arraycopy(args, 0, serverArgs, 1, args.length);
+            context = new SpringApplicationBuilder(BankingApplication.class).run(serverArgs);
+            target = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        boolean passed;
+        try {
+            LoadGenerator generator = new LoadGenerator(target, timeout);
+            generator.seed(seed);
+            System.out.printf("Offering %.0f req/s to %s for %ds after %ds warmup, mix %s%n",
+                    rate, target, durationSeconds, warmupSeconds, mix);
+            double sentRate = generator.run(rate, TimeUnit.SECONDS.toNanos(warmupSeconds),
+                    TimeUnit.SECONDS.toNanos(durationSeconds), mix);
+            List<Row> rows = generator.report(durationSeconds);
+            generator.write(rows, output);
+            System.out.printf("Achieved send rate %.0f req/s; results saved to %s%n", sentRate, output);
+            passed = baseline == null || compare(rows, readCsv(Paths.get(baseline)), tolerance);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * 通过批量接口预先写入 count 条记录，作为读、改、删操作的目标。
+     */
+    private void seed(int count) throws IOException, InterruptedException {
+        for (int written = 0; written < count; ) {
+            int size = Math.min(SEED_BATCH_SIZE, count - written);
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                body.append(i == 0 ? "" : ",").append(transactionJson(written + i));
+            }
+            HttpResponse<String> response = client.send(request(BASE_PATH + "/batch")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString())).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with status " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode item : MAPPER.readTree(response.body()).path("data")) {
+                ids.add(item.path("data").path("id").asLong());
+            }
+            written += size;
+        }
+    }
+
+    /**
+     * 按固定速率发出请求，先预热 warmupNanos，再测量 durationNanos，最后等待未完成的请求结束（最多一个超时时长）。
+     *
+     * @return 测量期间实际发出请求的速率
+     */
+    private double run(double rate, long warmupNanos, long durationNanos, Mix mix) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        double intervalNanos = 1e9 / rate;
+        long sent = 0;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended - end >= 0) {
+                break;
+            }
+            waitUntil(intended);
+            boolean measured = intended - measureFrom >= 0;
+            send(mix.pick(random), random, intended, measured);
+            if (measured) {
+                sent++;
+            }
+        }
+        double sentRate = sent / ((System.nanoTime() - measureFrom) / 1e9);
+
+        long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (outstanding.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        return sentRate;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > TimeUnit.MICROSECONDS.toNanos(100)) {
+                LockSupport.parkNanos(remaining - TimeUnit.MICROSECONDS.toNanos(50));
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void send(Operation operation, SplittableRandom random, long intended, boolean measured) {
+        HttpRequest request = switch (operation) {
+            case CREATE -> request(BASE_PATH).POST(HttpRequest.BodyPublishers.ofString(transactionJson(random.nextInt()))).build();
+            case GET -> request(BASE_PATH + "/" + ids.pick(random)).GET().build();
+            case LIST -> request(BASE_PATH + "?page=" + random.nextInt(LIST_PAGES) + "&size=" + LIST_PAGE_SIZE).GET().build();
+            case UPDATE -> request(BASE_PATH + "/" + ids.pick(random))
+                    .PUT(HttpRequest.BodyPublishers.ofString(transactionJson(random.nextInt()))).build();
+            case DELETE -> request(BASE_PATH + "/" + ids.pick(random)).DELETE().build();
+        };
+        Stats target = stats.get(operation);
+        long sentAt = System.nanoTime();
+        outstanding.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            long now = System.nanoTime();
+            try {
+                if (operation == Operation.CREATE && response != null && response.statusCode() == 200) {
+                    ids.add(MAPPER.readTree(response.body()).path("data").path("id").asLong());
+                }
+                if (measured) {
+                    target.record(response == null ? -1 : response.statusCode(), now - intended, now - sentAt);
+                }
+            } catch (IOException e) {
+                if (measured) {
+                    target.record(-1, now - intended, now - sentAt);
+                }
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        });
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json");
+    }
+
+    private static String transactionJson(int seed) {
+        return "{\"type\":\"Load\",\"amount\":" + (Math.floorMod(seed, 1000) + 1) + ".0}";
+    }
+
+    /**
+     * 打印各操作和总体的结果，同时返回对应的结果行。
+     */
+    private List<Row> report(long durationSeconds) {
+        Stats overall = new Stats();
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats operation = entry.getValue();
+            if (operation.latency.getTotalCount() == 0) {
+                continue;
+            }
+            rows.add(operation.toRow(entry.getKey().label(), durationSeconds));
+            overall.latency.add(operation.latency);
+            overall.service.add(operation.service);
+            overall.ok.add(operation.ok.sum());
+            overall.notFound.add(operation.notFound.sum());
+            overall.shed.add(operation.shed.sum());
+            overall.errors.add(operation.errors.sum());
+        }
+        rows.add(overall.toRow("total", durationSeconds));
+
+        System.out.println();
+        System.out.printf("%-8s %9s %9s %9s %7s %7s %10s %9s %9s %9s %9s %9s%n", "op", "requests", "ok", "not_found",
+                "shed", "errors", "ok_rps", "p50_ms", "p90_ms", "p99_ms", "p999_ms", "max_ms");
+        for (Row row : rows) {
+            System.out.printf("%-8s %9d %9d %9d %7d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", row.operation, row.requests,
+                    row.ok, row.notFound, row.shed, row.errors, row.okRps, row.p50, row.p90, row.p99, row.p999, row.max);
+        }
+        System.out.printf("Service time (send to response, not corrected): p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                overall.service.getValueAtPercentile(50) / 1000.0, overall.service.getValueAtPercentile(99) / 1000.0,
+                overall.service.getMaxValue() / 1000.0);
+        totalLatency = overall.latency;
+        return rows;
+    }
+
+    private void write(List<Row> rows, Path output) throws IOException {
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(output))) {
+            csv.println(CSV_HEADER);
+            for (Row row : rows) {
+                csv.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f", row.operation,
+                        row.requests, row.ok, row.notFound, row.shed, row.errors, row.okRps, row.p50, row.p90, row.p99,
+                        row.p999, row.max));
+            }
+        } catch (IOException e) {
+            throw new IOException("Failed to write " + output, e);
+        }
+        String name = output.getFileName().toString();
+        Path distribution = output.resolveSibling(name.replaceFirst("\\.csv$", "") + ".hgrm");
+        try (PrintStream hgrm = new PrintStream(Files.newOutputStream(distribution))) {
+            // 直方图以微秒记录，按毫秒输出
+            totalLatency.outputPercentileDistribution(hgrm, 1000.0);
+        }
+    }
+
+    private static Map<String, Row> readCsv(Path path) throws IOException {
+        Map<String, Row> rows = new HashMap<>();
+        List<String> lines = Files.readAllLines(path);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] f = line.split(",");
+            rows.put(f[0], new Row(f[0], Long.parseLong(f[1]), Long.parseLong(f[2]), Long.parseLong(f[3]),
+                    Long.parseLong(f[4]), Long.parseLong(f[5]), Double.parseDouble(f[6]), Double.parseDouble(f[7]),
+                    Double.parseDouble(f[8]), Double.parseDouble(f[9]), Double.parseDouble(f[10]), Double.parseDouble(f[11])));
+        }
+        return rows;
+    }
+
+    /**
+     * 与基线逐项对比：p99、p99.9 延迟不得高于基线的 (1 + tolerance) 倍，成功吞吐量不得低于基线的 (1 - tolerance) 倍。
+     *
+     * @return 没有退化时返回 true
+     */
+    private static boolean compare(List<Row> rows, Map<String, Row> baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Row row : rows) {
+            Row base = baseline.get(row.operation);
+            if (base == null) {
+                continue;
+            }
+            if (row.p99 > base.p99 * (1 + tolerance)) {
+                regressions.add(String.format("%s p99 %.2f ms > baseline %.2f ms", row.operation, row.p99, base.p99));
+            }
+            if (row.p999 > base.p999 * (1 + tolerance)) {
+                regressions.add(String.format("%s p99.9 %.2f ms > baseline %.2f ms", row.operation, row.p999, base.p999));
+            }
+            if (row.okRps < base.okRps * (1 - tolerance)) {
+                regressions.add(String.format("%s ok throughput %.1f req/s < baseline %.1f req/s", row.operation, row.okRps, base.okRps));
+            }
+        }
+        if (regressions.isEmpty()) {
+            System.out.printf("No regression against baseline (tolerance %.0f%%)%n", tolerance * 100);
+            return true;
+        }
+        System.out.printf("Regressions against baseline (tolerance %.0f%%):%n", tolerance * 100);
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return false;
+    }
+
+    /**
+     * 单个操作的统计：延迟（从计划发出时间算起，已校正协调遗漏）、服务时间（从实际发出时间算起）和按结果分类的计数。
+     * 延迟以微秒记录。
+     */
+    private static final class Stats {
+
+        private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        private final Histogram service = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        private final LongAdder ok = new LongAdder();
+
+        private final LongAdder notFound = new LongAdder();
+
+        private final LongAdder shed = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * @param status HTTP 状态码，请求失败（连接错误、超时）时为 -1
+         */
+        void record(int status, long latencyNanos, long serviceNanos) {
+            latency.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+            service.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(serviceNanos)));
+            if (status >= 200 && status < 300) {
+                ok.increment();
+            } else if (status == 404) {
+                // 读、改、删的目标可能已被并发删除
+                notFound.increment();
+            } else if (status == 429) {
+                shed.increment();
+            } else {
+                errors.increment();
+            }
+        }
+
+        Row toRow(String operation, long durationSeconds) {
+            return new Row(operation, latency.getTotalCount(), ok.sum(), notFound.sum(), shed.sum(), errors.sum(),
+                    (double) ok.sum() / durationSeconds,
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0, latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * 结果文件中的一行，延迟单位为毫秒。
+     */
+    private record Row(String operation, long requests, long ok, long notFound, long shed, long errors, double okRps,
+                       double p50, double p90, double p99, double p999, double max) {
+    }
+
+    /**
+     * 按权重随机选择操作。
+     */
+    private record Mix(Operation[] operations, int[] cumulativeWeights, String description) {
+
+        static Mix parse(String spec) {
+            List<Operation> operations = new ArrayList<>();
+            List<Integer> cumulative = new ArrayList<>();
+            int sum = 0;
+            for (String part : spec.split(",")) {
+                String[] pair = part.trim().split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Invalid load.mix entry: " + part);
+                }
+                int weight = Integer.parseInt(pair[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight in load.mix: " + part);
+                }
+                if (weight > 0) {
+                    sum += weight;
+                    operations.add(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)));
+                    cumulative.add(sum);
+                }
+            }
+            if (sum == 0) {
+                throw new IllegalArgumentException("load.mix must contain at least one positive weight: " + spec);
+            }
+            return new Mix(operations.toArray(new Operation[0]), cumulative.stream().mapToInt(Integer::intValue).toArray(), spec);
+        }
+
+        Operation pick(SplittableRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; ; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * 已知交易ID的环形缓冲区，写满后覆盖最早的ID。被删除的ID不会移出，之后对它的请求返回 404。
+     */
+    private static final class IdPool {
+
+        private final AtomicLongArray ids;
+
+        private final AtomicLong count = new AtomicLong();
+
+        IdPool(int capacity) {
+            this.ids = new AtomicLongArray(capacity);
+        }
+
+        void add(long id) {
+            ids.set((int) (count.getAndIncrement() % ids.length()), id);
+        }
+
+        long pick(SplittableRandom random) {
+            int size = (int) Math.min(count.get(), ids.length());
+            return size == 0 ? 1 : Math.max(1, ids.get(random.nextInt(size)));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.banking.benchmark;
+
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 衡量 {@link TransactionServiceImpl#getTransactionById} 随机点查在不同存储规模下的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int storeSize;
+
+    private TransactionServiceImpl service;
+
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new TransactionServiceImpl();
+        ids = BenchmarkData.populate(service, storeSize);
+    }
+
+    @Benchmark
+    public Transaction getTransactionById() {
+        return service.getTransactionById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
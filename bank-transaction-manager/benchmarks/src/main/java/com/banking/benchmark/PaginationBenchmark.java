@@ -0,0 +1,54 @@
+package com.banking.benchmark;
+
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 衡量分页查询在不同存储规模和页深度下的开销，并与游标分页对比。
+ *
+ * <p>pageDepth 表示目标页在全部数据中的相对位置，0 为第一页，0.99 接近最后一页。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "1000000"})
+    private int storeSize;
+
+    @Param({"0", "0.5", "0.99"})
+    private double pageDepth;
+
+    private TransactionServiceImpl service;
+
+    private int page;
+
+    private long afterId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new TransactionServiceImpl();
+        long[] ids = BenchmarkData.populate(service, storeSize);
+        page = (int) (storeSize * pageDepth) / PAGE_SIZE;
+        afterId = page == 0 ? 0L : ids[page * PAGE_SIZE - 1];
+    }
+
+    @Benchmark
+    public List<Transaction> getAllTransactions() {
+        return service.getAllTransactions(page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsAfter() {
+        return service.getTransactionsAfter(afterId, PAGE_SIZE);
+    }
+}
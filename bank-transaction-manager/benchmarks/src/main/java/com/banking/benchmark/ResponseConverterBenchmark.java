@@ -0,0 +1,117 @@
+package com.banking.benchmark;
+
+import com.banking.codec.TransactionJsonConverter;
+import com.banking.dto.ApiResponse;
+import com.banking.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 Spring 默认的 {@link MappingJackson2HttpMessageConverter} 与 {@link TransactionJsonConverter}
+ * 写出交易响应的开销。
+ *
+ * <p>两者写入同一个可复用的输出消息，只衡量转换器本身；加上 {@code -prof gc} 可以对比每次写出的分配量。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseConverterBenchmark {
+
+    private static final Type SINGLE_TYPE = ResolvableType.forClassWithGenerics(ApiResponse.class, Transaction.class).getType();
+
+    private static final Type PAGE_TYPE = ResolvableType.forClassWithGenerics(ApiResponse.class,
+            ResolvableType.forClassWithGenerics(List.class, Transaction.class)).getType();
+
+    @Param({"jackson", "direct"})
+    private String converterType;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private GenericHttpMessageConverter<Object> converter;
+
+    private ApiResponse<Transaction> single;
+
+    private ApiResponse<List<Transaction>> page;
+
+    private BufferOutputMessage output;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        if ("direct".equals(converterType)) {
+            converter = (GenericHttpMessageConverter<Object>) (GenericHttpMessageConverter<?>) new TransactionJsonConverter(objectMapper);
+        } else {
+            converter = new MappingJackson2HttpMessageConverter(objectMapper);
+        }
+
+        single = new ApiResponse<>(true, new Transaction(1L, "Deposit", 100.0, 1L), "Transaction fetched successfully");
+        List<Transaction> transactions = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Transaction transaction = BenchmarkData.newTransaction(i);
+            transaction.setId(i + 1L);
+            transaction.setVersion(1L);
+            transactions.add(transaction);
+        }
+        page = new ApiResponse<>(true, transactions, "Transactions fetched successfully");
+        output = new BufferOutputMessage();
+    }
+
+    @Benchmark
+    public int writeTransaction() throws IOException {
+        output.reset();
+        converter.write(single, SINGLE_TYPE, MediaType.APPLICATION_JSON, output);
+        return output.body.size();
+    }
+
+    @Benchmark
+    public int writePage() throws IOException {
+        output.reset();
+        converter.write(page, PAGE_TYPE, MediaType.APPLICATION_JSON, output);
+        return output.body.size();
+    }
+
+    /**
+     * 可复用的输出消息，相当于一个不做任何网络 I/O 的响应。
+     */
+    private static final class BufferOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+
+        void reset() {
+            headers.clear();
+            body.reset();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
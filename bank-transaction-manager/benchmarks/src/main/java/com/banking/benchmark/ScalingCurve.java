@@ -0,0 +1,76 @@
+package com.banking.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ScalingCurve 以 1、2、4……直到 CPU 核数（或 {@code -Dthreads.max}）个线程依次运行 {@link ShardScalingBenchmark}，
+ * 打印单一存储与分片存储的吞吐量随线程数变化的曲线，并写入 {@code scaling-<被测版本>.csv}。
+ *
+ * <p>运行方式：{@code java -cp target/benchmarks.jar com.banking.benchmark.ScalingCurve [JMH 参数]}。</p>
+ */
+public final class ScalingCurve {
+
+    private ScalingCurve() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        int maxThreads = Integer.getInteger("threads.max", Runtime.getRuntime().availableProcessors());
+
+        // 基准测试名 → 线程数 → 吞吐量（ops/s）
+        Map<String, Map<Integer, Double>> curve = new TreeMap<>();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            threadCounts.add(threads);
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .include(ShardScalingBenchmark.class.getSimpleName())
+                    .threads(threads);
+            Collection<RunResult> results = new Runner(options.build()).run();
+            for (RunResult result : results) {
+                String benchmark = result.getParams().getBenchmark();
+                String name = benchmark.substring(benchmark.lastIndexOf('.') + 1) + "/" + result.getParams().getParam("store");
+                curve.computeIfAbsent(name, key -> new TreeMap<>()).put(threads, result.getPrimaryResult().getScore());
+            }
+        }
+
+        Path output = Paths.get("scaling-" + BenchmarkRunner.bankingVersion() + ".csv");
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(output))) {
+            StringBuilder header = new StringBuilder("benchmark");
+            threadCounts.forEach(threads -> header.append(",").append(threads));
+            csv.println(header);
+            System.out.println();
+            System.out.println("Throughput (ops/s) by thread count: " + threadCounts);
+            curve.forEach((name, scores) -> {
+                StringBuilder row = new StringBuilder(name);
+                StringBuilder line = new StringBuilder(String.format("%-32s", name));
+                double base = scores.getOrDefault(1, Double.NaN);
+                for (int threads : threadCounts) {
+                    double score = scores.getOrDefault(threads, Double.NaN);
+                    row.append(",").append(String.format("%.0f", score));
+                    line.append(String.format(" %14.0f (x%.1f)", score, score / base));
+                }
+                csv.println(row);
+                System.out.println(line);
+            });
+        } catch (IOException e) {
+            throw new IOException("Failed to write " + output, e);
+        }
+        System.out.println("Scaling curve saved to " + output);
+    }
+}
@@ -0,0 +1,85 @@
+package com.banking.benchmark;
+
+import com.banking.dto.ApiResponse;
+import com.banking.model.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 衡量响应体 {@link ApiResponse} 的 Jackson 序列化和请求体的反序列化开销。
+ *
+ * <p>ObjectMapper 的配置与 Spring Boot 为应用创建的默认实例一致。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private ApiResponse<Transaction> single;
+
+    private byte[] requestBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+        reader = objectMapper.readerFor(Transaction.class);
+
+        single = new ApiResponse<>(true, new Transaction(1L, "Deposit", 100.0), "Transaction fetched successfully");
+        requestBody = objectMapper.writeValueAsBytes(new Transaction(null, "Deposit", 100.0));
+    }
+
+    @Benchmark
+    public byte[] serializeTransaction() throws JsonProcessingException {
+        return writer.writeValueAsBytes(single);
+    }
+
+    @Benchmark
+    public byte[] serializePage(PageState state) throws JsonProcessingException {
+        return writer.writeValueAsBytes(state.page);
+    }
+
+    @Benchmark
+    public Transaction deserializeTransaction() throws IOException {
+        return reader.readValue(requestBody);
+    }
+
+    /**
+     * 分页响应，只有 serializePage 使用，因此 pageSize 参数不会放大其他基准测试的组合数。
+     */
+    @State(Scope.Benchmark)
+    public static class PageState {
+
+        @Param({"10", "100"})
+        private int pageSize;
+
+        private ApiResponse<List<Transaction>> page;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<Transaction> transactions = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                Transaction transaction = BenchmarkData.newTransaction(i);
+                transaction.setId(i + 1L);
+                transactions.add(transaction);
+            }
+            page = new ApiResponse<>(true, transactions, "Transactions fetched successfully");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.banking.benchmark;
+
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import com.banking.service.impl.ShardedTransactionServiceImpl;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比单一哈希表存储与分片存储在多线程下的创建和点查吞吐量。
+ *
+ * <p>线程数通过 {@code -t} 指定；{@link ScalingCurve} 依次以 1、2、4……个线程运行本基准测试并输出扩展曲线。</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardScalingBenchmark {
+
+    @Param({"single", "sharded"})
+    private String store;
+
+    @Param({"100000"})
+    private int storeSize;
+
+    private TransactionService service;
+
+    private long[] ids;
+
+    /**
+     * 每轮迭代重建存储，避免存储随创建操作无限增长。
+     */
+    @Setup(Level.Iteration)
+    public void setUp() throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        service = "sharded".equals(store) ? new ShardedTransactionServiceImpl(cores) : new TransactionServiceImpl();
+        ids = BenchmarkData.populateConcurrently(service, storeSize, cores);
+    }
+
+    @Benchmark
+    public Transaction createTransaction() {
+        return service.createTransaction(BenchmarkData.newTransaction(ThreadLocalRandom.current().nextInt()));
+    }
+
+    @Benchmark
+    public Transaction getTransactionById() {
+        return service.getTransactionById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
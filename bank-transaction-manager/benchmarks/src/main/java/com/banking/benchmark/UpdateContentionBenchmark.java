@@ -0,0 +1,44 @@
+package com.banking.benchmark;
+
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 衡量多线程并发执行 {@link TransactionServiceImpl#updateTransaction} 时的开销。
+ *
+ * <p>所有线程只更新 hotKeys 条记录，hotKeys 越小，线程在同一条记录上的竞争越激烈。
+ * 线程数可以通过 {@code -t} 参数调整。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class UpdateContentionBenchmark {
+
+    @Param({"1", "16", "4096"})
+    private int hotKeys;
+
+    private TransactionServiceImpl service;
+
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new TransactionServiceImpl();
+        ids = BenchmarkData.populate(service, hotKeys);
+    }
+
+    @Benchmark
+    public Transaction updateTransaction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction details = new Transaction(null, "Transfer", 1.0 + random.nextInt(10_000));
+        return service.updateTransaction(ids[random.nextInt(ids.length)], details);
+    }
+}
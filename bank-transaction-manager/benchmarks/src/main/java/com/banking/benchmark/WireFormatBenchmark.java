@@ -0,0 +1,72 @@
+package com.banking.benchmark;
+
+import com.banking.config.CborConfig;
+import com.banking.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 JSON 与 CBOR 两种传输编码下每条交易记录的编码、解码耗时和字节数。
+ *
+ * <p>每次调用编码或解码一个 {@value #RECORDS} 条记录的数组（与批量接口的请求体相同），
+ * 结果按记录数归一化为每条记录的纳秒数；每条记录的平均字节数在 Setup 时打印。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    static final int RECORDS = 100;
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private List<Transaction> records;
+
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper mapper = "cbor".equals(format) ? CborConfig.cborMapper(objectMapper) : objectMapper;
+        writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Transaction.class));
+        reader = mapper.readerForListOf(Transaction.class);
+
+        records = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            Transaction transaction = BenchmarkData.newTransaction(i);
+            transaction.setId(1_000_000L + i);
+            transaction.setVersion(1L);
+            records.add(transaction);
+        }
+        encoded = writer.writeValueAsBytes(records);
+        System.out.printf("%n%s: %.1f bytes/record%n", format, encoded.length / (double) RECORDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(records);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public List<Transaction> decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
@@ -0,0 +1,178 @@
+package com.banking.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AdaptiveConcurrencyLimiter 限制同时执行的请求数，并根据测得的延迟调整上限（梯度算法）。
+ *
+ * <p>每攒满一个窗口的样本，用窗口内的平均延迟（短期延迟）与长期延迟的指数平均比较：
+ * 梯度 = clamp(tolerance × 长期延迟 / 短期延迟, 0.5, 1)。延迟没有超出长期水平的 tolerance 倍时梯度为 1，
+ * 上限在当前值的基础上再加 √limit 的排队余量；延迟上升时上限按梯度成比例收缩，最多减半。
+ * 新上限与旧上限按 smoothing 加权平均，避免抖动。</p>
+ *
+ * <p>窗口内的最大并发不到上限一半时说明负载没有用满上限，此时不调整，防止低负载期间上限无限增长；
+ * 短期延迟远低于长期延迟时（例如负载退去后），长期延迟逐步衰减以跟上新的基线。</p>
+ *
+ * <p>超出上限的请求立即被拒绝而不是排队，因此已接纳请求的延迟只取决于上限，而与到达的请求数无关。</p>
+ *
+ * <p>样本无锁地累加到当前窗口；只有攒满窗口的那个线程换上新窗口并加锁调整上限，
+ * 因此每个窗口只进入一次临界区，而不是每个请求完成时都争用同一把锁。</p>
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 长期延迟的指数平均所覆盖的窗口数。
+     */
+    private static final int LONG_WINDOWS = 20;
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final double smoothing;
+
+    private final int windowSize;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double longRttNanos;
+
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window());
+
+    /**
+     * @param name 名称，用于指标标签和拒绝消息
+     * @param minLimit 上限的下界
+     * @param maxLimit 上限的上界
+     * @param initialLimit 初始上限
+     * @param tolerance 可容忍的延迟倍数，短期延迟不超过长期延迟的该倍数时视为未过载
+     * @param smoothing 新上限的权重（0, 1]
+     * @param windowSize 每次调整所需的样本数
+     */
+    public AdaptiveConcurrencyLimiter(String name, int minLimit, int maxLimit, int initialLimit,
+                                      double tolerance, double smoothing, int windowSize) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits for " + name + ": " + minLimit + ".." + maxLimit);
+        }
+        if (tolerance < 1 || smoothing <= 0 || smoothing > 1 || windowSize < 1) {
+            throw new IllegalArgumentException("Invalid limiter settings for " + name);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowSize = windowSize;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 尝试占用一个并发名额。
+     *
+     * @return 并发数未达到上限时返回 true，调用方结束后必须调用 {@link #release}；否则返回 false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放 {@link #tryAcquire} 占用的名额，并记录该请求的延迟。
+     *
+     * @param rttNanos 请求从被接纳到完成的耗时
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        onSample(rttNanos, current);
+    }
+
+    /**
+     * 记录一个延迟样本，攒满一个窗口后调整上限。
+     *
+     * @param rttNanos 请求耗时
+     * @param inFlightAtCompletion 请求完成时（含自身）的并发数
+     */
+    void onSample(long rttNanos, int inFlightAtCompletion) {
+        Window current = window.get();
+        current.rttSum.add(Math.max(1, rttNanos));
+        current.maxInFlight.accumulate(inFlightAtCompletion);
+        if (current.samples.incrementAndGet() != windowSize) {
+            return;
+        }
+        // 恰好攒满窗口的线程负责换窗口；换窗口前后落入旧窗口的少量样本一并计入它的平均值
+        window.set(new Window());
+        double shortRtt = (double) current.rttSum.sum() / Math.max(windowSize, current.samples.get());
+        adjust(shortRtt, (int) current.maxInFlight.get());
+    }
+
+    private synchronized void adjust(double shortRtt, int maxInFlight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+            return;
+        }
+        longRttNanos += (shortRtt - longRttNanos) / LONG_WINDOWS;
+        if (longRttNanos / shortRtt > 2) {
+            // 负载退去后延迟明显下降，长期延迟加速衰减到新的基线
+            longRttNanos *= 0.95;
+        }
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 当前的并发上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return 当前正在执行的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 一个采样窗口内累加的样本。
+     */
+    private static final class Window {
+
+        private final LongAdder rttSum = new LongAdder();
+
+        private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+
+        private final AtomicInteger samples = new AtomicInteger();
+    }
+}
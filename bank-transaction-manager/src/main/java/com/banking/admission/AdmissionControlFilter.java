@@ -0,0 +1,156 @@
+package com.banking.admission;
+
+import com.banking.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AdmissionControlFilter 在交易接口之前做准入控制：读请求（GET、HEAD）和写请求各有一个
+ * {@link AdaptiveConcurrencyLimiter}，并发数达到上限时立即返回 429 和 Retry-After，而不是让请求在线程池中排队。
+ *
+ * <p>过载时被接纳的请求仍能在有界的延迟内完成，客户端按 Retry-After 退避后重试；读写分开限流，
+ * 写入积压不会挤占读请求的名额。变更流、导出和导入是长时间的流式请求，
+ * 既不应长期占用名额，其耗时也不能代表普通请求的延迟，因此不经过限流。</p>
+ *
+ * <p>排在 HTTP 指标过滤器之后、其它业务过滤器之前，被拒绝的请求同样计入 http.server.requests，
+ * 集群转发和副本等待也受上限约束。</p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "banking.admission.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionControlFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final String BASE_PATH = "/api/transactions";
+
+    private static final String CHANGES_PATH = BASE_PATH + "/changes";
+
+    private static final String EXPORT_PATH = BASE_PATH + "/export";
+
+    private static final String IMPORT_PATH = BASE_PATH + "/import";
+
+    private final ObjectMapper objectMapper;
+
+    private final AdaptiveConcurrencyLimiter readLimiter;
+
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+
+    private final String retryAfter;
+
+    private final LongAdder readRejections = new LongAdder();
+
+    private final LongAdder writeRejections = new LongAdder();
+
+    @Autowired
+    public AdmissionControlFilter(ObjectMapper objectMapper,
+                                  @Value("${banking.admission.min-limit:16}") int minLimit,
+                                  @Value("${banking.admission.initial-limit:64}") int initialLimit,
+                                  @Value("${banking.admission.read.max-limit:200}") int readMaxLimit,
+                                  @Value("${banking.admission.write.max-limit:100}") int writeMaxLimit,
+                                  @Value("${banking.admission.tolerance:1.5}") double tolerance,
+                                  @Value("${banking.admission.smoothing:0.2}") double smoothing,
+                                  @Value("${banking.admission.window:50}") int window,
+                                  @Value("${banking.admission.retry-after:1s}") Duration retryAfter) {
+        this(objectMapper,
+                new AdaptiveConcurrencyLimiter("read", minLimit, readMaxLimit, initialLimit, tolerance, smoothing, window),
+                new AdaptiveConcurrencyLimiter("write", minLimit, writeMaxLimit, initialLimit, tolerance, smoothing, window),
+                retryAfter);
+    }
+
+    public AdmissionControlFilter(ObjectMapper objectMapper, AdaptiveConcurrencyLimiter readLimiter,
+                                  AdaptiveConcurrencyLimiter writeLimiter, Duration retryAfter) {
+        this.objectMapper = objectMapper;
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+        // Retry-After 以秒为单位，不足一秒按一秒计
+        this.retryAfter = Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+
+    /**
+     * 注册读写两类请求的并发上限、当前并发数和被拒绝次数的指标。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, readLimiter, readRejections);
+        bind(registry, writeLimiter, writeRejections);
+    }
+
+    private static void bind(MeterRegistry registry, AdaptiveConcurrencyLimiter limiter, LongAdder rejections) {
+        Gauge.builder("banking.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("class", limiter.getName())
+                .register(registry);
+        Gauge.builder("banking.admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently admitted and executing")
+                .tag("class", limiter.getName())
+                .register(registry);
+        FunctionCounter.builder("banking.admission.rejected", rejections, LongAdder::sum)
+                .description("Requests shed with 429 because the concurrency limit was reached")
+                .tag("class", limiter.getName())
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(BASE_PATH) || path.startsWith(CHANGES_PATH) || path.startsWith(EXPORT_PATH)
+                || path.startsWith(IMPORT_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        AdaptiveConcurrencyLimiter limiter = read ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            (read ? readRejections : writeRejections).increment();
+            reject(response, limiter);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private void reject(HttpServletResponse response, AdaptiveConcurrencyLimiter limiter) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<Void>(false, null,
+                "Too many concurrent " + limiter.getName() + " requests (limit " + limiter.getLimit() + "); retry later"));
+    }
+
+    public AdaptiveConcurrencyLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    public AdaptiveConcurrencyLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+}
@@ -0,0 +1,276 @@
+package com.banking.changes;
+
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.ChangeEvent.Operation;
+import com.banking.exception.InvalidInputException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ChangeFeed 是进程内的变更流：存储的每次创建、更新和删除都发布一条 {@link ChangeEvent}，
+ * 订阅者通过 {@link #subscribe(Long)} 从任意仍在缓冲区内的序号开始接收后续事件。
+ *
+ * <p>事件保存在固定容量的无锁环形缓冲区中：写线程只用一次原子自增领取序号，再把事件写入对应槽位，
+ * 不加锁、不等待、也不感知订阅者。每个订阅者自己记录读取位置，按下游的需求从缓冲区拉取事件，
+ * 慢订阅者只会落后，不会拖慢写操作；落后超过缓冲区容量时，被覆盖的事件以一条
+ * {@link Operation#LAGGED} 事件告知订阅者，并从仍保留的最旧事件继续，同时计入
+ * {@code banking.changes.lagged} 和 {@code banking.changes.missed} 指标。</p>
+ *
+ * <p>已有需求的订阅者由一个分发线程推送新事件，写线程只在分发线程空闲时唤醒它一次。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.changes.enabled", havingValue = "true", matchIfMissing = true)
+public class ChangeFeed implements MeterBinder, SmartLifecycle {
+
+    private final AtomicReferenceArray<ChangeEvent> ring;
+
+    private final int mask;
+
+    /**
+     * 最近一次领取的事件序号。
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final long pollIntervalNanos;
+
+    private final LongAdder lagged = new LongAdder();
+
+    private final LongAdder missed = new LongAdder();
+
+    /**
+     * 分发线程是否处于等待新事件的状态，写线程据此决定是否需要唤醒它。
+     */
+    private volatile boolean idle;
+
+    private volatile boolean running;
+
+    private Thread dispatcher;
+
+    /**
+     * @param capacity 缓冲区保留的事件数量，向上取整为 2 的幂
+     * @param pollInterval 分发线程在没有被唤醒时检查新事件的最长间隔
+     */
+    @Autowired
+    public ChangeFeed(@Value("${banking.changes.buffer-size:65536}") int capacity,
+                      @Value("${banking.changes.poll-interval:50ms}") Duration pollInterval) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Change feed buffer size must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity * 2 - 1));
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.pollIntervalNanos = pollInterval.toNanos();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "change-feed-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        subscriptions.forEach(subscription -> subscription.sink.complete());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.changes.sequence", this, ChangeFeed::head)
+                .description("Sequence number of the latest published change event")
+                .register(registry);
+        Gauge.builder("banking.changes.subscribers", subscriptions, Set::size)
+                .description("Number of active change feed subscribers")
+                .register(registry);
+        FunctionCounter.builder("banking.changes.lagged", lagged, LongAdder::sum)
+                .description("Times a change feed subscriber fell behind the ring buffer and skipped events")
+                .register(registry);
+        FunctionCounter.builder("banking.changes.missed", missed, LongAdder::sum)
+                .description("Change events overwritten before a lagging subscriber could read them")
+                .register(registry);
+    }
+
+    /**
+     * 发布一条变更。调用方需保证同一记录的变更按修改内存的顺序发布。
+     *
+     * @param type 删除事件为 null
+     * @param amount 删除事件为 null
+     * @param version 写入后（删除时为删除前）记录的版本号
+     */
+    public void publish(Operation op, long id, String type, Double amount, long version) {
+        long next = sequence.incrementAndGet();
+        ring.setRelease((int) next & mask, ChangeEvent.of(next, op, id, type, amount, version));
+        if (idle) {
+            idle = false;
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    /**
+     * @return 最近一次发布的事件序号，没有事件时为 0
+     */
+    public long head() {
+        return sequence.get();
+    }
+
+    /**
+     * @return 订阅者因落后而跳过事件的次数
+     */
+    public long getLaggedCount() {
+        return lagged.sum();
+    }
+
+    /**
+     * 订阅变更流。
+     *
+     * @param afterSequence 已处理的最后一个事件序号，从其后开始接收；null 表示只接收订阅之后的新事件
+     * @return 事件流，取消订阅即停止接收
+     */
+    public Flux<ChangeEvent> subscribe(Long afterSequence) {
+        return Flux.create(sink -> {
+            Subscription subscription = new Subscription(sink, afterSequence == null ? head() : afterSequence);
+            subscriptions.add(subscription);
+            sink.onRequest(n -> subscription.drain());
+            sink.onDispose(() -> subscriptions.remove(subscription));
+            LockSupport.unpark(dispatcher);
+        });
+    }
+
+    /**
+     * 以 Server-Sent Events 的形式订阅变更流：事件名为操作类型的小写形式，事件 id 为序号，
+     * 客户端断线重连时通过 Last-Event-ID 带回最后收到的序号即可无缝续传。
+     * 流以一条注释开头，写明起始序号，同时让响应头立即发出，不必等到第一条变更。
+     *
+     * @param afterSequence 同 {@link #subscribe(Long)}
+     * @throws InvalidInputException 如果序号为负数
+     */
+    public Flux<ServerSentEvent<ChangeEvent>> events(Long afterSequence) {
+        if (afterSequence != null && afterSequence < 0) {
+            throw new InvalidInputException("Change sequence must be >= 0");
+        }
+        return Flux.defer(() -> {
+            long from = afterSequence == null ? head() : afterSequence;
+            return subscribe(from).map(event -> ServerSentEvent.builder(event)
+                            .id(Long.toString(event.getSequence()))
+                            .event(event.getOp().name().toLowerCase(Locale.ROOT))
+                            .build())
+                    .startWith(ServerSentEvent.<ChangeEvent>builder().comment("after " + from).build());
+        });
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            long observed = head();
+            for (Subscription subscription : subscriptions) {
+                subscription.drain();
+            }
+            if (subscriptions.isEmpty()) {
+                // 没有订阅者时不需要被写线程唤醒，由新的订阅唤醒
+                LockSupport.park(this);
+            } else {
+                idle = true;
+                if (head() == observed) {
+                    LockSupport.parkNanos(this, pollIntervalNanos);
+                }
+                idle = false;
+            }
+        }
+    }
+
+    /**
+     * 一个订阅者的读取位置。drain 可能由分发线程和下游请求线程同时调用，通过 wip 计数保证串行执行。
+     */
+    private final class Subscription {
+        private final FluxSink<ChangeEvent> sink;
+        private final AtomicInteger wip = new AtomicInteger();
+
+        /**
+         * 已交付的最后一个事件序号，只在 drain 内访问。
+         */
+        private long cursor;
+
+        private Subscription(FluxSink<ChangeEvent> sink, long cursor) {
+            this.sink = sink;
+            this.cursor = cursor;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int pending = 1;
+            do {
+                long requested = sink.requestedFromDownstream();
+                while (requested > 0 && !sink.isCancelled()) {
+                    ChangeEvent event = next();
+                    if (event == null) {
+                        break;
+                    }
+                    sink.next(event);
+                    requested--;
+                }
+                pending = wip.addAndGet(-pending);
+            } while (pending != 0);
+        }
+
+        /**
+         * @return 下一条要交付的事件；尚未发布时返回 null
+         */
+        private ChangeEvent next() {
+            long head = head();
+            if (cursor > head) {
+                // 起始位置超出已发布的序号（例如服务重启后序号重新开始），无法衔接
+                cursor = head;
+                lagged.increment();
+                return ChangeEvent.lagged(head, null);
+            }
+            long wanted = cursor + 1;
+            ChangeEvent event = ring.getAcquire((int) wanted & mask);
+            if (event != null && event.getSequence() == wanted) {
+                cursor = wanted;
+                return event;
+            }
+            long oldest = head - ring.length() + 1;
+            if (wanted < oldest) {
+                // 所需事件已被覆盖：从仍保留的最旧事件继续
+                long skipped = oldest - wanted;
+                cursor = oldest - 1;
+                lagged.increment();
+                missed.add(skipped);
+                return ChangeEvent.lagged(cursor, skipped);
+            }
+            // 序号已领取但事件尚未写入槽位
+            return null;
+        }
+    }
+}
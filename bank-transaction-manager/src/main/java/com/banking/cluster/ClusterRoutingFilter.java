@@ -0,0 +1,496 @@
+package com.banking.cluster;
+
+import com.banking.config.CborConfig;
+import com.banking.dto.ApiResponse;
+import com.banking.dto.TransactionStats;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ClusterRoutingFilter 是位于 {@link com.banking.controller.TransactionController} 之前的集群路由层。
+ *
+ * <ul>
+ *     <li>按 ID 的查询、更新和删除被转发到拥有该 ID 的节点，响应原样返回；</li>
+ *     <li>不带过滤条件的分页列表先取得各节点的记录数，只从目标页所在的节点读取该页；</li>
+ *     <li>游标列表、过滤查询和统计在所有节点上并行执行，再按与单机相同的顺序合并；</li>
+ *     <li>导出按节点下标依次拼接各节点的导出流，结果与单机一样按 ID 升序；</li>
+ *     <li>创建、批量创建和导入由接收请求的节点在本地处理。</li>
+ * </ul>
+ *
+ * <p>节点之间的请求带有 {@link #FORWARDED_HEADER} 头，收到这类请求的节点只在本地处理，不会再次路由。
+ * 参数非法的列表请求同样交给本地控制器处理，以返回与单机一致的校验错误。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.cluster.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+
+    /**
+     * 标记节点间请求的请求头。
+     */
+    public static final String FORWARDED_HEADER = "X-Banking-Forwarded";
+
+    private static final String BASE_PATH = "/api/transactions";
+
+    private static final String STATS_PATH = BASE_PATH + "/stats";
+
+    private static final String EXPORT_PATH = BASE_PATH + "/export";
+
+    private static final Pattern ID_PATH = Pattern.compile(Pattern.quote(BASE_PATH) + "/(\\d{1,18})");
+
+    /**
+     * 不能跨连接转发的逐跳头，以及由 HTTP 客户端或容器自行设置的头。
+     */
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "proxy-connection",
+            "transfer-encoding", "te", "trailer", "upgrade", "http2-settings", "host", "content-length", "expect");
+
+    private static final Comparator<Transaction> BY_ID = Comparator.comparing(Transaction::getId);
+
+    private static final Comparator<Transaction> BY_AMOUNT =
+            Comparator.comparing(Transaction::getAmount).thenComparing(Transaction::getId);
+
+    private static final TypeReference<List<Transaction>> TRANSACTION_LIST = new TypeReference<>() {
+    };
+
+    private static final TypeReference<Map<String, TransactionStats>> STATISTICS = new TypeReference<>() {
+    };
+
+    private final ClusterTopology topology;
+
+    private final TransactionService transactionService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectMapper cborMapper;
+
+    private final Duration timeout;
+
+    private final HttpClient client;
+
+    @Autowired
+    public ClusterRoutingFilter(ClusterTopology topology, TransactionService transactionService, ObjectMapper objectMapper,
+                                @Value("${banking.cluster.timeout:5s}") Duration timeout) {
+        this.topology = topology;
+        this.transactionService = transactionService;
+        this.objectMapper = objectMapper;
+        this.cborMapper = CborConfig.cborMapper(objectMapper);
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(FORWARDED_HEADER) != null || !pathOf(request).startsWith(BASE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = pathOf(request);
+        String method = request.getMethod();
+        try {
+            Matcher matcher = ID_PATH.matcher(path);
+            if (matcher.matches() && ("GET".equals(method) || "PUT".equals(method) || "DELETE".equals(method))) {
+                int owner = topology.ownerOf(Long.parseLong(matcher.group(1)));
+                if (owner >= 0 && owner != topology.getLocalIndex()) {
+                    forward(owner, path, request, response);
+                    return;
+                }
+            } else if ("GET".equals(method) && BASE_PATH.equals(path)) {
+                if (scatterList(request, response)) {
+                    return;
+                }
+            } else if ("GET".equals(method) && STATS_PATH.equals(path)) {
+                scatterStatistics(request, response);
+                return;
+            } else if ("GET".equals(method) && EXPORT_PATH.equals(path)) {
+                gatherExport(request, response);
+                return;
+            }
+        } catch (ClusterNodeException e) {
+            writeBody(request, response, HttpStatus.SERVICE_UNAVAILABLE.value(), new ApiResponse<Void>(false, null, e.getMessage()));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * 把请求原样转发到 owner 节点，并把其响应（状态码、响应头和响应体）写回客户端。
+     */
+    private void forward(int owner, String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(nodeUri(owner, path, request.getQueryString()))
+                .timeout(timeout)
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (Enumeration<String> names = request.getHeaderNames(); names.hasMoreElements(); ) {
+            String name = names.nextElement();
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                for (Enumeration<String> values = request.getHeaders(name); values.hasMoreElements(); ) {
+                    builder.header(name, values.nextElement());
+                }
+            }
+        }
+        builder.header(FORWARDED_HEADER, Integer.toString(topology.getLocalIndex()));
+
+        HttpResponse<byte[]> remote = join(owner, client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray()));
+        response.setStatus(remote.statusCode());
+        remote.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase()) && !name.startsWith(":")) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.getOutputStream().write(remote.body());
+    }
+
+    /**
+     * 在所有节点上执行列表查询并合并。每个节点返回其前 (page + 1) * size 条（游标模式下前 limit 条）记录，
+     * 合并后按单机相同的顺序取出目标页。不带过滤条件的分页列表交给 {@link #scatterPage} 处理。
+     *
+     * @return 参数无法解析或非法（包括游标与过滤条件同时出现）时返回 false，交给本地控制器处理
+     */
+    private boolean scatterList(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Supplier<List<Transaction>> local;
+        String query;
+        Comparator<Transaction> order = BY_ID;
+        long offset = 0;
+        int limit;
+        try {
+            if (request.getParameter("afterId") != null) {
+                long afterId = Long.parseLong(request.getParameter("afterId"));
+                limit = intParameter(request, "limit", 10);
+                if (afterId < 0 || limit < 1 || request.getParameter("type") != null
+                        || request.getParameter("minAmount") != null || request.getParameter("maxAmount") != null) {
+                    return false;
+                }
+                query = "afterId=" + afterId + "&limit=" + limit;
+                int cursorLimit = limit;
+                local = () -> transactionService.getTransactionsAfter(afterId, cursorLimit);
+            } else {
+                int page = intParameter(request, "page", 0);
+                limit = intParameter(request, "size", 10);
+                String type = request.getParameter("type");
+                Double minAmount = doubleParameter(request, "minAmount");
+                Double maxAmount = doubleParameter(request, "maxAmount");
+                if (page < 0 || limit < 1) {
+                    return false;
+                }
+                if (type == null && minAmount == null && maxAmount == null) {
+                    scatterPage(request, response, (long) page * limit, limit);
+                    return true;
+                }
+                long needed = (long) (page + 1) * limit;
+                if (needed > Integer.MAX_VALUE || (minAmount != null && maxAmount != null && minAmount > maxAmount)) {
+                    return false;
+                }
+                offset = (long) page * limit;
+                local = () -> transactionService.findTransactions(type, minAmount, maxAmount, 0, (int) needed);
+                StringBuilder filter = new StringBuilder("page=0&size=").append(needed);
+                if (type != null) {
+                    filter.append("&type=").append(URLEncoder.encode(type, StandardCharsets.UTF_8));
+                }
+                if (minAmount != null) {
+                    filter.append("&minAmount=").append(minAmount);
+                }
+                if (maxAmount != null) {
+                    filter.append("&maxAmount=").append(maxAmount);
+                }
+                if (minAmount != null || maxAmount != null) {
+                    order = BY_AMOUNT;
+                }
+                query = filter.toString();
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        // 先发出远程请求，再执行本地查询，两者并行
+        List<CompletableFuture<List<Transaction>>> remotes = fetchRemote(BASE_PATH, query, TRANSACTION_LIST);
+        List<Transaction> merged = new ArrayList<>(local.get());
+        for (int node = 0; node < remotes.size(); node++) {
+            CompletableFuture<List<Transaction>> remote = remotes.get(node);
+            if (remote != null) {
+                merged.addAll(join(node, remote));
+            }
+        }
+        merged.sort(order);
+        int from = (int) Math.min(offset, merged.size());
+        List<Transaction> page = merged.subList(from, Math.min(merged.size(), from + limit));
+        writeBody(request, response, HttpStatus.OK.value(), new ApiResponse<>(true, new ArrayList<>(page), "Transactions fetched successfully"));
+        return true;
+    }
+
+    /**
+     * 不带过滤条件、按 ID 排序的分页列表。各节点拥有连续且按下标递增的 ID 区间，全局的 ID 顺序就是各节点的记录
+     * 按节点下标依次拼接，因此先并行取得各节点的记录数，找到第 offset 条记录所在的节点，只从该节点
+     * （页跨越区间边界时还有其后的节点）读取这一页。网络传输和合并的数据量只与页大小有关，不随页的深度增长；
+     * 但所属节点仍要在本地按 ID 顺序跳过该节点内的偏移量，这部分代价与页的深度成正比。
+     *
+     * <p>记录数和页内容分别读取，期间的并发写入可能让结果与某一时刻的单机视图略有出入，与跨节点合并一样是弱一致的。</p>
+     */
+    private void scatterPage(HttpServletRequest request, HttpServletResponse response, long offset, int limit) throws IOException {
+        long[] counts = nodeCounts();
+        List<Transaction> page = new ArrayList<>(Math.min(limit, 1024));
+        long skip = offset;
+        for (int node = 0; node < counts.length && page.size() < limit; node++) {
+            if (skip >= counts[node]) {
+                skip -= counts[node];
+                continue;
+            }
+            page.addAll(slice(node, skip, limit - page.size()));
+            skip = 0;
+        }
+        writeBody(request, response, HttpStatus.OK.value(), new ApiResponse<>(true, page, "Transactions fetched successfully"));
+    }
+
+    /**
+     * @return 按节点下标排列的各节点记录数，远程节点的记录数由其统计中各类型的数量相加得到
+     */
+    private long[] nodeCounts() {
+        List<CompletableFuture<Map<String, TransactionStats>>> remotes = fetchRemote(STATS_PATH, null, STATISTICS);
+        long[] counts = new long[topology.size()];
+        counts[topology.getLocalIndex()] = transactionService.getTransactionCount();
+        for (int node = 0; node < remotes.size(); node++) {
+            CompletableFuture<Map<String, TransactionStats>> remote = remotes.get(node);
+            if (remote != null) {
+                counts[node] = join(node, remote).values().stream().mapToLong(TransactionStats::getCount).sum();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 读取节点按 ID 排序后从第 offset 条开始的至多 length 条记录。offset 不是 length 的整数倍时
+     * 该片段跨越两个大小为 length 的页，两页并行读取后再截取。
+     */
+    private List<Transaction> slice(int node, long offset, int length) {
+        long first = offset / length;
+        int skip = (int) (offset % length);
+        if (first + 1 > Integer.MAX_VALUE) {
+            return List.of();
+        }
+        List<Transaction> rows;
+        if (node == topology.getLocalIndex()) {
+            rows = new ArrayList<>(transactionService.getAllTransactions((int) first, length));
+            if (skip > 0) {
+                rows.addAll(transactionService.getAllTransactions((int) first + 1, length));
+            }
+        } else {
+            CompletableFuture<List<Transaction>> head = fetch(node, BASE_PATH, "page=" + first + "&size=" + length, TRANSACTION_LIST);
+            CompletableFuture<List<Transaction>> tail = skip > 0
+                    ? fetch(node, BASE_PATH, "page=" + (first + 1) + "&size=" + length, TRANSACTION_LIST)
+                    : null;
+            rows = new ArrayList<>(join(node, head));
+            if (tail != null) {
+                rows.addAll(join(node, tail));
+            }
+        }
+        int from = Math.min(skip, rows.size());
+        return rows.subList(from, Math.min(rows.size(), from + length));
+    }
+
+    /**
+     * 合并所有节点的统计：数量和总额相加，最小值和最大值取各节点的极值。
+     */
+    private void scatterStatistics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<CompletableFuture<Map<String, TransactionStats>>> remotes = fetchRemote(STATS_PATH, null, STATISTICS);
+        Map<String, TransactionStats> merged = new TreeMap<>(transactionService.getStatistics());
+        for (int node = 0; node < remotes.size(); node++) {
+            CompletableFuture<Map<String, TransactionStats>> remote = remotes.get(node);
+            if (remote != null) {
+                join(node, remote).forEach((type, stats) -> merged.merge(type, stats, (a, b) -> new TransactionStats(
+                        a.getCount() + b.getCount(), a.getSum() + b.getSum(),
+                        Math.min(a.getMin(), b.getMin()), Math.max(a.getMax(), b.getMax()))));
+            }
+        }
+        writeBody(request, response, HttpStatus.OK.value(), new ApiResponse<>(true, merged, "Statistics fetched successfully"));
+    }
+
+    /**
+     * 导出整个集群的记录。NDJSON 和 CBOR 序列都可以直接拼接，而各节点的 ID 区间按下标递增，
+     * 因此依次转发各节点（包括本节点，由其控制器在本地处理）的导出流即得到按 ID 升序的完整导出。
+     *
+     * <p>所有节点的请求同时发出，收到全部响应头且状态均为 200 后才开始写出，任一节点不可用时返回 503。
+     * 响应体边读边写，未读取的数据由 TCP 流控留在发送方，内存占用与数据总量无关。
+     * 写出过程中某个节点断开时只能中止响应，客户端会收到不完整的流。</p>
+     */
+    private void gatherExport(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        List<CompletableFuture<HttpResponse<InputStream>>> exports = new ArrayList<>(topology.size());
+        for (int node = 0; node < topology.size(); node++) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(nodeUri(node, EXPORT_PATH, null))
+                    .timeout(timeout)
+                    .header(FORWARDED_HEADER, Integer.toString(topology.getLocalIndex()))
+                    .GET();
+            if (accept != null) {
+                builder.header(HttpHeaders.ACCEPT, accept);
+            }
+            exports.add(client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream()));
+        }
+        List<HttpResponse<InputStream>> streams = new ArrayList<>(exports.size());
+        try {
+            for (int node = 0; node < exports.size(); node++) {
+                HttpResponse<InputStream> remote = join(node, exports.get(node));
+                streams.add(remote);
+                if (remote.statusCode() != HttpStatus.OK.value()) {
+                    throw new ClusterNodeException("Cluster node " + topology.nodeUri(node).getAuthority()
+                            + " returned status " + remote.statusCode());
+                }
+            }
+            response.setStatus(HttpStatus.OK.value());
+            streams.get(0).headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(response::setContentType);
+            for (HttpResponse<InputStream> remote : streams) {
+                try (InputStream body = remote.body()) {
+                    body.transferTo(response.getOutputStream());
+                }
+                response.flushBuffer();
+            }
+        } finally {
+            // 中途失败时关闭其余节点的响应流，尚未返回的请求在返回后关闭
+            exports.forEach(export -> export.thenAccept(remote -> closeQuietly(remote.body())));
+        }
+    }
+
+    /**
+     * 并行向除本节点外的所有节点发送 GET 请求，解析响应中的 data 字段。
+     *
+     * @return 按节点下标排列的结果，本节点的位置为 null
+     */
+    private <T> List<CompletableFuture<T>> fetchRemote(String path, String query, TypeReference<T> type) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(Collections.nCopies(topology.size(), null));
+        for (int node = 0; node < topology.size(); node++) {
+            if (node != topology.getLocalIndex()) {
+                futures.set(node, fetch(node, path, query, type));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 向一个节点发送 GET 请求，解析响应中的 data 字段。
+     */
+    private <T> CompletableFuture<T> fetch(int node, String path, String query, TypeReference<T> type) {
+        URI uri = nodeUri(node, path, query);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, Integer.toString(topology.getLocalIndex()))
+                .header("Accept", MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+        Function<HttpResponse<byte[]>, T> parse = remote -> {
+            if (remote.statusCode() != HttpStatus.OK.value()) {
+                throw new ClusterNodeException("Cluster node " + uri.getAuthority() + " returned status " + remote.statusCode());
+            }
+            try {
+                JsonNode data = objectMapper.readTree(remote.body()).get("data");
+                return objectMapper.convertValue(data, type);
+            } catch (IOException e) {
+                throw new ClusterNodeException("Cluster node " + uri.getAuthority() + " returned a malformed response");
+            }
+        };
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(parse);
+    }
+
+    /**
+     * 等待节点请求完成，把连接失败、超时和错误响应统一转换为 {@link ClusterNodeException}。
+     */
+    private <T> T join(int node, CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ClusterNodeException clusterNodeException) {
+                throw clusterNodeException;
+            }
+            throw new ClusterNodeException("Cluster node " + topology.nodeUri(node).getAuthority() + " is unavailable");
+        }
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // 流已经读完或连接已经断开
+        }
+    }
+
+    private URI nodeUri(int node, String path, String query) {
+        return URI.create(topology.nodeUri(node) + path + (query == null ? "" : "?" + query));
+    }
+
+    /**
+     * 按请求的 Accept 头以 JSON 或 CBOR 写出汇总结果。
+     */
+    private void writeBody(HttpServletRequest request, HttpServletResponse response, int status, Object body) throws IOException {
+        boolean cbor = CborConfig.prefersBinary(request.getHeader(HttpHeaders.ACCEPT), MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON);
+        response.setStatus(status);
+        response.setContentType(cbor ? MediaType.APPLICATION_CBOR_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        (cbor ? cborMapper : objectMapper).writeValue(response.getOutputStream(), body);
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static int intParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static Double doubleParameter(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return value == null ? null : Double.valueOf(value);
+    }
+
+    /**
+     * 集群中的其他节点不可达、超时或返回了错误响应。
+     */
+    private static final class ClusterNodeException extends RuntimeException {
+        private ClusterNodeException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.banking.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ClusterTopology 描述静态配置的集群成员以及 ID 空间的划分。
+ *
+ * <p>第 i 个节点（从 0 开始）拥有 ID 区间 [i * rangeSize + 1, (i + 1) * rangeSize]，
+ * 新记录总是由接收请求的节点在自己的区间内分配 ID，因此按 ID 的请求只需一次计算即可找到所属节点。
+ * 所有节点必须使用相同的节点列表和区间大小。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.cluster.enabled", havingValue = "true")
+public class ClusterTopology {
+
+    private final List<URI> nodes;
+
+    private final int localIndex;
+
+    private final long rangeSize;
+
+    /**
+     * @param nodes 所有节点的基础地址（如 {@code http://host:8080}），顺序决定各节点拥有的 ID 区间
+     * @param localIndex 本节点在列表中的下标
+     * @param rangeSize 每个节点拥有的 ID 数量
+     */
+    @Autowired
+    public ClusterTopology(@Value("${banking.cluster.nodes}") List<String> nodes,
+                           @Value("${banking.cluster.node-index}") int localIndex,
+                           @Value("${banking.cluster.range-size:1000000000000}") long rangeSize) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Cluster must have at least one node");
+        }
+        if (localIndex < 0 || localIndex >= nodes.size()) {
+            throw new IllegalArgumentException("Node index must be between 0 and " + (nodes.size() - 1));
+        }
+        if (rangeSize < 1 || rangeSize > Long.MAX_VALUE / nodes.size()) {
+            throw new IllegalArgumentException("Range size must be >= 1 and fit all nodes into the id space");
+        }
+        List<URI> uris = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            String trimmed = node.trim();
+            uris.add(URI.create(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed));
+        }
+        this.nodes = Collections.unmodifiableList(uris);
+        this.localIndex = localIndex;
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @return 节点数量
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return 本节点的下标
+     */
+    public int getLocalIndex() {
+        return localIndex;
+    }
+
+    /**
+     * @return 第 index 个节点的基础地址
+     */
+    public URI nodeUri(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * 计算 ID 所属的节点。
+     *
+     * @param id 交易ID
+     * @return 所属节点的下标；ID 不在任何节点的区间内（如非正数）时返回 -1
+     */
+    public int ownerOf(long id) {
+        if (id < 1) {
+            return -1;
+        }
+        long owner = (id - 1) / rangeSize;
+        return owner < nodes.size() ? (int) owner : -1;
+    }
+
+    /**
+     * @return 本节点区间内的第一个 ID，存储的 ID 分配器从这里开始分配
+     */
+    public long firstLocalId() {
+        return localIndex * rangeSize + 1;
+    }
+
+    /**
+     * @return 本节点区间内的最后一个 ID，存储分配到这里后拒绝继续创建
+     */
+    public long lastLocalId() {
+        return (localIndex + 1) * rangeSize;
+    }
+}
@@ -0,0 +1,202 @@
+package com.banking.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JsonOutput 是可复用的 UTF-8 字节缓冲区，按 Jackson 默认配置的输出格式直接写入 JSON 片段：
+ * 整数逐位写出，常见金额（最多两位小数）不经过 {@link Double#toString(double)}，字符串按需转义。
+ *
+ * <p>非线程安全，由 {@link TransactionJsonConverter} 从池中借出、写完后归还。</p>
+ */
+final class JsonOutput {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+
+    private int size;
+
+    JsonOutput(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * @return 已写入内容的副本
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    void writeByte(byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    void writeNull() {
+        writeRaw(NULL);
+    }
+
+    void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        int end = size + digits;
+        for (int i = end - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    /**
+     * 与 Jackson 的输出一致（即 {@link Double#toString(double)} 的最短表示）。
+     * 绝对值在 [0.001, 10^7) 内且最多两位小数的金额直接由分值写出，其余情况退回 {@link Double#toString(double)}。
+     */
+    void writeDouble(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude >= 1e-3 && magnitude < 1e7) {
+            long cents = Math.round(value * 100);
+            if (cents / 100.0 == value) {
+                writeCents(cents);
+                return;
+            }
+        }
+        if (Double.isFinite(value)) {
+            writeAscii(Double.toString(value));
+        } else {
+            // Jackson 默认把 NaN 和无穷大写成字符串
+            writeByte((byte) '"');
+            writeAscii(Double.toString(value));
+            writeByte((byte) '"');
+        }
+    }
+
+    private void writeCents(long cents) {
+        if (cents < 0) {
+            writeByte((byte) '-');
+            cents = -cents;
+        }
+        writeLong(cents / 100);
+        long fraction = cents % 100;
+        ensureCapacity(3);
+        buffer[size++] = '.';
+        buffer[size++] = (byte) ('0' + fraction / 10);
+        if (fraction % 10 != 0) {
+            buffer[size++] = (byte) ('0' + fraction % 10);
+        }
+    }
+
+    /**
+     * 写入带引号的 JSON 字符串。与 Jackson 默认行为一致：只转义引号、反斜杠和控制字符，非 ASCII 字符按 UTF-8 写出。
+     *
+     * @return 字符串含有不成对的代理字符时返回 false，此时缓冲区内容不完整，调用方应放弃本次输出
+     */
+    boolean writeString(String value) {
+        int length = value.length();
+        // 每个 char 最多 6 个字节（\\u00XX 转义），加上两个引号
+        ensureCapacity(length * 6 + 2);
+        byte[] out = buffer;
+        int position = size;
+        out[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    out[position++] = (byte) c;
+                } else {
+                    position = escape(out, position, c);
+                }
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 >= length || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    return false;
+                }
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[position++] = (byte) (0xF0 | (codePoint >> 18));
+                out[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out[position++] = '"';
+        size = position;
+        return true;
+    }
+
+    private static int escape(byte[] out, int position, char c) {
+        out[position++] = '\\';
+        switch (c) {
+            case '"', '\\' -> out[position++] = (byte) c;
+            case '\n' -> out[position++] = 'n';
+            case '\r' -> out[position++] = 'r';
+            case '\t' -> out[position++] = 't';
+            case '\b' -> out[position++] = 'b';
+            case '\f' -> out[position++] = 'f';
+            default -> {
+                out[position++] = 'u';
+                out[position++] = '0';
+                out[position++] = '0';
+                out[position++] = HEX[c >> 4];
+                out[position++] = HEX[c & 0xF];
+            }
+        }
+        return position;
+    }
+
+    private void writeAscii(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
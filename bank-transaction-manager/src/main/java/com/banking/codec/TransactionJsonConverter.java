@@ -0,0 +1,322 @@
+package com.banking.codec;
+
+import com.banking.dto.ApiResponse;
+import com.banking.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * TransactionJsonConverter 直接把 {@code ApiResponse<Transaction>} 和 {@code ApiResponse<List<Transaction>>}
+ * 编码为 JSON，不经过 Jackson 的反射序列化。
+ *
+ * <p>字段名和固定的 message 预先编码为字节，较短的 type 取值编码后放入一个小的直接映射缓存，数值按位写出，
+ * 整个响应写入从池中借出的缓冲区后一次性写出，
+ * 并带上 Content-Length。输出与 Jackson 默认配置下的结果逐字节一致；遇到无法直接编码的内容
+ * （例如带有错误详情的响应）时退回 Jackson。</p>
+ *
+ * <p>只负责写出，请求体仍由 Jackson 解析。设置 {@code banking.json.direct=false} 可关闭。</p>
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "banking.json.direct", havingValue = "true", matchIfMissing = true)
+public class TransactionJsonConverter extends AbstractGenericHttpMessageConverter<ApiResponse<?>> {
+
+    private static final byte[] SUCCESS_MESSAGE = ascii("{\"success\":true,\"message\":");
+    private static final byte[] FAILURE_MESSAGE = ascii("{\"success\":false,\"message\":");
+    private static final byte[] DATA = ascii(",\"data\":");
+    private static final byte[] EMPTY_ERRORS = ascii(",\"errors\":{}}");
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] TYPE = ascii(",\"type\":");
+    private static final byte[] AMOUNT = ascii(",\"amount\":");
+    private static final byte[] VERSION = ascii(",\"version\":");
+
+    /**
+     * 控制器返回的固定 message，启动时编码一次；其余 message 每次直接编码。
+     */
+    private static final Map<String, byte[]> ENCODED_MESSAGES = Map.of(
+            "Transaction created successfully", encode("Transaction created successfully"),
+            "Transaction fetched successfully", encode("Transaction fetched successfully"),
+            "Transactions fetched successfully", encode("Transactions fetched successfully"),
+            "Transaction updated successfully", encode("Transaction updated successfully"));
+
+    /**
+     * type 缓存的槽位数（2 的幂）。按哈希直接映射，未命中时新值替换槽位中的旧值：
+     * 频繁出现的类型总能留在缓存中，只出现一次的取值很快被替换，占用的内存有固定上限。
+     */
+    private static final int TYPE_CACHE_SLOTS = 256;
+
+    /**
+     * 编码后超过这个长度的 type 不进入缓存。
+     */
+    private static final int MAX_CACHED_TYPE_BYTES = 64;
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /**
+     * 超过这个容量的缓冲区用完后不放回池中，避免偶尔的大分页长期占用内存。
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1 << 20;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReferenceArray<EncodedString> encodedTypes = new AtomicReferenceArray<>(TYPE_CACHE_SLOTS);
+
+    /**
+     * 缓冲区池：按线程 ID 选择槽位，借出时取走、归还时放回，槽位为空则新建缓冲区。
+     */
+    private final AtomicReferenceArray<JsonOutput> pool;
+
+    private final int poolMask;
+
+    @Autowired
+    public TransactionJsonConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        int slots = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        this.pool = new AtomicReferenceArray<>(slots);
+        this.poolMask = slots - 1;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == ApiResponse.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(@Nullable MediaType mediaType) {
+        return false;
+    }
+
+    /**
+     * 只接管声明类型为 {@code ApiResponse<Transaction>} 或 {@code ApiResponse<List<Transaction>>} 的响应。
+     */
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (clazz != ApiResponse.class || type == null || !canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType data = ResolvableType.forType(type).getGeneric(0);
+        if (data.resolve() == Transaction.class) {
+            return true;
+        }
+        Class<?> container = data.resolve();
+        return container != null && List.class.isAssignableFrom(container)
+                && data.getGeneric(0).resolve() == Transaction.class;
+    }
+
+    @Override
+    protected void writeInternal(ApiResponse<?> response, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        JsonOutput json = acquire();
+        try {
+            if (encode(response, json)) {
+                outputMessage.getHeaders().setContentLength(json.size());
+                json.writeTo(outputMessage.getBody());
+            } else {
+                objectMapper.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), response);
+            }
+        } finally {
+            release(json);
+        }
+    }
+
+    /**
+     * 编码为 JSON 字节，供不经过 HTTP 的场景（例如测试）使用。
+     *
+     * @return 无法直接编码时返回 null
+     */
+    public byte[] encode(ApiResponse<?> response) {
+        JsonOutput json = acquire();
+        try {
+            return encode(response, json) ? json.toByteArray() : null;
+        } finally {
+            release(json);
+        }
+    }
+
+    /**
+     * {@link #canRead} 总是返回 false，Spring 不会用它解析请求体；被直接调用时按请求体不可读处理。
+     */
+    @Override
+    public ApiResponse<?> read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("TransactionJsonConverter only writes responses", inputMessage);
+    }
+
+    @Override
+    protected ApiResponse<?> readInternal(Class<? extends ApiResponse<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("TransactionJsonConverter only writes responses", inputMessage);
+    }
+
+    /**
+     * @return 编码成功时返回 true；返回 false 时缓冲区内容作废，由调用方退回 Jackson
+     */
+    private boolean encode(ApiResponse<?> response, JsonOutput json) {
+        json.reset();
+        if (!response.getErrors().isEmpty()) {
+            return false;
+        }
+        json.writeRaw(response.isSuccess() ? SUCCESS_MESSAGE : FAILURE_MESSAGE);
+        String message = response.getMessage();
+        byte[] encodedMessage = message == null ? null : ENCODED_MESSAGES.get(message);
+        if (encodedMessage != null) {
+            json.writeRaw(encodedMessage);
+        } else if (!writeString(json, message)) {
+            return false;
+        }
+        json.writeRaw(DATA);
+        Object data = response.getData();
+        if (data == null) {
+            json.writeNull();
+        } else if (data instanceof Transaction transaction) {
+            if (!writeTransaction(json, transaction)) {
+                return false;
+            }
+        } else if (data instanceof List<?> list && list instanceof RandomAccess) {
+            json.writeByte((byte) '[');
+            for (int i = 0, size = list.size(); i < size; i++) {
+                if (i > 0) {
+                    json.writeByte((byte) ',');
+                }
+                Object element = list.get(i);
+                if (element == null) {
+                    json.writeNull();
+                } else if (!(element instanceof Transaction transaction) || !writeTransaction(json, transaction)) {
+                    return false;
+                }
+            }
+            json.writeByte((byte) ']');
+        } else {
+            return false;
+        }
+        json.writeRaw(EMPTY_ERRORS);
+        return true;
+    }
+
+    private boolean writeTransaction(JsonOutput json, Transaction transaction) {
+        json.writeRaw(ID);
+        Long id = transaction.getId();
+        if (id == null) {
+            json.writeNull();
+        } else {
+            json.writeLong(id);
+        }
+        json.writeRaw(TYPE);
+        if (!writeType(json, transaction.getType())) {
+            return false;
+        }
+        json.writeRaw(AMOUNT);
+        Double amount = transaction.getAmount();
+        if (amount == null) {
+            json.writeNull();
+        } else {
+            json.writeDouble(amount);
+        }
+        Long version = transaction.getVersion();
+        if (version != null) {
+            json.writeRaw(VERSION);
+            json.writeLong(version);
+        }
+        json.writeByte((byte) '}');
+        return true;
+    }
+
+    private static boolean writeString(JsonOutput json, @Nullable String value) {
+        if (value == null) {
+            json.writeNull();
+            return true;
+        }
+        return json.writeString(value);
+    }
+
+    /**
+     * 写入 type：缓存命中时直接复制字节，未命中时编码写出，较短的取值顺带替换所在的缓存槽位。
+     */
+    private boolean writeType(JsonOutput json, @Nullable String type) {
+        if (type == null) {
+            json.writeNull();
+            return true;
+        }
+        int slot = type.hashCode() & (TYPE_CACHE_SLOTS - 1);
+        EncodedString cached = encodedTypes.get(slot);
+        if (cached != null && cached.value.equals(type)) {
+            json.writeRaw(cached.bytes);
+            return true;
+        }
+        int start = json.size();
+        if (!json.writeString(type)) {
+            return false;
+        }
+        int length = json.size() - start;
+        if (length <= MAX_CACHED_TYPE_BYTES) {
+            JsonOutput copy = new JsonOutput(length);
+            copy.writeString(type);
+            encodedTypes.lazySet(slot, new EncodedString(type, copy.toByteArray()));
+        }
+        return true;
+    }
+
+    private JsonOutput acquire() {
+        JsonOutput json = pool.getAndSet(slot(), null);
+        return json != null ? json : new JsonOutput(INITIAL_BUFFER_SIZE);
+    }
+
+    private void release(JsonOutput json) {
+        if (json.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            pool.compareAndSet(slot(), null, json);
+        }
+    }
+
+    private int slot() {
+        return (int) Thread.currentThread().threadId() & poolMask;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 编码为带引号和转义的 JSON 字符串字节。
+     */
+    private static byte[] encode(String value) {
+        JsonOutput json = new JsonOutput(value.length() + 2);
+        json.writeString(value);
+        return json.toByteArray();
+    }
+
+    /**
+     * type 缓存的一个槽位：原字符串和它的 JSON 编码。
+     */
+    private static final class EncodedString {
+        private final String value;
+        private final byte[] bytes;
+
+        private EncodedString(String value, byte[] bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.banking.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * CborConfig 让所有 JSON 接口同时支持 CBOR（{@code application/cbor}）二进制编码，客户端通过
+ * Content-Type 和 Accept 头选择，未指定时仍然使用 JSON。
+ *
+ * <p>CBOR 编码复用应用 ObjectMapper 的配置，字段与 JSON 完全相同，只是数值以二进制写出、无需文本解析。
+ * Servlet 模式下替换 Spring MVC 默认注册的 CBOR 转换器（排在 JSON 之后），响应式模式下注册 CBOR 编解码器。</p>
+ */
+@Configuration
+public class CborConfig {
+
+    /**
+     * @return 与 objectMapper 配置相同、读写 CBOR 的 ObjectMapper
+     */
+    public static ObjectMapper cborMapper(ObjectMapper objectMapper) {
+        return objectMapper.copyWith(new CBORFactory());
+    }
+
+    /**
+     * 在同时支持文本和二进制两种编码的接口上，根据 Accept 头选择编码。
+     *
+     * @return Accept 头中 binary 的优先级高于 text 时返回 true；没有 Accept 头、头格式非法或优先级相同
+     *         （例如只有通配符）时返回 false，即默认使用文本编码
+     */
+    public static boolean prefersBinary(@Nullable String accept, MediaType binary, MediaType text) {
+        if (accept == null) {
+            return false;
+        }
+        double textQuality = 0.0;
+        double binaryQuality = 0.0;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.includes(text)) {
+                    textQuality = Math.max(textQuality, type.getQualityValue());
+                }
+                if (type.includes(binary)) {
+                    binaryQuality = Math.max(binaryQuality, type.getQualityValue());
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return binaryQuality > textQuality;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper(objectMapper));
+    }
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveCborCodecs implements WebFluxConfigurer {
+
+        private final ObjectMapper objectMapper;
+
+        private final ObjectMapper cborMapper;
+
+        ReactiveCborCodecs(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            this.cborMapper = cborMapper(objectMapper);
+        }
+
+        /**
+         * 自定义编码器排在默认编码器之前，而 Accept 为通配符时使用第一个可用的编码器，
+         * 因此在 CBOR 之前再注册一个 JSON 编码器，让 JSON 仍是默认编码。
+         */
+        @Override
+        public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+        }
+    }
+
+    /**
+     * Spring 6.0 的 {@link Jackson2CborEncoder} 不支持流式编码，而 WebFlux 写出响应体时总是调用流式的
+     * encode 方法，因此这里把单个值（Mono）的编码转给 encodeValue；多个值（Flux）仍不支持。
+     */
+    static class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        SingleValueCborEncoder(ObjectMapper cborMapper) {
+            super(cborMapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
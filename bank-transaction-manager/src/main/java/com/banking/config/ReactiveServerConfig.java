@@ -0,0 +1,22 @@
+package com.banking.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ReactiveServerConfig 让响应式模式运行在 Netty 上。
+ *
+ * <p>Tomcat 仍在类路径上（Servlet 模式需要），而 Spring Boot 在响应式模式下会优先选择 Tomcat，
+ * 因此这里显式声明 Netty 服务器工厂，使事件循环直接处理请求。</p>
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
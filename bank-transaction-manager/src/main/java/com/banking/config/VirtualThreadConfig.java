@@ -0,0 +1,33 @@
+package com.banking.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * VirtualThreadConfig 在 {@code banking.threads.virtual=true} 时让 Tomcat 使用虚拟线程处理请求。
+ *
+ * <p>默认的 Tomcat 平台线程池只有 200 个线程，高并发时请求在线程池前排队；
+ * 虚拟线程为每个请求创建一个廉价的线程，阻塞时不占用载体线程，排队延迟随之消失。
+ * 异步请求（如流式导出）使用的 applicationTaskExecutor 也一并替换为虚拟线程。</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "banking.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -1,77 +1,401 @@
 package com.banking.controller;
 
+import com.banking.changes.ChangeFeed;
+import com.banking.config.CborConfig;
 import com.banking.dto.ApiResponse;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.idempotency.IdempotencyCache;
+import com.banking.metrics.TransactionMetrics;
 import com.banking.model.Transaction;
+import com.banking.replication.ReplicationLog;
 import com.banking.service.TransactionService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TransactionController 是一个 REST 控制器，用于处理与交易(Transaction)相关的 HTTP 请求。
  * 提供了创建、查询、更新和删除交易的基本 CRUD 操作。
+ *
+ * <p>仅在 Servlet（Tomcat）模式下启用，响应式模式下由
+ * {@link com.banking.reactive.ReactiveTransactionController} 提供相同的接口。</p>
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/transactions")
 public class TransactionController {
 
+    /**
+     * NDJSON（每行一个 JSON 对象）的媒体类型。
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * CBOR 序列（多个 CBOR 数据项直接拼接，RFC 8742）的媒体类型，是 NDJSON 的二进制对应。
+     */
+    public static final String APPLICATION_CBOR_SEQ_VALUE = "application/cbor-seq";
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    public static final MediaType APPLICATION_CBOR_SEQ = MediaType.parseMediaType(APPLICATION_CBOR_SEQ_VALUE);
+
+    /**
+     * 导出时每次从存储中读取的记录数，导入时每批写入的记录数。
+     */
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
+    /**
+     * 导入响应中最多返回的错误条数。
+     */
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * 游标分页不支持过滤条件，与 afterId 同时出现时拒绝，避免静默返回未过滤的结果。
+     */
+    private static final InvalidInputException FILTERS_WITH_CURSOR =
+            InvalidInputException.shared("type, minAmount and maxAmount cannot be combined with afterId.");
+
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 与 objectMapper 配置相同的 CBOR ObjectMapper，用于 CBOR 序列的导入导出。
+     */
+    private ObjectMapper cborMapper;
+
+    /**
+     * 复制变更流，仅在作为复制主节点时注入。
+     */
+    @Autowired(required = false)
+    private ReplicationLog replicationLog;
+
+    /**
+     * 进程内变更流，banking.changes.enabled=false 时为 null。
+     */
+    @Autowired(required = false)
+    private ChangeFeed changeFeed;
+
+    /**
+     * 创建接口的幂等键表，banking.idempotency.enabled=false 时为 null。
+     */
+    @Autowired(required = false)
+    private IdempotencyCache idempotencyCache;
+
+    /**
+     * 监控指标，用于记录直接返回的 404；未注册时不记录。
+     */
+    @Autowired(required = false)
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    @PostConstruct
+    public void initCborMapper() {
+        cborMapper = CborConfig.cborMapper(objectMapper);
+    }
+
     /**
      * 创建一个新的交易记录。
      *
+     * <p>带有 Idempotency-Key 时，在键的有效期内重复提交同一个键只创建一次，
+     * 重试直接返回首次创建的交易，并带上 {@link IdempotencyCache#REPLAYED_HEADER} 响应头。</p>
+     *
+     * @param idempotencyKey 客户端生成的幂等键，可选
      * @param transaction 包含交易信息的请求体对象
      * @return ApiResponse<Transaction> 返回创建成功的交易数据，HTTP 状态码 201 Created
      */
     @PostMapping
-    public ResponseEntity<ApiResponse<Transaction>> createTransaction(@RequestBody Transaction transaction) {
-        Transaction created = transactionService.createTransaction(transaction);
-        return ResponseEntity.status(200).body(new ApiResponse<>(true, created, "Transaction created successfully"));
+    public ResponseEntity<ApiResponse<Transaction>> createTransaction(
+            @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
+            @RequestBody Transaction transaction) {
+        if (idempotencyKey == null || idempotencyCache == null) {
+            Transaction created = transactionService.createTransaction(transaction);
+            return written().body(new ApiResponse<>(true, created, "Transaction created successfully"));
+        }
+        Transaction original = idempotencyCache.begin(idempotencyKey, transaction);
+        if (original != null) {
+            return written()
+                    .header(IdempotencyCache.REPLAYED_HEADER, "true")
+                    .body(new ApiResponse<>(true, original, "Transaction created successfully"));
+        }
+        Transaction created = null;
+        try {
+            created = transactionService.createTransaction(transaction);
+            idempotencyCache.complete(idempotencyKey, created);
+        } finally {
+            if (created == null) {
+                idempotencyCache.abort(idempotencyKey);
+            }
+        }
+        return written().body(new ApiResponse<>(true, created, "Transaction created successfully"));
+    }
+
+    /**
+     * 批量创建交易记录，一次请求提交多条交易，减少 HTTP 往返和逐条处理的开销。
+     *
+     * @param transactions 包含多条交易信息的请求体数组
+     * @return ApiResponse<List<BatchItemResult>> 返回与请求顺序一一对应的处理结果，HTTP 状态码 200 OK
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItemResult>>> createTransactions(@RequestBody List<Transaction> transactions) {
+        List<BatchItemResult> results = transactionService.createTransactions(transactions);
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        String message = String.format("Batch processed: %d succeeded, %d failed", results.size() - failed, failed);
+        return written().body(new ApiResponse<>(failed == 0, results, message));
+    }
+
+    /**
+     * 以 NDJSON 流的形式导出全部交易记录（按ID升序）；Accept 头优先选择 {@code application/cbor-seq} 时
+     * 改为导出 CBOR 序列，每条记录一个 CBOR 数据项。
+     *
+     * <p>通过游标分块遍历存储，边读边写，内存占用与数据总量无关。</p>
+     *
+     * @param accept 请求的 Accept 头
+     * @return 逐条交易记录的响应流，HTTP 状态码 200 OK
+     */
+    @GetMapping(value = "/export", produces = {APPLICATION_NDJSON_VALUE, APPLICATION_CBOR_SEQ_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (CborConfig.prefersBinary(accept, APPLICATION_CBOR_SEQ, APPLICATION_NDJSON)) {
+            return export(cborMapper.writerFor(Transaction.class), APPLICATION_CBOR_SEQ_VALUE);
+        }
+        return export(objectMapper.writerFor(Transaction.class).withRootValueSeparator("\n"), APPLICATION_NDJSON_VALUE);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ObjectWriter recordWriter, String contentType) {
+        ObjectWriter writer = recordWriter.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        boolean lineDelimited = APPLICATION_NDJSON_VALUE.equals(contentType);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, 1 << 16);
+            try (SequenceWriter sequenceWriter = writer.writeValues(out)) {
+                long afterId = 0L;
+                List<Transaction> chunk;
+                do {
+                    chunk = transactionService.getTransactionsAfter(afterId, STREAM_CHUNK_SIZE);
+                    for (Transaction transaction : chunk) {
+                        sequenceWriter.write(transaction);
+                        afterId = transaction.getId();
+                    }
+                } while (chunk.size() == STREAM_CHUNK_SIZE);
+                if (lineDelimited && afterId > 0) {
+                    sequenceWriter.flush();
+                    out.write('\n');
+                }
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(contentType)).body(body);
+    }
+
+    /**
+     * 以 NDJSON 流的形式批量导入交易记录。
+     *
+     * <p>请求体被增量解析，每积累一批就写入存储，不会把整个请求体读入内存。
+     * 非法记录被跳过并在 errors 中按行号报告；遇到无法解析的 JSON 时停止导入，之前的批次已经生效。</p>
+     *
+     * @param inputStream NDJSON 请求体
+     * @return ApiResponse<Long> 返回成功导入的记录数，HTTP 状态码 200 OK
+     * @throws IOException 如果读取请求体失败
+     */
+    @PostMapping(value = "/import", consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ApiResponse<Long>> importTransactions(InputStream inputStream) throws IOException {
+        return importFrom(objectMapper.readerFor(Transaction.class), inputStream, "NDJSON");
     }
 
     /**
-     * 分页获取所有交易记录。
+     * 以 CBOR 序列的形式批量导入交易记录，处理方式与 NDJSON 导入相同，errors 中的行号即记录序号。
+     *
+     * @param inputStream CBOR 序列请求体
+     * @return ApiResponse<Long> 返回成功导入的记录数，HTTP 状态码 200 OK
+     * @throws IOException 如果读取请求体失败
+     */
+    @PostMapping(value = "/import", consumes = APPLICATION_CBOR_SEQ_VALUE)
+    public ResponseEntity<ApiResponse<Long>> importTransactionsCbor(InputStream inputStream) throws IOException {
+        return importFrom(cborMapper.readerFor(Transaction.class), inputStream, "CBOR sequence");
+    }
+
+    private ResponseEntity<ApiResponse<Long>> importFrom(ObjectReader reader, InputStream inputStream, String format)
+            throws IOException {
+        ApiResponse<Long> response = new ApiResponse<>(true, 0L, null);
+        long total = 0;
+        long failed = 0;
+        List<Transaction> batch = new ArrayList<>(STREAM_CHUNK_SIZE);
+        try (MappingIterator<Transaction> iterator = reader.readValues(inputStream)) {
+            while (iterator.hasNextValue()) {
+                batch.add(iterator.nextValue());
+                if (batch.size() == STREAM_CHUNK_SIZE) {
+                    failed += importBatch(batch, total, response);
+                    total += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidInputException("Malformed " + format + " after line " + (total + batch.size()) + ": " + e.getOriginalMessage());
+        }
+        if (!batch.isEmpty()) {
+            failed += importBatch(batch, total, response);
+            total += batch.size();
+        }
+        long imported = total - failed;
+
+        response.setSuccess(failed == 0);
+        response.setData(imported);
+        response.setMessage(String.format("Imported %d transactions, %d failed", imported, failed));
+        return written().body(response);
+    }
+
+    /**
+     * 分页获取交易记录，可按类型和金额区间过滤。
      *
      * @param page 页码（从0开始），默认为0
      * @param size 每页记录数，默认为10
+     * @param type 交易类型，可选
+     * @param minAmount 最小金额（含），可选
+     * @param maxAmount 最大金额（含），可选
      * @return ApiResponse<List<Transaction>> 返回当前页的交易列表，HTTP 状态码 200 OK
      */
     @GetMapping
     public ResponseEntity<ApiResponse<List<Transaction>>> getAllTransactions(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        List<Transaction> transactions = transactionService.getAllTransactions(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount) {
+        List<Transaction> transactions = type == null && minAmount == null && maxAmount == null
+                ? transactionService.getAllTransactions(page, size)
+                : transactionService.findTransactions(type, minAmount, maxAmount, page, size);
+        return ResponseEntity.ok(new ApiResponse<>(true, transactions, "Transactions fetched successfully"));
+    }
+
+    /**
+     * 基于游标（keyset）分页获取交易记录，适合深分页场景。
+     *
+     * @param afterId 上一页最后一条记录的ID，首次查询传 0
+     * @param limit 每页记录数，默认为10
+     * @param type 不支持，与 afterId 同时传入时返回 400
+     * @param minAmount 不支持，与 afterId 同时传入时返回 400
+     * @param maxAmount 不支持，与 afterId 同时传入时返回 400
+     * @return ApiResponse<List<Transaction>> 返回 ID 大于 afterId 的交易列表，HTTP 状态码 200 OK
+     */
+    @GetMapping(params = "afterId")
+    public ResponseEntity<ApiResponse<List<Transaction>>> getTransactionsAfter(
+            @RequestParam Long afterId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount) {
+        if (type != null || minAmount != null || maxAmount != null) {
+            throw FILTERS_WITH_CURSOR;
+        }
+        List<Transaction> transactions = transactionService.getTransactionsAfter(afterId, limit);
         return ResponseEntity.ok(new ApiResponse<>(true, transactions, "Transactions fetched successfully"));
     }
 
+    /**
+     * 按交易类型获取聚合统计（数量、总额、最小金额、最大金额、平均金额）。
+     *
+     * <p>统计由写操作增量维护，查询代价只与类型数量有关。</p>
+     *
+     * @return ApiResponse<Map<String, TransactionStats>> 返回交易类型到统计的映射，HTTP 状态码 200 OK
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<Map<String, TransactionStats>>> getStatistics() {
+        Map<String, TransactionStats> statistics = transactionService.getStatistics();
+        return ResponseEntity.ok(new ApiResponse<>(true, statistics, "Statistics fetched successfully"));
+    }
+
+    /**
+     * 以 Server-Sent Events 推送交易的创建、更新和删除事件，替代轮询列表接口。
+     *
+     * <p>事件 id 为变更序号。断线重连时客户端通过 Last-Event-ID 请求头（或 from 参数）带上最后处理的序号，
+     * 从其后继续接收；落后超过服务端缓冲区时会收到一条 lagged 事件，需要通过列表接口重新同步。</p>
+     *
+     * @param from 已处理的最后一个事件序号，可选；与 Last-Event-ID 都缺省时只接收之后的新事件
+     * @param lastEventId EventSource 自动重连时带上的最后事件序号
+     * @return 变更事件流
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChangeEvent>> streamChanges(
+            @RequestParam(required = false) Long from,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        if (changeFeed == null) {
+            throw new ResourceNotFoundException("Change feed is disabled");
+        }
+        return changeFeed.events(from != null ? from : lastEventId);
+    }
+
     /**
      * 根据交易ID获取单个交易记录。
      *
+     * <p>响应的 ETag 为记录的版本号；请求带有匹配的 If-None-Match 时由框架直接返回 304 Not Modified。
+     * JSON 和 CBOR 两种表示共用同一个 ETag，响应带有 {@code Vary: Accept}，缓存按 Accept 分别保存两种表示。
+     * 记录不存在时直接返回 404，不经过异常处理。</p>
+     *
      * @param id 要查询的交易ID
-     * @return ApiResponse<Transaction> 返回匹配的交易对象，HTTP 状态码 200 OK
+     * @return ApiResponse<Transaction> 返回匹配的交易对象，HTTP 状态码 200 OK；不存在时为 404
      */
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<Transaction>> getTransactionById(@PathVariable Long id) {
-        Transaction transaction = transactionService.getTransactionById(id);
-        return ResponseEntity.ok(new ApiResponse<>(true, transaction, "Transaction fetched successfully"));
+        Transaction transaction = transactionService.findTransactionById(id).orElse(null);
+        if (transaction == null) {
+            metrics.recordNotFound();
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, null, ResourceNotFoundException.transactionMessage(id)));
+        }
+        return ResponseEntity.ok()
+                .eTag(Long.toString(transaction.getVersion()))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(new ApiResponse<>(true, transaction, "Transaction fetched successfully"));
     }
 
     /**
      * 根据交易ID更新已有交易记录。
      *
+     * <p>带有 If-Match 时只有记录的当前版本与之相同才更新，否则返回 412 Precondition Failed，避免覆盖他人的修改。</p>
+     *
      * @param id 要更新的交易ID
+     * @param ifMatch 期望的记录版本（先前响应中的 ETag），可选
      * @param transactionDetails 包含新数据的交易对象
      * @return ApiResponse<Transaction> 返回更新后的交易对象，HTTP 状态码 200 OK
      */
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Transaction>> updateTransaction(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Transaction transactionDetails) {
-        Transaction updated = transactionService.updateTransaction(id, transactionDetails);
-        return ResponseEntity.ok(new ApiResponse<>(true, updated, "Transaction updated successfully"));
+        Transaction updated = transactionService.updateTransaction(id, transactionDetails, expectedVersion(ifMatch));
+        return written()
+                .eTag(Long.toString(updated.getVersion()))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(new ApiResponse<>(true, updated, "Transaction updated successfully"));
     }
 
     /**
@@ -83,6 +407,59 @@ public class TransactionController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTransaction(@PathVariable Long id) {
         transactionService.deleteTransaction(id);
-        return ResponseEntity.ok().build();
+        return written().build();
+    }
+
+    /**
+     * 解析 If-Match 请求头中的记录版本。
+     *
+     * @return 期望的记录版本；请求头缺失或为 {@code *} 时返回 null，表示无条件更新
+     * @throws InvalidInputException 如果请求头不是单个由记录版本构成的强 ETag
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // 落到下方统一报错
+            }
+        }
+        throw new InvalidInputException("If-Match must be a single transaction ETag, got: " + ifMatch);
+    }
+
+    /**
+     * 写操作成功后的响应：作为复制主节点时在 {@link ReplicationLog#VERSION_HEADER} 中返回写入后的复制版本，
+     * 客户端在副本上读取时带上该版本即可读到自己的写入。
+     */
+    private ResponseEntity.BodyBuilder written() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (replicationLog != null) {
+            builder.header(ReplicationLog.VERSION_HEADER, Long.toString(replicationLog.head()));
+        }
+        return builder;
+    }
+
+    /**
+     * 写入一批导入的记录，并把失败原因按行号（从1开始）记录到响应中。
+     *
+     * @param batch 待写入的记录
+     * @param firstLine 该批第一条记录之前已读取的行数
+     * @return 该批中失败的记录数
+     */
+    private long importBatch(List<Transaction> batch, long firstLine, ApiResponse<Long> response) {
+        long failed = 0;
+        for (BatchItemResult result : transactionService.createTransactions(batch)) {
+            if (!result.isSuccess()) {
+                failed++;
+                if (response.getErrors().size() < MAX_REPORTED_ERRORS) {
+                    response.addError("line " + (firstLine + result.getIndex() + 1), result.getMessage());
+                }
+            }
+        }
+        return failed;
     }
-}
\ No newline at end of file
+}
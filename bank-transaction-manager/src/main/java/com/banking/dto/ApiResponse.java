@@ -1,5 +1,6 @@
 package com.banking.dto;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,7 +19,6 @@ public class ApiResponse<T> {
         this.success = success;
         this.message = message;
         this.data = data;
-        this.errors = new HashMap<>();
     }
 
     // Getter and Setter methods
@@ -47,8 +47,11 @@ public class ApiResponse<T> {
         this.data = data;
     }
 
+    /**
+     * @return 错误详情；没有错误时返回共享的空 Map，错误 Map 只在第一次 {@link #addError} 时创建
+     */
     public Map<String, Object> getErrors() {
-        return errors;
+        return errors == null ? Collections.emptyMap() : errors;
     }
 
     public void setErrors(Map<String, Object> errors) {
@@ -56,6 +59,9 @@ public class ApiResponse<T> {
     }
 
     public void addError(String field, Object error) {
+        if (this.errors == null) {
+            this.errors = new HashMap<>();
+        }
         this.errors.put(field, error);
     }
 }
\ No newline at end of file
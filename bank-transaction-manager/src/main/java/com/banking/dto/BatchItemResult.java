@@ -0,0 +1,62 @@
+package com.banking.dto;
+
+import com.banking.model.Transaction;
+
+/**
+ * BatchItemResult 描述批量操作中单个元素的处理结果。
+ */
+public class BatchItemResult {
+    private int index;
+    private boolean success;
+    private Transaction data;
+    private String message;
+
+    public BatchItemResult(int index, boolean success, Transaction data, String message) {
+        this.index = index;
+        this.success = success;
+        this.data = data;
+        this.message = message;
+    }
+
+    public static BatchItemResult succeeded(int index, Transaction data) {
+        return new BatchItemResult(index, true, data, null);
+    }
+
+    public static BatchItemResult failed(int index, String message) {
+        return new BatchItemResult(index, false, null, message);
+    }
+
+    // Getter and Setter methods
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public Transaction getData() {
+        return data;
+    }
+
+    public void setData(Transaction data) {
+        this.data = data;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
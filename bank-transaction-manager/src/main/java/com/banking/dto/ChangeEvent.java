@@ -0,0 +1,91 @@
+package com.banking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * ChangeEvent 描述变更流中的一条事件，发布后不再修改，由所有订阅者共享。
+ *
+ * <p>创建和更新事件携带写入后的完整记录；删除事件只携带ID和被删除时的版本；
+ * {@link Operation#LAGGED} 表示订阅者落后太多，中间有 missed 条事件已被覆盖，需要通过列表接口重新同步。</p>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE,
+        LAGGED
+    }
+
+    private final long sequence;
+    private final Operation op;
+    private final Long id;
+    private final String type;
+    private final Double amount;
+    private final Long version;
+    private final long timestamp;
+    private final Long missed;
+
+    private ChangeEvent(long sequence, Operation op, Long id, String type, Double amount, Long version,
+                        long timestamp, Long missed) {
+        this.sequence = sequence;
+        this.op = op;
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.version = version;
+        this.timestamp = timestamp;
+        this.missed = missed;
+    }
+
+    public static ChangeEvent of(long sequence, Operation op, long id, String type, Double amount, long version) {
+        return new ChangeEvent(sequence, op, id, type, amount, version, System.currentTimeMillis(), null);
+    }
+
+    /**
+     * @param sequence 最后一条丢失事件的序号，订阅者从其后继续
+     * @param missed 丢失的事件数，未知时为 null
+     */
+    public static ChangeEvent lagged(long sequence, Long missed) {
+        return new ChangeEvent(sequence, Operation.LAGGED, null, null, null, null, System.currentTimeMillis(), missed);
+    }
+
+    /**
+     * @return 事件序号，从 1 开始连续递增
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Operation getOp() {
+        return op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 事件发布时的时间戳（毫秒）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Long getMissed() {
+        return missed;
+    }
+}
@@ -0,0 +1,59 @@
+package com.banking.dto;
+
+/**
+ * TransactionStats 描述某一交易类型的聚合统计：数量、总额、最小金额、最大金额和平均金额。
+ */
+public class TransactionStats {
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+
+    public TransactionStats() {
+    }
+
+    public TransactionStats(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    // Getter and Setter methods
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+}
@@ -1,24 +1,90 @@
 package com.banking.exception;
 
 import com.banking.dto.ApiResponse;
+import com.banking.metrics.TransactionMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    /**
+     * 消息固定的参数错误对应的响应，按消息缓存。
+     */
+    private final Map<String, ResponseEntity<ApiResponse<Void>>> sharedBadRequests = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    public void setMetrics(TransactionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ApiResponse<Void>> handleResourceNotFound(ResourceNotFoundException ex) {
+        metrics.recordNotFound();
         ApiResponse<Void> response = new ApiResponse<>(false, null, ex.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * 参数非法时返回 400。消息固定的错误（{@link InvalidInputException#isShared()}）复用预先构建的响应，
+     * 这类错误的种类有限，缓存不会无限增长。
+     */
     @ExceptionHandler(InvalidInputException.class)
     public ResponseEntity<ApiResponse<Void>> handleInvalidInput(InvalidInputException ex) {
+        metrics.recordValidationFailure();
+        if (ex.isShared()) {
+            return sharedBadRequests.computeIfAbsent(ex.getMessage(), GlobalExceptionHandler::badRequest);
+        }
+        return badRequest(ex.getMessage());
+    }
+
+    private static ResponseEntity<ApiResponse<Void>> badRequest(String message) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(false, null, message));
+    }
+
+    /**
+     * If-Match 与记录的当前版本不一致：返回 412，并通过 ETag 告知当前版本，客户端重新读取后再重试。
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleVersionConflict(VersionConflictException ex) {
+        metrics.recordVersionConflict();
+        ApiResponse<Void> response = new ApiResponse<>(false, null, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(Long.toString(ex.getCurrentVersion()))
+                .body(response);
+    }
+
+    /**
+     * 同一个 Idempotency-Key 的首次请求仍在执行中时返回 409，客户端稍后重试即可得到首次请求的结果；
+     * 同一个键被用于内容不同的请求时返回 422。
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        ApiResponse<Void> response = new ApiResponse<>(false, null, ex.getMessage());
+        if (ex.isInProgress()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+    }
+
+    /**
+     * 本节点的 ID 区间已用尽：返回 507，重试同一节点不会成功。
+     */
+    @ExceptionHandler(IdRangeExhaustedException.class)
+    public ResponseEntity<ApiResponse<Void>> handleIdRangeExhausted(IdRangeExhaustedException ex) {
         ApiResponse<Void> response = new ApiResponse<>(false, null, ex.getMessage());
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(response);
     }
 
     @ExceptionHandler(Exception.class)
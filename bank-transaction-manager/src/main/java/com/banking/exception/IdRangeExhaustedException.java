@@ -0,0 +1,15 @@
+package com.banking.exception;
+
+/**
+ * 本节点拥有的 ID 区间已经用尽，无法再创建新记录，对应 507。
+ *
+ * <p>集群模式下每个节点只能在自己的区间内分配 ID，越界的 ID 属于下一个节点，按 ID 的请求会被路由过去，
+ * 因此区间用尽时拒绝创建，而不是发放不属于自己的 ID。需要调大 {@code banking.cluster.range-size}
+ * 或增加节点。</p>
+ */
+public class IdRangeExhaustedException extends RuntimeException {
+
+    public IdRangeExhaustedException(long lastId) {
+        super("Transaction id range exhausted on this node (last id " + lastId + ")");
+    }
+}
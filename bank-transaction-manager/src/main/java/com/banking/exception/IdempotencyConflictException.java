@@ -0,0 +1,22 @@
+package com.banking.exception;
+
+/**
+ * 带 Idempotency-Key 的创建请求无法按幂等语义处理：同一个键的首次请求仍在执行中，
+ * 或者同一个键被用于内容不同的请求。
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    private final boolean inProgress;
+
+    public IdempotencyConflictException(String message, boolean inProgress) {
+        super(message);
+        this.inProgress = inProgress;
+    }
+
+    /**
+     * @return 首次请求仍在执行中时返回 true（客户端稍后重试即可）；键被用于不同内容的请求时返回 false
+     */
+    public boolean isInProgress() {
+        return inProgress;
+    }
+}
@@ -1,7 +1,37 @@
 package com.banking.exception;
 
+/**
+ * 请求参数非法，对应 400。
+ *
+ * <p>参数错误由客户端引起，既不需要调用栈也不会有被抑制的异常，因此不记录这两者，抛出的开销与普通对象分配相当。
+ * 消息固定的错误可以用 {@link #shared} 创建一个实例后反复抛出，{@link GlobalExceptionHandler} 为其复用预先构建的响应。</p>
+ */
 public class InvalidInputException extends RuntimeException {
+
+    private final boolean shared;
+
     public InvalidInputException(String message) {
-        super(message);
+        this(message, false);
+    }
+
+    private InvalidInputException(String message, boolean shared) {
+        super(message, null, false, false);
+        this.shared = shared;
+    }
+
+    /**
+     * 创建一个可在各处共享、重复抛出的实例。不记录调用栈和被抑制的异常，实例创建后不再变化。
+     *
+     * @param message 固定的错误消息
+     */
+    public static InvalidInputException shared(String message) {
+        return new InvalidInputException(message, true);
+    }
+
+    /**
+     * @return 由 {@link #shared} 创建、消息固定时返回 true
+     */
+    public boolean isShared() {
+        return shared;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,21 @@
 package com.banking.exception;
 
+/**
+ * 请求的资源不存在，对应 404。
+ *
+ * <p>客户端按 ID 探测时会频繁出现，异常不记录调用栈和被抑制的异常。按 ID 查询交易的接口不再抛出该异常，
+ * 而是通过 {@code TransactionService#findTransactionById} 直接返回 404。</p>
+ */
 public class ResourceNotFoundException extends RuntimeException {
+
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+    }
+
+    /**
+     * @return 指定ID的交易不存在时的错误消息
+     */
+    public static String transactionMessage(Long id) {
+        return "Transaction not found with ID: " + id;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.banking.exception;
+
+/**
+ * 有条件更新时，记录的当前版本与调用方期望的版本不一致。
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * @return 冲突发生时记录的当前版本
+     */
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
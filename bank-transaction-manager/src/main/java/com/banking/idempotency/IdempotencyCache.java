@@ -0,0 +1,317 @@
+package com.banking.idempotency;
+
+import com.banking.exception.IdempotencyConflictException;
+import com.banking.exception.InvalidInputException;
+import com.banking.model.Transaction;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * IdempotencyCache 记录带 {@code Idempotency-Key} 请求头的创建请求的结果，客户端超时重试时返回首次创建的交易，
+ * 而不是再创建一条重复的记录。
+ *
+ * <p>键只保存 128 位指纹，每个键占用的内存与键的长度无关：指纹、请求内容的哈希、过期时间和首次创建的结果。
+ * 表按键的指纹分为多个段，每段由各自的锁保护并按插入顺序排列；所有键的有效期相同，插入顺序即过期顺序，
+ * 因此每段只需从队首淘汰已过期或超出容量的键，时间和空间都有上界。不带该请求头的请求不经过此表。</p>
+ *
+ * <p>容量平均分到各段，每段达到自己的上限（capacity / 段数）时就淘汰最早的键，而键在段间的分布并不完全均匀，
+ * 因此总键数还没到 capacity 时，个别段中未过期的键就可能已被淘汰，之后用这些键重试会再创建一条记录。
+ * 有效期内的键需要留出余量；未过期就因容量被淘汰的键计入 {@code banking.idempotency.evictions}。</p>
+ *
+ * <p>调用方先通过 {@link #begin} 占用键，创建成功后调用 {@link #complete} 保存结果，失败时调用
+ * {@link #abort} 释放键，让客户端可以用同一个键重试。键只在本节点内有效。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyCache implements MeterBinder {
+
+    /**
+     * 请求头名称。
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    /**
+     * 重放响应中标记结果来自首次请求的响应头。
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * 键的最大长度。
+     */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final long ttlNanos;
+
+    private final LongAdder replays = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity 最多保留的键数量
+     * @param ttl 键的有效期
+     */
+    @Autowired
+    public IdempotencyCache(@Value("${banking.idempotency.capacity:100000}") int capacity,
+                            @Value("${banking.idempotency.ttl:24h}") Duration ttl) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Idempotency key capacity must be positive: " + capacity);
+        }
+        this.ttlNanos = ttl.toNanos();
+        int perSegment = (capacity + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment, evictions);
+        }
+    }
+
+    /**
+     * 注册重放次数、冲突次数、容量淘汰次数和当前保留的键数量的指标。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("banking.idempotency.replays", replays, LongAdder::sum)
+                .description("Create requests answered with the result of an earlier request with the same key")
+                .register(registry);
+        FunctionCounter.builder("banking.idempotency.conflicts", conflicts, LongAdder::sum)
+                .description("Create requests rejected because their key was in use or reused with a different body")
+                .register(registry);
+        FunctionCounter.builder("banking.idempotency.evictions", evictions, LongAdder::sum)
+                .description("Unexpired idempotency keys evicted because their segment was full; retries with them are no longer deduplicated")
+                .register(registry);
+        Gauge.builder("banking.idempotency.keys", this, IdempotencyCache::size)
+                .description("Idempotency keys currently retained")
+                .register(registry);
+    }
+
+    /**
+     * 占用一个键，或者返回使用该键的首次请求的结果。
+     *
+     * @param key Idempotency-Key 请求头的值
+     * @param request 本次请求的交易内容
+     * @return 键已有结果时返回首次创建的交易（调用方直接返回该结果）；返回 null 表示调用方占用了该键，
+     *         之后必须调用 {@link #complete} 或 {@link #abort}
+     * @throws InvalidInputException 如果键为空或超过 {@value #MAX_KEY_LENGTH} 个字符
+     * @throws IdempotencyConflictException 如果首次请求仍在执行中，或者同一个键被用于内容不同的请求
+     */
+    public Transaction begin(String key, Transaction request) {
+        validateKey(key);
+        Fingerprint fingerprint = fingerprint(key);
+        long requestHash = requestHash(request);
+        long now = System.nanoTime();
+        Segment segment = segmentFor(fingerprint);
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(fingerprint);
+            if (entry == null || entry.expiresAt - now <= 0) {
+                segment.entries.remove(fingerprint);
+                segment.entries.put(fingerprint, new Entry(requestHash, now + ttlNanos));
+                segment.evict(now);
+                return null;
+            }
+            if (entry.requestHash != requestHash) {
+                conflicts.increment();
+                throw new IdempotencyConflictException(
+                        "Idempotency-Key " + key + " was already used for a different request", false);
+            }
+            if (entry.result == null) {
+                conflicts.increment();
+                throw new IdempotencyConflictException(
+                        "A request with Idempotency-Key " + key + " is still in progress", true);
+            }
+            replays.increment();
+            return entry.result;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * 保存占用键的请求的结果，后续使用该键的请求将得到该结果。
+     *
+     * @param result 创建成功的交易，保存其当时的快照
+     */
+    public void complete(String key, Transaction result) {
+        Fingerprint fingerprint = fingerprint(key);
+        Transaction snapshot = new Transaction(result.getId(), result.getType(), result.getAmount(), result.getVersion());
+        long now = System.nanoTime();
+        Segment segment = segmentFor(fingerprint);
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(fingerprint);
+            if (entry == null) {
+                // 执行期间被容量淘汰，重新登记，避免之后的重试创建重复记录
+                entry = new Entry(requestHash(snapshot), now + ttlNanos);
+                segment.entries.put(fingerprint, entry);
+                segment.evict(now);
+            }
+            entry.result = snapshot;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * 请求失败时释放占用的键，客户端可以用同一个键重试；键已保存结果时不做任何事。
+     */
+    public void abort(String key) {
+        Fingerprint fingerprint = fingerprint(key);
+        Segment segment = segmentFor(fingerprint);
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(fingerprint);
+            if (entry != null && entry.result == null) {
+                segment.entries.remove(fingerprint);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * @return 当前保留的键数量（包括尚未淘汰的过期键）
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long getReplayCount() {
+        return replays.sum();
+    }
+
+    /**
+     * @return 未过期就因所在段已满而被淘汰的键的数量
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static void validateKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new InvalidInputException(HEADER + " cannot be empty.");
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidInputException(HEADER + " cannot be longer than " + MAX_KEY_LENGTH + " characters.");
+        }
+    }
+
+    private Segment segmentFor(Fingerprint fingerprint) {
+        return segments[(int) (fingerprint.high() >>> 58)];
+    }
+
+    /**
+     * 用两个独立的 64 位哈希组成键的 128 位指纹。
+     */
+    static Fingerprint fingerprint(String key) {
+        long high = 0xcbf29ce484222325L;
+        long low = key.length();
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            high = (high ^ c) * 0x100000001b3L;
+            low = (low + c) * 0x9e3779b97f4a7c15L;
+            low ^= low >>> 29;
+        }
+        return new Fingerprint(mix(high), mix(low));
+    }
+
+    /**
+     * 请求内容（类型和金额）的哈希，用于发现同一个键被用于不同的请求。
+     */
+    private static long requestHash(Transaction request) {
+        long hash = request.getType() == null ? 0L : request.getType().hashCode();
+        hash = hash * 31 + (request.getAmount() == null ? 0L : Double.doubleToLongBits(request.getAmount()));
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    record Fingerprint(long high, long low) {
+    }
+
+    private static final class Entry {
+
+        private final long requestHash;
+
+        private final long expiresAt;
+
+        /**
+         * 首次创建的结果，首次请求执行期间为 null。
+         */
+        private Transaction result;
+
+        Entry(long requestHash, long expiresAt) {
+            this.requestHash = requestHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 一段键：按插入顺序（即过期顺序）排列，队首最先淘汰。
+     */
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final LinkedHashMap<Fingerprint, Entry> entries = new LinkedHashMap<>();
+
+        private final int capacity;
+
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        /**
+         * 从队首淘汰已过期和超出容量的键。调用方必须持有锁。
+         */
+        void evict(long now) {
+            Iterator<Map.Entry<Fingerprint, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                boolean live = eldest.expiresAt - now > 0;
+                if (entries.size() <= capacity && live) {
+                    return;
+                }
+                if (live) {
+                    evictions.increment();
+                }
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.banking.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionMetrics 记录交易服务热路径上的指标：每种操作的延迟直方图，以及校验失败和记录不存在的错误计数。
+ *
+ * <p>所有计时器和计数器在启动时注册好，记录时只做数组下标访问和无锁累加，不产生任何对象分配。
+ * 计时器只记录成功的操作，失败的请求由错误计数器统计。</p>
+ */
+@Component
+public class TransactionMetrics {
+
+    /**
+     * 不导出任何数据的实例，用于未接入 Spring 容器（如单元测试、基准测试）的场景。
+     */
+    public static final TransactionMetrics NOOP = new TransactionMetrics(new CompositeMeterRegistry());
+
+    /**
+     * 交易服务的操作类型。
+     */
+    public enum Operation {
+        CREATE("create"),
+        BATCH_CREATE("batch_create"),
+        GET("get"),
+        LIST("list"),
+        LIST_AFTER("list_after"),
+        FILTER("filter"),
+        STATS("stats"),
+        UPDATE("update"),
+        DELETE("delete");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer[] timers;
+
+    private final Counter validationFailures;
+
+    private final Counter notFound;
+
+    private final Counter versionConflicts;
+
+    @Autowired
+    public TransactionMetrics(MeterRegistry registry) {
+        Operation[] operations = Operation.values();
+        timers = new Timer[operations.length];
+        for (Operation operation : operations) {
+            timers[operation.ordinal()] = Timer.builder("banking.transactions.operation")
+                    .description("Latency of successful transaction store operations")
+                    .tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+        validationFailures = Counter.builder("banking.transactions.errors")
+                .description("Requests rejected by the transaction API")
+                .tag("reason", "validation")
+                .register(registry);
+        notFound = Counter.builder("banking.transactions.errors")
+                .description("Requests rejected by the transaction API")
+                .tag("reason", "not_found")
+                .register(registry);
+        versionConflicts = Counter.builder("banking.transactions.errors")
+                .description("Requests rejected by the transaction API")
+                .tag("reason", "version_conflict")
+                .register(registry);
+    }
+
+    /**
+     * 记录一次成功操作的耗时。
+     *
+     * @param operation 操作类型
+     * @param startNanos 操作开始时的 {@link System#nanoTime()}
+     */
+    public void record(Operation operation, long startNanos) {
+        timers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordValidationFailure() {
+        validationFailures.increment();
+    }
+
+    public void recordNotFound() {
+        notFound.increment();
+    }
+
+    public void recordVersionConflict() {
+        versionConflicts.increment();
+    }
+}
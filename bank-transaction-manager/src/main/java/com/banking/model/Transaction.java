@@ -1,10 +1,13 @@
 package com.banking.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 public class Transaction {
     private Long id;
     private String type;
     private Double amount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
 
     public Transaction() {}
 
@@ -14,6 +17,11 @@ public class Transaction {
         this.amount = amount;
     }
 
+    public Transaction(Long id, String type, Double amount, Long version) {
+        this(id, type, amount);
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -37,4 +45,15 @@ public class Transaction {
     public void setAmount(Double amount) {
         this.amount = amount;
     }
+
+    /**
+     * 记录的版本号，创建时为 1，每次更新加 1，用于乐观并发控制（ETag / If-Match）。
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
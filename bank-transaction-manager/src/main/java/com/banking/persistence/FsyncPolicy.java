@@ -0,0 +1,22 @@
+package com.banking.persistence;
+
+/**
+ * FsyncPolicy 定义了预写日志落盘（fsync）的时机。
+ */
+public enum FsyncPolicy {
+
+    /**
+     * 每次写入在返回前都保证已落盘。并发写入通过组提交共享同一次 fsync。
+     */
+    PER_WRITE,
+
+    /**
+     * 后台线程每隔固定毫秒数批量落盘，崩溃时最多丢失一个间隔内的写入。
+     */
+    BATCHED,
+
+    /**
+     * 不主动落盘，由操作系统决定何时回写页缓存，仅在关闭时强制落盘。
+     */
+    OS
+}
@@ -0,0 +1,19 @@
+package com.banking.persistence;
+
+/**
+ * JournalVisitor 用于在重放预写日志时逐条接收记录。
+ */
+public interface JournalVisitor {
+
+    /**
+     * 创建或更新一条交易记录（日志记录的是完整行，重放是幂等的）。
+     *
+     * @param version 写入后记录的版本号
+     */
+    void onPut(long id, String type, double amount, long version);
+
+    /**
+     * 删除一条交易记录。
+     */
+    void onDelete(long id);
+}
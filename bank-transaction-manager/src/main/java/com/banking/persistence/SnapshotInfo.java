@@ -0,0 +1,37 @@
+package com.banking.persistence;
+
+/**
+ * SnapshotInfo 描述一个已加载快照的元数据。
+ */
+public class SnapshotInfo {
+    private final long lsn;
+    private final long lastId;
+    private final long count;
+
+    public SnapshotInfo(long lsn, long lastId, long count) {
+        this.lsn = lsn;
+        this.lastId = lastId;
+        this.count = count;
+    }
+
+    /**
+     * @return 快照对应的日志位置，从该位置开始重放日志尾部
+     */
+    public long getLsn() {
+        return lsn;
+    }
+
+    /**
+     * @return 快照时ID分配器的位置
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return 快照中的记录数
+     */
+    public long getCount() {
+        return count;
+    }
+}
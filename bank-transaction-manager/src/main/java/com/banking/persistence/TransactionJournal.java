@@ -0,0 +1,480 @@
+package com.banking.persistence;
+
+import com.banking.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * TransactionJournal 是基于内存映射文件（{@link FileChannel#map}）的分段预写日志（WAL）。
+ *
+ * <p>每一次创建、更新和删除都以一条记录追加到当前段文件，段写满后滚动到新文件。
+ * 记录格式为 {@code [payload 长度 int][CRC32 int][op byte][id long][amount double][type 长度 short][type UTF-8][version long]}，
+ * 长度为 0 表示段内数据结束，CRC 不匹配的记录视为崩溃时写了一半的尾部并被丢弃。</p>
+ *
+ * <p>日志位置（LSN）是记录结束处在整个日志中的全局偏移量，段文件以其起始 LSN 命名。
+ * 落盘时机由 {@link FsyncPolicy} 决定；PER_WRITE 模式下并发写入通过组提交共享一次 fsync。</p>
+ *
+ * <p>启动时通过 {@link #replay(long, JournalVisitor)} 从最新快照的位置开始顺序映射读取日志段，重建内存数据；
+ * 快照写成后，通过 {@link #truncateBefore(long)} 删除已被快照覆盖的旧段。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.journal.enabled", havingValue = "true")
+public class TransactionJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionJournal.class);
+
+    public static final byte OP_CREATE = 1;
+    public static final byte OP_UPDATE = 2;
+    public static final byte OP_DELETE = 3;
+
+    /**
+     * 记录头：payload 长度 + CRC32。
+     */
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    /**
+     * payload 中类型字符串的起始偏移：op + id + amount + type 长度。
+     */
+    private static final int TYPE_OFFSET = 1 + Long.BYTES + Double.BYTES + Short.BYTES;
+
+    /**
+     * payload 中除类型字符串以外的固定部分：op + id + amount + type 长度 + version。
+     */
+    private static final int FIXED_PAYLOAD_BYTES = TYPE_OFFSET + Long.BYTES;
+
+    /**
+     * 一条记录的最大长度（类型字符串最长 {@link Short#MAX_VALUE} 字节）。
+     */
+    private static final int MAX_RECORD_BYTES = HEADER_BYTES + FIXED_PAYLOAD_BYTES + Short.MAX_VALUE;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final long fsyncIntervalMillis;
+
+    /**
+     * 串行化追加写入，保护 current 段及其写入位置。
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /**
+     * 保证同一时刻只有一个线程执行 fsync，其余线程等待后直接复用结果（组提交）。
+     */
+    private final Object syncMonitor = new Object();
+
+    private Segment current;
+
+    /**
+     * 已写入（但不一定已落盘）的日志末尾位置。
+     */
+    private volatile long writtenLsn;
+
+    /**
+     * 已确认落盘的日志末尾位置。
+     */
+    private volatile long durableLsn;
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public TransactionJournal(@Value("${banking.journal.dir:data/journal}") String directory,
+                              @Value("${banking.journal.segment-size:64MB}") DataSize segmentSize,
+                              @Value("${banking.journal.fsync-policy:BATCHED}") FsyncPolicy fsyncPolicy,
+                              @Value("${banking.journal.fsync-interval-ms:10}") long fsyncIntervalMillis,
+                              @Value("${banking.store.type:heap}") String storeType) {
+        this(requireHeapStore(storeType, Paths.get(directory)), Math.toIntExact(segmentSize.toBytes()), fsyncPolicy, fsyncIntervalMillis);
+    }
+
+    /**
+     * 只有 heap 存储会写日志和快照，其他存储下启用日志时所有写入在重启后都会丢失，因此拒绝启动。
+     *
+     * @return 原样返回 directory
+     */
+    static Path requireHeapStore(String storeType, Path directory) {
+        if (!"heap".equals(storeType)) {
+            throw new IllegalStateException("banking.journal.enabled=true requires banking.store.type=heap, but it is " + storeType);
+        }
+        return directory;
+    }
+
+    public TransactionJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        if (segmentSize < MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Journal segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    /**
+     * 打开日志目录，定位到最后一个段中最后一条完整记录之后，准备继续追加。
+     */
+    @PostConstruct
+    public void open() {
+        appendLock.lock();
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            if (segments.isEmpty()) {
+                current = openSegment(0L);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                current = openSegment(baseLsnOf(last));
+                current.position = scanValidEnd(current.buffer);
+                // 清除崩溃时可能残留的半条记录，避免新记录之后出现看似合法的旧数据
+                int tornEnd = (int) Math.min(current.buffer.capacity(),
+                        (long) current.position + MAX_RECORD_BYTES);
+                for (int i = current.position; i < tornEnd; i++) {
+                    current.buffer.put(i, (byte) 0);
+                }
+            }
+            writtenLsn = current.baseLsn + current.position;
+            durableLsn = writtenLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open transaction journal in " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (fsyncPolicy == FsyncPolicy.BATCHED) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleAtFixedRate(this::flushQuietly, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info("Transaction journal opened at {} (position {}, fsync policy {})", directory, writtenLsn, fsyncPolicy);
+    }
+
+    /**
+     * 追加一条日志记录。记录写入映射内存后立即返回，是否已落盘取决于 {@link #commit()}。
+     *
+     * @return 该记录结束处的日志位置
+     */
+    public long append(byte op, long id, String type, double amount, long version) {
+        byte[] typeBytes = type == null ? new byte[0] : type.getBytes(StandardCharsets.UTF_8);
+        if (typeBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Transaction type is too long to journal");
+        }
+        ByteBuffer payload = ByteBuffer.allocate(FIXED_PAYLOAD_BYTES + typeBytes.length);
+        payload.put(op).putLong(id).putDouble(amount).putShort((short) typeBytes.length).put(typeBytes).putLong(version);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        int recordLength = HEADER_BYTES + payload.capacity();
+
+        appendLock.lock();
+        try {
+            if (current == null) {
+                throw new IllegalStateException("Transaction journal is not open");
+            }
+            if (current.position + recordLength > current.buffer.capacity()) {
+                roll();
+            }
+            MappedByteBuffer buffer = current.buffer;
+            int position = current.position;
+            buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+            buffer.put(position + HEADER_BYTES, payload.array());
+            buffer.putInt(position, payload.capacity());
+            current.position = position + recordLength;
+            writtenLsn = current.baseLsn + current.position;
+            return writtenLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 在一次加锁内连续追加一批记录，配合一次 {@link #commit()} 完成整批落盘。
+     *
+     * @return 最后一条记录结束处的日志位置
+     */
+    public long appendAll(byte op, Collection<Transaction> transactions) {
+        appendLock.lock();
+        try {
+            long lsn = writtenLsn;
+            for (Transaction transaction : transactions) {
+                lsn = append(op, transaction.getId(), transaction.getType(), transaction.getAmount(), transaction.getVersion());
+            }
+            return lsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 按 fsync 策略提交已追加的记录：PER_WRITE 模式下阻塞到当前线程写入的记录落盘为止，
+     * 其他模式立即返回。
+     */
+    public void commit() {
+        if (fsyncPolicy == FsyncPolicy.PER_WRITE) {
+            sync(writtenLsn);
+        }
+    }
+
+    /**
+     * 从指定日志位置开始顺序重放之后的所有完整记录。
+     *
+     * @param fromLsn 起始日志位置（通常为最新快照的位置），之前的记录会被跳过
+     * @param visitor 接收每条记录的回调
+     * @return 重放的记录数
+     */
+    public long replay(long fromLsn, JournalVisitor visitor) {
+        long count = 0;
+        try {
+            List<Path> segments = listSegments();
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && baseLsnOf(segments.get(i + 1)) <= fromLsn) {
+                    continue;
+                }
+                long baseLsn = baseLsnOf(segments.get(i));
+                try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    int position = 0;
+                    // 跳过快照已经包含的记录
+                    int next;
+                    while (baseLsn + position < fromLsn && (next = readRecord(buffer, position, null)) >= 0) {
+                        position = next;
+                    }
+                    while ((position = readRecord(buffer, position, visitor)) >= 0) {
+                        count++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay transaction journal in " + directory, e);
+        }
+        return count;
+    }
+
+    /**
+     * 删除完全位于 lsn 之前的日志段。当前正在写入的段永远不会被删除。
+     *
+     * @param lsn 已被快照覆盖的日志位置
+     * @return 删除的段数
+     */
+    public int truncateBefore(long lsn) {
+        int deleted = 0;
+        try {
+            List<Path> segments = listSegments();
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (baseLsnOf(segments.get(i + 1)) <= lsn) {
+                    Files.deleteIfExists(segments.get(i));
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to truncate transaction journal in " + directory, e);
+        }
+        return deleted;
+    }
+
+    /**
+     * @return 已写入的日志末尾位置
+     */
+    public long getWrittenPosition() {
+        return writtenLsn;
+    }
+
+    /**
+     * @return 已落盘的日志末尾位置
+     */
+    public long getDurablePosition() {
+        return durableLsn;
+    }
+
+    /**
+     * 停止后台落盘线程，强制落盘并关闭当前段。
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        appendLock.lock();
+        try {
+            if (current != null) {
+                current.buffer.force();
+                durableLsn = writtenLsn;
+                current.channel.close();
+                current = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close transaction journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void sync(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        synchronized (syncMonitor) {
+            if (durableLsn >= lsn) {
+                return;
+            }
+            Segment segment;
+            long target;
+            appendLock.lock();
+            try {
+                segment = current;
+                target = writtenLsn;
+            } finally {
+                appendLock.unlock();
+            }
+            if (segment != null) {
+                // 段滚动时旧段已经落盘，这里只需要落盘当前段
+                segment.buffer.force();
+                durableLsn = target;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            sync(writtenLsn);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush transaction journal", e);
+        }
+    }
+
+    /**
+     * 落盘并关闭当前段，打开紧随其后的新段。调用方必须持有 appendLock。
+     */
+    private void roll() {
+        try {
+            current.buffer.force();
+            current.channel.close();
+            current = openSegment(current.baseLsn + current.buffer.capacity());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll transaction journal segment", e);
+        }
+    }
+
+    private Segment openSegment(long baseLsn) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, baseLsn, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(baseLsn, channel, buffer);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long baseLsnOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int scanValidEnd(ByteBuffer buffer) {
+        int position = 0;
+        int next;
+        while ((next = readRecord(buffer, position, null)) >= 0) {
+            position = next;
+        }
+        return position;
+    }
+
+    /**
+     * 读取 position 处的一条记录并交给 visitor（可为 null）。
+     *
+     * @return 下一条记录的位置；到达段内数据末尾或遇到损坏记录时返回 -1
+     */
+    private static int readRecord(ByteBuffer buffer, int position, JournalVisitor visitor) {
+        if (position + HEADER_BYTES > buffer.capacity()) {
+            return -1;
+        }
+        int payloadLength = buffer.getInt(position);
+        if (payloadLength < FIXED_PAYLOAD_BYTES || position + HEADER_BYTES + payloadLength > buffer.capacity()) {
+            return -1;
+        }
+        int payloadStart = position + HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(payloadStart, payloadLength));
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+            return -1;
+        }
+
+        if (visitor != null) {
+            byte op = buffer.get(payloadStart);
+            long id = buffer.getLong(payloadStart + 1);
+            if (op == OP_DELETE) {
+                visitor.onDelete(id);
+            } else {
+                double amount = buffer.getDouble(payloadStart + 1 + Long.BYTES);
+                int typeLength = buffer.getShort(payloadStart + 1 + Long.BYTES + Double.BYTES);
+                byte[] typeBytes = new byte[typeLength];
+                buffer.get(payloadStart + TYPE_OFFSET, typeBytes);
+                long version = buffer.getLong(payloadStart + TYPE_OFFSET + typeLength);
+                visitor.onPut(id, new String(typeBytes, StandardCharsets.UTF_8), amount, version);
+            }
+        }
+        return payloadStart + payloadLength;
+    }
+
+    /**
+     * 一个已映射的段文件。
+     */
+    private static final class Segment {
+        private final long baseLsn;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(long baseLsn, FileChannel channel, MappedByteBuffer buffer) {
+            this.baseLsn = baseLsn;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
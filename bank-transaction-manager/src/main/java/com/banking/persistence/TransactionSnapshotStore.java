@@ -0,0 +1,223 @@
+package com.banking.persistence;
+
+import com.banking.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * TransactionSnapshotStore 负责把存活的交易数据写成紧凑的二进制快照，并在启动时加载最新快照。
+ *
+ * <p>快照文件以其对应的日志位置（LSN）命名：快照包含该位置之前所有日志记录的效果，
+ * 启动时只需加载快照并从该位置开始重放日志尾部，该位置之前的日志段可以删除。</p>
+ *
+ * <p>文件格式为 {@code [magic int][lsn long][lastId long]{[1][id long][amount double][version long][type UTF]}*[0][count long][CRC32 int]}，
+ * 先写入临时文件并落盘，再原子重命名，因此目录中可见的快照总是完整的。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.journal.enabled", havingValue = "true")
+public class TransactionSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionSnapshotStore.class);
+
+    private static final int MAGIC = 0x54585332;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+
+    private final Duration interval;
+
+    private final int retention;
+
+    @Autowired
+    public TransactionSnapshotStore(@Value("${banking.snapshot.dir:data/snapshots}") String directory,
+                                    @Value("${banking.snapshot.interval:5m}") Duration interval,
+                                    @Value("${banking.snapshot.retention:2}") int retention,
+                                    @Value("${banking.store.type:heap}") String storeType) {
+        this(TransactionJournal.requireHeapStore(storeType, Paths.get(directory)), interval, retention);
+    }
+
+    public TransactionSnapshotStore(Path directory, Duration interval, int retention) {
+        if (retention < 1) {
+            throw new IllegalArgumentException("Snapshot retention must be >= 1");
+        }
+        this.directory = directory;
+        this.interval = interval;
+        this.retention = retention;
+    }
+
+    /**
+     * @return 两次快照之间的间隔，为 0 表示不做周期性快照
+     */
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * 写入一个新快照。rows 可以是并发修改中的集合：LSN 之前的修改都已可见，
+     * 之后的修改即使被快照部分包含，重放日志时也会被幂等地覆盖。
+     *
+     * @param lsn 快照对应的日志位置
+     * @param lastId 快照时ID分配器的位置，恢复后从其之后继续分配，避免复用已删除记录的ID
+     * @param rows 存活的交易记录
+     * @return 写入的记录数
+     */
+    public long write(long lsn, long lastId, Iterable<Transaction> rows) {
+        Path target = pathFor(lsn);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        long count = 0;
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeLong(lsn);
+                out.writeLong(lastId);
+                for (Transaction row : rows) {
+                    out.writeByte(1);
+                    out.writeLong(row.getId());
+                    out.writeDouble(row.getAmount());
+                    out.writeLong(row.getVersion());
+                    out.writeUTF(row.getType());
+                    count++;
+                }
+                out.writeByte(0);
+                out.writeLong(count);
+                out.flush();
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write transaction snapshot " + target, e);
+        }
+        return count;
+    }
+
+    /**
+     * 加载最新的完整快照。若最新快照损坏，则调用 reset 清空已加载的数据并回退到更早的快照。
+     *
+     * @param visitor 接收快照中每条记录的回调
+     * @param reset 回退到更早快照前清空已加载数据的回调
+     * @return 所加载快照的信息；没有可用快照时返回 null
+     */
+    public SnapshotInfo loadLatest(JournalVisitor visitor, Runnable reset) {
+        List<Path> snapshots = listSnapshots();
+        Collections.reverse(snapshots);
+        for (Path snapshot : snapshots) {
+            try {
+                SnapshotInfo info = load(snapshot, visitor);
+                log.info("Loaded {} transactions from snapshot {}", info.getCount(), snapshot.getFileName());
+                return info;
+            } catch (IOException | IllegalStateException e) {
+                log.warn("Skipping unreadable snapshot {}", snapshot.getFileName(), e);
+                reset.run();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 删除超出保留数量的旧快照。
+     *
+     * @return 保留下来的最旧快照的日志位置，该位置之前的日志段不再需要；没有快照时返回 0
+     */
+    public long prune() {
+        List<Path> snapshots = listSnapshots();
+        int excess = snapshots.size() - retention;
+        try {
+            for (int i = 0; i < excess; i++) {
+                Files.deleteIfExists(snapshots.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prune transaction snapshots", e);
+        }
+        return snapshots.isEmpty() ? 0L : lsnOf(snapshots.get(Math.max(0, excess)));
+    }
+
+    private SnapshotInfo load(Path snapshot, JournalVisitor visitor) throws IOException {
+        CRC32 crc = new CRC32();
+        // 校验流位于缓冲流之上，保证 CRC 只覆盖已读取的字节，不包含预读的尾部校验值
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16), crc))) {
+            long lsn = lsnOf(snapshot);
+            if (in.readInt() != MAGIC || in.readLong() != lsn) {
+                throw new IllegalStateException("Invalid snapshot header");
+            }
+            long lastId = in.readLong();
+            long count = 0;
+            while (in.readByte() == 1) {
+                long id = in.readLong();
+                double amount = in.readDouble();
+                long version = in.readLong();
+                visitor.onPut(id, in.readUTF(), amount, version);
+                count++;
+            }
+            if (in.readLong() != count) {
+                throw new IllegalStateException("Snapshot record count mismatch");
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IllegalStateException("Snapshot checksum mismatch");
+            }
+            return new SnapshotInfo(lsn, lastId, count);
+        }
+    }
+
+    private List<Path> listSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list transaction snapshots in " + directory, e);
+        }
+    }
+
+    private Path pathFor(long lsn) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+    }
+
+    private static long lsnOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,373 @@
+package com.banking.reactive;
+
+import com.banking.changes.ChangeFeed;
+import com.banking.config.CborConfig;
+import com.banking.controller.TransactionController;
+import com.banking.dto.ApiResponse;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.idempotency.IdempotencyCache;
+import com.banking.metrics.TransactionMetrics;
+import com.banking.model.Transaction;
+import com.banking.replication.ReplicationLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReactiveTransactionController 是 {@link TransactionController} 的响应式（WebFlux/Netty）版本，
+ * 提供完全相同的路径、参数和响应格式。
+ *
+ * <p>通过 {@code --spring.profiles.active=reactive} 以响应式模式启动时启用。</p>
+ */
+@RestController
+@RequestMapping("/api/transactions")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTransactionController {
+
+    /**
+     * 导入时每批写入的记录数。
+     */
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
+    /**
+     * 导入响应中最多返回的错误条数。
+     */
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * 游标分页不支持过滤条件，与 afterId 同时出现时拒绝，避免静默返回未过滤的结果。
+     */
+    private static final InvalidInputException FILTERS_WITH_CURSOR =
+            InvalidInputException.shared("type, minAmount and maxAmount cannot be combined with afterId.");
+
+    @Autowired
+    private ReactiveTransactionService transactionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 与 objectMapper 配置相同的 CBOR ObjectMapper，用于 CBOR 序列导出。
+     */
+    private ObjectMapper cborMapper;
+
+    /**
+     * 复制变更流，仅在作为复制主节点时注入。
+     */
+    @Autowired(required = false)
+    private ReplicationLog replicationLog;
+
+    /**
+     * 进程内变更流，banking.changes.enabled=false 时为 null。
+     */
+    @Autowired(required = false)
+    private ChangeFeed changeFeed;
+
+    /**
+     * 创建接口的幂等键表，banking.idempotency.enabled=false 时为 null。
+     */
+    @Autowired(required = false)
+    private IdempotencyCache idempotencyCache;
+
+    /**
+     * 监控指标，用于记录直接返回的 404；未注册时不记录。
+     */
+    @Autowired(required = false)
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    @PostConstruct
+    public void initCborMapper() {
+        cborMapper = CborConfig.cborMapper(objectMapper);
+    }
+
+    /**
+     * 创建一个新的交易记录。带有 Idempotency-Key 时，重复提交同一个键只创建一次，重试返回首次创建的交易。
+     *
+     * @param idempotencyKey 客户端生成的幂等键，可选
+     * @param transaction 包含交易信息的请求体对象
+     * @return ApiResponse<Transaction> 返回创建成功的交易数据，HTTP 状态码 200 OK
+     */
+    @PostMapping
+    public Mono<ResponseEntity<ApiResponse<Transaction>>> createTransaction(
+            @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
+            @RequestBody Transaction transaction) {
+        if (idempotencyKey == null || idempotencyCache == null) {
+            return transactionService.createTransaction(transaction)
+                    .map(created -> written().body(new ApiResponse<>(true, created, "Transaction created successfully")));
+        }
+        return Mono.defer(() -> {
+            Transaction original = idempotencyCache.begin(idempotencyKey, transaction);
+            if (original != null) {
+                return Mono.just(written()
+                        .header(IdempotencyCache.REPLAYED_HEADER, "true")
+                        .body(new ApiResponse<>(true, original, "Transaction created successfully")));
+            }
+            return transactionService.createTransaction(transaction)
+                    .doOnNext(created -> idempotencyCache.complete(idempotencyKey, created))
+                    .doFinally(signal -> idempotencyCache.abort(idempotencyKey))
+                    .map(created -> written().body(new ApiResponse<>(true, created, "Transaction created successfully")));
+        });
+    }
+
+    /**
+     * 批量创建交易记录。
+     *
+     * @param transactions 包含多条交易信息的请求体数组
+     * @return ApiResponse<List<BatchItemResult>> 返回与请求顺序一一对应的处理结果，HTTP 状态码 200 OK
+     */
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<ApiResponse<List<BatchItemResult>>>> createTransactions(@RequestBody List<Transaction> transactions) {
+        return transactionService.createTransactions(transactions).map(results -> {
+            long failed = results.stream().filter(result -> !result.isSuccess()).count();
+            String message = String.format("Batch processed: %d succeeded, %d failed", results.size() - failed, failed);
+            return written().body(new ApiResponse<>(failed == 0, results, message));
+        });
+    }
+
+    /**
+     * 以 NDJSON 流的形式导出全部交易记录（按ID升序），按客户端的读取速度逐块读取存储；
+     * Accept 头优先选择 {@code application/cbor-seq} 时改为导出 CBOR 序列，每条记录一个 CBOR 数据项。
+     *
+     * @param accept 请求的 Accept 头
+     * @return 逐条交易记录的响应流，HTTP 状态码 200 OK
+     */
+    @GetMapping(value = "/export", produces = {TransactionController.APPLICATION_NDJSON_VALUE,
+            TransactionController.APPLICATION_CBOR_SEQ_VALUE})
+    public ResponseEntity<Flux<DataBuffer>> exportTransactions(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean cbor = CborConfig.prefersBinary(accept, TransactionController.APPLICATION_CBOR_SEQ,
+                TransactionController.APPLICATION_NDJSON);
+        ObjectWriter writer = (cbor ? cborMapper : objectMapper).writerFor(Transaction.class);
+        Flux<DataBuffer> body = transactionService.streamTransactions(0L).handle((transaction, sink) -> {
+            try {
+                byte[] record = writer.writeValueAsBytes(transaction);
+                DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(record.length + 1).write(record);
+                sink.next(cbor ? buffer : buffer.write((byte) '\n'));
+            } catch (JsonProcessingException e) {
+                sink.error(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(cbor ? TransactionController.APPLICATION_CBOR_SEQ : TransactionController.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 以 NDJSON 流的形式批量导入交易记录。
+     *
+     * <p>请求体被增量解码，每积累一批就写入存储；非法记录被跳过并在 errors 中按行号报告，
+     * 遇到无法解析的 JSON 时停止导入，之前的批次已经生效。</p>
+     *
+     * @param transactions NDJSON 请求体解码出的交易流
+     * @return ApiResponse<Long> 返回成功导入的记录数，HTTP 状态码 200 OK
+     */
+    @PostMapping(value = "/import", consumes = TransactionController.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<ApiResponse<Long>>> importTransactions(@RequestBody Flux<Transaction> transactions) {
+        ApiResponse<Long> response = new ApiResponse<>(true, 0L, null);
+        AtomicLong read = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        return transactions
+                .doOnNext(transaction -> read.incrementAndGet())
+                .onErrorMap(ServerWebInputException.class, e ->
+                        new InvalidInputException("Malformed NDJSON after line " + read.get() + ": "
+                                + (e.getMostSpecificCause() != null ? e.getMostSpecificCause().getMessage() : e.getReason())))
+                .buffer(STREAM_CHUNK_SIZE)
+                .index()
+                .concatMap(indexed -> {
+                    // concatMap 会预取后续批次，read 此时可能已经超前，行号按批次序号计算（只有最后一批不满）
+                    long firstLine = indexed.getT1() * STREAM_CHUNK_SIZE;
+                    return transactionService.createTransactions(indexed.getT2())
+                            .doOnNext(results -> failed.addAndGet(recordFailures(results, firstLine, response)));
+                })
+                .then(Mono.fromSupplier(() -> {
+                    long imported = read.get() - failed.get();
+                    response.setSuccess(failed.get() == 0);
+                    response.setData(imported);
+                    response.setMessage(String.format("Imported %d transactions, %d failed", imported, failed.get()));
+                    return written().body(response);
+                }));
+    }
+
+    /**
+     * 分页获取交易记录，可按类型和金额区间过滤。
+     *
+     * @param page 页码（从0开始），默认为0
+     * @param size 每页记录数，默认为10
+     * @param type 交易类型，可选
+     * @param minAmount 最小金额（含），可选
+     * @param maxAmount 最大金额（含），可选
+     * @return ApiResponse<List<Transaction>> 返回当前页的交易列表，HTTP 状态码 200 OK
+     */
+    @GetMapping
+    public Mono<ResponseEntity<ApiResponse<List<Transaction>>>> getAllTransactions(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount) {
+        Mono<List<Transaction>> result = type == null && minAmount == null && maxAmount == null
+                ? transactionService.getAllTransactions(page, size)
+                : transactionService.findTransactions(type, minAmount, maxAmount, page, size);
+        return result
+                .map(transactions -> ResponseEntity.ok(new ApiResponse<>(true, transactions, "Transactions fetched successfully")));
+    }
+
+    /**
+     * 基于游标（keyset）分页获取交易记录。
+     *
+     * @param afterId 上一页最后一条记录的ID，首次查询传 0
+     * @param limit 每页记录数，默认为10
+     * @param type 不支持，与 afterId 同时传入时返回 400
+     * @param minAmount 不支持，与 afterId 同时传入时返回 400
+     * @param maxAmount 不支持，与 afterId 同时传入时返回 400
+     * @return ApiResponse<List<Transaction>> 返回 ID 大于 afterId 的交易列表，HTTP 状态码 200 OK
+     */
+    @GetMapping(params = "afterId")
+    public Mono<ResponseEntity<ApiResponse<List<Transaction>>>> getTransactionsAfter(
+            @RequestParam Long afterId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount) {
+        if (type != null || minAmount != null || maxAmount != null) {
+            return Mono.error(FILTERS_WITH_CURSOR);
+        }
+        return transactionService.getTransactionsAfter(afterId, limit)
+                .map(transactions -> ResponseEntity.ok(new ApiResponse<>(true, transactions, "Transactions fetched successfully")));
+    }
+
+    /**
+     * 按交易类型获取聚合统计（数量、总额、最小金额、最大金额、平均金额）。
+     *
+     * @return ApiResponse<Map<String, TransactionStats>> 返回交易类型到统计的映射，HTTP 状态码 200 OK
+     */
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<ApiResponse<Map<String, TransactionStats>>>> getStatistics() {
+        return transactionService.getStatistics()
+                .map(statistics -> ResponseEntity.ok(new ApiResponse<>(true, statistics, "Statistics fetched successfully")));
+    }
+
+    /**
+     * 以 Server-Sent Events 推送交易的创建、更新和删除事件，替代轮询列表接口。
+     *
+     * <p>事件 id 为变更序号。断线重连时客户端通过 Last-Event-ID 请求头（或 from 参数）带上最后处理的序号，
+     * 从其后继续接收；落后超过服务端缓冲区时会收到一条 lagged 事件，需要通过列表接口重新同步。</p>
+     *
+     * @param from 已处理的最后一个事件序号，可选；与 Last-Event-ID 都缺省时只接收之后的新事件
+     * @param lastEventId EventSource 自动重连时带上的最后事件序号
+     * @return 变更事件流
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChangeEvent>> streamChanges(
+            @RequestParam(required = false) Long from,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        if (changeFeed == null) {
+            throw new ResourceNotFoundException("Change feed is disabled");
+        }
+        return changeFeed.events(from != null ? from : lastEventId);
+    }
+
+    /**
+     * 根据交易ID获取单个交易记录。
+     *
+     * @param id 要查询的交易ID
+     * @return ApiResponse<Transaction> 返回匹配的交易对象，HTTP 状态码 200 OK；不存在时直接返回 404，不经过异常处理
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<Transaction>>> getTransactionById(@PathVariable Long id) {
+        return transactionService.findTransactionById(id)
+                .map(transaction -> ResponseEntity.ok()
+                        .eTag(Long.toString(transaction.getVersion()))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(new ApiResponse<>(true, transaction, "Transaction fetched successfully")))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    metrics.recordNotFound();
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(new ApiResponse<>(false, null, ResourceNotFoundException.transactionMessage(id)));
+                }));
+    }
+
+    /**
+     * 根据交易ID更新已有交易记录，If-Match 与记录的当前版本不一致时返回 412。
+     *
+     * @param id 要更新的交易ID
+     * @param ifMatch 期望的记录版本（先前响应中的 ETag），可选
+     * @param transactionDetails 包含新数据的交易对象
+     * @return ApiResponse<Transaction> 返回更新后的交易对象，HTTP 状态码 200 OK
+     */
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<Transaction>>> updateTransaction(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Transaction transactionDetails) {
+        Long expectedVersion = TransactionController.expectedVersion(ifMatch);
+        return transactionService.updateTransaction(id, transactionDetails, expectedVersion)
+                .map(updated -> written()
+                        .eTag(Long.toString(updated.getVersion()))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(new ApiResponse<>(true, updated, "Transaction updated successfully")));
+    }
+
+    /**
+     * 根据交易ID删除指定的交易记录。
+     *
+     * @param id 要删除的交易ID
+     * @return 空响应体，HTTP 状态码 200 OK
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteTransaction(@PathVariable Long id) {
+        return transactionService.deleteTransaction(id)
+                .then(Mono.fromSupplier(() -> written().<Void>build()));
+    }
+
+    /**
+     * 写操作成功后的响应：作为复制主节点时在 {@link ReplicationLog#VERSION_HEADER} 中返回写入后的复制版本。
+     */
+    private ResponseEntity.BodyBuilder written() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (replicationLog != null) {
+            builder.header(ReplicationLog.VERSION_HEADER, Long.toString(replicationLog.head()));
+        }
+        return builder;
+    }
+
+    /**
+     * 把一批导入结果中的失败原因按行号（从1开始）记录到响应中。
+     *
+     * @return 该批中失败的记录数
+     */
+    private long recordFailures(List<BatchItemResult> results, long firstLine, ApiResponse<Long> response) {
+        long failed = 0;
+        for (BatchItemResult result : results) {
+            if (!result.isSuccess()) {
+                failed++;
+                if (response.getErrors().size() < MAX_REPORTED_ERRORS) {
+                    response.addError("line " + (firstLine + result.getIndex() + 1), result.getMessage());
+                }
+            }
+        }
+        return failed;
+    }
+}
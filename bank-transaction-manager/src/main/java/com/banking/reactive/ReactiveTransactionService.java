@@ -0,0 +1,122 @@
+package com.banking.reactive;
+
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.TransactionStats;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReactiveTransactionService 把同步的 {@link TransactionService} 适配为非阻塞的 Mono/Flux 接口。
+ *
+ * <p>写操作在开启持久化时可能等待日志落盘，因此切换到 boundedElastic 调度器，避免阻塞 Netty 事件循环。
+ * 读操作只有在存储声明不会阻塞（{@link TransactionService#readsMayBlock()} 返回 false，如 heap、sharded）时
+ * 才直接在调用线程上执行；offheap 的读操作要获取读写锁，file 存储还可能读磁盘，同样切换到 boundedElastic。</p>
+ *
+ * <p>列表通过游标按块读取，只有下游请求数据时才读取下一块，从而支持背压。</p>
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTransactionService {
+
+    /**
+     * 流式读取时每次从存储中获取的记录数。
+     */
+    static final int STREAM_CHUNK_SIZE = 256;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private final Scheduler writeScheduler = Schedulers.boundedElastic();
+
+    /**
+     * 读操作的调度器：存储的读操作可能阻塞时与写操作一样在 boundedElastic 上执行，否则留在调用线程上。
+     */
+    private Scheduler readScheduler() {
+        return transactionService.readsMayBlock() ? writeScheduler : Schedulers.immediate();
+    }
+
+    public Mono<Transaction> createTransaction(Transaction transaction) {
+        return Mono.fromCallable(() -> transactionService.createTransaction(transaction))
+                .subscribeOn(writeScheduler);
+    }
+
+    public Mono<List<BatchItemResult>> createTransactions(List<Transaction> transactions) {
+        return Mono.fromCallable(() -> transactionService.createTransactions(transactions))
+                .subscribeOn(writeScheduler);
+    }
+
+    public Mono<List<Transaction>> getAllTransactions(int page, int size) {
+        return Mono.fromCallable(() -> transactionService.getAllTransactions(page, size))
+                .subscribeOn(readScheduler());
+    }
+
+    public Mono<List<Transaction>> getTransactionsAfter(Long afterId, int limit) {
+        return Mono.fromCallable(() -> transactionService.getTransactionsAfter(afterId, limit))
+                .subscribeOn(readScheduler());
+    }
+
+    public Mono<List<Transaction>> findTransactions(String type, Double minAmount, Double maxAmount, int page, int size) {
+        return Mono.fromCallable(() -> transactionService.findTransactions(type, minAmount, maxAmount, page, size))
+                .subscribeOn(readScheduler());
+    }
+
+    /**
+     * 按ID升序流式返回 ID 大于 afterId 的所有交易，按下游需求逐块读取存储。
+     */
+    public Flux<Transaction> streamTransactions(long afterId) {
+        return Flux.<List<Transaction>, Long>generate(() -> afterId, (cursor, sink) -> {
+                    List<Transaction> chunk = transactionService.getTransactionsAfter(cursor, STREAM_CHUNK_SIZE);
+                    if (chunk.isEmpty()) {
+                        sink.complete();
+                        return cursor;
+                    }
+                    sink.next(chunk);
+                    return chunk.get(chunk.size() - 1).getId();
+                })
+                .subscribeOn(readScheduler())
+                .concatMapIterable(chunk -> chunk);
+    }
+
+    public Mono<Transaction> getTransactionById(Long id) {
+        return Mono.fromCallable(() -> transactionService.getTransactionById(id))
+                .subscribeOn(readScheduler());
+    }
+
+    /**
+     * 与 {@link #getTransactionById} 相同，但记录不存在时返回空的 Mono 而不是错误。
+     */
+    public Mono<Transaction> findTransactionById(Long id) {
+        return Mono.fromCallable(() -> transactionService.findTransactionById(id).orElse(null))
+                .subscribeOn(readScheduler());
+    }
+
+    public Mono<Map<String, TransactionStats>> getStatistics() {
+        return Mono.fromCallable(transactionService::getStatistics)
+                .subscribeOn(readScheduler());
+    }
+
+    public Mono<Transaction> updateTransaction(Long id, Transaction transactionDetails) {
+        return updateTransaction(id, transactionDetails, null);
+    }
+
+    public Mono<Transaction> updateTransaction(Long id, Transaction transactionDetails, Long expectedVersion) {
+        return Mono.fromCallable(() -> transactionService.updateTransaction(id, transactionDetails, expectedVersion))
+                .subscribeOn(writeScheduler);
+    }
+
+    public Mono<Void> deleteTransaction(Long id) {
+        return Mono.fromRunnable(() -> transactionService.deleteTransaction(id))
+                .subscribeOn(writeScheduler)
+                .then();
+    }
+}
@@ -0,0 +1,111 @@
+package com.banking.replication;
+
+import com.banking.dto.ApiResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * ReactiveReplicaRequestFilter 是 {@link ReplicaRequestFilter} 的响应式（WebFlux/Netty）版本，行为完全相同：
+ * 写请求返回 405，带有 {@link ReplicationLog#MIN_VERSION_HEADER} 的读请求等待副本追上该版本，超时返回 503。
+ *
+ * <p>副本尚未达到请求的版本时，等待在 boundedElastic 调度器上进行，不阻塞 Netty 事件循环。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.replication.role", havingValue = "replica")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveReplicaRequestFilter implements WebFilter {
+
+    private static final String BASE_PATH = "/api/transactions";
+
+    private final ReplicationClient replicationClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration readTimeout;
+
+    @Autowired
+    public ReactiveReplicaRequestFilter(ReplicationClient replicationClient, ObjectMapper objectMapper,
+                                        @Value("${banking.replication.read-timeout:2s}") Duration readTimeout) {
+        this.replicationClient = replicationClient;
+        this.objectMapper = objectMapper;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().pathWithinApplication().value().startsWith(BASE_PATH)) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        HttpMethod method = exchange.getRequest().getMethod();
+        if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+            response.getHeaders().set(HttpHeaders.ALLOW, "GET, HEAD");
+            return reject(response, HttpStatus.METHOD_NOT_ALLOWED, "This node is a read-only replica; send writes to the primary");
+        }
+
+        String minVersion = exchange.getRequest().getHeaders().getFirst(ReplicationLog.MIN_VERSION_HEADER);
+        if (minVersion == null) {
+            return proceed(exchange, chain);
+        }
+        long version;
+        try {
+            version = Long.parseLong(minVersion.trim());
+        } catch (NumberFormatException e) {
+            return reject(response, HttpStatus.BAD_REQUEST, "Invalid " + ReplicationLog.MIN_VERSION_HEADER + " header: " + minVersion);
+        }
+        if (awaitVersion(version, Duration.ZERO)) {
+            return proceed(exchange, chain);
+        }
+        return Mono.fromCallable(() -> awaitVersion(version, readTimeout))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(reached -> reached
+                        ? proceed(exchange, chain)
+                        : reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Replica has not caught up to version " + version));
+    }
+
+    private boolean awaitVersion(long version, Duration timeout) {
+        try {
+            return replicationClient.awaitVersion(version, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Mono<Void> proceed(ServerWebExchange exchange, WebFilterChain chain) {
+        exchange.getResponse().getHeaders().set(ReplicationLog.VERSION_HEADER, Long.toString(replicationClient.getAppliedVersion()));
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String message) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new ApiResponse<Void>(false, null, message));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(ReplicationLog.VERSION_HEADER, Long.toString(replicationClient.getAppliedVersion()));
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+}
@@ -0,0 +1,100 @@
+package com.banking.replication;
+
+import com.banking.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * ReplicaRequestFilter 让副本只提供读服务。
+ *
+ * <ul>
+ *     <li>写请求返回 405，客户端应把写请求发往主节点；</li>
+ *     <li>带有 {@link ReplicationLog#MIN_VERSION_HEADER} 的读请求会等待副本应用到该版本（最多 read-timeout），
+ *     超时返回 503，从而实现 read-your-writes；</li>
+ *     <li>读响应通过 {@link ReplicationLog#VERSION_HEADER} 返回副本当前已应用的版本。</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.replication.role", havingValue = "replica")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ReplicaRequestFilter extends OncePerRequestFilter {
+
+    private static final String BASE_PATH = "/api/transactions";
+
+    private final ReplicationClient replicationClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration readTimeout;
+
+    @Autowired
+    public ReplicaRequestFilter(ReplicationClient replicationClient, ObjectMapper objectMapper,
+                                @Value("${banking.replication.read-timeout:2s}") Duration readTimeout) {
+        this.replicationClient = replicationClient;
+        this.objectMapper = objectMapper;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().substring(request.getContextPath().length()).startsWith(BASE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            reject(response, HttpStatus.METHOD_NOT_ALLOWED, "This node is a read-only replica; send writes to the primary");
+            return;
+        }
+
+        String minVersion = request.getHeader(ReplicationLog.MIN_VERSION_HEADER);
+        if (minVersion != null) {
+            long version;
+            try {
+                version = Long.parseLong(minVersion.trim());
+            } catch (NumberFormatException e) {
+                reject(response, HttpStatus.BAD_REQUEST, "Invalid " + ReplicationLog.MIN_VERSION_HEADER + " header: " + minVersion);
+                return;
+            }
+            boolean reached;
+            try {
+                reached = replicationClient.awaitVersion(version, readTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reached = false;
+            }
+            if (!reached) {
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Replica has not caught up to version " + version);
+                return;
+            }
+        }
+
+        response.setHeader(ReplicationLog.VERSION_HEADER, Long.toString(replicationClient.getAppliedVersion()));
+        chain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(ReplicationLog.VERSION_HEADER, Long.toString(replicationClient.getAppliedVersion()));
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<Void>(false, null, message));
+    }
+}
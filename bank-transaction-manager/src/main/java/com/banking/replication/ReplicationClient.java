@@ -0,0 +1,300 @@
+package com.banking.replication;
+
+import com.banking.persistence.JournalVisitor;
+import com.banking.persistence.TransactionJournal;
+import com.banking.service.impl.TransactionServiceImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ReplicationClient 在只读副本上连接主节点的 {@link ReplicationServer}，把收到的变更依次应用到本地存储。
+ *
+ * <p>连接断开后按 retry-interval 重连，并从已应用的版本继续；主节点重启（纪元变化）或全量同步中途断线时重新全量同步。
+ * 作为生命周期组件在 Web 服务器之后启动、之前停止。
+ * 复制延迟通过 {@code banking.replication.lag.versions}（落后的变更数）和
+ * {@code banking.replication.lag}（距离上次追上主节点的秒数）两个指标导出。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.replication.role", havingValue = "replica")
+public class ReplicationClient implements MeterBinder, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationClient.class);
+
+    private final TransactionServiceImpl store;
+
+    private final String host;
+
+    private final int port;
+
+    private final Duration retryInterval;
+
+    /**
+     * 应用进度的锁和条件，等待 read-your-writes 的请求线程在这里等待。
+     * 不用 synchronized/wait：虚拟线程在监视器上等待时会占住载体线程，在 Condition 上等待时则会让出。
+     */
+    private final ReentrantLock progressLock = new ReentrantLock();
+
+    private final Condition progressed = progressLock.newCondition();
+
+    /**
+     * 当前数据所属的主节点纪元，0 表示尚未同步过或全量同步尚未完成。
+     * 全量同步期间保持为 0，中途断线重连时握手发送 0，主节点因此重新全量同步而不是从过期的版本继续增量推送。
+     */
+    private long epoch;
+
+    /**
+     * 进行中的全量同步所属的纪元，在结束全量同步的 HEARTBEAT 到达时才成为 {@link #epoch}。
+     */
+    private long syncingEpoch;
+
+    private volatile long appliedVersion;
+
+    private volatile long primaryVersion;
+
+    /**
+     * 本地数据是否是某个版本的完整状态（全量同步进行中为 false）。
+     */
+    private volatile boolean synced;
+
+    private volatile boolean connected;
+
+    /**
+     * 最近一次追上主节点的时间。
+     */
+    private volatile long caughtUpAtNanos = System.nanoTime();
+
+    private volatile boolean running;
+
+    private volatile Socket socket;
+
+    private Thread follower;
+
+    /**
+     * @param store 本地存储，复制只支持 heap 存储
+     * @param primary 主节点复制端口的地址，格式为 {@code host:port}
+     */
+    @Autowired
+    public ReplicationClient(TransactionServiceImpl store,
+                             @Value("${banking.replication.primary:localhost:7070}") String primary,
+                             @Value("${banking.replication.retry-interval:1s}") Duration retryInterval) {
+        int separator = primary.lastIndexOf(':');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Replication primary must be host:port, got " + primary);
+        }
+        this.store = store;
+        this.host = primary.substring(0, separator);
+        this.port = Integer.parseInt(primary.substring(separator + 1));
+        this.retryInterval = retryInterval;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        follower = new Thread(this::followLoop, "replication-follower");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // 关闭时的异常不影响停止流程
+            }
+        }
+        follower.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return 已应用的主节点变更版本
+     */
+    public long getAppliedVersion() {
+        return appliedVersion;
+    }
+
+    /**
+     * @return 已知的主节点最新版本与已应用版本之差
+     */
+    public long getLagVersions() {
+        return Math.max(0L, primaryVersion - appliedVersion);
+    }
+
+    /**
+     * @return 追上主节点时为 0，否则为距离上次追上主节点的秒数
+     */
+    public double getLagSeconds() {
+        if (synced && appliedVersion >= primaryVersion) {
+            return 0.0;
+        }
+        return (System.nanoTime() - caughtUpAtNanos) / 1e9;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * 等待本地数据至少应用到 version。
+     *
+     * @return 在超时前达到该版本时返回 true
+     */
+    public boolean awaitVersion(long version, Duration timeout) throws InterruptedException {
+        if (synced && appliedVersion >= version) {
+            return true;
+        }
+        long remaining = timeout.toNanos();
+        progressLock.lock();
+        try {
+            while (!synced || appliedVersion < version) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = progressed.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.replication.version", this, ReplicationClient::getAppliedVersion)
+                .description("Latest primary change version applied on this replica")
+                .register(registry);
+        Gauge.builder("banking.replication.lag.versions", this, ReplicationClient::getLagVersions)
+                .description("Number of primary changes not yet applied on this replica")
+                .register(registry);
+        Gauge.builder("banking.replication.lag", this, ReplicationClient::getLagSeconds)
+                .description("Seconds since this replica last held every change known on the primary")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("banking.replication.connected", this, client -> client.isConnected() ? 1 : 0)
+                .description("Whether this replica is connected to the primary")
+                .register(registry);
+    }
+
+    private void followLoop() {
+        boolean warned = false;
+        while (running) {
+            try (Socket current = new Socket()) {
+                socket = current;
+                current.connect(new InetSocketAddress(host, port), (int) retryInterval.toMillis());
+                current.setTcpNoDelay(true);
+                connected = true;
+                warned = false;
+                log.info("Connected to replication primary {}:{} at version {}", host, port, appliedVersion);
+                follow(current);
+            } catch (IOException e) {
+                if (running && !warned) {
+                    log.warn("Replication from {}:{} interrupted: {}", host, port, e.getMessage());
+                    warned = true;
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(retryInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(Socket current) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+        out.writeInt(ReplicationFrames.MAGIC);
+        out.writeLong(epoch);
+        out.writeLong(appliedVersion);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream(), 1 << 16));
+        ReplicationFrames.Decoder decoder = new ReplicationFrames.Decoder();
+        JournalVisitor applier = store.replicaApplier();
+        try {
+            while (running) {
+                DataInputStream frame = decoder.read(in);
+                byte kind = frame.readByte();
+                long version = frame.readLong();
+                long head = frame.readLong();
+                int count = frame.readInt();
+                switch (kind) {
+                    case ReplicationFrames.RESET -> {
+                        synced = false;
+                        epoch = 0L;
+                        syncingEpoch = frame.readLong();
+                        store.resetReplica();
+                    }
+                    case ReplicationFrames.ROWS, ReplicationFrames.CHANGES -> {
+                        for (int i = 0; i < count; i++) {
+                            byte op = frame.readByte();
+                            long id = frame.readLong();
+                            if (op == TransactionJournal.OP_DELETE) {
+                                applier.onDelete(id);
+                            } else {
+                                double amount = frame.readDouble();
+                                long rowVersion = frame.readLong();
+                                applier.onPut(id, ReplicationFrames.readType(frame), amount, rowVersion);
+                            }
+                        }
+                        if (kind == ReplicationFrames.CHANGES) {
+                            advance(version, head);
+                        }
+                    }
+                    case ReplicationFrames.HEARTBEAT -> {
+                        if (!synced) {
+                            epoch = syncingEpoch;
+                        }
+                        synced = true;
+                        advance(version, head);
+                    }
+                    default -> throw new IOException("Unknown replication frame type " + kind);
+                }
+            }
+        } finally {
+            decoder.close();
+        }
+    }
+
+    private void advance(long version, long head) {
+        progressLock.lock();
+        try {
+            appliedVersion = version;
+            primaryVersion = Math.max(head, version);
+            if (version >= head) {
+                caughtUpAtNanos = System.nanoTime();
+            }
+            progressed.signalAll();
+        } finally {
+            progressLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.banking.replication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 复制协议的帧格式。
+ *
+ * <p>连接建立后副本先发送 {@code [MAGIC int][纪元 long][已应用版本 long]}，之后主节点持续发送帧，
+ * 每帧为 {@code [原始长度 int][压缩长度 int][deflate 压缩的内容]}，内容为
+ * {@code [类型 byte][版本 long][主节点最新版本 long][记录数 int]} 加上记录，
+ * 每条记录为 {@code [操作 byte][id long]}，删除以外的操作再跟 {@code [金额 double][记录版本 long][类型长度 int][类型 UTF-8 字节]}。
+ * 类型不用 {@link DataOutputStream#writeUTF} 编码，它只能写出 65535 字节以内的字符串。</p>
+ *
+ * <ul>
+ *     <li>{@link #RESET}：开始全量同步，副本清空数据，记录数为 0，后跟主节点的纪元；</li>
+ *     <li>{@link #ROWS}：全量同步的数据行；</li>
+ *     <li>{@link #CHANGES}：增量变更，版本为本帧最后一条变更的版本；</li>
+ *     <li>{@link #HEARTBEAT}：没有新变更时定期发送，全量同步结束时也发送一次以确认同步到的版本。</li>
+ * </ul>
+ */
+final class ReplicationFrames {
+
+    static final int MAGIC = 0x52504C33;
+
+    static final byte RESET = 1;
+    static final byte ROWS = 2;
+    static final byte CHANGES = 3;
+    static final byte HEARTBEAT = 4;
+
+    /**
+     * 单帧原始内容的上限，防止损坏的长度字段导致分配过大的缓冲区。
+     */
+    private static final int MAX_FRAME_SIZE = 64 << 20;
+
+    private ReplicationFrames() {
+    }
+
+    /**
+     * 以 {@code [长度 int][UTF-8 字节]} 写入交易类型。
+     */
+    static void writeType(DataOutputStream content, String type) throws IOException {
+        byte[] bytes = type.getBytes(StandardCharsets.UTF_8);
+        content.writeInt(bytes.length);
+        content.write(bytes);
+    }
+
+    /**
+     * 读取 {@link #writeType} 写入的交易类型。
+     */
+    static String readType(DataInputStream frame) throws IOException {
+        int length = frame.readInt();
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid type length " + length);
+        }
+        byte[] bytes = new byte[length];
+        frame.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 帧编码器，每个连接一个，复用缓冲区和压缩器。
+     */
+    static final class Encoder {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final ByteArrayOutputStream raw = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream content = new DataOutputStream(raw);
+        private byte[] compressed = new byte[1 << 16];
+
+        /**
+         * 开始一帧，返回写入记录的输出流。
+         */
+        DataOutputStream begin(byte kind, long version, long head, int count) throws IOException {
+            raw.reset();
+            content.writeByte(kind);
+            content.writeLong(version);
+            content.writeLong(head);
+            content.writeInt(count);
+            return content;
+        }
+
+        /**
+         * 压缩当前帧并写入 out。
+         */
+        void finish(DataOutputStream out) throws IOException {
+            content.flush();
+            byte[] input = raw.toByteArray();
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            out.writeInt(input.length);
+            out.writeInt(length);
+            out.write(compressed, 0, length);
+        }
+
+        void close() {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 帧解码器，每个连接一个。
+     */
+    static final class Decoder {
+        private final Inflater inflater = new Inflater();
+        private byte[] compressed = new byte[1 << 16];
+        private byte[] raw = new byte[1 << 16];
+
+        /**
+         * 读取并解压下一帧。
+         *
+         * @return 帧内容的输入流，从类型字段开始
+         */
+        DataInputStream read(DataInputStream in) throws IOException {
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            if (rawLength < 0 || rawLength > MAX_FRAME_SIZE || compressedLength < 0 || compressedLength > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid replication frame length");
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            in.readFully(compressed, 0, compressedLength);
+            inflater.reset();
+            inflater.setInput(compressed, 0, compressedLength);
+            try {
+                int length = 0;
+                while (length < rawLength) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new EOFException("Truncated replication frame");
+                    }
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt replication frame", e);
+            }
+            return new DataInputStream(new ByteArrayInputStream(raw, 0, rawLength));
+        }
+
+        void close() {
+            inflater.end();
+        }
+    }
+}
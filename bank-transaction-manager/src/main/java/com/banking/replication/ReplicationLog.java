@@ -0,0 +1,235 @@
+package com.banking.replication;
+
+import com.banking.model.Transaction;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ReplicationLog 是复制主节点上的变更流：存储的每次写操作都按提交顺序追加一条带版本号的变更，
+ * {@link ReplicationServer} 从中读取变更推送给副本。
+ *
+ * <p>变更保存在固定容量的环形缓冲区中，只保留最近的 capacity 条；落后超过缓冲区的副本会重新做全量同步。
+ * 版本号从 1 开始连续递增，写操作的响应通过 {@link #VERSION_HEADER} 返回写入后的版本，
+ * 客户端在副本上读取时带上该版本即可读到自己的写入。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.replication.role", havingValue = "primary")
+public class ReplicationLog implements MeterBinder {
+
+    /**
+     * 写操作响应中携带复制版本的响应头，副本的读响应中为副本已应用的版本。
+     */
+    public static final String VERSION_HEADER = "X-Banking-Version";
+
+    /**
+     * 读请求要求副本至少应用到的版本（read-your-writes）。
+     */
+    public static final String MIN_VERSION_HEADER = "X-Banking-Min-Version";
+
+    /**
+     * 本次启动的纪元。主节点重启后版本号从头开始，副本据此判断是否需要全量同步。
+     */
+    private final long epoch;
+
+    private final int mask;
+
+    private final byte[] ops;
+    private final long[] ids;
+    private final String[] types;
+    private final double[] amounts;
+    private final long[] versions;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition appended = lock.newCondition();
+
+    /**
+     * 正在等待新变更的读取者数量，只在有等待者时才唤醒，写路径上不产生额外的唤醒开销。
+     */
+    private int waiting;
+
+    /**
+     * 最近一次追加的变更版本。
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity 保留的变更数量，向上取整为 2 的幂
+     */
+    @Autowired
+    public ReplicationLog(@Value("${banking.replication.buffer-size:65536}") int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Replication buffer size must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity * 2 - 1));
+        this.mask = size - 1;
+        this.ops = new byte[size];
+        this.ids = new long[size];
+        this.types = new String[size];
+        this.amounts = new double[size];
+        this.versions = new long[size];
+        long random;
+        do {
+            random = ThreadLocalRandom.current().nextLong();
+        } while (random == 0);
+        this.epoch = random;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.replication.version", this, ReplicationLog::head)
+                .description("Latest change version on the replication primary")
+                .register(registry);
+    }
+
+    /**
+     * 追加一条变更。调用方需保证同一记录的变更按修改内存的顺序追加。
+     *
+     * @param op 操作类型，取值同 {@link com.banking.persistence.TransactionJournal} 的操作码
+     * @param rowVersion 写入后记录自身的版本号（与变更流的版本无关）
+     * @return 该变更的版本
+     */
+    public long append(byte op, long id, String type, double amount, long rowVersion) {
+        lock.lock();
+        try {
+            long version = head + 1;
+            put(version, op, id, type, amount, rowVersion);
+            publish(version);
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 一次性追加一批同类型的变更。
+     *
+     * @return 最后一条变更的版本
+     */
+    public long appendAll(byte op, Collection<Transaction> transactions) {
+        lock.lock();
+        try {
+            long version = head;
+            for (Transaction transaction : transactions) {
+                put(++version, op, transaction.getId(), transaction.getType(), transaction.getAmount(), transaction.getVersion());
+            }
+            publish(version);
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 最近一次追加的变更版本，没有变更时为 0
+     */
+    public long head() {
+        return head;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 读取 afterVersion 之后的最多 batch 容量条变更。
+     *
+     * @return 读取的条数；afterVersion 之后的变更已被覆盖时返回 -1，调用方需要重新全量同步
+     */
+    int read(long afterVersion, ChangeBatch batch) {
+        lock.lock();
+        try {
+            if (afterVersion < head - ops.length || afterVersion > head) {
+                return -1;
+            }
+            int count = (int) Math.min(batch.capacity(), head - afterVersion);
+            for (int i = 0; i < count; i++) {
+                int slot = (int) (afterVersion + 1 + i) & mask;
+                batch.set(i, ops[slot], ids[slot], types[slot], amounts[slot], versions[slot]);
+            }
+            batch.count = count;
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待 version 之后出现新的变更。
+     *
+     * @return 在超时前出现了新变更时返回 true
+     */
+    boolean awaitAfter(long version, long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        waiting++;
+        try {
+            long nanos = unit.toNanos(timeout);
+            while (head <= version && nanos > 0) {
+                nanos = appended.awaitNanos(nanos);
+            }
+            return head > version;
+        } finally {
+            waiting--;
+            lock.unlock();
+        }
+    }
+
+    private void put(long version, byte op, long id, String type, double amount, long rowVersion) {
+        int slot = (int) version & mask;
+        ops[slot] = op;
+        ids[slot] = id;
+        types[slot] = type;
+        amounts[slot] = amount;
+        versions[slot] = rowVersion;
+    }
+
+    private void publish(long version) {
+        head = version;
+        if (waiting > 0) {
+            appended.signalAll();
+        }
+    }
+
+    /**
+     * 从环形缓冲区中复制出来的一批变更，在锁外编码发送。
+     */
+    static final class ChangeBatch {
+        final byte[] ops;
+        final long[] ids;
+        final String[] types;
+        final double[] amounts;
+        final long[] versions;
+        int count;
+
+        ChangeBatch(int capacity) {
+            ops = new byte[capacity];
+            ids = new long[capacity];
+            types = new String[capacity];
+            amounts = new double[capacity];
+            versions = new long[capacity];
+        }
+
+        int capacity() {
+            return ops.length;
+        }
+
+        private void set(int index, byte op, long id, String type, double amount, long version) {
+            ops[index] = op;
+            ids[index] = id;
+            types[index] = type;
+            amounts[index] = amount;
+            versions[index] = version;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.banking.replication;
+
+import com.banking.model.Transaction;
+import com.banking.persistence.TransactionJournal;
+import com.banking.replication.ReplicationLog.ChangeBatch;
+import com.banking.service.impl.TransactionServiceImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReplicationServer 在复制主节点上监听 TCP 端口，为每个连接的副本启动一个发送线程，
+ * 把 {@link ReplicationLog} 中的变更成批压缩后推送给副本。
+ *
+ * <p>每次从变更流中取出所有已就绪的变更（最多 batch-size 条）编码为一帧，写入越频繁批次越大；
+ * 没有新变更时每隔 heartbeat 发送一次心跳，副本据此确认自己已追上主节点。
+ * 副本首次连接、纪元不一致（主节点重启）或落后超过缓冲区时，先按ID游标发送全量数据再继续增量推送；
+ * 全量数据是模糊快照，之后从快照开始时的版本重放变更，重放是幂等的，最终与主节点一致。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.replication.role", havingValue = "primary")
+public class ReplicationServer implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationServer.class);
+
+    private final ReplicationLog replicationLog;
+
+    private final TransactionServiceImpl store;
+
+    private final String bindAddress;
+
+    private final int port;
+
+    private final int batchSize;
+
+    private final Duration heartbeat;
+
+    private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+
+    private volatile boolean running;
+
+    /**
+     * @param store 主节点的存储，复制只支持 heap 存储
+     */
+    @Autowired
+    public ReplicationServer(ReplicationLog replicationLog, TransactionServiceImpl store,
+                             @Value("${banking.replication.bind-address:127.0.0.1}") String bindAddress,
+                             @Value("${banking.replication.port:7070}") int port,
+                             @Value("${banking.replication.batch-size:4096}") int batchSize,
+                             @Value("${banking.replication.heartbeat:1s}") Duration heartbeat) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Replication batch size must be >= 1");
+        }
+        this.replicationLog = replicationLog;
+        this.store = store;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.batchSize = batchSize;
+        this.heartbeat = heartbeat;
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen for replicas on " + bindAddress + ":" + port, e);
+        }
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Accepting replicas on {}:{}", bindAddress, getPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        closeQuietly(serverSocket);
+        replicas.forEach(ReplicationServer::closeQuietly);
+    }
+
+    /**
+     * @return 实际监听的端口（配置为 0 时由系统分配）
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return 当前连接的副本数量
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.replication.replicas", this, ReplicationServer::getReplicaCount)
+                .description("Number of replicas currently connected to the primary")
+                .register(registry);
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                replicas.add(socket);
+                Thread sender = new Thread(() -> serve(socket), "replication-sender-" + socket.getPort());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Failed to accept replica connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 与一个副本的完整会话：握手，必要时全量同步，然后持续推送增量变更。
+     */
+    private void serve(Socket socket) {
+        ReplicationFrames.Encoder encoder = new ReplicationFrames.Encoder();
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            if (in.readInt() != ReplicationFrames.MAGIC) {
+                log.warn("Rejected replication connection from {}: bad handshake", socket.getRemoteSocketAddress());
+                return;
+            }
+            long epoch = in.readLong();
+            long position = in.readLong();
+            log.info("Replica {} connected at version {}", socket.getRemoteSocketAddress(), position);
+
+            ChangeBatch batch = new ChangeBatch(batchSize);
+            if (epoch != replicationLog.getEpoch() || position > replicationLog.head()) {
+                position = fullSync(encoder, out);
+            }
+            while (running) {
+                int count = replicationLog.read(position, batch);
+                if (count < 0) {
+                    position = fullSync(encoder, out);
+                } else if (count > 0) {
+                    position += count;
+                    sendChanges(encoder, out, batch, position);
+                } else if (!replicationLog.awaitAfter(position, heartbeat.toMillis(), TimeUnit.MILLISECONDS)) {
+                    encoder.begin(ReplicationFrames.HEARTBEAT, position, replicationLog.head(), 0);
+                    encoder.finish(out);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.info("Replica {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            encoder.close();
+            replicas.remove(socket);
+        }
+    }
+
+    /**
+     * 发送全量数据。
+     *
+     * @return 全量数据对应的版本，之后从该版本继续推送增量变更
+     */
+    private long fullSync(ReplicationFrames.Encoder encoder, DataOutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long version = replicationLog.head();
+        encoder.begin(ReplicationFrames.RESET, version, version, 0).writeLong(replicationLog.getEpoch());
+        encoder.finish(out);
+
+        long rows = 0;
+        long afterId = 0L;
+        List<Transaction> chunk;
+        do {
+            chunk = store.getTransactionsAfter(afterId, batchSize);
+            DataOutputStream content = encoder.begin(ReplicationFrames.ROWS, version, replicationLog.head(), chunk.size());
+            for (Transaction transaction : chunk) {
+                writeRecord(content, TransactionJournal.OP_CREATE, transaction.getId(), transaction.getType(),
+                        transaction.getAmount(), transaction.getVersion());
+                afterId = transaction.getId();
+            }
+            encoder.finish(out);
+            rows += chunk.size();
+        } while (chunk.size() == batchSize);
+
+        encoder.begin(ReplicationFrames.HEARTBEAT, version, replicationLog.head(), 0);
+        encoder.finish(out);
+        out.flush();
+        log.info("Sent full sync of {} transactions at version {} in {} ms", rows, version, (System.nanoTime() - start) / 1_000_000);
+        return version;
+    }
+
+    private void sendChanges(ReplicationFrames.Encoder encoder, DataOutputStream out, ChangeBatch batch, long version) throws IOException {
+        DataOutputStream content = encoder.begin(ReplicationFrames.CHANGES, version, replicationLog.head(), batch.count);
+        for (int i = 0; i < batch.count; i++) {
+            writeRecord(content, batch.ops[i], batch.ids[i], batch.types[i], batch.amounts[i], batch.versions[i]);
+            batch.types[i] = null;
+        }
+        encoder.finish(out);
+        out.flush();
+    }
+
+    private static void writeRecord(DataOutputStream content, byte op, long id, String type, double amount,
+                                    long version) throws IOException {
+        content.writeByte(op);
+        content.writeLong(id);
+        if (op != TransactionJournal.OP_DELETE) {
+            content.writeDouble(amount);
+            content.writeLong(version);
+            ReplicationFrames.writeType(content, type);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // 关闭时的异常不影响停止流程
+        }
+    }
+}
@@ -1,14 +1,33 @@
 package com.banking.service;
 
 
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.TransactionStats;
 import com.banking.model.Transaction;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 
 public interface TransactionService {
     Transaction createTransaction(Transaction transaction);
+    List<BatchItemResult> createTransactions(List<Transaction> transactions);
     List<Transaction> getAllTransactions(int page, int size);
+    List<Transaction> getTransactionsAfter(Long afterId, int limit);
+    List<Transaction> findTransactions(String type, Double minAmount, Double maxAmount, int page, int size);
     Transaction getTransactionById(Long id);
+    Optional<Transaction> findTransactionById(Long id);
+    Map<String, TransactionStats> getStatistics();
+    long getTransactionCount();
     void deleteTransaction(Long id);
     Transaction updateTransaction(Long id, Transaction transactionDetails);
+    Transaction updateTransaction(Long id, Transaction transactionDetails, Long expectedVersion);
+
+    /**
+     * 读操作是否可能阻塞调用线程（等待锁或读磁盘）。响应式接口据此决定读操作是否需要离开事件循环，
+     * 无法确定时应返回 true。
+     */
+    default boolean readsMayBlock() {
+        return true;
+    }
 }
\ No newline at end of file
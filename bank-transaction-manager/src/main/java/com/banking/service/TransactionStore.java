@@ -0,0 +1,63 @@
+package com.banking.service;
+
+import com.banking.model.Transaction;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * TransactionStore 是交易记录的存储 SPI：按 ID 保存、读取和删除完整的交易记录，并按 ID 升序遍历。
+ *
+ * <p>存储层只负责持久化，不做校验、ID 分配、版本检查和统计，这些由上层的 TransactionService 完成。
+ * 实现类必须是线程安全的；上层服务会串行化所有写操作，但读操作可能与写操作并发执行。</p>
+ *
+ * <p>默认实现是本地文件存储 {@link com.banking.service.impl.FileTransactionStore}，
+ * 其他后端（如远程 KV 存储）实现该接口并注册为 Spring Bean 即可替换。</p>
+ */
+public interface TransactionStore extends Closeable {
+
+    /**
+     * @return ID 对应的交易记录；不存在时返回 null
+     */
+    Transaction get(long id);
+
+    /**
+     * 保存一条交易记录，ID 已存在时整体覆盖。
+     *
+     * @param transaction ID 和版本号已分配的交易记录
+     */
+    void put(Transaction transaction);
+
+    /**
+     * 批量保存交易记录，语义与逐条调用 {@link #put} 相同，实现可以合并为一次写入。
+     */
+    default void putAll(Collection<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            put(transaction);
+        }
+    }
+
+    /**
+     * @return 记录存在并被删除时返回 true
+     */
+    boolean remove(long id);
+
+    /**
+     * 按 ID 升序遍历 ID 大于 afterId 的记录，直到遍历完或 visitor 返回 false。
+     *
+     * @param afterId 起始 ID（不含），从头遍历时传 0
+     * @param visitor 对每条记录调用，返回 false 时停止遍历
+     */
+    void scan(long afterId, Predicate<Transaction> visitor);
+
+    /**
+     * @return 当前存储的记录数
+     */
+    long size();
+
+    /**
+     * @return 存储中出现过的最大 ID（包括已删除的记录），用于重启后继续分配 ID
+     */
+    long maxId();
+}
@@ -0,0 +1,36 @@
+package com.banking.service.impl;
+
+/**
+ * 金额索引的键，先按金额、再按ID排序，使相同金额的记录可以共存。
+ */
+final class AmountKey implements Comparable<AmountKey> {
+
+    private final double amount;
+
+    private final long id;
+
+    AmountKey(double amount, long id) {
+        this.amount = amount;
+        this.id = id;
+    }
+
+    double amount() {
+        return amount;
+    }
+
+    @Override
+    public int compareTo(AmountKey other) {
+        int byAmount = Double.compare(amount, other.amount);
+        return byAmount != 0 ? byAmount : Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AmountKey && compareTo((AmountKey) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(amount) * 31 + Long.hashCode(id);
+    }
+}
@@ -0,0 +1,852 @@
+package com.banking.service.impl;
+
+import com.banking.model.Transaction;
+import com.banking.service.TransactionStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * FileTransactionStore 是 {@link TransactionStore} 的本地文件实现：一个只追加的数据文件加上内存中的有序 ID 索引，
+ * 数据量可以远大于堆内存。
+ *
+ * <p>每次写入（包括删除）都以一条记录通过 {@link FileChannel} 追加到数据文件末尾，记录格式为
+ * {@code [payload 长度 int][CRC32 int][id long][version long][amount double][type 长度 short][type UTF-8]}，
+ * 类型长度为 -1 的记录是删除标记。内存中只保存按 ID 排序的 ID、文件偏移量和记录长度三个基本类型数组
+ * （每条记录 20 字节），点查是一次二分查找加一次定位读取。</p>
+ *
+ * <p>被覆盖和删除的旧记录计为垃圾，垃圾超过阈值且多于存活数据时在后台线程上整体压缩：按 ID 顺序把存活记录
+ * 写入新文件，落盘后原子替换旧文件并落盘目录，压缩后顺序遍历基本是连续读。复制在锁外进行，不阻塞请求线程。
+ * 启动时顺序扫描数据文件重建索引，CRC 不匹配的尾部视为崩溃时写了一半的记录并被截断。</p>
+ *
+ * <p>写入只保证进入操作系统页缓存，进程崩溃不丢数据，掉电可能丢失最近的写入；关闭时落盘。
+ * 写操作由写锁串行化，点查和遍历共享读锁。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.store.type", havingValue = "file")
+public class FileTransactionStore implements TransactionStore, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTransactionStore.class);
+
+    static final String DATA_FILE = "transactions.dat";
+
+    private static final String COMPACT_FILE = "transactions.dat.compact";
+
+    /**
+     * 记录头：payload 长度 + CRC32。
+     */
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    /**
+     * payload 中除类型字符串以外的固定部分：id + version + amount + type 长度。
+     */
+    private static final int FIXED_PAYLOAD_BYTES = Long.BYTES + Long.BYTES + Double.BYTES + Short.BYTES;
+
+    private static final int MAX_RECORD_BYTES = HEADER_BYTES + FIXED_PAYLOAD_BYTES + Short.MAX_VALUE;
+
+    private static final short TOMBSTONE = -1;
+
+    /**
+     * 偏移量数组中表示已删除记录的值。
+     */
+    private static final long DELETED = -1L;
+
+    /**
+     * 垃圾字节数超过该值且超过存活字节数时触发压缩。
+     */
+    private static final long COMPACTION_THRESHOLD_BYTES = 16L << 20;
+
+    /**
+     * 已删除的索引项超过该值且超过存活记录数时整理索引。
+     */
+    private static final int INDEX_COMPACTION_THRESHOLD = 4096;
+
+    /**
+     * 顺序读取（启动扫描、遍历、压缩）时的读缓冲区大小。
+     */
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private static final int SCAN_BUFFER_BYTES = 64 << 10;
+
+    /**
+     * 压缩时在锁外追赶新追加记录的最多轮数，剩余部分在写锁内复制。
+     */
+    private static final int CATCH_UP_ROUNDS = 4;
+
+    private final Path directory;
+
+    private final Path dataFile;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 数据文件通道。读写该通道的线程被中断时通道会被关闭，由 {@link #reopen} 重新打开。
+     */
+    private volatile FileChannel channel;
+
+    private volatile boolean closed;
+
+    /**
+     * 按 ID 升序排列的索引：ID、记录在数据文件中的偏移量（已删除为 {@link #DELETED}）和记录长度。
+     */
+    private long[] ids = new long[1024];
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+
+    /**
+     * 已使用的索引项数量（包括已删除的项）。
+     */
+    private int slotCount;
+
+    private int liveCount;
+
+    private long maxId;
+
+    /**
+     * 下一条记录的写入位置，即数据文件中有效数据的末尾。
+     */
+    private long writePosition;
+
+    private long liveBytes;
+
+    private long garbageBytes;
+
+    /**
+     * 执行写入触发的压缩的后台线程。
+     */
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "transaction-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean compactionPending = new AtomicBoolean();
+
+    /**
+     * 串行化压缩，包括后台压缩和直接调用的 {@link #compact()}。
+     */
+    private final Object compactionLock = new Object();
+
+    @Autowired
+    public FileTransactionStore(@Value("${banking.store.file.dir:data/store}") String directory) {
+        this(Paths.get(directory));
+    }
+
+    public FileTransactionStore(Path directory) {
+        this.directory = directory;
+        this.dataFile = directory.resolve(DATA_FILE);
+    }
+
+    /**
+     * 打开数据文件，顺序扫描所有记录重建索引，并截断崩溃时残留的半条记录。
+     */
+    @PostConstruct
+    public void open() {
+        lock.writeLock().lock();
+        try {
+            long start = System.nanoTime();
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(COMPACT_FILE));
+            channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            writePosition = load();
+            if (writePosition < fileSize) {
+                log.warn("Truncating {} bytes of incomplete records at the end of {}", fileSize - writePosition, dataFile);
+                channel.truncate(writePosition);
+            }
+            log.info("Opened transaction store {} with {} records ({} bytes, {} garbage) in {} ms",
+                    dataFile, liveCount, writePosition, garbageBytes, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open transaction store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 落盘并关闭数据文件。
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        // 先标记关闭，正在运行的压缩会尽快放弃，避免在写锁内等待它
+        closed = true;
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Compaction of {} did not stop within 30 seconds", dataFile);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close transaction store", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 注册数据文件大小和其中垃圾字节数的指标。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.store.file.size", this, FileTransactionStore::getFileSize)
+                .description("Bytes of valid records in the transaction data file")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("banking.store.file.garbage", this, FileTransactionStore::getGarbageBytes)
+                .description("Bytes of overwritten or deleted records awaiting compaction")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public Transaction get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(id);
+            if (slot < 0 || offsets[slot] == DELETED) {
+                return null;
+            }
+            ByteBuffer record = ByteBuffer.allocate(lengths[slot]);
+            readFully(record, offsets[slot]);
+            return decode(record, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read transaction " + id, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Transaction transaction) {
+        putAll(List.of(transaction));
+    }
+
+    /**
+     * 把所有记录编码到一个缓冲区，通过一次追加写入。
+     */
+    @Override
+    public void putAll(Collection<Transaction> transactions) {
+        byte[][] types = new byte[transactions.size()][];
+        int total = 0;
+        int i = 0;
+        for (Transaction transaction : transactions) {
+            types[i] = encodeType(transaction.getType());
+            total += HEADER_BYTES + FIXED_PAYLOAD_BYTES + types[i].length;
+            i++;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        i = 0;
+        for (Transaction transaction : transactions) {
+            writeRecord(buffer, transaction.getId(), transaction.getVersion() == null ? 1L : transaction.getVersion(),
+                    transaction.getAmount(), types[i++]);
+        }
+        buffer.flip();
+
+        lock.writeLock().lock();
+        try {
+            long offset = append(buffer);
+            i = 0;
+            for (Transaction transaction : transactions) {
+                int length = HEADER_BYTES + FIXED_PAYLOAD_BYTES + types[i++].length;
+                index(transaction.getId(), offset, length);
+                offset += length;
+            }
+            maybeCompact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write transactions", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(id);
+            if (slot < 0 || offsets[slot] == DELETED) {
+                return false;
+            }
+            ByteBuffer tombstone = ByteBuffer.allocate(HEADER_BYTES + FIXED_PAYLOAD_BYTES);
+            writeRecord(tombstone, id, 0L, 0.0, null);
+            tombstone.flip();
+            append(tombstone);
+            unindex(slot);
+            garbageBytes += tombstone.capacity();
+            maybeCompact();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete transaction " + id, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按索引顺序读取记录；记录在文件中基本连续（压缩后完全连续），通过读缓冲区批量读取。
+     */
+    @Override
+    public void scan(long afterId, Predicate<Transaction> visitor) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(afterId);
+            slot = slot >= 0 ? slot + 1 : -slot - 1;
+            RecordReader reader = new RecordReader(SCAN_BUFFER_BYTES);
+            for (; slot < slotCount; slot++) {
+                if (offsets[slot] == DELETED) {
+                    continue;
+                }
+                ByteBuffer buffer = reader.read(offsets[slot], lengths[slot]);
+                if (!visitor.test(decode(buffer, buffer.position()))) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan transactions", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long maxId() {
+        lock.readLock().lock();
+        try {
+            return maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 数据文件中有效记录的字节数
+     */
+    public long getFileSize() {
+        lock.readLock().lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 被覆盖或删除、等待压缩回收的字节数
+     */
+    public long getGarbageBytes() {
+        lock.readLock().lock();
+        try {
+            return garbageBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按 ID 顺序把所有存活记录写入新文件，落盘后原子替换数据文件，回收全部垃圾。
+     *
+     * <p>复制在锁外进行，期间读写照常：先在读锁内复制一份索引，按这份索引复制存活记录，再追上复制期间
+     * 追加到旧文件末尾的记录；只有最后一小段尾部的复制、文件替换和索引偏移量的重映射在写锁内完成。
+     * 最大 ID 的记录已被删除时，在新文件中保留它的删除标记，保证重启后不会重新分配该 ID。</p>
+     *
+     * <p>写入触发的压缩在后台线程上执行；同一时刻只有一个压缩在运行。</p>
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            Path target = directory.resolve(COMPACT_FILE);
+            try {
+                if (!compactInto(target)) {
+                    Files.deleteIfExists(target);
+                }
+            } catch (IOException e) {
+                try {
+                    Files.deleteIfExists(target);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw new UncheckedIOException("Failed to compact transaction store", e);
+            }
+        }
+    }
+
+    /**
+     * @return 存储在压缩完成前被关闭时返回 false，数据文件保持不变
+     */
+    private boolean compactInto(Path target) throws IOException {
+        long start = System.nanoTime();
+        long[] snapshotIds;
+        long[] snapshotOffsets;
+        int[] snapshotLengths;
+        long snapshotMaxId;
+        long tailStart;
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            snapshotIds = Arrays.copyOf(ids, slotCount);
+            snapshotOffsets = Arrays.copyOf(offsets, slotCount);
+            snapshotLengths = Arrays.copyOf(lengths, slotCount);
+            snapshotMaxId = maxId;
+            tailStart = writePosition;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // 按索引快照复制存活记录，newOffsets 为每个快照项在新文件中的偏移量
+            long[] newOffsets = new long[snapshotIds.length];
+            RecordReader reader = new RecordReader(READ_BUFFER_BYTES);
+            ByteBuffer output = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            long position = 0;
+            long lastLiveId = 0;
+            for (int slot = 0; slot < snapshotIds.length; slot++) {
+                if (snapshotOffsets[slot] == DELETED) {
+                    continue;
+                }
+                int length = snapshotLengths[slot];
+                if (output.remaining() < length) {
+                    writeFully(out, output);
+                    if (closed) {
+                        return false;
+                    }
+                }
+                output.put(reader.read(snapshotOffsets[slot], length));
+                newOffsets[slot] = position;
+                position += length;
+                lastLiveId = snapshotIds[slot];
+            }
+            if (snapshotMaxId > 0 && lastLiveId != snapshotMaxId) {
+                if (output.remaining() < HEADER_BYTES + FIXED_PAYLOAD_BYTES) {
+                    writeFully(out, output);
+                }
+                writeRecord(output, snapshotMaxId, 0L, 0.0, null);
+                position += HEADER_BYTES + FIXED_PAYLOAD_BYTES;
+            }
+            writeFully(out, output);
+
+            // 追上复制期间追加的记录，尾部原样复制，其中记录的偏移量整体平移 tailTarget - tailStart
+            long tailTarget = position;
+            long copiedUpTo = tailStart;
+            for (int round = 0; round < CATCH_UP_ROUNDS; round++) {
+                long end = getFileSize();
+                if (end - copiedUpTo < READ_BUFFER_BYTES || closed) {
+                    break;
+                }
+                copyRange(out, copiedUpTo, end);
+                copiedUpTo = end;
+            }
+            out.force(true);
+
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                long before = writePosition;
+                copyRange(out, copiedUpTo, writePosition);
+                out.force(true);
+                Files.move(target, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                forceDirectory();
+
+                // 快照之后写入的记录位于尾部；其余存活记录未被改动，偏移量与快照中相同，按 ID 在快照中找到新位置
+                long shift = tailTarget - tailStart;
+                int snapshotSlot = 0;
+                for (int slot = 0; slot < slotCount; slot++) {
+                    long offset = offsets[slot];
+                    if (offset == DELETED) {
+                        continue;
+                    }
+                    if (offset >= tailStart) {
+                        offsets[slot] = offset + shift;
+                    } else {
+                        while (snapshotIds[snapshotSlot] < ids[slot]) {
+                            snapshotSlot++;
+                        }
+                        offsets[slot] = newOffsets[snapshotSlot];
+                    }
+                }
+                compactIndex();
+                writePosition = before + shift;
+                garbageBytes = writePosition - liveBytes;
+                FileChannel previous = channel;
+                channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                previous.close();
+                log.info("Compacted transaction store from {} to {} bytes in {} ms",
+                        before, writePosition, (System.nanoTime() - start) / 1_000_000);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 把旧数据文件中 [from, to) 的字节追加到 out。
+     */
+    private void copyRange(FileChannel out, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        for (long position = from; position < to; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), to - position));
+            readFully(buffer, position);
+            position += buffer.position();
+            writeFully(out, buffer);
+        }
+    }
+
+    /**
+     * 落盘数据目录，使替换数据文件的重命名在掉电后依然有效。不支持以通道打开目录的平台（如 Windows）上跳过。
+     */
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.warn("Failed to fsync directory {} after compaction", directory, e);
+        }
+    }
+
+    /**
+     * 垃圾过多时提交一次后台压缩（已有压缩在运行或排队时不重复提交）；已删除的索引项过多时就地整理索引。
+     * 调用方必须持有写锁。
+     */
+    private void maybeCompact() {
+        if (garbageBytes > COMPACTION_THRESHOLD_BYTES && garbageBytes > liveBytes) {
+            if (compactionPending.compareAndSet(false, true)) {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } catch (RuntimeException e) {
+                        log.error("Background compaction of {} failed", dataFile, e);
+                    } finally {
+                        compactionPending.set(false);
+                    }
+                });
+            }
+        } else if (slotCount - liveCount > INDEX_COMPACTION_THRESHOLD && slotCount - liveCount > liveCount) {
+            compactIndex();
+        }
+    }
+
+    /**
+     * 从数据文件开头逐条读取记录并应用到索引，返回最后一条完整记录的结束位置。调用方必须持有写锁。
+     */
+    private long load() throws IOException {
+        RecordReader reader = new RecordReader(READ_BUFFER_BYTES);
+        CRC32 crc = new CRC32();
+        long offset = 0;
+        while (true) {
+            ByteBuffer header = reader.readAvailable(offset, HEADER_BYTES);
+            if (header == null) {
+                return offset;
+            }
+            int payloadLength = header.getInt(header.position());
+            if (payloadLength < FIXED_PAYLOAD_BYTES || payloadLength > MAX_RECORD_BYTES - HEADER_BYTES) {
+                return offset;
+            }
+            int length = HEADER_BYTES + payloadLength;
+            ByteBuffer record = reader.readAvailable(offset, length);
+            if (record == null) {
+                return offset;
+            }
+            int base = record.position();
+            crc.reset();
+            crc.update(record.duplicate().position(base + HEADER_BYTES).limit(base + length));
+            if ((int) crc.getValue() != record.getInt(base + Integer.BYTES)) {
+                return offset;
+            }
+            long id = record.getLong(base + HEADER_BYTES);
+            if (record.getShort(base + HEADER_BYTES + FIXED_PAYLOAD_BYTES - Short.BYTES) == TOMBSTONE) {
+                int slot = findSlot(id);
+                if (slot >= 0 && offsets[slot] != DELETED) {
+                    unindex(slot);
+                }
+                maxId = Math.max(maxId, id);
+                garbageBytes += length;
+            } else {
+                index(id, offset, length);
+            }
+            offset += length;
+        }
+    }
+
+    /**
+     * 让索引指向 ID 的最新记录，覆盖的旧记录计为垃圾。ID 大于所有已有 ID 时直接追加到索引末尾。
+     * 调用方必须持有写锁。
+     */
+    private void index(long id, long offset, int length) {
+        int slot = findSlot(id);
+        if (slot >= 0) {
+            if (offsets[slot] == DELETED) {
+                liveCount++;
+            } else {
+                garbageBytes += lengths[slot];
+                liveBytes -= lengths[slot];
+            }
+        } else {
+            slot = -slot - 1;
+            if (slotCount == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            if (slot < slotCount) {
+                System.arraycopy(ids, slot, ids, slot + 1, slotCount - slot);
+                System.arraycopy(offsets, slot, offsets, slot + 1, slotCount - slot);
+                System.arraycopy(lengths, slot, lengths, slot + 1, slotCount - slot);
+            }
+            ids[slot] = id;
+            slotCount++;
+            liveCount++;
+        }
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        liveBytes += length;
+        maxId = Math.max(maxId, id);
+    }
+
+    /**
+     * 把索引项标记为已删除，旧记录计为垃圾。调用方必须持有写锁。
+     */
+    private void unindex(int slot) {
+        garbageBytes += lengths[slot];
+        liveBytes -= lengths[slot];
+        offsets[slot] = DELETED;
+        liveCount--;
+    }
+
+    /**
+     * 移除索引中已删除的项。调用方必须持有写锁。
+     */
+    private void compactIndex() {
+        int target = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsets[slot] != DELETED) {
+                ids[target] = ids[slot];
+                offsets[target] = offsets[slot];
+                lengths[target] = lengths[slot];
+                target++;
+            }
+        }
+        slotCount = target;
+    }
+
+    /**
+     * @return ID 所在的索引位置；不存在时返回 {@code -(插入位置) - 1}
+     */
+    private int findSlot(long id) {
+        if (slotCount > 0 && id > ids[slotCount - 1]) {
+            return -slotCount - 1;
+        }
+        return Arrays.binarySearch(ids, 0, slotCount, id);
+    }
+
+    /**
+     * 在数据文件末尾追加 buffer 中的全部字节。调用方必须持有写锁。
+     *
+     * @return 写入的起始位置
+     */
+    private long append(ByteBuffer buffer) throws IOException {
+        long offset = writePosition;
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += writeAt(buffer, position);
+        }
+        writePosition = position;
+        return offset;
+    }
+
+    private int writeAt(ByteBuffer buffer, long position) throws IOException {
+        while (true) {
+            FileChannel current = channel;
+            try {
+                return current.write(buffer, position);
+            } catch (ClosedChannelException e) {
+                reopen(current, e);
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = readAt(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of " + dataFile + " at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private int readAt(ByteBuffer buffer, long position) throws IOException {
+        while (true) {
+            FileChannel current = channel;
+            try {
+                return current.read(buffer, position);
+            } catch (ClosedChannelException e) {
+                reopen(current, e);
+            }
+        }
+    }
+
+    /**
+     * 另一个线程在读写通道时被中断会关闭整个通道，此时由其他线程重新打开后重试；
+     * 被中断的线程本身和存储已关闭的情况直接抛出异常。
+     */
+    private void reopen(FileChannel failed, ClosedChannelException cause) throws IOException {
+        if (closed || Thread.currentThread().isInterrupted()) {
+            throw cause;
+        }
+        synchronized (this) {
+            if (channel == failed) {
+                channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encodeType(String type) {
+        byte[] bytes = type.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Transaction type is too long to store");
+        }
+        return bytes;
+    }
+
+    /**
+     * 把一条记录写入 buffer 的当前位置；typeBytes 为 null 时写入删除标记。
+     */
+    private static void writeRecord(ByteBuffer buffer, long id, long version, double amount, byte[] typeBytes) {
+        int start = buffer.position();
+        int typeLength = typeBytes == null ? 0 : typeBytes.length;
+        buffer.putInt(FIXED_PAYLOAD_BYTES + typeLength).putInt(0)
+                .putLong(id).putLong(version).putDouble(amount)
+                .putShort(typeBytes == null ? TOMBSTONE : (short) typeLength);
+        if (typeBytes != null) {
+            buffer.put(typeBytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start + HEADER_BYTES).limit(buffer.position()));
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * 解码 buffer 中从 start 开始的一条非删除记录。
+     */
+    private static Transaction decode(ByteBuffer buffer, int start) {
+        int payload = start + HEADER_BYTES;
+        long id = buffer.getLong(payload);
+        long version = buffer.getLong(payload + Long.BYTES);
+        double amount = buffer.getDouble(payload + Long.BYTES * 2);
+        int typeLength = buffer.getShort(payload + Long.BYTES * 2 + Double.BYTES);
+        byte[] typeBytes = new byte[typeLength];
+        buffer.get(payload + FIXED_PAYLOAD_BYTES, typeBytes);
+        return new StoredTransaction(id, new String(typeBytes, StandardCharsets.UTF_8), amount, version);
+    }
+
+    /**
+     * 带读缓冲区的顺序读取器：请求的区间不在缓冲区内时，从该位置开始重新填满缓冲区。
+     */
+    private final class RecordReader {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * 缓冲区第一个字节在数据文件中的位置。
+         */
+        private long bufferStart;
+
+        RecordReader(int capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, MAX_RECORD_BYTES));
+            buffer.limit(0);
+        }
+
+        /**
+         * @return position 和 limit 恰好框住 [offset, offset + length) 的缓冲区视图
+         */
+        ByteBuffer read(long offset, int length) throws IOException {
+            ByteBuffer view = readAvailable(offset, length);
+            if (view == null) {
+                throw new EOFException("Unexpected end of " + dataFile + " at " + offset);
+            }
+            return view;
+        }
+
+        /**
+         * @return 与 {@link #read} 相同，文件中剩余的数据不足 length 字节时返回 null
+         */
+        ByteBuffer readAvailable(long offset, int length) throws IOException {
+            long relative = offset - bufferStart;
+            if (relative < 0 || relative + length > buffer.limit()) {
+                buffer.clear();
+                while (buffer.hasRemaining() && readAt(buffer, offset + buffer.position()) > 0) {
+                    // 读满缓冲区或读到文件末尾
+                }
+                buffer.flip();
+                bufferStart = offset;
+                relative = 0;
+                if (length > buffer.limit()) {
+                    return null;
+                }
+            }
+            return buffer.duplicate().position((int) relative).limit((int) relative + length);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.banking.service.impl;
+
+import com.banking.exception.IdRangeExhaustedException;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * IdAllocator 是一个无锁的交易ID分配器。
+ *
+ * <p>全局计数器只负责按块预留连续的 ID 区间，真正发放 ID 的是若干个条带（stripe），
+ * 每个条带持有一个已预留的区间并在其中逐个分配。线程按线程ID散列到不同条带，
+ * 因此多核并发创建时不会所有线程都竞争同一个计数器。</p>
+ *
+ * <p>分配出的 ID 全局唯一、在同一线程内单调递增，但不同线程之间不保证按创建时间排序，
+ * 区间用尽时若发生竞争，少量 ID 会被跳过（不会重复）。</p>
+ *
+ * <p>分配器也可以交错分配（stride &gt; 1）：只发放 first、first + stride、first + 2 * stride……，
+ * 供分片存储让各分片拥有互不相交的 ID 子集，内部计数仍是连续的序号。</p>
+ *
+ * <p>通过 {@link #limitTo} 可以给分配器设置上界，预留的区间不会越过上界，ID 用尽后抛出 {@link IdRangeExhaustedException}；
+ * 此时其它条带手中剩余的少量 ID 仍可由持有它们的线程发放。</p>
+ */
+public class IdAllocator {
+
+    /**
+     * 每次从全局计数器预留的 ID 数量。
+     */
+    private static final int DEFAULT_BLOCK_SIZE = 64;
+
+    /**
+     * 已经预留出去的最大 ID。
+     */
+    private final AtomicLong reserved;
+
+    private final int blockSize;
+
+    private final AtomicReferenceArray<Block> stripes;
+
+    private final int stripeMask;
+
+    /**
+     * 交错分配的步长，以及第一个序号对应的 ID。
+     */
+    private final int stride;
+    private final long first;
+
+    /**
+     * 允许发放的最大序号，默认不设上界。
+     */
+    private volatile long maxSequence = Long.MAX_VALUE;
+
+    public IdAllocator() {
+        this(0L, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 创建一个交错分配的分配器，发放的 ID 为 first、first + stride、first + 2 * stride……
+     *
+     * @param first 第一个 ID
+     * @param stride 相邻两个 ID 的间隔
+     * @param concurrency 预期的并发度
+     */
+    public static IdAllocator interleaved(long first, int stride, int concurrency) {
+        return new IdAllocator(0L, DEFAULT_BLOCK_SIZE, concurrency, first, stride);
+    }
+
+    /**
+     * @param initialId 起始值，分配出的第一个 ID 为 initialId + 1
+     * @param blockSize 每个条带一次预留的 ID 数量
+     * @param concurrency 预期的并发度，条带数量取不小于它的 2 的幂
+     */
+    public IdAllocator(long initialId, int blockSize, int concurrency) {
+        this(initialId, blockSize, concurrency, 1L, 1);
+    }
+
+    private IdAllocator(long initialId, int blockSize, int concurrency, long first, int stride) {
+        if (blockSize < 1 || concurrency < 1 || stride < 1 || first < 1) {
+            throw new IllegalArgumentException("Block size, concurrency, stride and first id must be >= 1");
+        }
+        this.first = first;
+        this.stride = stride;
+        int stripeCount = Integer.highestOneBit(Math.max(1, concurrency * 2 - 1));
+        this.reserved = new AtomicLong(initialId);
+        this.blockSize = blockSize;
+        this.stripes = new AtomicReferenceArray<>(stripeCount);
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * 分配下一个唯一 ID。
+     *
+     * @return 新分配的 ID
+     */
+    public long nextId() {
+        int index = stripeIndex();
+        Block block = stripes.get(index);
+        if (block != null) {
+            long sequence = block.next.getAndIncrement();
+            if (sequence < block.limit) {
+                return toId(sequence);
+            }
+        }
+
+        // 当前条带的区间已用尽，预留一个新区间（不超过上界），第一个 ID 留给自己
+        while (true) {
+            long current = reserved.get();
+            long size = Math.min(blockSize, maxSequence - current);
+            if (size < 1) {
+                throw new IdRangeExhaustedException(toId(maxSequence));
+            }
+            if (reserved.compareAndSet(current, current + size)) {
+                long start = current + 1;
+                stripes.compareAndSet(index, block, new Block(start + 1, start + size - 1));
+                return toId(start);
+            }
+        }
+    }
+
+    /**
+     * 一次性预留 count 个连续的 ID。
+     *
+     * @param count 需要的 ID 数量
+     * @return 区间内的第一个 ID，区间内的 ID 为 返回值 + k * {@link #stride()}（0 &lt;= k &lt; count）
+     * @throws IdRangeExhaustedException 如果剩余的 ID 不足 count 个，此时不预留任何 ID
+     */
+    public long reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be >= 1");
+        }
+        while (true) {
+            long current = reserved.get();
+            if (current + count > maxSequence) {
+                throw new IdRangeExhaustedException(toId(maxSequence));
+            }
+            if (reserved.compareAndSet(current, current + count)) {
+                return toId(current + 1);
+            }
+        }
+    }
+
+    /**
+     * @return 相邻两个 ID 的间隔，非交错分配时为 1
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * 保证之后分配的 ID 都大于 id，用于从持久化数据恢复后继续分配。
+     *
+     * @param id 已被占用的最大 ID
+     */
+    public void advanceTo(long id) {
+        long sequence = id < first ? 0L : (id - first) / stride + 1;
+        reserved.accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * 设置可以发放的最大 ID，用于集群模式下把分配限制在本节点的区间内。须在开始分配之前调用，
+     * 已经预留给条带的区间不会被收回。
+     *
+     * @param lastId 允许发放的最大 ID
+     */
+    public void limitTo(long lastId) {
+        maxSequence = lastId < first ? 0L : (lastId - first) / stride + 1;
+    }
+
+    /**
+     * @return 当前已预留出去的最大 ID（分配器的高水位）
+     */
+    public long position() {
+        long sequence = reserved.get();
+        return sequence == 0 ? 0L : toId(sequence);
+    }
+
+    /**
+     * 把内部序号（从 1 开始）换算为 ID。
+     */
+    private long toId(long sequence) {
+        return first + (sequence - 1) * stride;
+    }
+
+    private int stripeIndex() {
+        long threadId = Thread.currentThread().threadId();
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+    }
+
+    /**
+     * 条带持有的已预留序号区间 [next, limit]。
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        private Block(long next, long last) {
+            this.next = new AtomicLong(next);
+            this.limit = last + 1;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.banking.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * LongIntHashIndex 是 long 到 int 的开放寻址（线性探测）哈希表，键和值都保存在基本类型数组中，
+ * 不产生任何装箱对象。用作交易ID到存储槽位（slot）的索引。
+ *
+ * <p>键 0 被保留为空槽标记，因此只能存放正数键。该类不是线程安全的，由调用方负责加锁。</p>
+ */
+final class LongIntHashIndex {
+
+    private static final long EMPTY = 0L;
+
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int mask;
+
+    private int size;
+
+    LongIntHashIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD_FACTOR)) * 2 - 1);
+        allocate(capacity);
+    }
+
+    /**
+     * @return 键对应的值，不存在时返回 -1
+     */
+    int get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? -1 : values[index];
+    }
+
+    void put(long key, int value) {
+        if (size + 1 > keys.length * MAX_LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+        int index = slotFor(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * 删除键，并把后续同一探测链上的元素前移，保持线性探测的查找正确性（无需墓碑标记）。
+     *
+     * @return 被删除键对应的值，不存在时返回 -1
+     */
+    int remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return -1;
+        }
+        int removed = values[index];
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slotFor(keys[next]);
+            // 如果 next 的理想位置不在 (gap, next] 区间内，则可以把它移动到 gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * @return 索引本身占用的堆内存字节数（近似值）
+     */
+    long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int indexOf(long key) {
+        int index = slotFor(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotFor(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,750 @@
+package com.banking.service.impl;
+
+import com.banking.cluster.ClusterTopology;
+import com.banking.changes.ChangeFeed;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.IdRangeExhaustedException;
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
+import com.banking.metrics.TransactionMetrics;
+import com.banking.metrics.TransactionMetrics.Operation;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.banking.service.impl.TransactionValidator.*;
+
+/**
+ * OffHeapTransactionServiceImpl 是把交易数据保存在堆外内存中的 TransactionService 实现，
+ * 通过 {@code banking.store.type=offheap} 启用。
+ *
+ * <p>数据按列存储在 {@link ByteBuffer#allocateDirect(int)} 分配的块中：ID 列（8 字节）、金额列（8 字节）、
+ * 版本列（8 字节）和类型编号列（4 字节），交易类型通过 {@link TypeDictionary} 编码。ID 到槽位的映射使用基本类型的
+ * {@link LongIntHashIndex}，每条记录总共约 48 字节，且堆上没有按记录分配的对象，GC 停顿不随数据量增长。</p>
+ *
+ * <p>记录按 ID 递增顺序追加，槽位顺序即 ID 顺序，因此分页和游标查询无需额外的有序索引。
+ * 删除只打墓碑标记，墓碑过多时整体压缩。所有写操作由一把写锁串行化，读操作共享读锁。</p>
+ *
+ * <p>注意：堆外内存受 {@code -XX:MaxDirectMemorySize} 限制，需要按容量规划单独配置。</p>
+ */
+@Service
+@ConditionalOnProperty(name = "banking.store.type", havingValue = "offheap")
+public class OffHeapTransactionServiceImpl implements TransactionService, MeterBinder {
+
+    /**
+     * 每个列块容纳的记录数（2 的幂）。
+     */
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    /**
+     * 类型列中表示已删除记录的编号。
+     */
+    private static final int DELETED = -1;
+
+    /**
+     * 墓碑数量超过该值且超过存活记录数时触发压缩。
+     */
+    private static final int COMPACTION_THRESHOLD = 4096;
+
+    /**
+     * 重新计算极值时每次持有读锁扫描的槽位数。
+     */
+    private static final int RESCAN_CHUNK = CHUNK_ROWS;
+
+    /**
+     * 分段重新计算极值的最多尝试次数，之后在一次读锁内完整扫描。
+     */
+    private static final int RECOMPUTE_ATTEMPTS = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer[] idColumn = new ByteBuffer[0];
+    private ByteBuffer[] amountColumn = new ByteBuffer[0];
+    private ByteBuffer[] versionColumn = new ByteBuffer[0];
+    private ByteBuffer[] typeColumn = new ByteBuffer[0];
+
+    private final LongIntHashIndex index = new LongIntHashIndex(CHUNK_ROWS);
+
+    private final TypeDictionary typeDictionary = new TypeDictionary();
+
+    /**
+     * 按类型编号增量维护的聚合统计。
+     */
+    private final TypeAggregates aggregates = new TypeAggregates();
+
+    /**
+     * 已使用的槽位数量（包括墓碑）。
+     */
+    private int slotCount;
+
+    /**
+     * 墓碑数量。
+     */
+    private int deletedCount;
+
+    /**
+     * 最近一次分配的交易ID。
+     */
+    private long lastId;
+
+    /**
+     * 允许分配的最大交易ID，集群模式下为本节点区间的末尾。
+     */
+    private long maxId = Long.MAX_VALUE;
+
+    /**
+     * 操作延迟指标，未接入监控时为不导出数据的空实现。
+     */
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    /**
+     * 进程内变更流，banking.changes.enabled=false 时为 null。
+     */
+    private ChangeFeed changeFeed;
+
+    @Autowired(required = false)
+    public void setMetrics(TransactionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Autowired(required = false)
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * 剩余的 ID 不足 count 个时拒绝创建，调用方须持有写锁。
+     */
+    private void checkIdRange(int count) {
+        if (lastId > maxId - count) {
+            throw new IdRangeExhaustedException(maxId);
+        }
+    }
+
+    /**
+     * 集群模式下只在本节点拥有的 ID 区间内分配，区间用尽后拒绝创建。
+     */
+    @Autowired(required = false)
+    public void setClusterTopology(ClusterTopology topology) {
+        lock.writeLock().lock();
+        try {
+            lastId = Math.max(lastId, topology.firstLocalId() - 1);
+            maxId = topology.lastLocalId();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 注册存储规模、最近分配的ID和堆外内存占用的指标，只在抓取指标时读取。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.transactions.stored", this, OffHeapTransactionServiceImpl::getTransactionCount)
+                .description("Number of transactions currently stored")
+                .register(registry);
+        Gauge.builder("banking.transactions.id.position", this, OffHeapTransactionServiceImpl::getLastId)
+                .description("Highest transaction id reserved by the id allocator")
+                .register(registry);
+        Gauge.builder("banking.transactions.offheap", this, OffHeapTransactionServiceImpl::getOffHeapBytes)
+                .description("Direct memory allocated for the column store")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * 创建一个新的交易记录。
+     *
+     * @param transaction 要创建的交易对象
+     * @return 返回已创建的交易对象，包含系统分配的唯一ID
+     * @throws InvalidInputException 如果传入的交易对象不合法
+     */
+    @Override
+    public Transaction createTransaction(Transaction transaction) {
+        long start = System.nanoTime();
+        validateTransaction(transaction);
+
+        lock.writeLock().lock();
+        try {
+            checkIdRange(1);
+            long id = ++lastId;
+            int slot = appendSlot();
+            writeRow(slot, id, transaction.getType(), transaction.getAmount(), 1L);
+            index.put(id, slot);
+            transaction.setId(id);
+            transaction.setVersion(1L);
+            publish(ChangeEvent.Operation.CREATE, transaction);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.CREATE, start);
+        return transaction;
+    }
+
+    /**
+     * 批量创建交易记录：一次遍历完成校验，再在一次写锁内追加所有合法的记录。
+     *
+     * @param newTransactions 要创建的交易列表
+     * @return 与请求顺序一一对应的处理结果，非法元素包含错误信息
+     * @throws InvalidInputException 如果列表为空或超过最大批量
+     */
+    @Override
+    public List<BatchItemResult> createTransactions(List<Transaction> newTransactions) {
+        long start = System.nanoTime();
+        validateBatch(newTransactions);
+
+        BatchItemResult[] results = new BatchItemResult[newTransactions.size()];
+        int accepted = 0;
+        for (int i = 0; i < newTransactions.size(); i++) {
+            try {
+                validateTransaction(newTransactions.get(i));
+                accepted++;
+            } catch (InvalidInputException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            checkIdRange(accepted);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    Transaction transaction = newTransactions.get(i);
+                    long id = ++lastId;
+                    int slot = appendSlot();
+                    writeRow(slot, id, transaction.getType(), transaction.getAmount(), 1L);
+                    index.put(id, slot);
+                    transaction.setId(id);
+                    transaction.setVersion(1L);
+                    publish(ChangeEvent.Operation.CREATE, transaction);
+                    results[i] = BatchItemResult.succeeded(i, transaction);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.BATCH_CREATE, start);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 获取分页形式的交易列表。
+     *
+     * @param page 分页页码（从0开始）
+     * @param size 每页记录数量
+     * @return 返回当前页的交易记录列表（按ID升序排列）
+     * @throws InvalidInputException 如果分页参数非法（如负数或无效大小）
+     */
+    @Override
+    public List<Transaction> getAllTransactions(int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+
+        List<Transaction> result;
+        lock.readLock().lock();
+        try {
+            long offset = (long) page * size;
+            int slot = 0;
+            for (long skipped = 0; skipped < offset && slot < slotCount; slot++) {
+                if (typeCode(slot) != DELETED) {
+                    skipped++;
+                }
+            }
+            result = readRows(slot, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(Operation.LIST, start);
+        return result;
+    }
+
+    /**
+     * 基于游标（keyset）获取交易列表，返回 ID 大于 afterId 的前 limit 条记录。
+     *
+     * <p>ID 列有序，通过二分查找定位起始槽位，代价为 O(log n + limit)。</p>
+     *
+     * @param afterId 上一页最后一条记录的ID，首次查询传 0
+     * @param limit 最多返回的记录数量
+     * @return 返回按ID升序排列的交易记录列表
+     * @throws InvalidInputException 如果游标参数非法（afterId 为 null 或负数，limit 小于 1）
+     */
+    @Override
+    public List<Transaction> getTransactionsAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        validateCursor(afterId, limit);
+
+        List<Transaction> result;
+        lock.readLock().lock();
+        try {
+            result = readRows(firstSlotAfter(afterId), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(Operation.LIST_AFTER, start);
+        return result;
+    }
+
+    /**
+     * 按类型和金额区间过滤交易记录，分页返回匹配的记录（按ID升序）。
+     *
+     * <p>列存储没有二级索引，按槽位顺序扫描类型列和金额列，代价与存储总量成正比。</p>
+     *
+     * @param type 交易类型，null 表示不限制
+     * @param minAmount 最小金额（含），null 表示不限制
+     * @param maxAmount 最大金额（含），null 表示不限制
+     * @param page 分页页码（从0开始）
+     * @param size 每页记录数量
+     * @return 返回当前页的匹配记录
+     * @throws InvalidInputException 如果分页参数非法或金额区间为空
+     */
+    @Override
+    public List<Transaction> findTransactions(String type, Double minAmount, Double maxAmount, int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+        validateAmountRange(minAmount, maxAmount);
+        double min = minAmount == null ? Double.NEGATIVE_INFINITY : minAmount;
+        double max = maxAmount == null ? Double.POSITIVE_INFINITY : maxAmount;
+
+        List<Transaction> result = new ArrayList<>(Math.min(size, 1024));
+        lock.readLock().lock();
+        try {
+            int code = type == null ? DELETED : typeDictionary.lookup(type);
+            if (type == null || code >= 0) {
+                long offset = (long) page * size;
+                long skipped = 0;
+                for (int slot = 0; slot < slotCount && result.size() < size; slot++) {
+                    int slotCode = typeCode(slot);
+                    double amount = amount(slot);
+                    if (slotCode == DELETED || (type != null && slotCode != code) || amount < min || amount > max) {
+                        continue;
+                    }
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        result.add(readRow(slot));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(Operation.FILTER, start);
+        return result;
+    }
+
+    /**
+     * 按交易类型返回聚合统计。
+     *
+     * <p>数量和总额由写操作增量维护。删除或修改掉某类型的最小或最大金额后，只对这些类型按 ID 分段重新扫描极值，
+     * 每段只持有读锁，写锁仅在写回结果时短暂持有。该类型的记录在扫描期间持续被删除、多次重试仍未完成时，
+     * 在一次读锁内完整扫描，结果只用于本次响应。</p>
+     *
+     * @return 交易类型 → 该类型的统计，按类型名排序，不包含已没有记录的类型
+     */
+    @Override
+    public Map<String, TransactionStats> getStatistics() {
+        long start = System.nanoTime();
+        Map<String, TransactionStats> result = new TreeMap<>();
+        for (int attempt = 0; ; attempt++) {
+            TypeAggregates.Recompute recompute;
+            lock.readLock().lock();
+            try {
+                recompute = aggregates.beginRecompute();
+                if (recompute == null || attempt == RECOMPUTE_ATTEMPTS) {
+                    if (recompute != null) {
+                        accumulateSlots(recompute, 0, slotCount);
+                    }
+                    collectStatistics(result, recompute);
+                    break;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            rescan(recompute);
+            lock.writeLock().lock();
+            try {
+                aggregates.commit(recompute);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        metrics.record(Operation.STATS, start);
+        return result;
+    }
+
+    /**
+     * 按 ID 顺序分段扫描全部记录，每段 {@link #RESCAN_CHUNK} 个槽位，段与段之间释放读锁让写操作进入。
+     * 压缩会移动槽位，因此以上一段最后的 ID 而不是槽位号作为游标。
+     */
+    private void rescan(TypeAggregates.Recompute recompute) {
+        long afterId = 0L;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                int from = firstSlotAfter(afterId);
+                int to = Math.min(slotCount, from + RESCAN_CHUNK);
+                if (from >= to) {
+                    return;
+                }
+                accumulateSlots(recompute, from, to);
+                afterId = id(to - 1);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 把 [from, to) 中存活记录的金额计入 recompute。调用方必须持有锁。
+     */
+    private void accumulateSlots(TypeAggregates.Recompute recompute, int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            int code = typeCode(slot);
+            if (code != DELETED) {
+                recompute.accumulate(code, amount(slot));
+            }
+        }
+    }
+
+    /**
+     * 获取当前存储的交易记录总数。
+     *
+     * @return 交易记录数量
+     */
+    @Override
+    public long getTransactionCount() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 根据交易ID获取对应的交易记录。
+     *
+     * @param id 要查询的交易ID
+     * @return 返回匹配的交易对象
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     */
+    @Override
+    public Transaction getTransactionById(Long id) {
+        return findTransactionById(id).orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * 根据交易ID查询交易记录，记录不存在时返回空而不抛出异常。
+     *
+     * @param id 要查询的交易ID
+     * @return 匹配的交易对象，不存在时为空
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     */
+    @Override
+    public Optional<Transaction> findTransactionById(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
+
+        Transaction transaction = null;
+        lock.readLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot >= 0) {
+                transaction = readRow(slot);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(Operation.GET, start);
+        return Optional.ofNullable(transaction);
+    }
+
+    /**
+     * 删除指定ID的交易记录。
+     *
+     * @param id 要删除的交易ID
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     */
+    @Override
+    public void deleteTransaction(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
+
+        lock.writeLock().lock();
+        try {
+            int slot = index.remove(id);
+            if (slot < 0) {
+                throw notFound(id);
+            }
+            removeFromAggregates(typeCode(slot), amount(slot));
+            typeChunk(slot).putInt(typeOffset(slot), DELETED);
+            if (changeFeed != null) {
+                changeFeed.publish(ChangeEvent.Operation.DELETE, id, null, null, version(slot));
+            }
+            deletedCount++;
+            if (deletedCount > COMPACTION_THRESHOLD && deletedCount > index.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.DELETE, start);
+    }
+
+    /**
+     * 更新指定ID的交易记录。
+     *
+     * @param id 要更新的交易ID
+     * @param transactionDetails 包含新数据的交易对象
+     * @return 返回更新后的交易对象
+     * @throws InvalidInputException 如果提供的ID或新数据不合法
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     */
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails) {
+        return updateTransaction(id, transactionDetails, null);
+    }
+
+    /**
+     * 有条件地更新指定ID的交易记录：只有记录的当前版本等于 expectedVersion 时才更新。
+     * 版本检查与写入都在写锁内完成。
+     *
+     * @param id 要更新的交易ID
+     * @param transactionDetails 包含新数据的交易对象
+     * @param expectedVersion 期望的当前版本，null 表示无条件更新
+     * @return 返回更新后的交易对象（版本号已加 1）
+     * @throws InvalidInputException 如果提供的ID或新数据不合法
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     * @throws VersionConflictException 如果记录的当前版本与 expectedVersion 不一致
+     */
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails, Long expectedVersion) {
+        long start = System.nanoTime();
+        validateId(id);
+        validateTransaction(transactionDetails);
+
+        Transaction updated;
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot < 0) {
+                throw notFound(id);
+            }
+            long version = version(slot);
+            if (expectedVersion != null && version != expectedVersion) {
+                throw versionConflict(id, expectedVersion, version);
+            }
+            removeFromAggregates(typeCode(slot), amount(slot));
+            writeRow(slot, id, transactionDetails.getType(), transactionDetails.getAmount(), version + 1);
+            updated = readRow(slot);
+            publish(ChangeEvent.Operation.UPDATE, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.UPDATE, start);
+        return updated;
+    }
+
+    /**
+     * @return 最近一次分配的交易ID
+     */
+    public long getLastId() {
+        lock.readLock().lock();
+        try {
+            return lastId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 列存储已分配的堆外内存字节数
+     */
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) idColumn.length * CHUNK_ROWS * (Long.BYTES + Double.BYTES + Long.BYTES + Integer.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在写锁内把写入后的记录发布到变更流。
+     */
+    private void publish(ChangeEvent.Operation op, Transaction transaction) {
+        if (changeFeed != null) {
+            changeFeed.publish(op, transaction.getId(), transaction.getType(), transaction.getAmount(), transaction.getVersion());
+        }
+    }
+
+    /**
+     * 从聚合统计中移除一条记录，类型的最后一条记录被移除时归还其编号。调用方必须持有写锁。
+     */
+    private void removeFromAggregates(int code, double amount) {
+        if (aggregates.remove(code, amount)) {
+            typeDictionary.release(code);
+        }
+    }
+
+    /**
+     * 把每个仍有记录的类型的统计放入 result，仍然过期的极值取自 override。调用方必须持有锁。
+     */
+    private void collectStatistics(Map<String, TransactionStats> result, TypeAggregates.Recompute override) {
+        for (int code = 0; code < typeDictionary.size(); code++) {
+            TransactionStats stats = aggregates.stats(code, override);
+            if (stats != null) {
+                result.put(typeDictionary.decode(code), stats);
+            }
+        }
+    }
+
+    /**
+     * 在末尾追加一个槽位，必要时分配新的列块。调用方必须持有写锁。
+     */
+    private int appendSlot() {
+        int slot = slotCount;
+        int chunk = slot >>> CHUNK_SHIFT;
+        if (chunk == idColumn.length) {
+            idColumn = Arrays.copyOf(idColumn, chunk + 1);
+            amountColumn = Arrays.copyOf(amountColumn, chunk + 1);
+            versionColumn = Arrays.copyOf(versionColumn, chunk + 1);
+            typeColumn = Arrays.copyOf(typeColumn, chunk + 1);
+            idColumn[chunk] = allocateChunk(Long.BYTES);
+            amountColumn[chunk] = allocateChunk(Double.BYTES);
+            versionColumn[chunk] = allocateChunk(Long.BYTES);
+            typeColumn[chunk] = allocateChunk(Integer.BYTES);
+        }
+        slotCount++;
+        return slot;
+    }
+
+    private static ByteBuffer allocateChunk(int width) {
+        return ByteBuffer.allocateDirect(CHUNK_ROWS * width).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * 写入一条存活记录并计入聚合统计。覆盖已有记录前，调用方必须先把旧值从统计中移除。
+     */
+    private void writeRow(int slot, long id, String type, double amount, long version) {
+        int code = typeDictionary.encode(type);
+        idColumn[slot >>> CHUNK_SHIFT].putLong((slot & CHUNK_MASK) * Long.BYTES, id);
+        amountColumn[slot >>> CHUNK_SHIFT].putDouble((slot & CHUNK_MASK) * Double.BYTES, amount);
+        versionColumn[slot >>> CHUNK_SHIFT].putLong((slot & CHUNK_MASK) * Long.BYTES, version);
+        typeChunk(slot).putInt(typeOffset(slot), code);
+        aggregates.add(code, amount);
+    }
+
+    private Transaction readRow(int slot) {
+        return new Transaction(id(slot), typeDictionary.decode(typeCode(slot)), amount(slot), version(slot));
+    }
+
+    /**
+     * 从 slot 开始顺序读取最多 limit 条未删除的记录。调用方必须持有读锁。
+     */
+    private List<Transaction> readRows(int slot, int limit) {
+        List<Transaction> result = new ArrayList<>(Math.min(limit, index.size()));
+        for (; slot < slotCount && result.size() < limit; slot++) {
+            if (typeCode(slot) != DELETED) {
+                result.add(readRow(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 二分查找第一个 ID 大于 afterId 的槽位。调用方必须持有读锁。
+     */
+    private int firstSlotAfter(long afterId) {
+        int low = 0;
+        int high = slotCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (id(mid) <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 把所有存活记录前移覆盖墓碑，并重建索引。调用方必须持有写锁。
+     */
+    private void compact() {
+        index.clear();
+        int target = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int code = typeCode(slot);
+            if (code == DELETED) {
+                continue;
+            }
+            long id = id(slot);
+            if (target != slot) {
+                idColumn[target >>> CHUNK_SHIFT].putLong((target & CHUNK_MASK) * Long.BYTES, id);
+                amountColumn[target >>> CHUNK_SHIFT].putDouble((target & CHUNK_MASK) * Double.BYTES, amount(slot));
+                versionColumn[target >>> CHUNK_SHIFT].putLong((target & CHUNK_MASK) * Long.BYTES, version(slot));
+                typeChunk(target).putInt(typeOffset(target), code);
+            }
+            index.put(id, target);
+            target++;
+        }
+        slotCount = target;
+        deletedCount = 0;
+
+        // 释放尾部不再使用的列块，交由 GC 回收对应的堆外内存
+        int chunks = (slotCount + CHUNK_MASK) >>> CHUNK_SHIFT;
+        idColumn = Arrays.copyOf(idColumn, chunks);
+        amountColumn = Arrays.copyOf(amountColumn, chunks);
+        versionColumn = Arrays.copyOf(versionColumn, chunks);
+        typeColumn = Arrays.copyOf(typeColumn, chunks);
+    }
+
+    private long id(int slot) {
+        return idColumn[slot >>> CHUNK_SHIFT].getLong((slot & CHUNK_MASK) * Long.BYTES);
+    }
+
+    private double amount(int slot) {
+        return amountColumn[slot >>> CHUNK_SHIFT].getDouble((slot & CHUNK_MASK) * Double.BYTES);
+    }
+
+    private long version(int slot) {
+        return versionColumn[slot >>> CHUNK_SHIFT].getLong((slot & CHUNK_MASK) * Long.BYTES);
+    }
+
+    private int typeCode(int slot) {
+        return typeChunk(slot).getInt(typeOffset(slot));
+    }
+
+    private ByteBuffer typeChunk(int slot) {
+        return typeColumn[slot >>> CHUNK_SHIFT];
+    }
+
+    private static int typeOffset(int slot) {
+        return (slot & CHUNK_MASK) * Integer.BYTES;
+    }
+}
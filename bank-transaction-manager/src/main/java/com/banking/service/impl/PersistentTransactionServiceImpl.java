@@ -0,0 +1,598 @@
+package com.banking.service.impl;
+
+import com.banking.cluster.ClusterTopology;
+import com.banking.changes.ChangeFeed;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.IdRangeExhaustedException;
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
+import com.banking.metrics.TransactionMetrics;
+import com.banking.metrics.TransactionMetrics.Operation;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import com.banking.service.TransactionStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.banking.service.impl.TransactionValidator.*;
+
+/**
+ * PersistentTransactionServiceImpl 把交易数据保存在可插拔的 {@link TransactionStore} 中，
+ * 通过 {@code banking.store.type=file} 启用，默认后端为本地文件存储 {@link FileTransactionStore}。
+ *
+ * <p>数据量可以大于内存：内存中只保留按类型的聚合统计，按 ID 的查询经过一个按字节数限制容量的
+ * {@link SegmentedLruCache}（容量由 {@code banking.cache.capacity} 配置），热点记录无需读盘。
+ * 缓存只在读取未命中时填充，更新和删除时失效。</p>
+ *
+ * <p>写操作由写锁串行化；未命中时的读盘和填充缓存在读锁内完成，因此不会把写操作之前读到的旧值放回缓存。
+ * 缓存命中不需要任何锁。列表、游标和过滤查询直接按 ID 顺序遍历存储，不经过缓存。</p>
+ */
+@Service
+@ConditionalOnProperty(name = "banking.store.type", havingValue = "file")
+public class PersistentTransactionServiceImpl implements TransactionService, MeterBinder {
+
+    /**
+     * 每个缓存条目除类型字符串以外的估算堆内存占用：交易对象及其装箱字段、类型字符串对象、键和两层链表节点。
+     */
+    private static final int CACHE_ENTRY_OVERHEAD = 200;
+
+    /**
+     * 不加锁重新计算极值的最多尝试次数。
+     */
+    private static final int RECOMPUTE_ATTEMPTS = 3;
+
+    private final TransactionStore store;
+
+    private final SegmentedLruCache<Long, Transaction> cache;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TypeDictionary typeDictionary = new TypeDictionary();
+
+    /**
+     * 按类型编号增量维护的聚合统计。
+     */
+    private final TypeAggregates aggregates = new TypeAggregates();
+
+    /**
+     * 最近一次分配的交易ID。
+     */
+    private long lastId;
+
+    /**
+     * 允许分配的最大交易ID，集群模式下为本节点区间的末尾。
+     */
+    private long maxId = Long.MAX_VALUE;
+
+    /**
+     * 操作延迟指标，未接入监控时为不导出数据的空实现。
+     */
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    /**
+     * 进程内变更流，banking.changes.enabled=false 时为 null。
+     */
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    public PersistentTransactionServiceImpl(TransactionStore store,
+                                            @Value("${banking.cache.capacity:64MB}") DataSize cacheCapacity) {
+        this(store, cacheCapacity.toBytes());
+    }
+
+    /**
+     * 遍历一次存储，重建聚合统计并从存储中出现过的最大 ID 之后继续分配。
+     *
+     * @param store 已打开的存储
+     * @param cacheCapacity 缓存容量（字节），0 表示不缓存
+     */
+    public PersistentTransactionServiceImpl(TransactionStore store, long cacheCapacity) {
+        this.store = store;
+        this.cache = new SegmentedLruCache<>("transactions", cacheCapacity,
+                transaction -> CACHE_ENTRY_OVERHEAD + transaction.getType().length() * 2);
+        store.scan(0L, transaction -> {
+            aggregates.add(typeDictionary.encode(transaction.getType()), transaction.getAmount());
+            return true;
+        });
+        this.lastId = store.maxId();
+    }
+
+    @Autowired(required = false)
+    public void setMetrics(TransactionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Autowired(required = false)
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * 剩余的 ID 不足 count 个时拒绝创建，调用方须持有写锁。
+     */
+    private void checkIdRange(int count) {
+        if (lastId > maxId - count) {
+            throw new IdRangeExhaustedException(maxId);
+        }
+    }
+
+    /**
+     * 集群模式下只在本节点拥有的 ID 区间内分配，区间用尽后拒绝创建。
+     */
+    @Autowired(required = false)
+    public void setClusterTopology(ClusterTopology topology) {
+        lock.writeLock().lock();
+        try {
+            lastId = Math.max(lastId, topology.firstLocalId() - 1);
+            maxId = topology.lastLocalId();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 注册存储规模、最近分配的ID以及缓存命中、未命中和淘汰次数的指标。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.transactions.stored", this, PersistentTransactionServiceImpl::getTransactionCount)
+                .description("Number of transactions currently stored")
+                .register(registry);
+        Gauge.builder("banking.transactions.id.position", this, PersistentTransactionServiceImpl::getLastId)
+                .description("Highest transaction id reserved by the id allocator")
+                .register(registry);
+        cache.bindTo(registry);
+    }
+
+    /**
+     * 创建一个新的交易记录。
+     *
+     * @param transaction 要创建的交易对象
+     * @return 返回已创建的交易对象，包含系统分配的唯一ID
+     * @throws InvalidInputException 如果传入的交易对象不合法
+     */
+    @Override
+    public Transaction createTransaction(Transaction transaction) {
+        long start = System.nanoTime();
+        validateTransaction(transaction);
+
+        lock.writeLock().lock();
+        try {
+            checkIdRange(1);
+            Transaction created = new StoredTransaction(lastId + 1, transaction.getType(), transaction.getAmount(), 1L);
+            store.put(created);
+            lastId++;
+            aggregates.add(typeDictionary.encode(created.getType()), created.getAmount());
+            transaction.setId(created.getId());
+            transaction.setVersion(1L);
+            publish(ChangeEvent.Operation.CREATE, created);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.CREATE, start);
+        return transaction;
+    }
+
+    /**
+     * 批量创建交易记录：一次遍历完成校验，再在一次写锁内把所有合法的记录一次写入存储。
+     *
+     * @param newTransactions 要创建的交易列表
+     * @return 与请求顺序一一对应的处理结果，非法元素包含错误信息
+     * @throws InvalidInputException 如果列表为空或超过最大批量
+     */
+    @Override
+    public List<BatchItemResult> createTransactions(List<Transaction> newTransactions) {
+        long start = System.nanoTime();
+        validateBatch(newTransactions);
+
+        BatchItemResult[] results = new BatchItemResult[newTransactions.size()];
+        int accepted = 0;
+        for (int i = 0; i < newTransactions.size(); i++) {
+            try {
+                validateTransaction(newTransactions.get(i));
+                accepted++;
+            } catch (InvalidInputException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            checkIdRange(accepted);
+            List<Transaction> created = new ArrayList<>(results.length);
+            long id = lastId;
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    Transaction transaction = newTransactions.get(i);
+                    created.add(new StoredTransaction(++id, transaction.getType(), transaction.getAmount(), 1L));
+                }
+            }
+            store.putAll(created);
+            lastId = id;
+
+            int next = 0;
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    Transaction stored = created.get(next++);
+                    Transaction transaction = newTransactions.get(i);
+                    transaction.setId(stored.getId());
+                    transaction.setVersion(1L);
+                    aggregates.add(typeDictionary.encode(stored.getType()), stored.getAmount());
+                    publish(ChangeEvent.Operation.CREATE, stored);
+                    results[i] = BatchItemResult.succeeded(i, transaction);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.BATCH_CREATE, start);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 获取分页形式的交易列表。
+     *
+     * @param page 分页页码（从0开始）
+     * @param size 每页记录数量
+     * @return 返回当前页的交易记录列表（按ID升序排列）
+     * @throws InvalidInputException 如果分页参数非法（如负数或无效大小）
+     */
+    @Override
+    public List<Transaction> getAllTransactions(int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+
+        List<Transaction> result = collect(0L, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, (long) page * size, size);
+        metrics.record(Operation.LIST, start);
+        return result;
+    }
+
+    /**
+     * 基于游标（keyset）获取交易列表，返回 ID 大于 afterId 的前 limit 条记录。
+     *
+     * @param afterId 上一页最后一条记录的ID，首次查询传 0
+     * @param limit 最多返回的记录数量
+     * @return 返回按ID升序排列的交易记录列表
+     * @throws InvalidInputException 如果游标参数非法（afterId 为 null 或负数，limit 小于 1）
+     */
+    @Override
+    public List<Transaction> getTransactionsAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        validateCursor(afterId, limit);
+
+        List<Transaction> result = collect(afterId, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0L, limit);
+        metrics.record(Operation.LIST_AFTER, start);
+        return result;
+    }
+
+    /**
+     * 按类型和金额区间过滤交易记录，分页返回匹配的记录（按ID升序）。
+     *
+     * <p>存储没有二级索引，按 ID 顺序遍历存储，代价与存储总量成正比。</p>
+     *
+     * @param type 交易类型，null 表示不限制
+     * @param minAmount 最小金额（含），null 表示不限制
+     * @param maxAmount 最大金额（含），null 表示不限制
+     * @param page 分页页码（从0开始）
+     * @param size 每页记录数量
+     * @return 返回当前页的匹配记录
+     * @throws InvalidInputException 如果分页参数非法或金额区间为空
+     */
+    @Override
+    public List<Transaction> findTransactions(String type, Double minAmount, Double maxAmount, int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+        validateAmountRange(minAmount, maxAmount);
+
+        List<Transaction> result = collect(0L, type,
+                minAmount == null ? Double.NEGATIVE_INFINITY : minAmount,
+                maxAmount == null ? Double.POSITIVE_INFINITY : maxAmount,
+                (long) page * size, size);
+        metrics.record(Operation.FILTER, start);
+        return result;
+    }
+
+    /**
+     * 按交易类型返回聚合统计。
+     *
+     * <p>数量和总额由写操作增量维护。某类型的最小或最大金额被删除或修改后，只为这些类型不加锁地遍历一遍存储重新求极值，
+     * 写锁只在写回结果时短暂持有；遍历期间该类型又有记录被移除时结果作废并重试。
+     * 重试 {@link #RECOMPUTE_ATTEMPTS} 次仍未完成时，改为在读锁内遍历，结果只用于本次响应。</p>
+     *
+     * @return 交易类型 → 该类型的统计，按类型名排序，不包含已没有记录的类型
+     */
+    @Override
+    public Map<String, TransactionStats> getStatistics() {
+        long start = System.nanoTime();
+        Map<String, TransactionStats> result = new TreeMap<>();
+        for (int attempt = 0; ; attempt++) {
+            TypeAggregates.Recompute recompute;
+            Map<String, Integer> staleCodes = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                recompute = aggregates.beginRecompute();
+                if (recompute != null) {
+                    for (int code : recompute.codes()) {
+                        staleCodes.put(typeDictionary.decode(code), code);
+                    }
+                }
+                if (recompute == null || attempt == RECOMPUTE_ATTEMPTS) {
+                    if (recompute != null) {
+                        rescan(recompute, staleCodes);
+                    }
+                    collectStatistics(result, recompute);
+                    break;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            // 存储本身是线程安全的，遍历期间无需持有锁
+            rescan(recompute, staleCodes);
+            lock.writeLock().lock();
+            try {
+                aggregates.commit(recompute);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        metrics.record(Operation.STATS, start);
+        return result;
+    }
+
+    /**
+     * 遍历存储，把 staleCodes 中类型的金额计入 recompute。
+     */
+    private void rescan(TypeAggregates.Recompute recompute, Map<String, Integer> staleCodes) {
+        store.scan(0L, transaction -> {
+            Integer code = staleCodes.get(transaction.getType());
+            if (code != null) {
+                recompute.accumulate(code, transaction.getAmount());
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 获取当前存储的交易记录总数。
+     *
+     * @return 交易记录数量
+     */
+    @Override
+    public long getTransactionCount() {
+        return store.size();
+    }
+
+    /**
+     * 根据交易ID获取对应的交易记录，优先从缓存读取。
+     *
+     * @param id 要查询的交易ID
+     * @return 返回匹配的交易对象
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     */
+    @Override
+    public Transaction getTransactionById(Long id) {
+        return findTransactionById(id).orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * 根据交易ID查询交易记录，优先从缓存读取；记录不存在时返回空而不抛出异常。
+     *
+     * @param id 要查询的交易ID
+     * @return 匹配的交易对象，不存在时为空
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     */
+    @Override
+    public Optional<Transaction> findTransactionById(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
+
+        Transaction transaction = cache.get(id);
+        if (transaction == null) {
+            lock.readLock().lock();
+            try {
+                transaction = store.get(id);
+                if (transaction != null) {
+                    cache.put(id, transaction);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        metrics.record(Operation.GET, start);
+        return Optional.ofNullable(transaction);
+    }
+
+    /**
+     * 删除指定ID的交易记录。
+     *
+     * @param id 要删除的交易ID
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     */
+    @Override
+    public void deleteTransaction(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
+
+        lock.writeLock().lock();
+        try {
+            Transaction existing = load(id);
+            store.remove(id);
+            cache.invalidate(id);
+            removeFromAggregates(typeDictionary.lookup(existing.getType()), existing.getAmount());
+            if (changeFeed != null) {
+                changeFeed.publish(ChangeEvent.Operation.DELETE, id, null, null, existing.getVersion());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.DELETE, start);
+    }
+
+    /**
+     * 更新指定ID的交易记录。
+     *
+     * @param id 要更新的交易ID
+     * @param transactionDetails 包含新数据的交易对象
+     * @return 返回更新后的交易对象
+     * @throws InvalidInputException 如果提供的ID或新数据不合法
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     */
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails) {
+        return updateTransaction(id, transactionDetails, null);
+    }
+
+    /**
+     * 有条件地更新指定ID的交易记录：只有记录的当前版本等于 expectedVersion 时才更新。
+     * 版本检查与写入都在写锁内完成，写入后使缓存中的旧版本失效。
+     *
+     * @param id 要更新的交易ID
+     * @param transactionDetails 包含新数据的交易对象
+     * @param expectedVersion 期望的当前版本，null 表示无条件更新
+     * @return 返回更新后的交易对象（版本号已加 1）
+     * @throws InvalidInputException 如果提供的ID或新数据不合法
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     * @throws VersionConflictException 如果记录的当前版本与 expectedVersion 不一致
+     */
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails, Long expectedVersion) {
+        long start = System.nanoTime();
+        validateId(id);
+        validateTransaction(transactionDetails);
+
+        Transaction updated;
+        lock.writeLock().lock();
+        try {
+            Transaction existing = load(id);
+            long version = existing.getVersion();
+            if (expectedVersion != null && version != expectedVersion) {
+                throw versionConflict(id, expectedVersion, version);
+            }
+            updated = new StoredTransaction(id, transactionDetails.getType(), transactionDetails.getAmount(), version + 1);
+            store.put(updated);
+            cache.invalidate(id);
+            removeFromAggregates(typeDictionary.lookup(existing.getType()), existing.getAmount());
+            aggregates.add(typeDictionary.encode(updated.getType()), updated.getAmount());
+            publish(ChangeEvent.Operation.UPDATE, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.record(Operation.UPDATE, start);
+        return updated;
+    }
+
+    /**
+     * @return 最近一次分配的交易ID
+     */
+    public long getLastId() {
+        lock.readLock().lock();
+        try {
+            return lastId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 按 ID 查询所用的缓存
+     */
+    public SegmentedLruCache<Long, Transaction> getCache() {
+        return cache;
+    }
+
+    /**
+     * 写操作读取当前记录，缓存中有时不读盘。调用方必须持有写锁。
+     */
+    private Transaction load(long id) {
+        Transaction existing = cache.peek(id);
+        if (existing == null) {
+            existing = store.get(id);
+            if (existing == null) {
+                throw notFound(id);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * 从 afterId 之后按 ID 顺序遍历存储，跳过前 offset 条匹配的记录后最多收集 limit 条。
+     *
+     * @param type 交易类型，null 表示不限制
+     */
+    private List<Transaction> collect(long afterId, String type, double min, double max, long offset, int limit) {
+        List<Transaction> result = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            if (type != null && typeDictionary.lookup(type) < 0) {
+                return result;
+            }
+            long[] skipped = {0L};
+            store.scan(afterId, transaction -> {
+                double amount = transaction.getAmount();
+                if ((type != null && !type.equals(transaction.getType())) || amount < min || amount > max) {
+                    return true;
+                }
+                if (skipped[0] < offset) {
+                    skipped[0]++;
+                } else {
+                    result.add(transaction);
+                }
+                return result.size() < limit;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 在写锁内把写入后的记录发布到变更流。
+     */
+    private void publish(ChangeEvent.Operation op, Transaction transaction) {
+        if (changeFeed != null) {
+            changeFeed.publish(op, transaction.getId(), transaction.getType(), transaction.getAmount(), transaction.getVersion());
+        }
+    }
+
+    /**
+     * 从聚合统计中移除一条记录，类型的最后一条记录被移除时归还其编号。调用方必须持有写锁。
+     */
+    private void removeFromAggregates(int code, double amount) {
+        if (aggregates.remove(code, amount)) {
+            typeDictionary.release(code);
+        }
+    }
+
+    /**
+     * 把每个仍有记录的类型的统计放入 result，override 为在读锁内遍历得到的极值，可以为 null。调用方必须持有锁。
+     */
+    private void collectStatistics(Map<String, TransactionStats> result, TypeAggregates.Recompute override) {
+        for (int code = 0; code < typeDictionary.size(); code++) {
+            TransactionStats stats = aggregates.stats(code, override);
+            if (stats != null) {
+                result.put(typeDictionary.decode(code), stats);
+            }
+        }
+    }
+}
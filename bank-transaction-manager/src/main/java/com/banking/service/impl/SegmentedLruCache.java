@@ -0,0 +1,343 @@
+package com.banking.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * SegmentedLruCache 是按权重（估算的字节数）限制容量的分段 LRU（SLRU）缓存。
+ *
+ * <p>每个分片内部分为试用区和保护区：新条目先进入试用区，在试用区中再次命中才晋升到保护区（占容量的 80%），
+ * 保护区溢出时最久未访问的条目降级回试用区，淘汰总是先从试用区的队尾开始。
+ * 因此一次性的全量遍历只会冲刷试用区，反复访问的热点条目留在保护区中。</p>
+ *
+ * <p>键按哈希分散到多个分片，每个分片由各自的锁保护，不同分片上的读写互不阻塞；
+ * 容量平均分配给各分片，淘汰在分片内独立进行。
+ * 命中、未命中和淘汰次数使用 {@link LongAdder} 计数，通过 {@link #bindTo} 导出为指标。</p>
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public final class SegmentedLruCache<K, V> implements MeterBinder {
+
+    /**
+     * 保护区占分片容量的比例。
+     */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final String name;
+
+    private final long capacity;
+
+    private final ToIntFunction<V> weigher;
+
+    private final Shard<K, V>[] shards;
+
+    private final int shardMask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param name 指标中的缓存名称
+     * @param capacity 所有条目的权重之和的上限，0 表示不缓存任何条目
+     * @param weigher 估算条目的权重（字节数）
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentedLruCache(String name, long capacity, ToIntFunction<V> weigher) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache capacity must not be negative: " + capacity);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.weigher = weigher;
+        int shardCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<>(capacity / shardCount);
+        }
+        shardMask = shardCount - 1;
+    }
+
+    /**
+     * @return 缓存的值；不存在时返回 null
+     */
+    public V get(K key) {
+        V value = shardFor(key).get(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 读取缓存的值，但不计入命中统计，也不把试用区的条目晋升到保护区。
+     *
+     * @return 缓存的值；不存在时返回 null
+     */
+    public V peek(K key) {
+        return shardFor(key).peek(key);
+    }
+
+    /**
+     * 放入或替换一个条目。权重超过单个分片容量的条目不会被缓存。
+     */
+    public void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        long evicted = shardFor(key).put(key, value, weight);
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+    }
+
+    public void invalidate(K key) {
+        shardFor(key).remove(key);
+    }
+
+    public void invalidateAll() {
+        for (Shard<K, V> shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * @return 缓存的条目数
+     */
+    public long size() {
+        long size = 0;
+        for (Shard<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return 所有条目的权重之和
+     */
+    public long weightedSize() {
+        long weight = 0;
+        for (Shard<K, V> shard : shards) {
+            weight += shard.weight();
+        }
+        return weight;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 注册命中 / 未命中次数、淘汰次数、条目数和权重的指标，均以 cache 标签区分缓存。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("banking.cache.requests", hits, LongAdder::sum)
+                .description("Cache lookups")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("banking.cache.requests", misses, LongAdder::sum)
+                .description("Cache lookups")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("banking.cache.evictions", evictions, LongAdder::sum)
+                .description("Entries evicted to stay within the cache capacity")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("banking.cache.size", this, SegmentedLruCache::size)
+                .description("Number of cached entries")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("banking.cache.weight", this, SegmentedLruCache::weightedSize)
+                .description("Estimated size of cached entries")
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private Shard<K, V> shardFor(K key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private record Entry<V>(V value, int weight) {
+    }
+
+    /**
+     * 一个分片：试用区按插入顺序、保护区按访问顺序排列，队首为下一个被淘汰或降级的条目。
+     */
+    private static final class Shard<K, V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>();
+
+        private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final long maxWeight;
+
+        private final long maxProtectedWeight;
+
+        private long probationWeight;
+
+        private long protectedWeight;
+
+        Shard(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.maxProtectedWeight = (long) (maxWeight * PROTECTED_RATIO);
+        }
+
+        V get(K key) {
+            lock.lock();
+            try {
+                Entry<V> entry = protectedSegment.get(key);
+                if (entry != null) {
+                    return entry.value();
+                }
+                entry = probation.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                probationWeight -= entry.weight();
+                protectedSegment.put(key, entry);
+                protectedWeight += entry.weight();
+                while (protectedWeight > maxProtectedWeight) {
+                    Map.Entry<K, Entry<V>> demoted = removeEldest(protectedSegment);
+                    protectedWeight -= demoted.getValue().weight();
+                    probation.put(demoted.getKey(), demoted.getValue());
+                    probationWeight += demoted.getValue().weight();
+                }
+                return entry.value();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V peek(K key) {
+            lock.lock();
+            try {
+                Entry<V> entry = probation.get(key);
+                if (entry == null) {
+                    entry = protectedSegment.get(key);
+                }
+                return entry == null ? null : entry.value();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 为腾出空间淘汰的条目数
+         */
+        long put(K key, V value, int weight) {
+            lock.lock();
+            try {
+                removeLocked(key);
+                if (weight > maxWeight) {
+                    return 0;
+                }
+                probation.put(key, new Entry<>(value, weight));
+                probationWeight += weight;
+                long evicted = 0;
+                while (probationWeight + protectedWeight > maxWeight) {
+                    if (!probation.isEmpty()) {
+                        probationWeight -= removeEldest(probation).getValue().weight();
+                    } else {
+                        protectedWeight -= removeEldest(protectedSegment).getValue().weight();
+                    }
+                    evicted++;
+                }
+                return evicted;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                removeLocked(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                probation.clear();
+                protectedSegment.clear();
+                probationWeight = 0;
+                protectedWeight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return probation.size() + protectedSegment.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long weight() {
+            lock.lock();
+            try {
+                return probationWeight + protectedWeight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void removeLocked(K key) {
+            Entry<V> entry = probation.remove(key);
+            if (entry != null) {
+                probationWeight -= entry.weight();
+                return;
+            }
+            entry = protectedSegment.remove(key);
+            if (entry != null) {
+                protectedWeight -= entry.weight();
+            }
+        }
+
+        /**
+         * 移除并返回队首条目。调用方必须持有锁，且 segment 不为空。
+         */
+        private static <K, V> Map.Entry<K, Entry<V>> removeEldest(LinkedHashMap<K, Entry<V>> segment) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = segment.entrySet().iterator();
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            return eldest;
+        }
+    }
+}
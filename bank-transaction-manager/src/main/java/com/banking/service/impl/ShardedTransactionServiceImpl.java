@@ -0,0 +1,333 @@
+package com.banking.service.impl;
+
+import com.banking.changes.ChangeFeed;
+import com.banking.cluster.ClusterTopology;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.TransactionStats;
+import com.banking.metrics.TransactionMetrics;
+import com.banking.metrics.TransactionMetrics.Operation;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.banking.service.impl.TransactionValidator.*;
+
+/**
+ * ShardedTransactionServiceImpl 把数据分散到 N 个相互独立的分片中，通过 {@code banking.store.type=sharded} 启用，
+ * 分片数由 {@code banking.store.shards} 配置（默认等于 CPU 核数）。
+ *
+ * <p>每个分片是一个完整的 {@link TransactionServiceImpl}，拥有自己的哈希表、有序索引、二级索引和ID分配器。
+ * 分片 s 只发放满足 {@code (id - 1) % N == s} 的 ID，因此按 ID 的读写可以直接定位到分片。
+ * 线程首次创建记录时按轮转方式绑定到一个分片，此后只写该分片，并发写入的线程分布在不同的分片上，互不争用。</p>
+ *
+ * <p>跨分片的分页查询对各分片的有序迭代器做惰性 k 路归并，只读取到目标页为止。
+ * 分片模式不支持预写日志持久化。</p>
+ */
+@Service
+@ConditionalOnProperty(name = "banking.store.type", havingValue = "sharded")
+public class ShardedTransactionServiceImpl implements TransactionService, MeterBinder {
+
+    private static final Comparator<Transaction> BY_ID = Comparator.comparing(Transaction::getId);
+
+    private static final Comparator<Transaction> BY_AMOUNT =
+            Comparator.comparing(Transaction::getAmount).thenComparing(Transaction::getId);
+
+    private final TransactionServiceImpl[] shards;
+
+    private final int shardMask;
+
+    /**
+     * 线程首次写入时按轮转方式分配到一个分片，此后固定写入该分片。
+     */
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    private final ThreadLocal<TransactionServiceImpl> localShard;
+
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    /**
+     * @param shardCount 分片数量，小于 1 时使用 CPU 核数
+     */
+    @Autowired
+    public ShardedTransactionServiceImpl(@Value("${banking.store.shards:0}") int shardCount) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int count = shardCount < 1 ? cores : shardCount;
+        int concurrency = Math.max(1, cores / count);
+        shards = new TransactionServiceImpl[count];
+        for (int shard = 0; shard < count; shard++) {
+            shards[shard] = new TransactionServiceImpl(IdAllocator.interleaved(shard + 1, count, concurrency));
+        }
+        shardMask = Integer.bitCount(count) == 1 ? count - 1 : -1;
+        localShard = ThreadLocal.withInitial(() -> shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)]);
+    }
+
+    @Autowired(required = false)
+    public void setMetrics(TransactionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 各分片把写操作发布到同一个变更流。
+     */
+    @Autowired(required = false)
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        for (TransactionServiceImpl shard : shards) {
+            shard.setChangeFeed(changeFeed);
+        }
+    }
+
+    /**
+     * 集群模式下从本节点拥有的 ID 区间开始分配。
+     */
+    @Autowired(required = false)
+    public void setClusterTopology(ClusterTopology topology) {
+        for (TransactionServiceImpl shard : shards) {
+            shard.setClusterTopology(topology);
+        }
+    }
+
+    /**
+     * 注册存储规模和ID分配器位置的指标。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.transactions.stored", this, ShardedTransactionServiceImpl::getTransactionCount)
+                .description("Number of transactions currently stored")
+                .register(registry);
+        Gauge.builder("banking.transactions.id.position", this, ShardedTransactionServiceImpl::getIdPosition)
+                .description("Highest transaction id reserved by the id allocator")
+                .register(registry);
+    }
+
+    /**
+     * @return 分片数量
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public Transaction createTransaction(Transaction transaction) {
+        long start = System.nanoTime();
+        Transaction created = localShard().createTransaction(transaction);
+        metrics.record(Operation.CREATE, start);
+        return created;
+    }
+
+    /**
+     * 批量创建交易记录，整批写入调用线程对应的分片。
+     */
+    @Override
+    public List<BatchItemResult> createTransactions(List<Transaction> newTransactions) {
+        long start = System.nanoTime();
+        List<BatchItemResult> results = localShard().createTransactions(newTransactions);
+        metrics.record(Operation.BATCH_CREATE, start);
+        return results;
+    }
+
+    /**
+     * 获取分页形式的交易列表（按ID升序），对各分片做惰性归并。
+     */
+    @Override
+    public List<Transaction> getAllTransactions(int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+        List<Transaction> result = mergeAfter(0L, (long) page * size, size);
+        metrics.record(Operation.LIST, start);
+        return result;
+    }
+
+    /**
+     * 基于游标获取交易列表，各分片直接定位到 afterId 之后再归并，代价为 O(N log n + limit log N)。
+     */
+    @Override
+    public List<Transaction> getTransactionsAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        validateCursor(afterId, limit);
+        List<Transaction> result = mergeAfter(afterId, 0L, limit);
+        metrics.record(Operation.LIST_AFTER, start);
+        return result;
+    }
+
+    /**
+     * 按类型和金额区间过滤：对各分片类型索引或金额索引上的惰性迭代器做 k 路归并，与分页列表一样只读取到目标页为止。
+     */
+    @Override
+    public List<Transaction> findTransactions(String type, Double minAmount, Double maxAmount, int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+        validateAmountRange(minAmount, maxAmount);
+
+        List<Iterator<Transaction>> sources = new ArrayList<>(shards.length);
+        for (TransactionServiceImpl shard : shards) {
+            sources.add(shard.iterateMatching(type, minAmount, maxAmount));
+        }
+        Comparator<Transaction> order = minAmount != null || maxAmount != null ? BY_AMOUNT : BY_ID;
+        List<Transaction> result = merge(sources, order, (long) page * size, size);
+        metrics.record(Operation.FILTER, start);
+        return result;
+    }
+
+    /**
+     * 合并各分片的统计：数量和总额相加，最小值和最大值取各分片的极值。
+     */
+    @Override
+    public Map<String, TransactionStats> getStatistics() {
+        long start = System.nanoTime();
+        Map<String, TransactionStats> result = new TreeMap<>();
+        for (TransactionServiceImpl shard : shards) {
+            shard.getStatistics().forEach((type, stats) -> result.merge(type, stats, (a, b) -> new TransactionStats(
+                    a.getCount() + b.getCount(), a.getSum() + b.getSum(),
+                    Math.min(a.getMin(), b.getMin()), Math.max(a.getMax(), b.getMax()))));
+        }
+        metrics.record(Operation.STATS, start);
+        return result;
+    }
+
+    @Override
+    public long getTransactionCount() {
+        long count = 0;
+        for (TransactionServiceImpl shard : shards) {
+            count += shard.getTransactionCount();
+        }
+        return count;
+    }
+
+    /**
+     * 各分片的读操作都不阻塞，跨分片归并也在调用线程上完成。
+     */
+    @Override
+    public boolean readsMayBlock() {
+        return false;
+    }
+
+    @Override
+    public Transaction getTransactionById(Long id) {
+        return findTransactionById(id).orElseThrow(() -> notFound(id));
+    }
+
+    @Override
+    public Optional<Transaction> findTransactionById(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
+        Optional<Transaction> transaction = shardOf(id).findTransactionById(id);
+        metrics.record(Operation.GET, start);
+        return transaction;
+    }
+
+    @Override
+    public void deleteTransaction(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
+        shardOf(id).deleteTransaction(id);
+        metrics.record(Operation.DELETE, start);
+    }
+
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails) {
+        return updateTransaction(id, transactionDetails, null);
+    }
+
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails, Long expectedVersion) {
+        long start = System.nanoTime();
+        validateId(id);
+        Transaction updated = shardOf(id).updateTransaction(id, transactionDetails, expectedVersion);
+        metrics.record(Operation.UPDATE, start);
+        return updated;
+    }
+
+    private long getIdPosition() {
+        long position = 0;
+        for (TransactionServiceImpl shard : shards) {
+            position = Math.max(position, shard.getIdPosition());
+        }
+        return position;
+    }
+
+    private List<Transaction> mergeAfter(long afterId, long offset, int limit) {
+        List<Iterator<Transaction>> sources = new ArrayList<>(shards.length);
+        for (TransactionServiceImpl shard : shards) {
+            sources.add(shard.iterateAfter(afterId));
+        }
+        return merge(sources, BY_ID, offset, limit);
+    }
+
+    /**
+     * 对多个各自有序的迭代器做 k 路归并，跳过前 offset 条后最多返回 limit 条。
+     */
+    private static List<Transaction> merge(List<Iterator<Transaction>> sources, Comparator<Transaction> order,
+                                           long offset, int limit) {
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> order.compare(a.head, b.head));
+        for (Iterator<Transaction> source : sources) {
+            if (source.hasNext()) {
+                heap.add(new Cursor(source));
+            }
+        }
+
+        List<Transaction> result = new ArrayList<>(Math.min(limit, 1024));
+        long skipped = 0;
+        while (result.size() < limit && !heap.isEmpty()) {
+            Cursor cursor = heap.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(cursor.head);
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private TransactionServiceImpl shardOf(long id) {
+        long index = id - 1;
+        return shards[shardMask >= 0 ? (int) (index & shardMask) : (int) (index % shards.length)];
+    }
+
+    /**
+     * 调用线程对应的分片，同一线程总是写入同一个分片。
+     */
+    private TransactionServiceImpl localShard() {
+        return localShard.get();
+    }
+
+    /**
+     * 归并时某个分片迭代器的当前位置。
+     */
+    private static final class Cursor {
+        private final Iterator<Transaction> source;
+        private Transaction head;
+
+        private Cursor(Iterator<Transaction> source) {
+            this.source = source;
+            this.head = source.next();
+        }
+
+        private boolean advance() {
+            if (!source.hasNext()) {
+                return false;
+            }
+            head = source.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.banking.service.impl;
+
+import com.banking.model.Transaction;
+
+/**
+ * StoredTransaction 是存储持有并直接返回给调用方的记录快照，创建后不可修改。
+ *
+ * <p>存储把同一个实例放入主表、各级索引和缓存，查询时原样返回；如果允许修改，调用方可以绕过存储改写已发布的记录，
+ * 并发读取者还可能看到类型和金额不一致的中间状态。修改记录只能通过存储的更新操作，由它换上一个新实例。</p>
+ */
+final class StoredTransaction extends Transaction {
+
+    StoredTransaction(long id, String type, double amount, long version) {
+        super(id, type, amount, version);
+    }
+
+    @Override
+    public void setId(Long id) {
+        throw immutable();
+    }
+
+    @Override
+    public void setType(String type) {
+        throw immutable();
+    }
+
+    @Override
+    public void setAmount(Double amount) {
+        throw immutable();
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        throw immutable();
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Stored transactions are immutable");
+    }
+}
@@ -1,23 +1,74 @@
 package com.banking.service.impl;
 
+import com.banking.cluster.ClusterTopology;
+import com.banking.changes.ChangeFeed;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.TransactionStats;
 import com.banking.exception.InvalidInputException;
 import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
+import com.banking.metrics.TransactionMetrics;
+import com.banking.metrics.TransactionMetrics.Operation;
 import com.banking.model.Transaction;
+import com.banking.persistence.JournalVisitor;
+import com.banking.persistence.SnapshotInfo;
+import com.banking.persistence.TransactionJournal;
+import com.banking.persistence.TransactionSnapshotStore;
+import com.banking.replication.ReplicationLog;
 import com.banking.service.TransactionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.StreamSupport;
+
+import static com.banking.service.impl.TransactionValidator.*;
 
 /**
  * TransactionServiceImpl 是 TransactionService 接口的具体实现类。
  * 提供了基于内存存储的交易管理功能，支持创建、查询、更新和删除操作。
  *
- * <p>该实现使用 ConcurrentHashMap 来保证线程安全，并通过自增 ID 实现交易记录的唯一标识。</p>
+ * <p>该实现使用 ConcurrentHashMap 来保证线程安全，并通过无锁的 {@link IdAllocator} 分配交易记录的唯一标识。
+ * 另外维护一个按 ID 排序的跳表索引，分页查询只需定位起点并顺序遍历一页数据，无需每次全量排序。</p>
+ *
+ * <p>启用 {@code banking.journal.enabled} 后，所有写操作都会追加到 {@link TransactionJournal}，
+ * 并由后台线程定期通过 {@link TransactionSnapshotStore} 写快照、截断旧日志；
+ * 启动时加载最新快照并只重放其后的日志尾部。</p>
+ *
+ * <p>作为复制主节点时，写操作在修改内存的同一临界区内追加到 {@link ReplicationLog}，推送给只读副本。
+ * 同样，每次写操作都会发布到进程内的 {@link ChangeFeed}，供变更流订阅者消费。
+ * 每个写操作按同一顺序执行：写预写日志、修改索引、追加复制流、发布变更流，最后才让按ID的访问看到结果。
+ * 更新和删除在该ID的 compute 中完成这些步骤，新记录在放入 transactions 之前完成，
+ * 因此同一ID的操作在日志、复制流和变更流中的顺序与内存一致，写日志失败的操作不会出现在内存中；
+ * 复制流记录的变更在有序索引中已经可见，全量同步的模糊快照不会漏掉它。</p>
+ *
+ * <p>存储中的交易对象发布后不再修改：每条记录带有版本号，更新时用版本号加 1 的新对象整体替换旧对象，
+ * 读取者拿到的总是某个版本的完整快照，不会读到类型和金额来自不同更新的中间状态。</p>
  */
 @Service
-public class TransactionServiceImpl implements TransactionService {
+@ConditionalOnProperty(name = "banking.store.type", havingValue = "heap", matchIfMissing = true)
+public class TransactionServiceImpl implements TransactionService, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionServiceImpl.class);
+
+    private static final TypeIndex EMPTY_INDEX = new TypeIndex();
 
     /**
      * 存储所有交易记录的内存数据库，键为交易ID，值为交易对象。
@@ -25,9 +76,192 @@ public class TransactionServiceImpl implements TransactionService {
     private final Map<Long, Transaction> transactions = new ConcurrentHashMap<>();
 
     /**
-     * 当前用于生成新交易ID的自增计数器。
+     * 按交易ID升序排列的有序索引，与 transactions 同步维护（创建时写入，删除时移除）。
+     */
+    private final ConcurrentNavigableMap<Long, Transaction> orderedIndex = new ConcurrentSkipListMap<>();
+
+    /**
+     * 类型二级索引：交易类型 → 该类型的交易（按ID升序）及其增量聚合统计。
+     */
+    private final Map<String, TypeIndex> typeIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 金额二级索引：按（金额, ID）排序，支持金额区间查询。
+     */
+    private final ConcurrentNavigableMap<AmountKey, Transaction> amountIndex = new ConcurrentSkipListMap<>();
+
+    /**
+     * 用于生成新交易ID的无锁分配器。
+     */
+    private final IdAllocator idAllocator;
+
+    /**
+     * 预写日志，仅在 banking.journal.enabled=true 时注入；为 null 时为纯内存模式。
+     */
+    private TransactionJournal journal;
+
+    /**
+     * 快照存储，与预写日志一起注入。
+     */
+    private TransactionSnapshotStore snapshotStore;
+
+    /**
+     * 复制变更流，仅在作为复制主节点（banking.replication.role=primary）时注入。
+     */
+    private ReplicationLog replicationLog;
+
+    /**
+     * 进程内变更流，banking.changes.enabled=false 时为 null。
+     */
+    private ChangeFeed changeFeed;
+
+    /**
+     * 快照时的纪元屏障：写操作持有读锁完成“修改内存 + 写日志”，快照只在读取日志位置的瞬间持有写锁，
+     * 保证该位置之前的所有修改都已在内存中可见，而快照的遍历过程不阻塞任何写操作。
+     */
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * 最近一次快照对应的日志位置。
+     */
+    private volatile long lastSnapshotLsn;
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * 操作延迟指标，未接入监控时为不导出数据的空实现。
+     */
+    private TransactionMetrics metrics = TransactionMetrics.NOOP;
+
+    public TransactionServiceImpl() {
+        this(new IdAllocator());
+    }
+
+    /**
+     * @param idAllocator 新记录的ID分配器，分片存储为每个分片传入互不相交的交错分配器
+     */
+    TransactionServiceImpl(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    @Autowired(required = false)
+    public void setMetrics(TransactionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Autowired(required = false)
+    public void setJournal(TransactionJournal journal) {
+        this.journal = journal;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotStore(TransactionSnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    @Autowired(required = false)
+    public void setReplicationLog(ReplicationLog replicationLog) {
+        this.replicationLog = replicationLog;
+    }
+
+    @Autowired(required = false)
+    public void setChangeFeed(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * 集群模式下只在本节点拥有的 ID 区间内分配，区间用尽后拒绝创建。
+     */
+    @Autowired(required = false)
+    public void setClusterTopology(ClusterTopology topology) {
+        idAllocator.advanceTo(topology.firstLocalId() - 1);
+        idAllocator.limitTo(topology.lastLocalId());
+    }
+
+    /**
+     * 启动时加载最新快照，再从快照位置开始顺序重放预写日志尾部，重建内存中的交易数据和索引。
      */
-    private Long currentId = 0L;
+    @PostConstruct
+    public void recover() {
+        if (journal == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        RecoveryVisitor visitor = new RecoveryVisitor();
+        long fromLsn = 0L;
+        if (snapshotStore != null) {
+            SnapshotInfo snapshot = snapshotStore.loadLatest(visitor, this::clear);
+            if (snapshot != null) {
+                fromLsn = snapshot.getLsn();
+                visitor.maxId = Math.max(visitor.maxId, snapshot.getLastId());
+            }
+        }
+        lastSnapshotLsn = fromLsn;
+        long replayed = journal.replay(fromLsn, visitor);
+        idAllocator.advanceTo(visitor.maxId);
+        log.info("Recovered {} transactions ({} journal records replayed from position {}) in {} ms",
+                transactions.size(), replayed, fromLsn, (System.nanoTime() - start) / 1_000_000);
+
+        if (snapshotStore != null && !snapshotStore.getInterval().isZero()) {
+            long intervalMillis = snapshotStore.getInterval().toMillis();
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "transaction-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::checkpointQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 把当前存活的数据写成快照，并删除已被快照覆盖的日志段。
+     *
+     * <p>只在读取日志位置时短暂阻塞写操作，遍历和写文件期间写操作照常进行。</p>
+     */
+    public synchronized void checkpoint() {
+        if (journal == null || snapshotStore == null) {
+            return;
+        }
+        long lsn;
+        long lastId;
+        checkpointLock.writeLock().lock();
+        try {
+            lsn = journal.getWrittenPosition();
+            lastId = idAllocator.position();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        if (lsn == lastSnapshotLsn) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long rows = snapshotStore.write(lsn, lastId, transactions.values());
+        lastSnapshotLsn = lsn;
+        int truncated = journal.truncateBefore(snapshotStore.prune());
+        log.info("Wrote snapshot of {} transactions at position {} in {} ms, removed {} journal segments",
+                rows, lsn, (System.nanoTime() - start) / 1_000_000, truncated);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 注册存储规模和ID分配器位置的指标，只在抓取指标时读取，不影响写路径。
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.transactions.stored", this, TransactionServiceImpl::getTransactionCount)
+                .description("Number of transactions currently stored")
+                .register(registry);
+        Gauge.builder("banking.transactions.id.position", idAllocator, IdAllocator::position)
+                .description("Highest transaction id reserved by the id allocator")
+                .register(registry);
+    }
 
     /**
      * 创建一个新的交易记录。
@@ -38,14 +272,109 @@ public class TransactionServiceImpl implements TransactionService {
      */
     @Override
     public Transaction createTransaction(Transaction transaction) {
+        long start = System.nanoTime();
         validateTransaction(transaction);
 
-        // 分配新ID并保存到内存中
-        transaction.setId(++currentId);
-        transactions.put(currentId, transaction);
+        // 分配新ID，存储持有一份不可修改的快照，调用方的对象只用于返回结果
+        long id = idAllocator.nextId();
+        Transaction stored = new StoredTransaction(id, transaction.getType(), transaction.getAmount(), 1L);
+        beginWrite();
+        try {
+            // 放入 transactions 之前该ID不能被更新或删除，CREATE 一定排在它们之前
+            if (journal != null) {
+                journal.append(TransactionJournal.OP_CREATE, id, stored.getType(), stored.getAmount(), 1L);
+            }
+            orderedIndex.put(id, stored);
+            index(id, stored.getType(), stored.getAmount(), stored);
+            if (replicationLog != null) {
+                replicationLog.append(TransactionJournal.OP_CREATE, id, stored.getType(), stored.getAmount(), 1L);
+            }
+            if (changeFeed != null) {
+                changeFeed.publish(ChangeEvent.Operation.CREATE, id, stored.getType(), stored.getAmount(), 1L);
+            }
+            transactions.put(id, stored);
+        } finally {
+            endWrite();
+        }
+        transaction.setId(id);
+        transaction.setVersion(1L);
+        metrics.record(Operation.CREATE, start);
         return transaction;
     }
 
+    /**
+     * 批量创建交易记录。
+     *
+     * <p>一次遍历完成所有元素的校验，为合法的元素一次性预留连续的ID区间，
+     * 再批量写入存储和索引；开启持久化时整批只写一次日志、提交一次。</p>
+     *
+     * @param newTransactions 要创建的交易列表
+     * @return 与请求顺序一一对应的处理结果，非法元素包含错误信息
+     * @throws InvalidInputException 如果列表为空或超过最大批量
+     */
+    @Override
+    public List<BatchItemResult> createTransactions(List<Transaction> newTransactions) {
+        long start = System.nanoTime();
+        validateBatch(newTransactions);
+
+        BatchItemResult[] results = new BatchItemResult[newTransactions.size()];
+        List<Transaction> accepted = new ArrayList<>(newTransactions.size());
+        for (int i = 0; i < newTransactions.size(); i++) {
+            Transaction transaction = newTransactions.get(i);
+            try {
+                validateTransaction(transaction);
+                accepted.add(transaction);
+            } catch (InvalidInputException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            long id = idAllocator.reserve(accepted.size());
+            int stride = idAllocator.stride();
+            Map<Long, Transaction> batch = new LinkedHashMap<>(accepted.size() * 2);
+            for (Transaction transaction : accepted) {
+                batch.put(id, new StoredTransaction(id, transaction.getType(), transaction.getAmount(), 1L));
+                transaction.setId(id);
+                transaction.setVersion(1L);
+                id += stride;
+            }
+
+            beginWrite();
+            try {
+                // 与单条创建相同，整批放入 transactions 之前这些ID不能被更新或删除
+                if (journal != null) {
+                    journal.appendAll(TransactionJournal.OP_CREATE, batch.values());
+                }
+                orderedIndex.putAll(batch);
+                for (Transaction transaction : batch.values()) {
+                    index(transaction.getId(), transaction.getType(), transaction.getAmount(), transaction);
+                }
+                if (replicationLog != null) {
+                    replicationLog.appendAll(TransactionJournal.OP_CREATE, batch.values());
+                }
+                if (changeFeed != null) {
+                    for (Transaction transaction : batch.values()) {
+                        changeFeed.publish(ChangeEvent.Operation.CREATE, transaction.getId(), transaction.getType(),
+                                transaction.getAmount(), 1L);
+                    }
+                }
+                transactions.putAll(batch);
+            } finally {
+                endWrite();
+            }
+        }
+
+        Iterator<Transaction> created = accepted.iterator();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = BatchItemResult.succeeded(i, created.next());
+            }
+        }
+        metrics.record(Operation.BATCH_CREATE, start);
+        return Arrays.asList(results);
+    }
+
     /**
      * 获取分页形式的交易列表。
      *
@@ -56,21 +385,117 @@ public class TransactionServiceImpl implements TransactionService {
      */
     @Override
     public List<Transaction> getAllTransactions(int page, int size) {
-        if (page < 0 || size < 1) {
-            throw new InvalidInputException("Page number must be >= 0 and size must be >= 1");
+        long start = System.nanoTime();
+        validatePage(page, size);
+
+        // 跳过前面的页，再从有序索引中顺序取出一页数据
+        long offset = (long) page * size;
+        List<Transaction> result = new ArrayList<>(Math.min(size, transactions.size()));
+        Iterator<Transaction> iterator = orderedIndex.values().iterator();
+        for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (result.size() < size && iterator.hasNext()) {
+            result.add(iterator.next());
         }
+        metrics.record(Operation.LIST, start);
+        return result;
+    }
 
-        // 将交易集合转换为按ID排序的列表
-        List<Transaction> sortedList = transactions.values().stream()
-                .sorted(Comparator.comparing(Transaction::getId))
-                .collect(Collectors.toList());
+    /**
+     * 基于游标（keyset）获取交易列表，返回 ID 大于 afterId 的前 limit 条记录。
+     *
+     * <p>通过有序索引直接定位到 afterId 之后的位置，深分页的代价为 O(log n + limit)。</p>
+     *
+     * @param afterId 上一页最后一条记录的ID，首次查询传 0
+     * @param limit 最多返回的记录数量
+     * @return 返回按ID升序排列的交易记录列表
+     * @throws InvalidInputException 如果游标参数非法（afterId 为 null 或负数，limit 小于 1）
+     */
+    @Override
+    public List<Transaction> getTransactionsAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        validateCursor(afterId, limit);
 
-        int totalItems = sortedList.size();
-        int fromIndex = Math.min(page * size, totalItems);
-        int toIndex = Math.min(fromIndex + size, totalItems);
+        List<Transaction> result = new ArrayList<>(Math.min(limit, transactions.size()));
+        Iterator<Transaction> iterator = orderedIndex.tailMap(afterId, false).values().iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        metrics.record(Operation.LIST_AFTER, start);
+        return result;
+    }
+
+    /**
+     * 按类型和金额区间过滤交易记录，分页返回匹配的记录。
+     *
+     * <p>指定金额区间时遍历金额索引的子区间，结果按金额升序排列；只指定类型时遍历类型索引，结果按ID升序排列。
+     * 查询代价与所用索引中命中的记录数成正比，与存储总量无关。</p>
+     *
+     * @param type 交易类型，null 表示不限制
+     * @param minAmount 最小金额（含），null 表示不限制
+     * @param maxAmount 最大金额（含），null 表示不限制
+     * @param page 分页页码（从0开始）
+     * @param size 每页记录数量
+     * @return 返回当前页的匹配记录
+     * @throws InvalidInputException 如果分页参数非法或金额区间为空
+     */
+    @Override
+    public List<Transaction> findTransactions(String type, Double minAmount, Double maxAmount, int page, int size) {
+        long start = System.nanoTime();
+        validatePage(page, size);
+        validateAmountRange(minAmount, maxAmount);
 
-        // 返回指定范围内的子列表
-        return sortedList.subList(fromIndex, toIndex);
+        Iterator<Transaction> matching = iterateMatching(type, minAmount, maxAmount);
+        long offset = (long) page * size;
+        for (long skipped = 0; skipped < offset && matching.hasNext(); skipped++) {
+            matching.next();
+        }
+        List<Transaction> result = new ArrayList<>(Math.min(size, 1024));
+        while (result.size() < size && matching.hasNext()) {
+            result.add(matching.next());
+        }
+        metrics.record(Operation.FILTER, start);
+        return result;
+    }
+
+    /**
+     * 按交易类型返回聚合统计。
+     *
+     * <p>统计值由写操作增量维护，查询代价只与类型数量有关，与数据量无关。</p>
+     *
+     * @return 交易类型 → 该类型的统计，按类型名排序，不包含已没有记录的类型
+     */
+    @Override
+    public Map<String, TransactionStats> getStatistics() {
+        long start = System.nanoTime();
+        Map<String, TransactionStats> result = new TreeMap<>();
+        typeIndex.forEach((type, index) -> {
+            TransactionStats stats = index.stats();
+            if (stats != null) {
+                result.put(type, stats);
+            }
+        });
+        metrics.record(Operation.STATS, start);
+        return result;
+    }
+
+    /**
+     * 获取当前存储的交易记录总数。
+     *
+     * @return 交易记录数量
+     */
+    @Override
+    public long getTransactionCount() {
+        return transactions.size();
+    }
+
+    /**
+     * 读操作只访问并发哈希表和跳表，既不加锁也不读磁盘。
+     */
+    @Override
+    public boolean readsMayBlock() {
+        return false;
     }
 
     /**
@@ -83,14 +508,23 @@ public class TransactionServiceImpl implements TransactionService {
      */
     @Override
     public Transaction getTransactionById(Long id) {
-        if (id == null || id <= 0) {
-            throw new InvalidInputException("Transaction ID must be positive.");
-        }
+        return findTransactionById(id).orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * 根据交易ID查询交易记录，记录不存在时返回空而不抛出异常。
+     *
+     * @param id 要查询的交易ID
+     * @return 匹配的交易对象，不存在时为空
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     */
+    @Override
+    public Optional<Transaction> findTransactionById(Long id) {
+        long start = System.nanoTime();
+        validateId(id);
         Transaction transaction = transactions.get(id);
-        if (transaction == null) {
-            throw new ResourceNotFoundException("Transaction not found with ID: " + id);
-        }
-        return transaction;
+        metrics.record(Operation.GET, start);
+        return Optional.ofNullable(transaction);
     }
 
     /**
@@ -102,13 +536,34 @@ public class TransactionServiceImpl implements TransactionService {
      */
     @Override
     public void deleteTransaction(Long id) {
-        if (id == null || id <= 0) {
-            throw new InvalidInputException("Transaction ID must be positive.");
+        long start = System.nanoTime();
+        validateId(id);
+        // 与更新相同，在该ID的 compute 中写日志并移除记录
+        boolean[] removed = new boolean[1];
+        beginWrite();
+        try {
+            transactions.computeIfPresent(id, (key, existing) -> {
+                if (journal != null) {
+                    journal.append(TransactionJournal.OP_DELETE, key, null, 0.0, existing.getVersion());
+                }
+                orderedIndex.remove(key);
+                unindex(key, existing.getType(), existing.getAmount());
+                if (replicationLog != null) {
+                    replicationLog.append(TransactionJournal.OP_DELETE, key, null, 0.0, existing.getVersion());
+                }
+                if (changeFeed != null) {
+                    changeFeed.publish(ChangeEvent.Operation.DELETE, key, null, null, existing.getVersion());
+                }
+                removed[0] = true;
+                return null;
+            });
+        } finally {
+            endWrite();
         }
-        if (!transactions.containsKey(id)) {
-            throw new ResourceNotFoundException("Transaction not found with ID: " + id);
+        if (!removed[0]) {
+            throw notFound(id);
         }
-        transactions.remove(id);
+        metrics.record(Operation.DELETE, start);
     }
 
     /**
@@ -122,47 +577,267 @@ public class TransactionServiceImpl implements TransactionService {
      */
     @Override
     public Transaction updateTransaction(Long id, Transaction transactionDetails) {
-        if (id == null || id <= 0) {
-            throw new InvalidInputException("Transaction ID must be positive.");
-        }
+        return updateTransaction(id, transactionDetails, null);
+    }
+
+    /**
+     * 有条件地更新指定ID的交易记录：只有记录的当前版本等于 expectedVersion 时才更新。
+     *
+     * <p>版本比较和替换在同一个 compute 中原子完成，基于同一版本的并发更新只有一个成功，其余得到版本冲突，不会丢失更新。</p>
+     *
+     * @param id 要更新的交易ID
+     * @param transactionDetails 包含新数据的交易对象
+     * @param expectedVersion 期望的当前版本，null 表示无条件更新
+     * @return 返回更新后的交易对象（版本号已加 1）
+     * @throws InvalidInputException 如果提供的ID或新数据不合法
+     * @throws ResourceNotFoundException 如果未找到对应ID的交易记录
+     * @throws VersionConflictException 如果记录的当前版本与 expectedVersion 不一致
+     */
+    @Override
+    public Transaction updateTransaction(Long id, Transaction transactionDetails, Long expectedVersion) {
+        long start = System.nanoTime();
+        validateId(id);
         validateTransaction(transactionDetails);
+        String type = transactionDetails.getType();
+        double amount = transactionDetails.getAmount();
 
-        if (!transactions.containsKey(id)) {
-            throw new ResourceNotFoundException("Transaction not found with ID: " + id);
+        // 在 compute 中原子地替换记录并写日志，保证同一ID的日志顺序与内存中的修改顺序一致
+        Transaction updated;
+        beginWrite();
+        try {
+            updated = transactions.computeIfPresent(id, (key, existing) -> {
+                if (expectedVersion != null && existing.getVersion() != expectedVersion.longValue()) {
+                    throw versionConflict(key, expectedVersion, existing.getVersion());
+                }
+                Transaction replacement = new StoredTransaction(key, type, amount, existing.getVersion() + 1);
+                if (journal != null) {
+                    journal.append(TransactionJournal.OP_UPDATE, key, type, amount, replacement.getVersion());
+                }
+                reindex(key, existing, replacement);
+                if (replicationLog != null) {
+                    replicationLog.append(TransactionJournal.OP_UPDATE, key, type, amount, replacement.getVersion());
+                }
+                if (changeFeed != null) {
+                    changeFeed.publish(ChangeEvent.Operation.UPDATE, key, type, amount, replacement.getVersion());
+                }
+                return replacement;
+            });
+        } finally {
+            endWrite();
+        }
+        if (updated == null) {
+            throw notFound(id);
         }
+        metrics.record(Operation.UPDATE, start);
+        return updated;
+    }
 
-        // 获取现有记录并更新字段
-        Transaction existing = transactions.get(id);
-        existing.setType(transactionDetails.getType());
-        existing.setAmount(transactionDetails.getAmount());
+    /**
+     * 返回把主节点变更流应用到本存储的访问器，供只读副本使用：按给定ID直接写入或删除记录，不分配ID、不写日志。
+     */
+    public JournalVisitor replicaApplier() {
+        return new RecoveryVisitor();
+    }
 
-        transactions.put(id, existing);
-        return existing;
+    /**
+     * 清空全部数据，副本重新全量同步前调用。
+     */
+    public void resetReplica() {
+        clear();
     }
 
     /**
-     * 对交易对象进行合法性校验。
-     *
-     * @param transaction 待校验的交易对象
-     * @throws InvalidInputException 如果校验失败，抛出包含错误信息的异常
+     * 按ID升序遍历 ID 大于 afterId 的记录，供分片存储做跨分片的归并。
      */
-    private void validateTransaction(Transaction transaction) {
-        List<String> errors = new ArrayList<>();
+    Iterator<Transaction> iterateAfter(long afterId) {
+        return orderedIndex.tailMap(afterId, false).values().iterator();
+    }
 
-        if (transaction == null) {
-            throw new InvalidInputException("Transaction cannot be null.");
+    /**
+     * 惰性遍历满足过滤条件的记录：指定了金额区间时按金额（相同金额按ID）升序，否则按ID升序。
+     * 供 {@link #findTransactions} 和分片存储做跨分片的归并。
+     */
+    Iterator<Transaction> iterateMatching(String type, Double minAmount, Double maxAmount) {
+        Iterator<Transaction> candidates;
+        if (minAmount != null || maxAmount != null) {
+            candidates = amountRange(minAmount, maxAmount).values().iterator();
+        } else if (type != null) {
+            candidates = typeIndex.getOrDefault(type, EMPTY_INDEX).rows().values().iterator();
+        } else {
+            candidates = orderedIndex.values().iterator();
         }
+        // 索引与记录的更新不是原子的，逐条复核过滤条件，排除并发更新期间残留的旧索引项
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(candidates, Spliterator.ORDERED), false)
+                .filter(transaction -> matches(transaction, type, minAmount, maxAmount))
+                .iterator();
+    }
+
+    /**
+     * @return ID分配器已预留出去的最大 ID
+     */
+    long getIdPosition() {
+        return idAllocator.position();
+    }
 
-        if (transaction.getType() == null || transaction.getType().trim().isEmpty()) {
-            errors.add("Transaction type cannot be empty.");
+    /**
+     * 进入写操作：开启持久化时持有快照屏障的读锁。
+     */
+    private void beginWrite() {
+        if (journal != null) {
+            checkpointLock.readLock().lock();
+        }
+    }
+
+    /**
+     * 结束写操作：释放快照屏障，并按落盘策略提交日志。
+     */
+    private void endWrite() {
+        if (journal != null) {
+            checkpointLock.readLock().unlock();
+            journal.commit();
         }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write transaction snapshot", e);
+        }
+    }
+
+    /**
+     * 把记录加入类型索引和金额索引。
+     */
+    private void index(long id, String type, double amount, Transaction transaction) {
+        addToTypeIndex(id, type, amount, transaction);
+        amountIndex.put(new AmountKey(amount, id), transaction);
+    }
+
+    /**
+     * 把记录从类型索引和金额索引中移除。
+     */
+    private void unindex(long id, String type, double amount) {
+        removeFromTypeIndex(id, type, amount);
+        amountIndex.remove(new AmountKey(amount, id));
+    }
+
+    /**
+     * 把记录加入其类型的索引。加入后该索引若已因变空被并发移除，则把记录改放到当前的索引中，
+     * 因此同一类型的并发写入只在新建或移除索引时才争用哈希表的同一个桶。
+     */
+    private void addToTypeIndex(long id, String type, double amount, Transaction transaction) {
+        TypeIndex index = typeIndex.computeIfAbsent(type, key -> new TypeIndex());
+        index.add(id, amount, transaction);
+        if (typeIndex.get(type) != index) {
+            index.remove(id, amount);
+            typeIndex.compute(type, (key, current) -> {
+                TypeIndex target = current == null ? new TypeIndex() : current;
+                target.add(id, amount, transaction);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * 把记录从其类型的索引中移除，类型的最后一条记录被移除时同时移除该类型的索引，
+     * 否则客户端提交的任意类型名会让索引表和统计无限增长。
+     */
+    private void removeFromTypeIndex(long id, String type, double amount) {
+        typeIndex.computeIfPresent(type, (key, index) -> {
+            index.remove(id, amount);
+            return index.isEmpty() ? null : index;
+        });
+    }
+
+    /**
+     * 记录被新版本替换时调整各索引：先加入新索引项再移除旧索引项，查询期间记录不会从索引中消失。
+     */
+    private void reindex(long id, Transaction existing, Transaction replacement) {
+        String oldType = existing.getType();
+        double oldAmount = existing.getAmount();
+        double newAmount = replacement.getAmount();
+        orderedIndex.put(id, replacement);
+        if (!oldType.equals(replacement.getType())) {
+            addToTypeIndex(id, replacement.getType(), newAmount, replacement);
+            removeFromTypeIndex(id, oldType, oldAmount);
+        } else {
+            typeIndex.get(oldType).replace(id, oldAmount, replacement);
+        }
+        amountIndex.put(new AmountKey(newAmount, id), replacement);
+        if (Double.compare(oldAmount, newAmount) != 0) {
+            amountIndex.remove(new AmountKey(oldAmount, id));
+        }
+    }
+
+    private static boolean matches(Transaction transaction, String type, Double minAmount, Double maxAmount) {
+        double amount = transaction.getAmount();
+        return (type == null || type.equals(transaction.getType()))
+                && (minAmount == null || amount >= minAmount)
+                && (maxAmount == null || amount <= maxAmount);
+    }
+
+    private ConcurrentNavigableMap<AmountKey, Transaction> amountRange(Double minAmount, Double maxAmount) {
+        if (minAmount == null) {
+            return amountIndex.headMap(new AmountKey(maxAmount, Long.MAX_VALUE), true);
+        }
+        if (maxAmount == null) {
+            return amountIndex.tailMap(new AmountKey(minAmount, Long.MIN_VALUE), true);
+        }
+        return amountIndex.subMap(new AmountKey(minAmount, Long.MIN_VALUE), true,
+                new AmountKey(maxAmount, Long.MAX_VALUE), true);
+    }
+
+    /**
+     * 写入或覆盖一条记录，用于从日志恢复数据（不会再次写日志）。
+     */
+    private void applyPut(long id, String type, double amount, long version) {
+        Transaction transaction = new StoredTransaction(id, type, amount, version);
+        Transaction previous = transactions.put(id, transaction);
+        if (previous != null) {
+            unindex(id, previous.getType(), previous.getAmount());
+        }
+        orderedIndex.put(id, transaction);
+        index(id, type, amount, transaction);
+    }
+
+    /**
+     * 删除一条记录，用于从日志恢复数据（不会再次写日志）。
+     */
+    private void applyDelete(long id) {
+        Transaction removed = transactions.remove(id);
+        if (removed != null) {
+            orderedIndex.remove(id);
+            unindex(id, removed.getType(), removed.getAmount());
+        }
+    }
+
+    /**
+     * 清空内存数据，用于快照损坏时回退到更早的快照。
+     */
+    private void clear() {
+        transactions.clear();
+        orderedIndex.clear();
+        typeIndex.clear();
+        amountIndex.clear();
+    }
+
+    /**
+     * 把快照和日志中的记录应用到内存，并记录出现过的最大ID。
+     */
+    private class RecoveryVisitor implements JournalVisitor {
+        private long maxId;
 
-        if (transaction.getAmount() <= 0) {
-            errors.add("Transaction amount must be greater than zero.");
+        @Override
+        public void onPut(long id, String type, double amount, long version) {
+            applyPut(id, type, amount, version);
+            maxId = Math.max(maxId, id);
         }
 
-        if (!errors.isEmpty()) {
-            throw new InvalidInputException(String.join(" | ", errors));
+        @Override
+        public void onDelete(long id) {
+            applyDelete(id);
+            maxId = Math.max(maxId, id);
         }
     }
-}
\ No newline at end of file
+}
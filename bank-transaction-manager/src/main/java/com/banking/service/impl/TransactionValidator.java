@@ -0,0 +1,163 @@
+package com.banking.service.impl;
+
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
+import com.banking.model.Transaction;
+
+import java.util.List;
+
+/**
+ * TransactionValidator 汇总了各存储实现共用的参数校验逻辑，保证不同实现返回一致的错误信息。
+ */
+final class TransactionValidator {
+
+    private TransactionValidator() {
+    }
+
+    /**
+     * 单次批量操作允许的最大元素数量。
+     */
+    static final int MAX_BATCH_SIZE = 10_000;
+
+    /**
+     * 交易类型的最大字符数。UTF-8 编码后不超过 3 倍字节，远低于日志、文件存储和快照对类型长度的限制。
+     */
+    static final int MAX_TYPE_LENGTH = 256;
+
+    // 以下错误的消息固定，共享同一个不带调用栈的异常实例，校验失败时不再分配
+
+    private static final InvalidInputException NULL_TRANSACTION = InvalidInputException.shared("Transaction cannot be null.");
+
+    private static final InvalidInputException EMPTY_TYPE = InvalidInputException.shared("Transaction type cannot be empty.");
+
+    private static final InvalidInputException TYPE_TOO_LONG =
+            InvalidInputException.shared("Transaction type must be at most " + MAX_TYPE_LENGTH + " characters.");
+
+    private static final InvalidInputException NON_POSITIVE_AMOUNT =
+            InvalidInputException.shared("Transaction amount must be greater than zero.");
+
+    private static final InvalidInputException MISSING_AMOUNT = InvalidInputException.shared("Transaction amount is required.");
+
+    private static final InvalidInputException NON_FINITE_AMOUNT =
+            InvalidInputException.shared("Transaction amount must be a finite number.");
+
+    private static final InvalidInputException EMPTY_TYPE_AND_NON_POSITIVE_AMOUNT = InvalidInputException.shared(
+            "Transaction type cannot be empty. | Transaction amount must be greater than zero.");
+
+    private static final InvalidInputException EMPTY_TYPE_AND_MISSING_AMOUNT = InvalidInputException.shared(
+            "Transaction type cannot be empty. | Transaction amount is required.");
+
+    private static final InvalidInputException EMPTY_TYPE_AND_NON_FINITE_AMOUNT = InvalidInputException.shared(
+            "Transaction type cannot be empty. | Transaction amount must be a finite number.");
+
+    private static final InvalidInputException EMPTY_BATCH = InvalidInputException.shared("Transaction list cannot be empty.");
+
+    private static final InvalidInputException BATCH_TOO_LARGE = InvalidInputException.shared("Batch size must be <= " + MAX_BATCH_SIZE);
+
+    private static final InvalidInputException INVALID_ID = InvalidInputException.shared("Transaction ID must be positive.");
+
+    private static final InvalidInputException INVALID_PAGE =
+            InvalidInputException.shared("Page number must be >= 0 and size must be >= 1");
+
+    private static final InvalidInputException INVALID_CURSOR =
+            InvalidInputException.shared("After ID must be >= 0 and limit must be >= 1");
+
+    private static final InvalidInputException INVALID_AMOUNT_RANGE =
+            InvalidInputException.shared("Minimum amount must be <= maximum amount");
+
+    /**
+     * 对交易对象进行合法性校验。
+     *
+     * <p>金额缺失、为 NaN 或无穷大（CBOR 可以直接携带这些值）时同样是校验错误，而不是在之后拆箱或计算时失败。
+     * 类型过长时直接拒绝，不再检查金额。</p>
+     *
+     * @param transaction 待校验的交易对象
+     * @throws InvalidInputException 如果校验失败，抛出包含错误信息的异常
+     */
+    static void validateTransaction(Transaction transaction) {
+        if (transaction == null) {
+            throw NULL_TRANSACTION;
+        }
+        if (transaction.getType() != null && transaction.getType().length() > MAX_TYPE_LENGTH) {
+            throw TYPE_TOO_LONG;
+        }
+
+        boolean emptyType = transaction.getType() == null || transaction.getType().trim().isEmpty();
+        Double amount = transaction.getAmount();
+        if (amount == null) {
+            throw emptyType ? EMPTY_TYPE_AND_MISSING_AMOUNT : MISSING_AMOUNT;
+        }
+        if (!Double.isFinite(amount)) {
+            throw emptyType ? EMPTY_TYPE_AND_NON_FINITE_AMOUNT : NON_FINITE_AMOUNT;
+        }
+        boolean nonPositiveAmount = amount <= 0;
+
+        if (emptyType && nonPositiveAmount) {
+            throw EMPTY_TYPE_AND_NON_POSITIVE_AMOUNT;
+        }
+        if (emptyType) {
+            throw EMPTY_TYPE;
+        }
+        if (nonPositiveAmount) {
+            throw NON_POSITIVE_AMOUNT;
+        }
+    }
+
+    /**
+     * @throws InvalidInputException 如果批量请求为空或超过最大数量
+     */
+    static void validateBatch(List<Transaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            throw EMPTY_BATCH;
+        }
+        if (transactions.size() > MAX_BATCH_SIZE) {
+            throw BATCH_TOO_LARGE;
+        }
+    }
+
+    /**
+     * @throws InvalidInputException 如果提供的ID非法（null 或小于等于0）
+     */
+    static void validateId(Long id) {
+        if (id == null || id <= 0) {
+            throw INVALID_ID;
+        }
+    }
+
+    /**
+     * @throws InvalidInputException 如果分页参数非法（如负数或无效大小）
+     */
+    static void validatePage(int page, int size) {
+        if (page < 0 || size < 1) {
+            throw INVALID_PAGE;
+        }
+    }
+
+    /**
+     * @throws InvalidInputException 如果游标参数非法（afterId 为 null 或负数，limit 小于 1）
+     */
+    static void validateCursor(Long afterId, int limit) {
+        if (afterId == null || afterId < 0 || limit < 1) {
+            throw INVALID_CURSOR;
+        }
+    }
+
+    /**
+     * @throws InvalidInputException 如果金额区间为空（最小金额大于最大金额）
+     */
+    static void validateAmountRange(Double minAmount, Double maxAmount) {
+        if (minAmount != null && maxAmount != null && minAmount > maxAmount) {
+            throw INVALID_AMOUNT_RANGE;
+        }
+    }
+
+    static ResourceNotFoundException notFound(Long id) {
+        return new ResourceNotFoundException(ResourceNotFoundException.transactionMessage(id));
+    }
+
+    static VersionConflictException versionConflict(Long id, long expectedVersion, long currentVersion) {
+        return new VersionConflictException("Transaction " + id + " is at version " + currentVersion
+                + ", expected version " + expectedVersion, currentVersion);
+    }
+}
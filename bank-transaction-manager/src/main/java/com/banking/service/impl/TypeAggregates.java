@@ -0,0 +1,204 @@
+package com.banking.service.impl;
+
+import com.banking.dto.TransactionStats;
+
+import java.util.Arrays;
+
+/**
+ * TypeAggregates 按类型编号维护数量、总额、最小金额和最大金额，供列式存储和文件存储增量更新统计。
+ *
+ * <p>全部数据保存在按类型编号索引的基本类型数组中，内存占用只与类型数有关，与记录数无关。
+ * 数量和总额在每次写入时直接增减。删除或修改的金额恰好等于当前最小值或最大值时，该类型的极值被标记为过期，
+ * 由调用方通过 {@link #beginRecompute()} / {@link #commit} 在写锁之外重新扫描计算：</p>
+ *
+ * <ul>
+ *     <li>极值过期后新增的金额另行记录，扫描期间新增或改为该类型的记录不会被遗漏；</li>
+ *     <li>每次移除都会递增该类型的移除计数，扫描期间该类型发生过移除时结果作废，留待下次重新计算；
+ *     编号被归还并分配给其他类型之前必然发生过移除，因此结果也不会写给新的类型。</li>
+ * </ul>
+ *
+ * <p>该类不是线程安全的，由调用方负责加锁。</p>
+ */
+final class TypeAggregates {
+
+    private long[] counts = new long[0];
+    private double[] sums = new double[0];
+    private double[] mins = new double[0];
+    private double[] maxs = new double[0];
+    private boolean[] stale = new boolean[0];
+
+    /**
+     * 每个类型被移除记录的次数。
+     */
+    private long[] removals = new long[0];
+
+    /**
+     * 极值过期后（及该类型最近一次移除之后）新增金额的最小值和最大值。
+     */
+    private double[] addedMins = new double[0];
+    private double[] addedMaxs = new double[0];
+
+    private int staleCount;
+
+    void add(int code, double amount) {
+        ensureCapacity(code);
+        if (counts[code] == 0) {
+            mins[code] = amount;
+            maxs[code] = amount;
+        } else if (stale[code]) {
+            addedMins[code] = Math.min(addedMins[code], amount);
+            addedMaxs[code] = Math.max(addedMaxs[code], amount);
+        } else {
+            mins[code] = Math.min(mins[code], amount);
+            maxs[code] = Math.max(maxs[code], amount);
+        }
+        counts[code]++;
+        sums[code] += amount;
+    }
+
+    /**
+     * @return 该类型是否已没有记录，此时调用方应归还类型编号
+     */
+    boolean remove(int code, double amount) {
+        removals[code]++;
+        if (--counts[code] == 0) {
+            sums[code] = 0.0;
+            if (stale[code]) {
+                stale[code] = false;
+                staleCount--;
+            }
+            return true;
+        }
+        sums[code] -= amount;
+        if (stale[code] || amount <= mins[code] || amount >= maxs[code]) {
+            if (!stale[code]) {
+                stale[code] = true;
+                staleCount++;
+            }
+            // 之前新增的记录此后重新扫描时都能扫到，只需记录之后的新增
+            addedMins[code] = Double.POSITIVE_INFINITY;
+            addedMaxs[code] = Double.NEGATIVE_INFINITY;
+        }
+        return false;
+    }
+
+    /**
+     * 记下当前极值过期的类型及其移除计数，调用方须持有锁（读锁即可）。
+     * 随后调用方扫描存储，对每条存活记录调用 {@link Recompute#accumulate}，扫描时可以不持有锁。
+     *
+     * @return 没有过期的类型时返回 null
+     */
+    Recompute beginRecompute() {
+        if (staleCount == 0) {
+            return null;
+        }
+        Recompute recompute = new Recompute(counts.length, staleCount);
+        for (int code = 0; code < stale.length; code++) {
+            if (stale[code]) {
+                recompute.track(code, removals[code]);
+            }
+        }
+        return recompute;
+    }
+
+    /**
+     * 把重新计算的极值写回，扫描期间发生过移除的类型保持过期。调用方须持有写锁。
+     */
+    void commit(Recompute recompute) {
+        for (int i = 0; i < recompute.size; i++) {
+            int code = recompute.codes[i];
+            if (stale[code] && removals[code] == recompute.removals[i]) {
+                mins[code] = Math.min(recompute.mins[i], addedMins[code]);
+                maxs[code] = Math.max(recompute.maxs[i], addedMaxs[code]);
+                stale[code] = false;
+                staleCount--;
+            }
+        }
+    }
+
+    /**
+     * @param override 在持有锁期间完整扫描得到的极值，用于仍然过期的类型；可以为 null
+     * @return 类型的统计；该类型没有记录时返回 null
+     */
+    TransactionStats stats(int code, Recompute override) {
+        if (code >= counts.length || counts[code] == 0) {
+            return null;
+        }
+        double min = mins[code];
+        double max = maxs[code];
+        int i = stale[code] && override != null ? override.indexOf(code) : -1;
+        if (i >= 0) {
+            min = Math.min(override.mins[i], addedMins[code]);
+            max = Math.max(override.maxs[i], addedMaxs[code]);
+        }
+        return new TransactionStats(counts[code], sums[code], min, max);
+    }
+
+    private void ensureCapacity(int code) {
+        if (code >= counts.length) {
+            int capacity = Math.max(code + 1, counts.length * 2);
+            counts = Arrays.copyOf(counts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            stale = Arrays.copyOf(stale, capacity);
+            removals = Arrays.copyOf(removals, capacity);
+            addedMins = Arrays.copyOf(addedMins, capacity);
+            addedMaxs = Arrays.copyOf(addedMaxs, capacity);
+        }
+    }
+
+    /**
+     * 一次极值重新计算：记录参与计算的类型、开始时的移除计数以及扫描得到的极值。
+     */
+    static final class Recompute {
+
+        /**
+         * 类型编号 → 在下列数组中的位置，不参与计算的类型为 -1。
+         */
+        private final int[] positions;
+
+        private final int[] codes;
+        private final long[] removals;
+        private final double[] mins;
+        private final double[] maxs;
+        private int size;
+
+        private Recompute(int capacity, int staleCount) {
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+            codes = new int[staleCount];
+            removals = new long[staleCount];
+            mins = new double[staleCount];
+            maxs = new double[staleCount];
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        }
+
+        private void track(int code, long removalCount) {
+            positions[code] = size;
+            codes[size] = code;
+            removals[size] = removalCount;
+            size++;
+        }
+
+        /**
+         * @return 参与计算的类型编号
+         */
+        int[] codes() {
+            return Arrays.copyOf(codes, size);
+        }
+
+        void accumulate(int code, double amount) {
+            int i = indexOf(code);
+            if (i >= 0) {
+                mins[i] = Math.min(mins[i], amount);
+                maxs[i] = Math.max(maxs[i], amount);
+            }
+        }
+
+        private int indexOf(int code) {
+            return code >= 0 && code < positions.length ? positions[code] : -1;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.banking.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TypeDictionary 把交易类型字符串编码为紧凑的 int 编号，相同的类型只保存一份字符串实例。
+ *
+ * <p>交易类型的取值通常非常有限（如 Deposit、Withdrawal），存储层只需保存 4 字节的编号。
+ * 类型由客户端任意提交，因此某个类型的最后一条记录被移除后，调用方通过 {@link #release(int)} 归还其编号，
+ * 之后出现的新类型复用该编号，字典和按编号索引的数组大小只与同时存在的类型数有关。
+ * 该类不是线程安全的，由调用方负责加锁。</p>
+ */
+final class TypeDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private final List<String> types = new ArrayList<>();
+
+    /**
+     * 已归还、可以复用的编号。
+     */
+    private final Deque<Integer> freeCodes = new ArrayDeque<>();
+
+    /**
+     * @return 类型对应的编号，首次出现时优先复用已归还的编号
+     */
+    int encode(String type) {
+        Integer code = codes.get(type);
+        if (code == null) {
+            code = freeCodes.poll();
+            if (code == null) {
+                code = types.size();
+                types.add(type);
+            } else {
+                types.set(code, type);
+            }
+            codes.put(type, code);
+        }
+        return code;
+    }
+
+    /**
+     * 归还已没有任何记录使用的编号。
+     */
+    void release(int code) {
+        codes.remove(types.set(code, null));
+        freeCodes.push(code);
+    }
+
+    /**
+     * @return 类型对应的编号，类型当前没有编号时返回 -1
+     */
+    int lookup(String type) {
+        Integer code = codes.get(type);
+        return code == null ? -1 : code;
+    }
+
+    String decode(int code) {
+        return types.get(code);
+    }
+
+    /**
+     * @return 编号的上界（不含），其中已归还的编号解码为 null
+     */
+    int size() {
+        return types.size();
+    }
+}
@@ -0,0 +1,87 @@
+package com.banking.service.impl;
+
+import com.banking.dto.TransactionStats;
+import com.banking.model.Transaction;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TypeIndex 保存同一交易类型的全部记录（按ID升序）以及该类型的增量聚合统计。
+ *
+ * <p>数量和总额使用分段累加器（{@link LongAdder}/{@link DoubleAdder}），多线程写入时不争用同一个变量。
+ * 最小值和最大值取自按金额排序的集合的首尾元素，删除或修改记录后依然准确。
+ * 各字段分别更新，统计结果是弱一致的快照。</p>
+ */
+final class TypeIndex {
+
+    private final ConcurrentNavigableMap<Long, Transaction> rows = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentSkipListSet<AmountKey> amounts = new ConcurrentSkipListSet<>();
+
+    private final LongAdder count = new LongAdder();
+
+    private final DoubleAdder sum = new DoubleAdder();
+
+    void add(long id, double amount, Transaction transaction) {
+        rows.put(id, transaction);
+        amounts.add(new AmountKey(amount, id));
+        count.increment();
+        sum.add(amount);
+    }
+
+    void remove(long id, double amount) {
+        if (rows.remove(id) != null) {
+            amounts.remove(new AmountKey(amount, id));
+            count.decrement();
+            sum.add(-amount);
+        }
+    }
+
+    /**
+     * 类型不变时用新的记录对象替换旧对象，金额变化时同时更新金额集合和总额。
+     */
+    void replace(long id, double oldAmount, Transaction transaction) {
+        rows.put(id, transaction);
+        double newAmount = transaction.getAmount();
+        if (Double.compare(oldAmount, newAmount) != 0) {
+            amounts.add(new AmountKey(newAmount, id));
+            amounts.remove(new AmountKey(oldAmount, id));
+            sum.add(newAmount - oldAmount);
+        }
+    }
+
+    /**
+     * @return 该类型是否已没有记录
+     */
+    boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * @return 按ID升序排列的该类型记录
+     */
+    ConcurrentNavigableMap<Long, Transaction> rows() {
+        return rows;
+    }
+
+    /**
+     * @return 当前的统计快照；该类型已没有记录时返回 null
+     */
+    TransactionStats stats() {
+        long currentCount = count.sum();
+        if (currentCount <= 0) {
+            return null;
+        }
+        try {
+            return new TransactionStats(currentCount, sum.sum(), amounts.first().amount(), amounts.last().amount());
+        } catch (NoSuchElementException e) {
+            // 最后一条记录在读取期间被并发删除
+            return null;
+        }
+    }
+}
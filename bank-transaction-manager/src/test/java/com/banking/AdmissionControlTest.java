@@ -0,0 +1,145 @@
+package com.banking;
+
+import com.banking.admission.AdaptiveConcurrencyLimiter;
+import com.banking.admission.AdmissionControlFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    void testLimitGrowsWhileLatencyIsStableAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 100, 20, 1.5, 0.5, 10);
+        run(limiter, 50, MILLIS, Integer.MAX_VALUE);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 40, "limit should grow while latency is flat: " + grown);
+
+        run(limiter, 3, 20 * MILLIS, Integer.MAX_VALUE);
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk < grown / 4, "limit should back off when latency rises: " + grown + " -> " + shrunk);
+        assertTrue(shrunk >= 4);
+
+        // 负载没有用满上限时不调整
+        run(limiter, 100, MILLIS, 1);
+        assertEquals(shrunk, limiter.getLimit());
+    }
+
+    @Test
+    void testConcurrentReleasesStillAdjustLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 100, 20, 1.5, 0.5, 10);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        if (limiter.tryAcquire()) {
+                            limiter.release(MILLIS);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, limiter.getInFlight());
+        int limit = limiter.getLimit();
+        assertTrue(limit >= 4 && limit <= 100, "limit out of bounds: " + limit);
+    }
+
+    @Test
+    void testRequestsBeyondLimitAreShedWithRetryAfter() throws Exception {
+        AdaptiveConcurrencyLimiter read = new AdaptiveConcurrencyLimiter("read", 1, 1, 1, 1.5, 0.2, 50);
+        AdaptiveConcurrencyLimiter write = new AdaptiveConcurrencyLimiter("write", 1, 1, 1, 1.5, 0.2, 50);
+        AdmissionControlFilter filter = new AdmissionControlFilter(new ObjectMapper(), read, write, Duration.ofMillis(1500));
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        FilterChain blocking = (request, response) -> {
+            entered.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> held = executor.submit(() -> {
+                filter.doFilter(request("POST", "/api/transactions"), new MockHttpServletResponse(), blocking);
+                return null;
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse shed = new MockHttpServletResponse();
+            filter.doFilter(request("POST", "/api/transactions"), shed, (request, response) -> fail("should be shed"));
+            assertEquals(429, shed.getStatus());
+            assertEquals("2", shed.getHeader("Retry-After"));
+            assertTrue(shed.getContentAsString().contains("\"success\":false"));
+
+            // 读请求使用独立的上限，不受写入积压影响
+            MockHttpServletResponse admittedRead = new MockHttpServletResponse();
+            filter.doFilter(request("GET", "/api/transactions/1"), admittedRead, (request, response) -> {
+            });
+            assertEquals(200, admittedRead.getStatus());
+
+            // 流式导入不占用写请求的名额
+            MockHttpServletResponse admittedImport = new MockHttpServletResponse();
+            filter.doFilter(request("POST", "/api/transactions/import"), admittedImport, (request, response) -> {
+            });
+            assertEquals(200, admittedImport.getStatus());
+
+            proceed.countDown();
+            held.get(5, TimeUnit.SECONDS);
+            assertEquals(0, write.getInFlight());
+            MockHttpServletResponse admittedWrite = new MockHttpServletResponse();
+            filter.doFilter(request("POST", "/api/transactions"), admittedWrite, (request, response) -> {
+            });
+            assertEquals(200, admittedWrite.getStatus());
+        } finally {
+            proceed.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 模拟 waves 轮并发请求：每轮占满 concurrency 个名额（不超过当前上限），再以相同的耗时全部完成。
+     */
+    private static void run(AdaptiveConcurrencyLimiter limiter, int waves, long rttNanos, int concurrency) {
+        for (int wave = 0; wave < waves; wave++) {
+            int acquired = 0;
+            while (acquired < concurrency && limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        return new MockHttpServletRequest(method, uri);
+    }
+}
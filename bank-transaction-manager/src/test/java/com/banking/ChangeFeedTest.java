@@ -0,0 +1,206 @@
+package com.banking;
+
+import com.banking.changes.ChangeFeed;
+import com.banking.dto.ChangeEvent;
+import com.banking.dto.ChangeEvent.Operation;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证变更流的发布、续传、慢订阅者的落后处理，以及 SSE 接口。
+ */
+public class ChangeFeedTest {
+
+    private ChangeFeed feed;
+
+    @AfterEach
+    public void stop() {
+        if (feed != null) {
+            feed.stop();
+        }
+    }
+
+    @Test
+    public void publishesMutationsAndResumesFromSequence() {
+        feed = startFeed(64);
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        service.setChangeFeed(feed);
+
+        long id = service.createTransaction(new Transaction(null, "Deposit", 10.0)).getId();
+        service.createTransactions(List.of(new Transaction(null, "Deposit", 20.0), new Transaction(null, "Withdrawal", 5.0)));
+        service.updateTransaction(id, new Transaction(null, "Withdrawal", 15.0));
+        service.deleteTransaction(id);
+
+        StepVerifier.create(feed.subscribe(0L).take(5))
+                .assertNext(event -> assertEvent(event, 1, Operation.CREATE, id, 1))
+                .assertNext(event -> assertEquals(Operation.CREATE, event.getOp()))
+                .assertNext(event -> assertEquals(Operation.CREATE, event.getOp()))
+                .assertNext(event -> {
+                    assertEvent(event, 4, Operation.UPDATE, id, 2);
+                    assertEquals("Withdrawal", event.getType());
+                    assertEquals(15.0, event.getAmount());
+                })
+                .assertNext(event -> assertEvent(event, 5, Operation.DELETE, id, 2))
+                .verifyComplete();
+
+        // 从序号 3 之后续传
+        StepVerifier.create(feed.subscribe(3L).take(2))
+                .assertNext(event -> assertEquals(4, event.getSequence()))
+                .assertNext(event -> assertEquals(5, event.getSequence()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void deliversLiveEventsToWaitingSubscribers() {
+        feed = startFeed(64);
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        service.setChangeFeed(feed);
+
+        StepVerifier.create(feed.subscribe(null).take(2))
+                .then(() -> service.createTransaction(new Transaction(null, "Deposit", 1.0)))
+                .then(() -> service.createTransaction(new Transaction(null, "Deposit", 2.0)))
+                .assertNext(event -> assertEquals(1.0, event.getAmount()))
+                .assertNext(event -> assertEquals(2.0, event.getAmount()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void createIsPublishedBeforeRacingDelete() throws Exception {
+        feed = startFeed(1 << 14);
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        service.setChangeFeed(feed);
+        int count = 2000;
+
+        // 另一个线程在每条记录刚可见时就删除它，变更流中该ID的 CREATE 必须排在 DELETE 之前
+        Thread deleter = new Thread(() -> {
+            for (long id = 1; id <= count; id++) {
+                while (true) {
+                    try {
+                        service.deleteTransaction(id);
+                        break;
+                    } catch (ResourceNotFoundException e) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+        });
+        deleter.start();
+        for (int i = 0; i < count; i++) {
+            service.createTransaction(new Transaction(null, "Deposit", 1.0));
+        }
+        deleter.join(10_000);
+        assertEquals(0, service.getTransactionCount());
+
+        List<ChangeEvent> events = feed.subscribe(0L).take(2L * count).collectList().block(Duration.ofSeconds(5));
+        Set<Long> created = new HashSet<>();
+        for (ChangeEvent event : events) {
+            if (event.getOp() == Operation.CREATE) {
+                created.add(event.getId());
+            } else {
+                assertTrue(created.contains(event.getId()), "DELETE published before CREATE for " + event.getId());
+            }
+        }
+    }
+
+    @Test
+    public void slowSubscriberLagsWithoutBlockingWriters() {
+        feed = startFeed(8);
+        // 订阅者不请求任何事件，写线程照常发布，远超缓冲区容量
+        StepVerifier.create(feed.subscribe(0L), 0)
+                .then(() -> {
+                    for (int i = 1; i <= 10_000; i++) {
+                        feed.publish(Operation.CREATE, i, "Deposit", 1.0, 1L);
+                    }
+                })
+                .thenRequest(2)
+                .assertNext(event -> {
+                    assertEquals(Operation.LAGGED, event.getOp());
+                    assertEquals(10_000 - 8, event.getSequence());
+                    assertEquals(10_000 - 8, event.getMissed());
+                })
+                .assertNext(event -> assertEquals(10_000 - 7, event.getSequence()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1, feed.getLaggedCount());
+    }
+
+    @Test
+    public void streamsServerSentEventsWithResume() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankingApplication.class)
+                .run("--server.port=0")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://localhost:" + port + "/api/transactions";
+
+            HttpResponse<Stream<String>> stream = client.send(HttpRequest.newBuilder(URI.create(base + "/changes"))
+                    .header("Accept", "text/event-stream").build(), HttpResponse.BodyHandlers.ofLines());
+            assertEquals(200, stream.statusCode());
+            client.send(HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"Deposit\",\"amount\":42.0}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Iterator<String> lines = stream.body().iterator();
+            String id = nextField(lines, "id:");
+            assertEquals("create", nextField(lines, "event:"));
+            assertTrue(nextField(lines, "data:").contains("\"amount\":42.0"));
+            stream.body().close();
+
+            client.send(HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"Deposit\",\"amount\":43.0}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            // 断线期间的事件通过 Last-Event-ID 续传
+            HttpResponse<Stream<String>> resumed = client.send(HttpRequest.newBuilder(URI.create(base + "/changes"))
+                    .header("Last-Event-ID", id).build(), HttpResponse.BodyHandlers.ofLines());
+            Iterator<String> resumedLines = resumed.body().iterator();
+            assertEquals(Long.parseLong(id) + 1, Long.parseLong(nextField(resumedLines, "id:")));
+            assertTrue(nextField(resumedLines, "data:").contains("\"amount\":43.0"));
+            resumed.body().close();
+        }
+    }
+
+    private static ChangeFeed startFeed(int capacity) {
+        ChangeFeed started = new ChangeFeed(capacity, Duration.ofMillis(10));
+        started.start();
+        return started;
+    }
+
+    private static void assertEvent(ChangeEvent event, long sequence, Operation op, long id, long version) {
+        assertEquals(sequence, event.getSequence());
+        assertEquals(op, event.getOp());
+        assertEquals(id, event.getId());
+        assertEquals(version, event.getVersion());
+    }
+
+    private static String nextField(Iterator<String> lines, String prefix) {
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith(prefix)) {
+                return line.substring(prefix.length()).trim();
+            }
+        }
+        throw new AssertionError("Stream ended before " + prefix);
+    }
+}
@@ -0,0 +1,290 @@
+package com.banking;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在同一个 JVM 中启动三个监听不同本地端口的节点组成集群，通过真实的 HTTP 请求验证按 ID 路由、
+ * 跨节点的列表合并以及写入分散到各节点。
+ *
+ * <p>吞吐量扩展测量标记为 {@code @Tag("stress")}，默认不运行，通过 {@code -Pstress} 单独运行。</p>
+ */
+public class ClusterRoutingIntegrationTest {
+
+    private static final int NODE_COUNT = 3;
+
+    private static final long RANGE_SIZE = 1_000_000L;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    private static final List<String> baseUrls = new ArrayList<>();
+
+    @BeforeAll
+    public static void startCluster() throws IOException {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                baseUrls.add("http://localhost:" + socket.getLocalPort());
+            }
+        }
+        for (int i = 0; i < NODE_COUNT; i++) {
+            // 以命令行参数传入，覆盖 application.properties 中的默认值
+            nodes.add(new SpringApplicationBuilder(BankingApplication.class)
+                    .run("--server.port=" + URI.create(baseUrls.get(i)).getPort(),
+                            "--banking.cluster.enabled=true",
+                            "--banking.cluster.nodes=" + String.join(",", baseUrls),
+                            "--banking.cluster.node-index=" + i,
+                            "--banking.cluster.range-size=" + RANGE_SIZE));
+        }
+    }
+
+    @AfterAll
+    public static void stopCluster() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    public void routesRequestsByIdToOwningNode() throws Exception {
+        long[] ids = new long[NODE_COUNT];
+        for (int node = 0; node < NODE_COUNT; node++) {
+            ids[node] = create(node, "Routed", 10.0 + node).get("id").asLong();
+            assertEquals(node, (ids[node] - 1) / RANGE_SIZE, "Node " + node + " allocated an id outside its range");
+        }
+
+        for (int owner = 0; owner < NODE_COUNT; owner++) {
+            for (int via = 0; via < NODE_COUNT; via++) {
+                HttpResponse<String> response = send(via, "GET", "/api/transactions/" + ids[owner], null);
+                assertEquals(200, response.statusCode());
+                assertEquals(10.0 + owner, data(response).get("amount").asDouble());
+            }
+        }
+
+        int owner = 1;
+        int via = 2;
+        HttpResponse<String> updated = send(via, "PUT", "/api/transactions/" + ids[owner], "{\"type\":\"Routed\",\"amount\":99.0}");
+        assertEquals(200, updated.statusCode());
+        assertEquals(99.0, data(send(owner, "GET", "/api/transactions/" + ids[owner], null)).get("amount").asDouble());
+
+        assertEquals(200, send(0, "DELETE", "/api/transactions/" + ids[owner], null).statusCode());
+        for (int node = 0; node < NODE_COUNT; node++) {
+            assertEquals(404, send(node, "GET", "/api/transactions/" + ids[owner], null).statusCode());
+        }
+    }
+
+    @Test
+    public void mergesListsAndStatisticsAcrossNodes() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            for (int node = 0; node < NODE_COUNT; node++) {
+                created.add(create(node, "Merged", 100.0 + i * NODE_COUNT + node).get("id").asLong());
+            }
+        }
+        created.sort(null);
+
+        // 分页：第二页的 4 条记录跨越节点 0 和节点 1 的区间
+        JsonNode page = data(send(1, "GET", "/api/transactions?type=Merged&page=1&size=4", null));
+        assertEquals(4, page.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(created.get(4 + i), page.get(i).get("id").asLong());
+        }
+
+        // 按金额过滤时按金额排序
+        JsonNode byAmount = data(send(2, "GET", "/api/transactions?type=Merged&minAmount=103&maxAmount=108&size=10", null));
+        assertEquals(6, byAmount.size());
+        for (int i = 0; i < byAmount.size(); i++) {
+            assertEquals(103.0 + i, byAmount.get(i).get("amount").asDouble());
+        }
+
+        // 游标遍历整个集群，ID 严格递增且包含本测试创建的全部记录
+        List<Long> walked = new ArrayList<>();
+        long afterId = 0;
+        JsonNode chunk;
+        do {
+            chunk = data(send(0, "GET", "/api/transactions?afterId=" + afterId + "&limit=4", null));
+            for (JsonNode transaction : chunk) {
+                long id = transaction.get("id").asLong();
+                assertTrue(id > afterId);
+                walked.add(id);
+                afterId = id;
+            }
+        } while (chunk.size() == 4);
+        assertTrue(walked.containsAll(created));
+
+        // 不带过滤条件的分页与游标遍历的顺序一致，包括跨越节点区间边界的页和超出末尾的页
+        for (int size : new int[]{4, 7}) {
+            for (int p = 0; (long) p * size <= walked.size(); p++) {
+                JsonNode unfiltered = data(send(p % NODE_COUNT, "GET", "/api/transactions?page=" + p + "&size=" + size, null));
+                List<Long> expected = walked.subList(p * size, Math.min(walked.size(), (p + 1) * size));
+                assertEquals(expected.size(), unfiltered.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i), unfiltered.get(i).get("id").asLong());
+                }
+            }
+        }
+
+        JsonNode stats = data(send(2, "GET", "/api/transactions/stats", null)).get("Merged");
+        assertEquals(15, stats.get("count").asLong());
+        assertEquals(100.0, stats.get("min").asDouble());
+        assertEquals(114.0, stats.get("max").asDouble());
+
+        // 非法参数交给本地控制器，返回与单机一致的校验错误
+        assertEquals(400, send(0, "GET", "/api/transactions?page=-1&size=10", null).statusCode());
+        assertEquals(400, send(0, "GET", "/api/transactions?afterId=0&type=Merged", null).statusCode());
+        assertEquals(400, send(1, "GET", "/api/transactions?afterId=0&minAmount=103", null).statusCode());
+    }
+
+    @Test
+    public void exportsRecordsOfAllNodesInIdOrder() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int node = NODE_COUNT - 1; node >= 0; node--) {
+            created.add(create(node, "Exported", 1.0 + node).get("id").asLong());
+        }
+
+        HttpResponse<String> response = send(1, "GET", "/api/transactions/export", null);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"));
+        List<Long> exported = new ArrayList<>();
+        for (String line : response.body().split("\n")) {
+            exported.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        for (int i = 1; i < exported.size(); i++) {
+            assertTrue(exported.get(i) > exported.get(i - 1), "Export is not in ascending id order");
+        }
+        assertTrue(exported.containsAll(created));
+    }
+
+    @Test
+    public void spreadsWritesAcrossNodes() throws Exception {
+        int clients = 8;
+        int requestsPerClient = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        try {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                results.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        ids.add(create((client + r) % NODE_COUNT, "Load", 1.0).get("id").asLong());
+                    }
+                    return ids;
+                }));
+            }
+            // 创建请求由接收的节点在自己的区间内分配 ID，按 ID 所属区间即可看出写入分散到了所有节点
+            long[] perNode = new long[NODE_COUNT];
+            for (Future<List<Long>> result : results) {
+                for (long id : result.get()) {
+                    perNode[(int) ((id - 1) / RANGE_SIZE)]++;
+                }
+            }
+            for (int node = 0; node < NODE_COUNT; node++) {
+                assertTrue(perNode[node] > 0, "Node " + node + " received no writes");
+            }
+            assertEquals((long) clients * requestsPerClient, Arrays.stream(perNode).sum());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 同样的并发创建负载先全部发给一个节点，再轮流发给所有节点，输出两者的吞吐量之比。
+     * 三个节点运行在同一台机器上共享 CPU，只有核数足够时才断言集群的吞吐量不低于单节点。
+     */
+    @Test
+    @Tag("stress")
+    public void measuresThroughputScaling() throws Exception {
+        int clients = Integer.getInteger("stress.cluster.clients", 64);
+        int requestsPerClient = Integer.getInteger("stress.cluster.requests", 200);
+
+        // 预热每个节点
+        measureThroughput(clients, requestsPerClient / 4, request -> request % NODE_COUNT);
+
+        double single = measureThroughput(clients, requestsPerClient, request -> 0);
+        double cluster = measureThroughput(clients, requestsPerClient, request -> request % NODE_COUNT);
+        double ratio = cluster / single;
+
+        System.out.println("====== 集群吞吐量扩展 ======");
+        System.out.println("并发客户端: " + clients + "，每个客户端请求数: " + requestsPerClient);
+        System.out.printf("单节点吞吐量: %.2f 请求/秒%n", single);
+        System.out.printf("%d 节点吞吐量: %.2f 请求/秒%n", NODE_COUNT, cluster);
+        System.out.printf("扩展比: %.2f（CPU 核数 %d）%n", ratio, Runtime.getRuntime().availableProcessors());
+        System.out.println("===========================");
+
+        if (Runtime.getRuntime().availableProcessors() >= 2 * NODE_COUNT) {
+            assertTrue(ratio >= 1.0, "Cluster throughput fell below a single node: " + ratio);
+        }
+    }
+
+    /**
+     * @param nodeFor 第几个请求 → 发往的节点
+     * @return 每秒完成的创建请求数
+     */
+    private double measureThroughput(int clients, int requestsPerClient, IntUnaryOperator nodeFor) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                results.add(executor.submit(() -> {
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        create(nodeFor.applyAsInt(client + r), "Scaling", 1.0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return (double) clients * requestsPerClient / seconds;
+    }
+
+    private JsonNode create(int node, String type, double amount) throws Exception {
+        HttpResponse<String> response = send(node, "POST", "/api/transactions",
+                "{\"type\":\"" + type + "\",\"amount\":" + amount + "}");
+        assertEquals(200, response.statusCode());
+        return data(response);
+    }
+
+    private static HttpResponse<String> send(int node, String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrls.get(node) + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode data(HttpResponse<String> response) throws IOException {
+        return objectMapper.readTree(response.body()).get("data");
+    }
+}
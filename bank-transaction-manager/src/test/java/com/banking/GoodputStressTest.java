@@ -0,0 +1,222 @@
+package com.banking;
+
+import com.banking.admission.AdmissionControlFilter;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 过载下的有效吞吐量测试。准入上限调低到远小于最高并发级别，
+ * 验证超出上限的请求被 429 拒绝，且被接纳请求的尾延迟不随提供的负载增长。
+ *
+ * <p>内存存储处理一个请求只需要不到一毫秒的 CPU 时间，单核机器上几乎不会有两个请求同时在途；
+ * 因此在准入控制之后加一个固定延迟的过滤器，模拟下游 I/O 的等待，使并发请求真正占住名额。</p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Tag("stress")
+public class GoodputStressTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AdmissionControlFilter admissionControl;
+
+    // 测试参数（可通过 -Dstress.requests / -Dstress.goodput.levels 覆盖）
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("stress.requests", 50);   // 每个客户端发送多少次请求
+    private static final int[] LEVELS = Arrays.stream(System.getProperty("stress.goodput.levels", "8,32,128,512").split(","))
+            .mapToInt(Integer::parseInt).toArray();                                              // 各级并发客户端数
+    private static final int READ_MAX_LIMIT = 8;
+    private static final int WRITE_MAX_LIMIT = 4;
+    private static final String TRANSACTION_JSON = "{\"type\":\"Deposit\",\"amount\":100.0}";
+    private static final int WARMUP_REQUESTS = 2000;
+    private static final long SERVICE_DELAY_MS = 2;
+
+    /**
+     * 被接纳请求的 p99 最多允许比最低并发级别高出的倍数，以及与之比较的下限（避免基线过小时误报）。
+     */
+    private static final double P99_GROWTH_FACTOR = 10;
+    private static final double P99_FLOOR_MS = 50;
+
+    @DynamicPropertySource
+    static void admissionLimits(DynamicPropertyRegistry registry) {
+        registry.add("banking.admission.enabled", () -> true);
+        registry.add("banking.admission.min-limit", () -> 2);
+        registry.add("banking.admission.initial-limit", () -> WRITE_MAX_LIMIT);
+        registry.add("banking.admission.read.max-limit", () -> READ_MAX_LIMIT);
+        registry.add("banking.admission.write.max-limit", () -> WRITE_MAX_LIMIT);
+    }
+
+    @TestConfiguration
+    static class ServiceDelayConfig {
+
+        @Bean
+        FilterRegistrationBean<OncePerRequestFilter> serviceDelayFilter() {
+            FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                                FilterChain chain) throws ServletException, IOException {
+                    try {
+                        Thread.sleep(SERVICE_DELAY_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    chain.doFilter(request, response);
+                }
+            });
+            registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+            return registration;
+        }
+    }
+
+    /**
+     * 逐级增加并发客户端数（提供的负载），一半客户端创建交易、一半读取交易；客户端收到响应后立即发送下一个请求，
+     * 被拒绝时按 Retry-After 退避后再发。输出各级的提供负载、有效吞吐量（成功请求/秒）、被限流拒绝的比例和被接纳请求的延迟分位数：
+     * 并发数超过上限后应当出现拒绝，而被接纳请求的尾延迟保持在有界范围内。
+     */
+    @Test
+    public void stressTestGoodputUnderOverload() throws Exception {
+        long seedId = transactionService.createTransaction(new Transaction(null, "Deposit", 1.0)).getId();
+        // 预热，避免 JIT 编译抬高最低并发级别的基线延迟
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/transactions")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TRANSACTION_JSON));
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/transactions/" + seedId));
+        }
+        long storedBefore = transactionService.getTransactionCount();
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger unexpected = new AtomicInteger();
+        double baselineP99 = -1;
+
+        System.out.println("====== 有效吞吐量 vs 提供负载 ======");
+        System.out.printf("%6s %10s %10s %8s %8s %8s %8s %10s%n",
+                "并发", "提供rps", "有效rps", "拒绝率", "p50(ms)", "p99(ms)", "max(ms)", "读/写上限");
+        for (int clients : LEVELS) {
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            CountDownLatch latch = new CountDownLatch(clients);
+            long[] admitted = new long[clients * REQUESTS_PER_CLIENT];
+            Arrays.fill(admitted, -1);
+            AtomicInteger shed = new AtomicInteger();
+            // 所有客户端就绪后同时开始，否则线程逐个启动，实际并发远低于名义并发数
+            CountDownLatch ready = new CountDownLatch(clients);
+            CountDownLatch go = new CountDownLatch(1);
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                executor.submit(() -> {
+                    try {
+                        ready.countDown();
+                        go.await();
+                        boolean write = client % 2 == 0;
+                        for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                            try {
+                                MockHttpServletRequestBuilder request = write
+                                        ? MockMvcRequestBuilders.post("/api/transactions")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(TRANSACTION_JSON)
+                                        : MockMvcRequestBuilders.get("/api/transactions/" + seedId);
+                                long start = System.nanoTime();
+                                MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+                                long duration = System.nanoTime() - start;
+                                if (response.getStatus() == HttpStatus.OK.value()) {
+                                    admitted[client * REQUESTS_PER_CLIENT + j] = duration;
+                                    if (write) {
+                                        created.incrementAndGet();
+                                    }
+                                } else if (response.getStatus() == HttpStatus.TOO_MANY_REQUESTS.value()
+                                        && response.getHeader(HttpHeaders.RETRY_AFTER) != null) {
+                                    shed.incrementAndGet();
+                                    // 按 Retry-After 退避并加抖动，避免被拒绝的客户端同时回来
+                                    long retryAfterMs = Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER)) * 1000;
+                                    Thread.sleep(ThreadLocalRandom.current().nextLong(retryAfterMs / 2, retryAfterMs + 1));
+                                } else {
+                                    unexpected.incrementAndGet();
+                                }
+                            } catch (Exception e) {
+                                unexpected.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            ready.await();
+            long startTime = System.nanoTime();
+            go.countDown();
+            latch.await();
+            executor.shutdown();
+
+            double seconds = Math.max(1, System.nanoTime() - startTime) / 1e9;
+            long[] latencies = Arrays.stream(admitted).filter(latency -> latency >= 0).sorted().toArray();
+            int total = clients * REQUESTS_PER_CLIENT;
+            double p99 = percentileMillis(latencies, 0.99);
+            System.out.printf("%6d %10.0f %10.0f %7.1f%% %8.2f %8.2f %8.2f %10s%n", clients, total / seconds,
+                    latencies.length / seconds, shed.get() * 100.0 / total,
+                    percentileMillis(latencies, 0.50), p99, percentileMillis(latencies, 1.0),
+                    admissionControl.getReadLimiter().getLimit() + "/" + admissionControl.getWriteLimiter().getLimit());
+
+            if (baselineP99 < 0) {
+                baselineP99 = p99;
+            }
+            if (clients > 2 * (READ_MAX_LIMIT + WRITE_MAX_LIMIT)) {
+                assertTrue(shed.get() > 0, "Requests beyond the limit must be shed at " + clients + " clients");
+            }
+            assertTrue(latencies.length > 0, "Some requests must be admitted at " + clients + " clients");
+            double bound = Math.max(P99_FLOOR_MS, baselineP99 * P99_GROWTH_FACTOR);
+            assertTrue(p99 <= bound, "Admitted p99 " + p99 + " ms at " + clients + " clients exceeds " + bound + " ms");
+        }
+        System.out.println("==================================");
+
+        assertEquals(0, unexpected.get(), "Requests must either succeed or be shed with 429 and Retry-After");
+        assertEquals(created.get(), transactionService.getTransactionCount() - storedBefore,
+                "Stored rows must match successful creates");
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
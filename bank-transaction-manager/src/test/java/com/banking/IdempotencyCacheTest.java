@@ -0,0 +1,95 @@
+package com.banking;
+
+import com.banking.exception.IdempotencyConflictException;
+import com.banking.exception.InvalidInputException;
+import com.banking.idempotency.IdempotencyCache;
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void testConcurrentRetriesCreateOnce() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(1000, Duration.ofMinutes(1));
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger inProgress = new AtomicInteger();
+        for (int key = 0; key < 200; key++) {
+            String idempotencyKey = "key-" + key;
+            for (int i = 0; i < threads; i++) {
+                executor.submit(() -> {
+                    start.await();
+                    Transaction request = new Transaction(null, "Deposit", 10.0);
+                    try {
+                        if (cache.begin(idempotencyKey, request) == null) {
+                            cache.complete(idempotencyKey, service.createTransaction(request));
+                            created.incrementAndGet();
+                        }
+                    } catch (IdempotencyConflictException e) {
+                        assertTrue(e.isInProgress());
+                        inProgress.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(200, created.get());
+        assertEquals(200, service.getTransactionCount());
+        assertEquals(200L * threads - 200 - inProgress.get(), cache.getReplayCount());
+        assertNotNull(cache.begin("key-0", new Transaction(null, "Deposit", 10.0)));
+    }
+
+    @Test
+    void testFailedRequestReleasesKey() {
+        IdempotencyCache cache = new IdempotencyCache(1000, Duration.ofMinutes(1));
+        Transaction request = new Transaction(null, "Deposit", 10.0);
+        assertNull(cache.begin("key", request));
+        assertThrows(IdempotencyConflictException.class, () -> cache.begin("key", request));
+        cache.abort("key");
+        assertNull(cache.begin("key", request));
+        cache.complete("key", new Transaction(1L, "Deposit", 10.0, 1L));
+        cache.abort("key");
+        assertEquals(1L, cache.begin("key", request).getId());
+
+        assertThrows(InvalidInputException.class, () -> cache.begin(" ", request));
+        assertThrows(InvalidInputException.class, () -> cache.begin("k".repeat(IdempotencyCache.MAX_KEY_LENGTH + 1), request));
+    }
+
+    @Test
+    void testKeysAreBoundedByCapacityAndTtl() throws Exception {
+        IdempotencyCache bySize = new IdempotencyCache(640, Duration.ofMinutes(1));
+        for (int i = 0; i < 100_000; i++) {
+            String key = "key-" + i;
+            bySize.begin(key, new Transaction(null, "Deposit", 10.0));
+            bySize.complete(key, new Transaction((long) i + 1, "Deposit", 10.0, 1L));
+        }
+        assertTrue(bySize.size() <= 640);
+        assertEquals(100_000L - bySize.size(), bySize.getEvictionCount());
+        assertEquals(100_000L, bySize.begin("key-99999", new Transaction(null, "Deposit", 10.0)).getId());
+        assertNull(bySize.begin("key-0", new Transaction(null, "Deposit", 10.0)));
+
+        IdempotencyCache byTime = new IdempotencyCache(1000, Duration.ofMillis(50));
+        byTime.begin("key", new Transaction(null, "Deposit", 10.0));
+        byTime.complete("key", new Transaction(1L, "Deposit", 10.0, 1L));
+        Thread.sleep(100);
+        assertNull(byTime.begin("key", new Transaction(null, "Deposit", 10.0)));
+        assertEquals(0, byTime.getEvictionCount());
+    }
+}
@@ -0,0 +1,185 @@
+package com.banking;
+
+import com.banking.cluster.ClusterTopology;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.IdRangeExhaustedException;
+import com.banking.exception.InvalidInputException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
+import com.banking.model.Transaction;
+import com.banking.service.impl.OffHeapTransactionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTransactionServiceTest {
+
+    private OffHeapTransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = new OffHeapTransactionServiceImpl();
+    }
+
+    @Test
+    void testCreateAndGetTransaction() {
+        Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        Transaction retrieved = transactionService.getTransactionById(created.getId());
+        assertEquals(created.getId(), retrieved.getId());
+        assertEquals("Deposit", retrieved.getType());
+        assertEquals(100.0, retrieved.getAmount());
+        assertTrue(transactionService.getOffHeapBytes() > 0);
+    }
+
+    @Test
+    void testCreateTransaction_InvalidInput() {
+        Exception exception = assertThrows(InvalidInputException.class, () -> {
+            transactionService.createTransaction(new Transaction(null, "", -100.0));
+        });
+        assertTrue(exception.getMessage().contains("Transaction amount must be greater than zero"));
+    }
+
+    @Test
+    void testUpdateAndDeleteTransaction() {
+        Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        Transaction updated = transactionService.updateTransaction(created.getId(), new Transaction(null, "Withdrawal", 200.0));
+        assertEquals("Withdrawal", updated.getType());
+        assertEquals(200.0, transactionService.getTransactionById(created.getId()).getAmount());
+        assertEquals(2L, updated.getVersion());
+        assertThrows(VersionConflictException.class, () ->
+                transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 1.0), 1L));
+        assertEquals(3L, transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 1.0), 2L).getVersion());
+
+        transactionService.deleteTransaction(created.getId());
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.getTransactionById(created.getId()));
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.deleteTransaction(created.getId()));
+        assertEquals(0, transactionService.getTransactionCount());
+    }
+
+    @Test
+    void testFindTransactions_ByTypeAndAmount() {
+        Transaction small = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        transactionService.createTransaction(new Transaction(null, "Withdrawal", 50.0));
+        Transaction large = transactionService.createTransaction(new Transaction(null, "Deposit", 500.0));
+        transactionService.deleteTransaction(small.getId());
+
+        List<Transaction> deposits = transactionService.findTransactions("Deposit", null, null, 0, 10);
+        assertEquals(1, deposits.size());
+        assertEquals(large.getId(), deposits.get(0).getId());
+        assertEquals(2, transactionService.findTransactions(null, 20.0, null, 0, 10).size());
+        assertTrue(transactionService.findTransactions("Transfer", null, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void testGetStatistics_KeepsExtremesExactAfterDelete() {
+        Transaction smallest = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        Transaction tied = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        transactionService.createTransaction(new Transaction(null, "Deposit", 30.0));
+        Transaction largest = transactionService.createTransaction(new Transaction(null, "Deposit", 50.0));
+
+        TransactionStats deposits = transactionService.getStatistics().get("Deposit");
+        assertEquals(4, deposits.getCount());
+        assertEquals(10.0, deposits.getMin());
+        assertEquals(50.0, deposits.getMax());
+
+        // 删除两条相同金额中的一条，最小值不变
+        transactionService.deleteTransaction(smallest.getId());
+        assertEquals(10.0, transactionService.getStatistics().get("Deposit").getMin());
+
+        transactionService.deleteTransaction(tied.getId());
+        transactionService.updateTransaction(largest.getId(), new Transaction(null, "Withdrawal", 50.0));
+        deposits = transactionService.getStatistics().get("Deposit");
+        assertEquals(1, deposits.getCount());
+        assertEquals(30.0, deposits.getSum(), 1e-9);
+        assertEquals(30.0, deposits.getMin());
+        assertEquals(30.0, deposits.getMax());
+        assertEquals(1, transactionService.getStatistics().get("Withdrawal").getCount());
+    }
+
+    @Test
+    void testGetStatistics_RecomputesExtremesWhileWritersChurn() throws InterruptedException {
+        for (int i = 1; i <= 200_000; i++) {
+            transactionService.createTransaction(new Transaction(null, "Deposit", 100.0 + i % 100));
+        }
+        Transaction largest = transactionService.createTransaction(new Transaction(null, "Deposit", 1000.0));
+        Thread churn = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 500.0));
+                transactionService.deleteTransaction(created.getId());
+            }
+        });
+        churn.start();
+        transactionService.deleteTransaction(largest.getId());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(transactionService.getStatistics().get("Deposit").getMax() <= 500.0);
+        }
+        churn.join();
+
+        TransactionStats deposits = transactionService.getStatistics().get("Deposit");
+        assertEquals(200_000, deposits.getCount());
+        assertEquals(100.0, deposits.getMin());
+        assertEquals(199.0, deposits.getMax());
+    }
+
+    @Test
+    void testTypeCodesAreRecycledWhenLastRecordRemoved() {
+        Transaction kept = transactionService.createTransaction(new Transaction(null, "Deposit", 1.0));
+        for (int i = 0; i < 1000; i++) {
+            Transaction created = transactionService.createTransaction(new Transaction(null, "Client-" + i, 5.0));
+            if (i % 2 == 0) {
+                transactionService.deleteTransaction(created.getId());
+            } else {
+                transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 5.0));
+            }
+        }
+        // 新类型复用已归还的编号，不能读到旧类型的名字或统计
+        Transaction reused = transactionService.createTransaction(new Transaction(null, "Transfer", 7.0));
+        assertEquals("Transfer", transactionService.getTransactionById(reused.getId()).getType());
+        assertEquals("Deposit", transactionService.getTransactionById(kept.getId()).getType());
+        assertEquals(List.of("Deposit", "Transfer"), List.copyOf(transactionService.getStatistics().keySet()));
+        assertEquals(1, transactionService.getStatistics().get("Transfer").getCount());
+        assertTrue(transactionService.findTransactions("Client-1", null, null, 0, 10).isEmpty());
+        assertEquals(501, transactionService.findTransactions("Deposit", null, null, 0, 1000).size());
+    }
+
+    @Test
+    void testPaginationAcrossChunksAndCompaction() {
+        int total = 100_000;
+        for (int i = 1; i <= total; i++) {
+            transactionService.createTransaction(new Transaction(null, i % 2 == 0 ? "Deposit" : "Withdrawal", (double) i));
+        }
+        // 删除所有奇数ID，触发压缩
+        for (long id = 1; id <= total; id += 2) {
+            transactionService.deleteTransaction(id);
+        }
+        assertEquals(total / 2, transactionService.getTransactionCount());
+
+        List<Transaction> page = transactionService.getAllTransactions(2, 3);
+        assertEquals(List.of(14L, 16L, 18L), page.stream().map(Transaction::getId).toList());
+
+        List<Transaction> after = transactionService.getTransactionsAfter(99_995L, 10);
+        assertEquals(List.of(99_996L, 99_998L, 100_000L), after.stream().map(Transaction::getId).toList());
+        assertEquals("Deposit", transactionService.getTransactionById(50_000L).getType());
+    }
+
+    @Test
+    void testClusterRangeEndRejectsCreates() {
+        OffHeapTransactionServiceImpl service = new OffHeapTransactionServiceImpl();
+        // 节点 1 拥有 ID 6..10
+        service.setClusterTopology(new ClusterTopology(List.of("http://a", "http://b"), 1, 5));
+
+        assertEquals(6L, service.createTransaction(new Transaction(null, "Deposit", 1.0)).getId());
+        // 剩余 4 个 ID，5 条的批量整批拒绝，不占用任何 ID
+        List<Transaction> tooMany = List.of(new Transaction(null, "Deposit", 2.0), new Transaction(null, "Deposit", 2.0),
+                new Transaction(null, "Deposit", 2.0), new Transaction(null, "Deposit", 2.0), new Transaction(null, "Deposit", 2.0));
+        assertThrows(IdRangeExhaustedException.class, () -> service.createTransactions(tooMany));
+        for (long id = 7; id <= 10; id++) {
+            assertEquals(id, service.createTransaction(new Transaction(null, "Deposit", 3.0)).getId());
+        }
+        assertThrows(IdRangeExhaustedException.class, () -> service.createTransaction(new Transaction(null, "Deposit", 4.0)));
+        assertEquals(5, service.getTransactionCount());
+    }
+}
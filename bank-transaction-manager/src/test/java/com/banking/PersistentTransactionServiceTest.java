@@ -0,0 +1,249 @@
+package com.banking;
+
+import com.banking.cluster.ClusterTopology;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.IdRangeExhaustedException;
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
+import com.banking.model.Transaction;
+import com.banking.service.TransactionService;
+import com.banking.service.impl.FileTransactionStore;
+import com.banking.service.impl.PersistentTransactionServiceImpl;
+import com.banking.service.impl.SegmentedLruCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentTransactionServiceTest {
+
+    private static final long CACHE_CAPACITY = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    private FileTransactionStore store;
+
+    private PersistentTransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        reopen();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testCreateUpdateAndDeleteTransaction() {
+        Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        assertEquals(1L, created.getVersion());
+        assertEquals(100.0, transactionService.getTransactionById(created.getId()).getAmount());
+
+        Transaction updated = transactionService.updateTransaction(created.getId(), new Transaction(null, "Withdrawal", 200.0));
+        assertEquals(2L, updated.getVersion());
+        assertEquals("Withdrawal", transactionService.getTransactionById(created.getId()).getType());
+        assertThrows(VersionConflictException.class, () ->
+                transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 1.0), 1L));
+
+        transactionService.deleteTransaction(created.getId());
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.getTransactionById(created.getId()));
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.deleteTransaction(created.getId()));
+        assertEquals(0, transactionService.getTransactionCount());
+    }
+
+    @Test
+    void testCacheServesHotIdsAndIsInvalidatedOnWrite() {
+        Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        SegmentedLruCache<Long, Transaction> cache = transactionService.getCache();
+
+        transactionService.getTransactionById(created.getId());
+        transactionService.getTransactionById(created.getId());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+
+        transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 150.0));
+        Transaction afterUpdate = transactionService.getTransactionById(created.getId());
+        assertEquals(150.0, afterUpdate.getAmount());
+        assertEquals(2L, afterUpdate.getVersion());
+        assertEquals(2, cache.missCount());
+
+        transactionService.deleteTransaction(created.getId());
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.getTransactionById(created.getId()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCacheStaysWithinCapacityAndExportsMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        transactionService.bindTo(registry);
+        for (int i = 0; i < 20_000; i++) {
+            transactionService.createTransaction(new Transaction(null, "Deposit", i + 1.0));
+        }
+        for (long id = 1; id <= 20_000; id++) {
+            transactionService.getTransactionById(id);
+        }
+
+        SegmentedLruCache<Long, Transaction> cache = transactionService.getCache();
+        assertTrue(cache.weightedSize() <= CACHE_CAPACITY);
+        assertTrue(cache.evictionCount() > 0);
+        assertEquals(20_000, registry.get("banking.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(cache.evictionCount(), registry.get("banking.cache.evictions").functionCounter().count());
+        assertEquals(cache.size(), registry.get("banking.cache.size").gauge().value());
+        assertEquals(20_000, registry.get("banking.transactions.stored").gauge().value());
+    }
+
+    @Test
+    void testRecoversAfterRestartAndTruncatesTornTail() throws Exception {
+        Transaction kept = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        Transaction updated = transactionService.createTransaction(new Transaction(null, "Deposit", 20.0));
+        Transaction deleted = transactionService.createTransaction(new Transaction(null, "Withdrawal", 30.0));
+        transactionService.updateTransaction(updated.getId(), new Transaction(null, "Withdrawal", 25.0));
+        transactionService.deleteTransaction(deleted.getId());
+        store.close();
+        Files.write(directory.resolve("transactions.dat"), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        reopen();
+        assertEquals(2, transactionService.getTransactionCount());
+        assertEquals(10.0, transactionService.getTransactionById(kept.getId()).getAmount());
+        assertEquals(2L, transactionService.getTransactionById(updated.getId()).getVersion());
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.getTransactionById(deleted.getId()));
+        assertEquals(25.0, transactionService.getStatistics().get("Withdrawal").getSum(), 1e-9);
+        assertEquals(deleted.getId() + 1, transactionService.createTransaction(new Transaction(null, "Deposit", 1.0)).getId());
+    }
+
+    @Test
+    void testCompactionReclaimsOverwrittenRecords() {
+        for (int i = 1; i <= 1000; i++) {
+            transactionService.createTransaction(new Transaction(null, "Deposit", (double) i));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 1000; id++) {
+                transactionService.updateTransaction(id, new Transaction(null, "Deposit", id + round + 1.0));
+            }
+        }
+        transactionService.deleteTransaction(1000L);
+        long before = store.getFileSize();
+        store.compact();
+        assertTrue(store.getFileSize() < before / 5);
+        assertTrue(store.getGarbageBytes() < 100);
+
+        store.close();
+        reopen();
+        assertEquals(999, transactionService.getTransactionCount());
+        assertEquals(6L, transactionService.getTransactionById(500L).getVersion());
+        assertEquals(505.0, transactionService.getTransactionById(500L).getAmount());
+        assertEquals(1001L, transactionService.createTransaction(new Transaction(null, "Deposit", 1.0)).getId());
+    }
+
+    @Test
+    void testPaginationFilteringAndStatistics() {
+        for (int i = 1; i <= 10; i++) {
+            transactionService.createTransaction(new Transaction(null, i % 2 == 0 ? "Deposit" : "Withdrawal", (double) i));
+        }
+        transactionService.deleteTransaction(2L);
+
+        assertEquals(List.of(5L, 6L, 7L), transactionService.getAllTransactions(1, 3).stream().map(Transaction::getId).toList());
+        assertEquals(List.of(9L, 10L), transactionService.getTransactionsAfter(8L, 5).stream().map(Transaction::getId).toList());
+        assertEquals(List.of(4L, 6L), transactionService.findTransactions("Deposit", null, 7.0, 0, 10).stream()
+                .map(Transaction::getId).toList());
+        assertTrue(transactionService.findTransactions("Transfer", null, null, 0, 10).isEmpty());
+
+        TransactionStats deposits = transactionService.getStatistics().get("Deposit");
+        assertEquals(4, deposits.getCount());
+        assertEquals(4.0, deposits.getMin());
+        assertEquals(10.0, deposits.getMax());
+    }
+
+    @Test
+    void testCompactionRunsConcurrentlyWithWrites() throws Exception {
+        for (int i = 1; i <= 20_000; i++) {
+            transactionService.createTransaction(new Transaction(null, "Deposit", (double) i));
+        }
+        for (long id = 1; id <= 20_000; id++) {
+            transactionService.updateTransaction(id, new Transaction(null, "Deposit", id + 0.5));
+        }
+        // 压缩复制期间继续更新、删除和创建，它们必须全部保留在压缩后的文件中
+        Thread writer = new Thread(() -> {
+            for (long id = 1; id <= 5_000; id++) {
+                transactionService.updateTransaction(id, new Transaction(null, "Withdrawal", id + 0.25));
+                transactionService.deleteTransaction(id + 10_000);
+                transactionService.createTransaction(new Transaction(null, "Transfer", 1.0));
+            }
+        });
+        writer.start();
+        store.compact();
+        writer.join();
+
+        store.close();
+        reopen();
+        assertEquals(20_000, transactionService.getTransactionCount());
+        assertEquals(1.25, transactionService.getTransactionById(1L).getAmount());
+        assertEquals(5_000.25, transactionService.getTransactionById(5_000L).getAmount());
+        assertEquals(5_001.5, transactionService.getTransactionById(5_001L).getAmount());
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.getTransactionById(10_001L));
+        assertEquals(15_001.5, transactionService.getTransactionById(15_001L).getAmount());
+        assertEquals(5_000, transactionService.getStatistics().get("Transfer").getCount());
+        assertEquals(25_001L, transactionService.createTransaction(new Transaction(null, "Deposit", 1.0)).getId());
+    }
+
+    @Test
+    void testFileStoreIsSelectedByProperty() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankingApplication.class)
+                .run("--server.port=0", "--banking.store.type=file", "--banking.store.file.dir=" + directory.resolve("app"),
+                        "--banking.cache.capacity=1MB")) {
+            TransactionService service = context.getBean(TransactionService.class);
+            assertInstanceOf(PersistentTransactionServiceImpl.class, service);
+            Transaction created = service.createTransaction(new Transaction(null, "Deposit", 42.0));
+            assertEquals(42.0, service.getTransactionById(created.getId()).getAmount());
+            assertEquals(CACHE_CAPACITY, ((PersistentTransactionServiceImpl) service).getCache().capacity());
+        }
+    }
+
+    @Test
+    void testJournalRequiresHeapStore() {
+        // 日志只由 heap 存储写入，其他存储下启用日志会在重启后丢失所有写入，必须拒绝启动
+        Exception exception = assertThrows(Exception.class, () -> new SpringApplicationBuilder(BankingApplication.class)
+                .run("--server.port=0", "--banking.store.type=file", "--banking.store.file.dir=" + directory.resolve("app"),
+                        "--banking.journal.enabled=true", "--banking.journal.dir=" + directory.resolve("journal"),
+                        "--banking.snapshot.dir=" + directory.resolve("snapshots")).close());
+        Throwable cause = exception;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        assertTrue(cause.getMessage().contains("banking.store.type=heap"));
+    }
+
+    @Test
+    void testClusterRangeEndRejectsCreates() {
+        PersistentTransactionServiceImpl service = (PersistentTransactionServiceImpl) transactionService;
+        // 节点 1 拥有 ID 6..10
+        service.setClusterTopology(new ClusterTopology(List.of("http://a", "http://b"), 1, 5));
+
+        service.createTransactions(List.of(new Transaction(null, "Deposit", 1.0), new Transaction(null, "Deposit", 2.0),
+                new Transaction(null, "Deposit", 3.0), new Transaction(null, "Deposit", 4.0)));
+        assertEquals(10L, service.createTransaction(new Transaction(null, "Deposit", 5.0)).getId());
+        assertThrows(IdRangeExhaustedException.class, () -> service.createTransaction(new Transaction(null, "Deposit", 6.0)));
+        assertThrows(IdRangeExhaustedException.class,
+                () -> service.createTransactions(List.of(new Transaction(null, "Deposit", 7.0))));
+        assertEquals(5, service.getTransactionCount());
+    }
+
+    private void reopen() {
+        store = new FileTransactionStore(directory);
+        store.open();
+        transactionService = new PersistentTransactionServiceImpl(store, CACHE_CAPACITY);
+    }
+}
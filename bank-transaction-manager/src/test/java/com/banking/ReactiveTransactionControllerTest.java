@@ -0,0 +1,297 @@
+package com.banking;
+
+import com.banking.dto.BatchItemResult;
+import com.banking.exception.VersionConflictException;
+import com.banking.model.Transaction;
+import com.banking.reactive.ReactiveTransactionController;
+import com.banking.reactive.ReactiveTransactionService;
+import com.banking.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveTransactionController.class)
+@Import(ReactiveTransactionService.class)
+public class ReactiveTransactionControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveTransactionService reactiveTransactionService;
+
+    @MockBean
+    private TransactionService transactionService;
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    private Transaction testTransaction;
+
+    @BeforeEach
+    public void setUp() {
+        testTransaction = new Transaction(1L, "Deposit", 100.0);
+    }
+
+    @Test
+    public void testCreateTransaction() {
+        when(transactionService.createTransaction(any(Transaction.class))).thenReturn(testTransaction);
+
+        webTestClient.post().uri("/api/transactions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"type\":\"Deposit\",\"amount\":100.0}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(1)
+                .jsonPath("$.message").isEqualTo("Transaction created successfully");
+    }
+
+    @Test
+    public void testCreateTransactions_Batch() {
+        when(transactionService.createTransactions(anyList())).thenReturn(List.of(
+                BatchItemResult.succeeded(0, testTransaction),
+                BatchItemResult.failed(1, "Transaction amount must be greater than zero.")));
+
+        webTestClient.post().uri("/api/transactions/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"type\":\"Deposit\",\"amount\":100.0},{\"type\":\"Deposit\",\"amount\":-1.0}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Batch processed: 1 succeeded, 1 failed")
+                .jsonPath("$.data[1].index").isEqualTo(1);
+    }
+
+    @Test
+    public void testGetTransactionById_NotFound() {
+        when(transactionService.findTransactionById(2L)).thenReturn(Optional.empty());
+
+        webTestClient.get().uri("/api/transactions/2")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Transaction not found with ID: 2");
+    }
+
+    @Test
+    public void testConditionalGetAndUpdate() {
+        when(transactionService.findTransactionById(1L)).thenReturn(Optional.of(new Transaction(1L, "Deposit", 100.0, 2L)));
+        when(transactionService.updateTransaction(eq(1L), any(Transaction.class), eq(1L)))
+                .thenThrow(new VersionConflictException("Transaction 1 is at version 2, expected version 1", 2L));
+
+        webTestClient.get().uri("/api/transactions/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"2\"")
+                .expectHeader().valueEquals("Vary", "Accept");
+
+        webTestClient.get().uri("/api/transactions/1")
+                .header("If-None-Match", "\"2\"")
+                .exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.put().uri("/api/transactions/1")
+                .header("If-Match", "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"type\":\"Deposit\",\"amount\":5.0}")
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectHeader().valueEquals("ETag", "\"2\"");
+    }
+
+    @Test
+    public void testGetTransactionsAfter_UsesCursor() {
+        when(transactionService.getTransactionsAfter(5L, 2)).thenReturn(List.of(
+                new Transaction(6L, "Deposit", 10.0), new Transaction(7L, "Withdrawal", 20.0)));
+
+        webTestClient.get().uri("/api/transactions?afterId=5&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.length()").isEqualTo(2)
+                .jsonPath("$.data[1].id").isEqualTo(7);
+
+        verify(transactionService, never()).getAllTransactions(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testGetTransactionsAfter_RejectsFilters() {
+        webTestClient.get().uri("/api/transactions?afterId=5&minAmount=10")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false);
+
+        verify(transactionService, never()).getTransactionsAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    public void testExportTransactions_StreamsNdjson() {
+        when(transactionService.getTransactionsAfter(eq(0L), anyInt())).thenReturn(List.of(
+                new Transaction(1L, "Deposit", 10.0), new Transaction(2L, "Withdrawal", 20.0)));
+        when(transactionService.getTransactionsAfter(eq(2L), anyInt())).thenReturn(List.of());
+
+        String body = webTestClient.get().uri("/api/transactions/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        List<String> lines = body.lines().collect(Collectors.toList());
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).contains("\"id\":2"));
+    }
+
+    @Test
+    public void testCborContentNegotiation() throws Exception {
+        when(transactionService.createTransaction(any(Transaction.class))).thenReturn(testTransaction);
+        when(transactionService.getTransactionsAfter(eq(0L), anyInt())).thenReturn(List.of(
+                new Transaction(1L, "Deposit", 10.0), new Transaction(2L, "Withdrawal", 20.0)));
+        when(transactionService.getTransactionsAfter(eq(2L), anyInt())).thenReturn(List.of());
+
+        byte[] created = webTestClient.post().uri("/api/transactions")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .bodyValue(cborMapper.writeValueAsBytes(new Transaction(null, "Deposit", 100.0)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(1L, cborMapper.readTree(created).get("data").get("id").asLong());
+
+        byte[] exported = webTestClient.get().uri("/api/transactions/export")
+                .accept(MediaType.parseMediaType("application/cbor-seq"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        List<Transaction> records = cborMapper.readerFor(Transaction.class).<Transaction>readValues(exported).readAll();
+        assertEquals(2, records.size());
+        assertEquals(20.0, records.get(1).getAmount());
+    }
+
+    @Test
+    public void testImportTransactions_ReportsFailedLines() {
+        when(transactionService.createTransactions(anyList())).thenReturn(List.of(
+                BatchItemResult.succeeded(0, testTransaction),
+                BatchItemResult.failed(1, "Transaction amount must be greater than zero.")));
+
+        webTestClient.post().uri("/api/transactions/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"type\":\"Deposit\",\"amount\":100.0}\n{\"type\":\"Deposit\",\"amount\":-1.0}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data").isEqualTo(1)
+                .jsonPath("$.message").isEqualTo("Imported 1 transactions, 1 failed")
+                .jsonPath("$.errors['line 2']").isEqualTo("Transaction amount must be greater than zero.");
+    }
+
+    @Test
+    public void testImportTransactions_ReportsLineNumbersAcrossBatches() {
+        // 每批的最后一条记录失败：2500 行分为 1000、1000、500 三批
+        when(transactionService.createTransactions(anyList())).thenAnswer(invocation -> {
+            List<Transaction> batch = invocation.getArgument(0);
+            return IntStream.range(0, batch.size())
+                    .mapToObj(i -> i == batch.size() - 1
+                            ? BatchItemResult.failed(i, "Transaction amount must be greater than zero.")
+                            : BatchItemResult.succeeded(i, testTransaction))
+                    .collect(Collectors.toList());
+        });
+        String body = "{\"type\":\"Deposit\",\"amount\":100.0}\n".repeat(2500);
+
+        webTestClient.post().uri("/api/transactions/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Imported 2497 transactions, 3 failed")
+                .jsonPath("$.errors['line 1000']").exists()
+                .jsonPath("$.errors['line 2000']").exists()
+                .jsonPath("$.errors['line 2500']").exists();
+    }
+
+    @Test
+    public void testImportTransactions_MalformedJson() {
+        webTestClient.post().uri("/api/transactions/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"type\":\"Deposit\",\"amount\":100.0}\n{not json}\n")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").value(startsWith("Malformed NDJSON after line "));
+    }
+
+    @Test
+    public void testStreamTransactions_ReadsChunksOnDemand() {
+        when(transactionService.getTransactionsAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return LongStream.rangeClosed(afterId + 1, Math.min(afterId + limit, 1000))
+                    .mapToObj(id -> new Transaction(id, "Deposit", 1.0))
+                    .collect(Collectors.toList());
+        });
+
+        StepVerifier.create(reactiveTransactionService.streamTransactions(0L), 1)
+                .expectNextMatches(transaction -> transaction.getId() == 1L)
+                .thenCancel()
+                .verify();
+        verify(transactionService, times(1)).getTransactionsAfter(anyLong(), anyInt());
+
+        StepVerifier.create(reactiveTransactionService.streamTransactions(0L).count())
+                .expectNext(1000L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testBlockingStoreReadsLeaveCallingThread() {
+        AtomicReference<Thread> reader = new AtomicReference<>();
+        when(transactionService.findTransactionById(1L)).thenAnswer(invocation -> {
+            reader.set(Thread.currentThread());
+            return Optional.of(testTransaction);
+        });
+
+        StepVerifier.create(reactiveTransactionService.findTransactionById(1L)).expectNext(testTransaction).verifyComplete();
+        assertSame(Thread.currentThread(), reader.get());
+
+        when(transactionService.readsMayBlock()).thenReturn(true);
+        StepVerifier.create(reactiveTransactionService.findTransactionById(1L)).expectNext(testTransaction).verifyComplete();
+        assertNotSame(Thread.currentThread(), reader.get());
+    }
+}
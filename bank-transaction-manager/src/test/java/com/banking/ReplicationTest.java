@@ -0,0 +1,182 @@
+package com.banking;
+
+import com.banking.replication.ReplicationClient;
+import com.banking.replication.ReplicationLog;
+import com.banking.replication.ReplicationServer;
+import com.banking.service.TransactionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 启动一个复制主节点和一个只读副本，验证变更流复制、read-your-writes、副本（Servlet 和响应式模式）拒绝写入、复制延迟指标以及全量同步。
+ */
+public class ReplicationTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private static ConfigurableApplicationContext primary;
+
+    private static ConfigurableApplicationContext replica;
+
+    private static int replicationPort;
+
+    @BeforeAll
+    public static void start() {
+        // 以命令行参数传入，覆盖 application.properties 中的默认值；缓冲区很小，后加入的副本必须走全量同步
+        primary = new SpringApplicationBuilder(BankingApplication.class)
+                .run("--server.port=0", "--banking.replication.role=primary", "--banking.replication.port=0",
+                        "--banking.replication.buffer-size=64", "--banking.replication.heartbeat=100ms");
+        replicationPort = primary.getBean(ReplicationServer.class).getPort();
+        replica = startReplica();
+    }
+
+    @AfterAll
+    public static void stop() {
+        replica.close();
+        primary.close();
+    }
+
+    @Test
+    public void replicaServesReadYourWrites() throws Exception {
+        HttpResponse<String> created = send(primary, "POST", "/api/transactions", "{\"type\":\"Deposit\",\"amount\":25.0}", null);
+        assertEquals(200, created.statusCode());
+        long id = data(created).get("id").asLong();
+        String version = created.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow();
+
+        HttpResponse<String> read = send(replica, "GET", "/api/transactions/" + id, null, version);
+        assertEquals(200, read.statusCode());
+        assertEquals(25.0, data(read).get("amount").asDouble());
+        assertTrue(Long.parseLong(read.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow()) >= Long.parseLong(version));
+
+        HttpResponse<String> updated = send(primary, "PUT", "/api/transactions/" + id, "{\"type\":\"Deposit\",\"amount\":40.0}", null);
+        version = updated.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow();
+        assertEquals(40.0, data(send(replica, "GET", "/api/transactions/" + id, null, version)).get("amount").asDouble());
+
+        HttpResponse<String> deleted = send(primary, "DELETE", "/api/transactions/" + id, null, null);
+        version = deleted.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow();
+        assertEquals(404, send(replica, "GET", "/api/transactions/" + id, null, version).statusCode());
+    }
+
+    @Test
+    public void replicatesLongTypesAndRejectsOversizedOnes() throws Exception {
+        // 256 个三字节字符，UTF-8 编码后 768 字节
+        String longType = "账".repeat(256);
+        HttpResponse<String> created = send(primary, "POST", "/api/transactions",
+                "{\"type\":\"" + longType + "\",\"amount\":5.0}", null);
+        assertEquals(200, created.statusCode());
+        String version = created.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow();
+        HttpResponse<String> read = send(replica, "GET", "/api/transactions/" + data(created).get("id").asLong(), null, version);
+        assertEquals(200, read.statusCode());
+        assertEquals(longType, data(read).get("type").asText());
+
+        HttpResponse<String> rejected = send(primary, "POST", "/api/transactions",
+                "{\"type\":\"" + "x".repeat(70_000) + "\",\"amount\":5.0}", null);
+        assertEquals(400, rejected.statusCode());
+    }
+
+    @Test
+    public void replicaRejectsWritesAndUnreachedVersions() throws Exception {
+        assertEquals(405, send(replica, "POST", "/api/transactions", "{\"type\":\"Deposit\",\"amount\":1.0}", null).statusCode());
+        assertEquals(405, send(replica, "DELETE", "/api/transactions/1", null, null).statusCode());
+
+        long future = primary.getBean(ReplicationLog.class).head() + 1_000_000;
+        assertEquals(503, send(replica, "GET", "/api/transactions", null, Long.toString(future)).statusCode());
+    }
+
+    @Test
+    public void reactiveReplicaRejectsWritesAndServesReadYourWrites() throws Exception {
+        try (ConfigurableApplicationContext reactive = startReplica("--spring.main.web-application-type=reactive")) {
+            assertEquals(405, send(reactive, "POST", "/api/transactions", "{\"type\":\"Deposit\",\"amount\":1.0}", null).statusCode());
+            assertEquals(405, send(reactive, "DELETE", "/api/transactions/1", null, null).statusCode());
+
+            HttpResponse<String> created = send(primary, "POST", "/api/transactions", "{\"type\":\"Deposit\",\"amount\":7.0}", null);
+            String version = created.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow();
+            HttpResponse<String> read = send(reactive, "GET", "/api/transactions/" + data(created).get("id").asLong(), null, version);
+            assertEquals(200, read.statusCode());
+            assertEquals(7.0, data(read).get("amount").asDouble());
+
+            long future = primary.getBean(ReplicationLog.class).head() + 1_000_000;
+            assertEquals(503, send(reactive, "GET", "/api/transactions", null, Long.toString(future)).statusCode());
+        }
+    }
+
+    @Test
+    public void replicaCatchesUpAndLateReplicaFullSyncs() throws Exception {
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            batch.append(i == 0 ? "" : ",").append("{\"type\":\"Batch\",\"amount\":").append(i + 1).append("}");
+        }
+        HttpResponse<String> created = send(primary, "POST", "/api/transactions/batch", batch.append("]").toString(), null);
+        assertEquals(200, created.statusCode());
+        long version = Long.parseLong(created.headers().firstValue(ReplicationLog.VERSION_HEADER).orElseThrow());
+
+        ReplicationClient follower = replica.getBean(ReplicationClient.class);
+        assertTrue(follower.awaitVersion(version, Duration.ofSeconds(10)));
+        waitUntilCaughtUp(follower);
+        assertEquals(0.0, follower.getLagSeconds());
+        assertEquals(primary.getBean(TransactionService.class).getStatistics().get("Batch").getCount(),
+                replica.getBean(TransactionService.class).getStatistics().get("Batch").getCount());
+
+        // 主节点的变更早已超出缓冲区，新副本只能通过全量同步得到数据
+        try (ConfigurableApplicationContext late = startReplica()) {
+            ReplicationClient lateFollower = late.getBean(ReplicationClient.class);
+            assertTrue(lateFollower.awaitVersion(version, Duration.ofSeconds(10)));
+            waitUntilCaughtUp(lateFollower);
+            assertEquals(primary.getBean(TransactionService.class).getTransactionCount(),
+                    late.getBean(TransactionService.class).getTransactionCount());
+        }
+    }
+
+    private static ConfigurableApplicationContext startReplica(String... extraArgs) {
+        String[] args = {"--server.port=0", "--banking.replication.role=replica",
+                "--banking.replication.primary=localhost:" + replicationPort,
+                "--banking.replication.retry-interval=100ms", "--banking.replication.read-timeout=500ms"};
+        return new SpringApplicationBuilder(BankingApplication.class)
+                .run(Stream.concat(Arrays.stream(args), Arrays.stream(extraArgs)).toArray(String[]::new));
+    }
+
+    private static void waitUntilCaughtUp(ReplicationClient follower) throws InterruptedException {
+        long head = primary.getBean(ReplicationLog.class).head();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while ((follower.getAppliedVersion() < head || follower.getLagVersions() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(head, follower.getAppliedVersion());
+        assertEquals(0, follower.getLagVersions());
+    }
+
+    private static HttpResponse<String> send(ConfigurableApplicationContext node, String method, String path,
+                                             String body, String minVersion) throws Exception {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (minVersion != null) {
+            request.header(ReplicationLog.MIN_VERSION_HEADER, minVersion);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode data(HttpResponse<String> response) throws Exception {
+        return objectMapper.readTree(response.body()).get("data");
+    }
+}
@@ -0,0 +1,124 @@
+package com.banking;
+
+import com.banking.exception.ResourceNotFoundException;
+import com.banking.metrics.TransactionMetrics;
+import com.banking.model.Transaction;
+import com.banking.service.impl.ShardedTransactionServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedTransactionServiceTest {
+
+    private ShardedTransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = new ShardedTransactionServiceImpl(4);
+    }
+
+    @Test
+    void testConcurrentCreatesAcrossShards() throws InterruptedException {
+        Set<Long> ids = populate(8, 250);
+
+        assertEquals(2000, ids.size());
+        assertEquals(2000, transactionService.getTransactionCount());
+        for (long id : ids) {
+            assertEquals(id, transactionService.getTransactionById(id).getId());
+        }
+    }
+
+    @Test
+    void testPaginationMergesShardsInIdOrder() throws InterruptedException {
+        List<Long> sorted = new ArrayList<>(populate(4, 50));
+        sorted.sort(null);
+
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page < 20; page++) {
+            transactionService.getAllTransactions(page, 10).forEach(transaction -> paged.add(transaction.getId()));
+        }
+        assertEquals(sorted, paged);
+
+        List<Long> cursor = new ArrayList<>();
+        long afterId = 0;
+        List<Transaction> chunk;
+        while (!(chunk = transactionService.getTransactionsAfter(afterId, 7)).isEmpty()) {
+            chunk.forEach(transaction -> cursor.add(transaction.getId()));
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        assertEquals(sorted, cursor);
+    }
+
+    @Test
+    void testUpdateDeleteFilterAndStatisticsRouteToShards() throws InterruptedException {
+        populate(4, 10);
+        Transaction transaction = transactionService.getAllTransactions(0, 1).get(0);
+
+        transactionService.updateTransaction(transaction.getId(), new Transaction(null, "Withdrawal", 1000.0));
+        List<Transaction> withdrawals = transactionService.findTransactions("Withdrawal", 500.0, null, 0, 10);
+        assertEquals(1, withdrawals.size());
+        assertEquals(transaction.getId(), withdrawals.get(0).getId());
+        assertEquals(39, transactionService.getStatistics().get("Deposit").getCount());
+        assertEquals(1000.0, transactionService.getStatistics().get("Withdrawal").getMax());
+
+        transactionService.deleteTransaction(transaction.getId());
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.getTransactionById(transaction.getId()));
+        assertFalse(transactionService.getStatistics().containsKey("Withdrawal"));
+        assertEquals(39, transactionService.getTransactionCount());
+    }
+
+    @Test
+    void testFilteredPagesMergeShardsLazily() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        transactionService.setMetrics(new TransactionMetrics(registry));
+        populate(4, 50);
+
+        // 金额区间按金额（相同金额按 ID）升序归并：populate 在每个线程中创建金额 1..50 的记录
+        List<Transaction> byAmount = new ArrayList<>();
+        for (int page = 0; page < 10; page++) {
+            byAmount.addAll(transactionService.findTransactions("Deposit", 11.0, 30.0, page, 9));
+        }
+        assertEquals(80, byAmount.size());
+        for (int i = 1; i < byAmount.size(); i++) {
+            Transaction previous = byAmount.get(i - 1);
+            Transaction current = byAmount.get(i);
+            int byAmountOrder = Double.compare(previous.getAmount(), current.getAmount());
+            assertTrue(byAmountOrder < 0 || (byAmountOrder == 0 && previous.getId() < current.getId()));
+        }
+
+        List<Transaction> byId = transactionService.findTransactions("Deposit", null, null, 3, 20);
+        assertEquals(transactionService.getAllTransactions(3, 20), byId);
+
+        // (page + 1) * size 超出 int 范围的深页同样正常返回并计入过滤查询的指标
+        assertTrue(transactionService.findTransactions("Deposit", null, null, Integer.MAX_VALUE / 2, 10).isEmpty());
+        assertEquals(12, registry.get("banking.transactions.operation").tag("operation", "filter").timer().count());
+    }
+
+    /**
+     * 用多个线程创建记录，使数据分布到不同的分片。
+     */
+    private Set<Long> populate(int threads, int perThread) throws InterruptedException {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(transactionService.createTransaction(new Transaction(null, "Deposit", 1.0 + i)).getId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        return ids;
+    }
+}
@@ -1,30 +1,61 @@
 package com.banking;
 
+import com.banking.idempotency.IdempotencyCache;
+import com.banking.service.TransactionService;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.Collections;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@Tag("stress")
 public class StressTest {
 
     @Autowired
     private MockMvc mockMvc;
 
-    // 测试参数
-    private static final int THREAD_COUNT = 1000;         // 并发线程数
-    private static final int REQUESTS_PER_THREAD = 100;    // 每个线程发送多少次请求
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    // 测试参数（可通过 -Dstress.threads / -Dstress.requests 覆盖）
+    private static final int THREAD_COUNT = Integer.getInteger("stress.threads", 1000);         // 并发线程数
+    private static final int REQUESTS_PER_THREAD = Integer.getInteger("stress.requests", 100);  // 每个线程发送多少次请求
+    private static final int BATCH_SIZE = Integer.getInteger("stress.batch-size", 100);      // 批量接口每次请求包含的交易数
     private static final String TRANSACTION_JSON = "{\"type\":\"Deposit\",\"amount\":100.0}";
+    private static final long RETRY_BACKOFF_MS = 10;
+    private static final int MAX_RETRIES = 20;                                                 // 被限流（429）后最多重试次数
+
+    /**
+     * 本测试中被准入控制拒绝（429）的请求数，不计入成功、失败和响应时间。
+     */
+    private final AtomicInteger throttledCount = new AtomicInteger();
+
+    /**
+     * 幂等键测试在预热和正式测量中共使用 2 × THREAD_COUNT × REQUESTS_PER_THREAD 个键；
+     * 键表按段淘汰，容量留出 4 倍余量，保证重放阶段时所有键都还在表中。
+     */
+    @DynamicPropertySource
+    static void idempotencyCapacity(DynamicPropertyRegistry registry) {
+        registry.add("banking.idempotency.capacity", () -> 4 * 2 * THREAD_COUNT * REQUESTS_PER_THREAD);
+    }
 
     @Test
     public void stressTestCreateTransaction() throws InterruptedException {
@@ -35,29 +66,30 @@ public class StressTest {
         AtomicInteger failureCount = new AtomicInteger(0);
         BlockingQueue<Long> responseTimes = new LinkedBlockingQueue<>();
 
+        long storedBefore = transactionService.getTransactionCount();
         long startTime = System.currentTimeMillis();
 
         for (int i = 0; i < THREAD_COUNT; i++) {
             executor.submit(() -> {
-                for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
-                    try {
-                        long start = System.currentTimeMillis();
-                        MvcResult result = mockMvc.perform(
-                                        MockMvcRequestBuilders.post("/api/transactions")
-                                                .contentType(MediaType.APPLICATION_JSON)
-                                                .content(TRANSACTION_JSON))
-                                .andExpect(status().isCreated())
-                                .andReturn();
-
-                        long duration = System.currentTimeMillis() - start;
-                        responseTimes.add(duration);
-                        successCount.incrementAndGet();
-
-                    } catch (Exception e) {
-                        failureCount.incrementAndGet();
+                try {
+                    for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                        try {
+                            Attempt attempt = performWithRetry(MockMvcRequestBuilders.post("/api/transactions")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(TRANSACTION_JSON));
+                            if (attempt.status() == HttpStatus.OK.value()) {
+                                responseTimes.add(attempt.millis());
+                                successCount.incrementAndGet();
+                            } else {
+                                failureCount.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failureCount.incrementAndGet();
+                        }
                     }
+                } finally {
+                    latch.countDown();
                 }
-                latch.countDown();
             });
         }
 
@@ -75,9 +107,165 @@ public class StressTest {
         System.out.println("总请求数: " + totalRequests);
         System.out.println("成功请求数: " + successCount.get());
         System.out.println("失败请求数: " + failureCount.get());
+        System.out.println("被限流（429）次数: " + throttledCount.get());
         System.out.printf("平均响应时间: %.2f ms%n", avgResponseTime);
         System.out.println("最大响应时间: " + maxResponseTime + " ms");
         System.out.printf("吞吐量（RPS）: %.2f 请求/秒%n", requestsPerSecond);
         System.out.println("=========================");
+
+        // 每一次成功的创建都必须对应一条独立存储的记录，ID 冲突会导致记录被覆盖
+        long stored = transactionService.getTransactionCount() - storedBefore;
+        assertEquals(successCount.get(), stored, "Stored rows must match successful creates");
+    }
+
+    /**
+     * 预热一轮后，对比不带幂等键、带唯一幂等键、以及用相同幂等键整体重试一遍时创建接口的吞吐量，
+     * 并验证重试没有产生任何重复记录。
+     */
+    @Test
+    public void stressTestIdempotentCreateOverhead() throws InterruptedException {
+        long storedBefore = transactionService.getTransactionCount();
+        String keyPrefix = "stress-" + System.nanoTime() + "-";
+
+        AtomicInteger warmupSuccess = new AtomicInteger();
+        AtomicInteger plainSuccess = new AtomicInteger();
+        AtomicInteger keyedSuccess = new AtomicInteger();
+        AtomicInteger replaySuccess = new AtomicInteger();
+        runCreateLoad(keyPrefix + "warmup-", warmupSuccess);
+        double plainRps = runCreateLoad(null, plainSuccess);
+        double keyedRps = runCreateLoad(keyPrefix, keyedSuccess);
+        double replayRps = runCreateLoad(keyPrefix, replaySuccess);
+
+        System.out.println("====== 幂等键开销测试结果 ======");
+        System.out.printf("不带幂等键: %.2f 请求/秒（成功 %d）%n", plainRps, plainSuccess.get());
+        System.out.printf("唯一幂等键: %.2f 请求/秒（成功 %d，开销 %.1f%%）%n",
+                keyedRps, keyedSuccess.get(), (plainRps / keyedRps - 1) * 100);
+        System.out.printf("重试（全部重放）: %.2f 请求/秒（成功 %d）%n", replayRps, replaySuccess.get());
+        System.out.println("被限流（429）次数: " + throttledCount.get());
+        System.out.println("===============================");
+
+        assertEquals(0, idempotencyCache.getEvictionCount(), "Keys must not be evicted before they are replayed");
+        long stored = transactionService.getTransactionCount() - storedBefore;
+        assertEquals(warmupSuccess.get() + plainSuccess.get() + keyedSuccess.get(), stored,
+                "Replayed creates must not store new rows");
+        assertEquals(keyedSuccess.get(), replaySuccess.get());
+    }
+
+    /**
+     * 以 THREAD_COUNT 个线程各发送 REQUESTS_PER_THREAD 个创建请求。
+     *
+     * @param keyPrefix 幂等键前缀，每个请求的键由前缀、线程号和序号组成；null 表示不带幂等键
+     * @return 吞吐量（请求/秒）
+     */
+    private double runCreateLoad(String keyPrefix, AtomicInteger successCount) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            int thread = i;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                        try {
+                            MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/transactions")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(TRANSACTION_JSON);
+                            if (keyPrefix != null) {
+                                request.header(IdempotencyCache.HEADER, keyPrefix + thread + "-" + j);
+                            }
+                            // 重试同一个请求，保证每个幂等键都被处理过
+                            if (performWithRetry(request).status() == HttpStatus.OK.value()) {
+                                successCount.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            // 计入失败
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        double seconds = Math.max(1, System.nanoTime() - startTime) / 1e9;
+        return THREAD_COUNT * REQUESTS_PER_THREAD / seconds;
+    }
+
+    /**
+     * 发送请求，被准入控制拒绝（429）时退避后重试同一个请求，最多重试 MAX_RETRIES 次，每次 429 计入 throttledCount。
+     *
+     * @return 最后一次请求的状态码和耗时；被拒绝的请求和退避等待不计入耗时
+     */
+    private Attempt performWithRetry(MockHttpServletRequestBuilder request) throws Exception {
+        for (int retries = 0; ; retries++) {
+            long start = System.nanoTime();
+            int status = mockMvc.perform(request).andReturn().getResponse().getStatus();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (status != HttpStatus.TOO_MANY_REQUESTS.value() || retries == MAX_RETRIES) {
+                return new Attempt(status, millis);
+            }
+            throttledCount.incrementAndGet();
+            Thread.sleep(RETRY_BACKOFF_MS);
+        }
+    }
+
+    private record Attempt(int status, long millis) {
+    }
+
+    @Test
+    public void stressTestBatchCreateTransactions() throws InterruptedException {
+        String batchJson = "[" + String.join(",", Collections.nCopies(BATCH_SIZE, TRANSACTION_JSON)) + "]";
+        int requestsPerThread = Math.max(1, REQUESTS_PER_THREAD / BATCH_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
+
+        AtomicInteger successCount = new AtomicInteger(0);
+        AtomicInteger failureCount = new AtomicInteger(0);
+
+        long storedBefore = transactionService.getTransactionCount();
+        long startTime = System.currentTimeMillis();
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        try {
+                            int status = performWithRetry(MockMvcRequestBuilders.post("/api/transactions/batch")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(batchJson)).status();
+                            if (status == HttpStatus.OK.value()) {
+                                successCount.addAndGet(BATCH_SIZE);
+                            } else {
+                                failureCount.addAndGet(BATCH_SIZE);
+                            }
+                        } catch (Exception e) {
+                            failureCount.addAndGet(BATCH_SIZE);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+        executor.shutdown();
+
+        long totalTime = System.currentTimeMillis() - startTime;
+        int totalItems = THREAD_COUNT * requestsPerThread * BATCH_SIZE;
+        double itemsPerSecond = (double) totalItems / (Math.max(1, totalTime) / 1000.0);
+
+        System.out.println("====== 批量接口压力测试结果 ======");
+        System.out.println("每批交易数: " + BATCH_SIZE);
+        System.out.println("总交易数: " + totalItems);
+        System.out.println("成功交易数: " + successCount.get());
+        System.out.println("失败交易数: " + failureCount.get());
+        System.out.println("被限流（429）次数: " + throttledCount.get());
+        System.out.printf("吞吐量: %.2f 交易/秒%n", itemsPerSecond);
+        System.out.println("=================================");
+
+        long stored = transactionService.getTransactionCount() - storedBefore;
+        assertEquals(successCount.get(), stored, "Stored rows must match successful creates");
     }
-}
\ No newline at end of file
+}
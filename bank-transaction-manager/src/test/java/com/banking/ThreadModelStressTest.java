@@ -0,0 +1,100 @@
+package com.banking;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 通过真实的 HTTP 连接分别压测平台线程和虚拟线程两种 Tomcat 执行模式，对比延迟分位数。
+ */
+@Tag("stress")
+public class ThreadModelStressTest {
+
+    // 测试参数（可通过 -Dstress.threads / -Dstress.requests 覆盖，默认值与 StressTest 相同）。
+    // 并发客户端数必须超过 Tomcat 默认的 200 个工作线程，平台线程模式才会出现排队，两种模式的差异才能体现出来
+    private static final int THREAD_COUNT = Integer.getInteger("stress.threads", 1000);         // 并发客户端数
+    private static final int REQUESTS_PER_THREAD = Integer.getInteger("stress.requests", 100);  // 每个客户端发送多少次请求
+    private static final String TRANSACTION_JSON = "{\"type\":\"Deposit\",\"amount\":100.0}";
+
+    @Test
+    public void comparePlatformAndVirtualThreads() throws Exception {
+        long[] platform = runAgainstServer(false);
+        long[] virtual = runAgainstServer(true);
+
+        System.out.println("====== 线程模型对比（单位 ms） ======");
+        System.out.printf("%-10s %8s %8s %8s %8s%n", "模式", "p50", "p99", "p999", "max");
+        printRow("platform", platform);
+        printRow("virtual", virtual);
+        System.out.println("====================================");
+    }
+
+    /**
+     * 启动一个监听随机端口的应用实例，用固定数量的客户端线程发送创建请求，返回每个请求的耗时（纳秒，已排序）。
+     */
+    private long[] runAgainstServer(boolean virtualThreads) throws Exception {
+        // 以命令行参数传入，优先级高于 application.properties（builder 的 properties 只是默认值，会被配置文件覆盖）
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankingApplication.class)
+                .run("--server.port=0", "--banking.threads.virtual=" + virtualThreads,
+                        // 对比两种线程模型在无限排队时的延迟，不启用准入控制
+                        "--banking.admission.enabled=false")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/transactions"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(TRANSACTION_JSON))
+                    .build();
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            long[] latencies = new long[THREAD_COUNT * REQUESTS_PER_THREAD];
+            AtomicInteger failureCount = new AtomicInteger(0);
+            CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                int offset = i * REQUESTS_PER_THREAD;
+                executor.submit(() -> {
+                    for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                failureCount.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failureCount.incrementAndGet();
+                        }
+                        latencies[offset + j] = System.nanoTime() - start;
+                    }
+                    latch.countDown();
+                });
+            }
+            latch.await();
+            executor.shutdown();
+
+            assertEquals(0, failureCount.get(), "All requests should succeed");
+            Arrays.sort(latencies);
+            return latencies;
+        }
+    }
+
+    private static void printRow(String mode, long[] sortedLatencies) {
+        System.out.printf("%-10s %8.2f %8.2f %8.2f %8.2f%n", mode,
+                percentile(sortedLatencies, 0.50), percentile(sortedLatencies, 0.99),
+                percentile(sortedLatencies, 0.999), sortedLatencies[sortedLatencies.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sortedLatencies, double quantile) {
+        int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -1,24 +1,43 @@
 package com.banking;
 
 import com.banking.controller.TransactionController;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.VersionConflictException;
+import com.banking.idempotency.IdempotencyCache;
 import com.banking.model.Transaction;
 import com.banking.service.TransactionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(TransactionController.class)
+@Import(IdempotencyCache.class)
 public class TransactionControllerTest {
 
     @Autowired
@@ -27,6 +46,8 @@ public class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
     private Transaction testTransaction;
 
     @BeforeEach
@@ -50,6 +71,180 @@ public class TransactionControllerTest {
     }
 
 
+    @Test
+    public void testCreateTransaction_IdempotencyKeyReplaysOriginalResult() throws Exception {
+        when(transactionService.createTransaction(any(Transaction.class)))
+                .thenReturn(new Transaction(7L, "Deposit", 100.0, 1L))
+                .thenReturn(new Transaction(8L, "Deposit", 100.0, 1L));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            mockMvc.perform(post("/api/transactions")
+                            .header(IdempotencyCache.HEADER, "retry-key-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"type\":\"Deposit\",\"amount\":100.0}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.id", is(7)))
+                    .andExpect(attempt == 0
+                            ? header().doesNotExist(IdempotencyCache.REPLAYED_HEADER)
+                            : header().string(IdempotencyCache.REPLAYED_HEADER, "true"));
+        }
+        verify(transactionService, times(1)).createTransaction(any(Transaction.class));
+
+        mockMvc.perform(post("/api/transactions")
+                        .header(IdempotencyCache.HEADER, "retry-key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"Deposit\",\"amount\":200.0}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.success", is(false)));
+
+        mockMvc.perform(post("/api/transactions")
+                        .header(IdempotencyCache.HEADER, "retry-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"Deposit\",\"amount\":100.0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id", is(8)));
+        verify(transactionService, times(2)).createTransaction(any(Transaction.class));
+    }
+
+    @Test
+    public void testCreateTransactions_Batch() throws Exception {
+        when(transactionService.createTransactions(anyList())).thenReturn(List.of(
+                BatchItemResult.succeeded(0, testTransaction),
+                BatchItemResult.failed(1, "Transaction amount must be greater than zero.")));
+
+        mockMvc.perform(post("/api/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\":\"Deposit\",\"amount\":100.0},{\"type\":\"Deposit\",\"amount\":-1.0}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(false)))
+                .andExpect(jsonPath("$.message", is("Batch processed: 1 succeeded, 1 failed")))
+                .andExpect(jsonPath("$.data[0].data.id", is(1)))
+                .andExpect(jsonPath("$.data[1].success", is(false)))
+                .andExpect(jsonPath("$.data[1].index", is(1)));
+
+        verify(transactionService, times(1)).createTransactions(anyList());
+    }
+
+    @Test
+    public void testGetAllTransactions_WithFilters() throws Exception {
+        when(transactionService.findTransactions("Deposit", 50.0, null, 0, 10)).thenReturn(List.of(testTransaction));
+
+        mockMvc.perform(get("/api/transactions").param("type", "Deposit").param("minAmount", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(1)));
+
+        verify(transactionService, never()).getAllTransactions(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testGetStatistics() throws Exception {
+        when(transactionService.getStatistics()).thenReturn(Map.of("Deposit", new TransactionStats(2, 30.0, 10.0, 20.0)));
+
+        mockMvc.perform(get("/api/transactions/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.Deposit.count", is(2)))
+                .andExpect(jsonPath("$.data.Deposit.average", is(15.0)));
+
+        verify(transactionService, never()).findTransactionById(any());
+    }
+
+    @Test
+    public void testExportTransactions_StreamsNdjson() throws Exception {
+        when(transactionService.getTransactionsAfter(eq(0L), anyInt()))
+                .thenReturn(List.of(testTransaction, new Transaction(2L, "Withdrawal", 50.0)));
+
+        MvcResult result = mockMvc.perform(get("/api/transactions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"type\":\"Deposit\",\"amount\":100.0}\n"
+                        + "{\"id\":2,\"type\":\"Withdrawal\",\"amount\":50.0}\n"));
+    }
+
+    @Test
+    public void testImportTransactions_ParsesNdjsonInBatches() throws Exception {
+        when(transactionService.createTransactions(anyList())).thenReturn(List.of(
+                BatchItemResult.succeeded(0, testTransaction),
+                BatchItemResult.failed(1, "Transaction type cannot be empty.")));
+
+        mockMvc.perform(post("/api/transactions/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"type\":\"Deposit\",\"amount\":100.0}\n{\"type\":\"\",\"amount\":5.0}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", is(1)))
+                .andExpect(jsonPath("$.message", is("Imported 1 transactions, 1 failed")))
+                .andExpect(jsonPath("$.errors['line 2']", is("Transaction type cannot be empty.")));
+
+        verify(transactionService, times(1)).createTransactions(argThat(batch -> batch.size() == 2));
+    }
+
+    @Test
+    public void testImportTransactions_MalformedLine_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/transactions/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"type\":\"Deposit\",\"amount\":100.0}\n{\"type\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    public void testCreateAndGetTransaction_Cbor() throws Exception {
+        when(transactionService.createTransaction(any(Transaction.class))).thenReturn(testTransaction);
+        when(transactionService.getAllTransactions(0, 10)).thenReturn(List.of(testTransaction));
+
+        byte[] created = mockMvc.perform(post("/api/transactions")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(new Transaction(null, "Deposit", 100.0))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode response = cborMapper.readTree(created);
+        assertEquals(1L, response.get("data").get("id").asLong());
+        assertEquals(100.0, response.get("data").get("amount").asDouble());
+        verify(transactionService).createTransaction(argThat(tx -> "Deposit".equals(tx.getType()) && tx.getAmount() == 100.0));
+
+        byte[] page = mockMvc.perform(get("/api/transactions").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("Deposit", cborMapper.readTree(page).get("data").get(0).get("type").asText());
+
+        // 没有 Accept 头时仍然返回 JSON
+        mockMvc.perform(get("/api/transactions"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testExportAndImportTransactions_CborSequence() throws Exception {
+        when(transactionService.getTransactionsAfter(eq(0L), anyInt()))
+                .thenReturn(List.of(testTransaction, new Transaction(2L, "Withdrawal", 50.0)));
+        when(transactionService.createTransactions(anyList())).thenReturn(List.of(
+                BatchItemResult.succeeded(0, testTransaction),
+                BatchItemResult.succeeded(1, new Transaction(2L, "Withdrawal", 50.0))));
+
+        MvcResult result = mockMvc.perform(get("/api/transactions/export").accept("application/cbor-seq"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] exported = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor-seq"))
+                .andReturn().getResponse().getContentAsByteArray();
+        List<Transaction> records = cborMapper.readerFor(Transaction.class).<Transaction>readValues(exported).readAll();
+        assertEquals(2, records.size());
+        assertEquals("Withdrawal", records.get(1).getType());
+
+        mockMvc.perform(post("/api/transactions/import")
+                        .contentType("application/cbor-seq")
+                        .content(exported))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message", is("Imported 2 transactions, 0 failed")));
+        verify(transactionService).createTransactions(argThat(batch -> batch.size() == 2));
+    }
+
     @Test
     public void testGetAllTransactions_EmptyPage_ReturnsEmptyList() throws Exception {
         mockMvc.perform(get("/api/transactions")
@@ -59,6 +254,32 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data", hasSize(0)));
     }
 
+    @Test
+    public void testGetTransactionsAfter_UsesCursor() throws Exception {
+        when(transactionService.getTransactionsAfter(eq(1L), eq(5))).thenReturn(List.of(new Transaction(2L, "Withdrawal", 50.0)));
+
+        mockMvc.perform(get("/api/transactions")
+                        .param("afterId", "1")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(2)));
+
+        verify(transactionService, times(1)).getTransactionsAfter(eq(1L), eq(5));
+        verify(transactionService, never()).getAllTransactions(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testGetTransactionsAfter_RejectsFilters() throws Exception {
+        mockMvc.perform(get("/api/transactions")
+                        .param("afterId", "1")
+                        .param("type", "Deposit"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success", is(false)));
+
+        verify(transactionService, never()).getTransactionsAfter(anyLong(), anyInt());
+    }
+
     @Test
     public void testDeleteTransaction() throws Exception {
         doNothing().when(transactionService).deleteTransaction(eq(1L));
@@ -71,17 +292,91 @@ public class TransactionControllerTest {
 
     @Test
     public void testUpdateTransaction() throws Exception {
-        Transaction updatedTransaction = new Transaction(1L, "Withdrawal", 50.0);
-        when(transactionService.updateTransaction(eq(1L), any(Transaction.class))).thenReturn(updatedTransaction);
+        Transaction updatedTransaction = new Transaction(1L, "Withdrawal", 50.0, 2L);
+        when(transactionService.updateTransaction(eq(1L), any(Transaction.class), isNull())).thenReturn(updatedTransaction);
 
         mockMvc.perform(put("/api/transactions/{id}", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"type\":\"Withdrawal\",\"amount\":50.0}"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
                 .andExpect(jsonPath("$.data.id", is(1)))
                 .andExpect(jsonPath("$.data.type", is("Withdrawal"))) // 更新后的类型应为 Withdrawal
-                .andExpect(jsonPath("$.data.amount", is(50.0))); // 更新后的金额应为 50.0
+                .andExpect(jsonPath("$.data.amount", is(50.0))) // 更新后的金额应为 50.0
+                .andExpect(jsonPath("$.data.version", is(2)));
+
+        verify(transactionService, times(1)).updateTransaction(eq(1L), any(Transaction.class), isNull());
+    }
 
-        verify(transactionService, times(1)).updateTransaction(eq(1L), any(Transaction.class));
+    @Test
+    public void testUpdateTransaction_IfMatch() throws Exception {
+        when(transactionService.updateTransaction(eq(1L), any(Transaction.class), eq(2L)))
+                .thenReturn(new Transaction(1L, "Withdrawal", 50.0, 3L));
+        when(transactionService.updateTransaction(eq(1L), any(Transaction.class), eq(1L)))
+                .thenThrow(new VersionConflictException("Transaction 1 is at version 3, expected version 1", 3L));
+
+        mockMvc.perform(put("/api/transactions/{id}", 1L)
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"Withdrawal\",\"amount\":50.0}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        // 版本已过期：412，并在 ETag 中返回当前版本
+        mockMvc.perform(put("/api/transactions/{id}", 1L)
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"Withdrawal\",\"amount\":50.0}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.success", is(false)));
+
+        mockMvc.perform(put("/api/transactions/{id}", 1L)
+                        .header("If-Match", "W/\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"Withdrawal\",\"amount\":50.0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetTransactionById_DirectJson() throws Exception {
+        when(transactionService.findTransactionById(1L)).thenReturn(Optional.of(new Transaction(1L, "Deposit", 100.0, 4L)));
+
+        String body = "{\"success\":true,\"message\":\"Transaction fetched successfully\","
+                + "\"data\":{\"id\":1,\"type\":\"Deposit\",\"amount\":100.0,\"version\":4},\"errors\":{}}";
+        mockMvc.perform(get("/api/transactions/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().longValue("Content-Length", body.length()))
+                .andExpect(content().string(body));
+    }
+
+    @Test
+    public void testGetTransactionById_NotFoundWithoutException() throws Exception {
+        when(transactionService.findTransactionById(2L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/transactions/{id}", 2L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success", is(false)))
+                .andExpect(jsonPath("$.message", is("Transaction not found with ID: 2")));
+        verify(transactionService, never()).getTransactionById(any());
+    }
+
+    @Test
+    public void testGetTransactionById_ConditionalGet() throws Exception {
+        when(transactionService.findTransactionById(1L)).thenReturn(Optional.of(new Transaction(1L, "Deposit", 100.0, 4L)));
+
+        mockMvc.perform(get("/api/transactions/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(header().string("Vary", "Accept"));
+
+        mockMvc.perform(get("/api/transactions/{id}", 1L).header("If-None-Match", "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/transactions/{id}", 1L).header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.version", is(4)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.banking;
+
+import com.banking.codec.TransactionJsonConverter;
+import com.banking.dto.ApiResponse;
+import com.banking.dto.TransactionStats;
+import com.banking.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证直接编码的输出与 Jackson 默认配置下的输出逐字节一致，以及无法直接编码时退回 Jackson。
+ */
+public class TransactionJsonConverterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final TransactionJsonConverter converter = new TransactionJsonConverter(objectMapper);
+
+    @Test
+    public void matchesJacksonOutput() throws Exception {
+        assertSameAsJackson(new ApiResponse<>(true, new Transaction(1L, "Deposit", 100.0, 1L), "Transaction fetched successfully"));
+        assertSameAsJackson(new ApiResponse<>(true, new Transaction(null, null, null), null));
+        assertSameAsJackson(new ApiResponse<>(false, null, "Transaction not found"));
+        assertSameAsJackson(new ApiResponse<>(true, new Transaction(Long.MAX_VALUE, "Dépôt \"引号\" \\ \n\t\u0001 😀", -0.0, Long.MIN_VALUE), "ok"));
+        assertSameAsJackson(new ApiResponse<>(true, Arrays.asList(new Transaction(1L, "Deposit", 12.3, 2L), null,
+                new Transaction(2L, "Withdrawal", 0.05)), "Transactions fetched successfully"));
+        assertSameAsJackson(new ApiResponse<>(true, List.of(), "Transactions fetched successfully"));
+
+        double[] special = {0.0, 0.001, 0.01, 0.1, 9_999_999.99, 10_000_000.0, 1e-4, 1e20, 123.456, -42.5,
+                Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY};
+        for (double amount : special) {
+            assertSameAsJackson(new ApiResponse<>(true, new Transaction(1L, "Deposit", amount), "amount " + amount));
+        }
+        Random random = new Random(42);
+        List<Transaction> page = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            double amount = switch (i % 3) {
+                case 0 -> random.nextInt(100_000_000) / 100.0;
+                case 1 -> random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+                default -> Double.longBitsToDouble(random.nextLong());
+            };
+            page.add(new Transaction(random.nextLong(), "Deposit", amount, (long) i));
+        }
+        assertSameAsJackson(new ApiResponse<>(true, page, "Transactions fetched successfully"));
+    }
+
+    @Test
+    public void fallsBackToJackson() throws Exception {
+        ApiResponse<List<Transaction>> withErrors = new ApiResponse<>(false, List.of(), "Import finished with errors");
+        withErrors.addError("line 1", "Transaction amount must be greater than zero.");
+        assertNull(converter.encode(withErrors));
+        assertNull(converter.encode(new ApiResponse<>(true, new Transaction(1L, "\ud800", 1.0), "lone surrogate")));
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(withErrors, transactionList(), MediaType.APPLICATION_JSON, message);
+        assertEquals(objectMapper.writeValueAsString(withErrors), message.getBodyAsString());
+    }
+
+    @Test
+    public void typeCacheStaysCorrectUnderManyDistinctTypes() throws Exception {
+        // 大量只出现一次的类型和超长类型穿插在常用类型之间，缓存槽位被反复替换，输出仍须与 Jackson 一致
+        for (int i = 0; i < 5_000; i++) {
+            assertSameAsJackson(new ApiResponse<>(true, new Transaction((long) i, "One-off " + i, 1.0), "Transaction fetched successfully"));
+            assertSameAsJackson(new ApiResponse<>(true, new Transaction((long) i, "Deposit", 2.0), "Transaction fetched successfully"));
+        }
+        assertSameAsJackson(new ApiResponse<>(true, new Transaction(1L, "长".repeat(256), 1.0), "Transaction created successfully"));
+        assertSameAsJackson(new ApiResponse<>(true, new Transaction(1L, "长".repeat(256), 1.0), "Imported 1 transactions"));
+    }
+
+    @Test
+    public void writesOnlyTransactionResponses() throws Exception {
+        Type single = ResolvableType.forClassWithGenerics(ApiResponse.class, Transaction.class).getType();
+        assertTrue(converter.canWrite(single, ApiResponse.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(transactionList(), ApiResponse.class, null));
+        assertFalse(converter.canWrite(single, ApiResponse.class, MediaType.APPLICATION_XML));
+        assertFalse(converter.canWrite(ResolvableType.forClassWithGenerics(ApiResponse.class,
+                ResolvableType.forClassWithGenerics(Map.class, String.class, TransactionStats.class)).getType(),
+                ApiResponse.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(single, null, MediaType.APPLICATION_JSON));
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(single, null, new MockHttpInputMessage(new byte[0])));
+
+        ApiResponse<Transaction> response = new ApiResponse<>(true, new Transaction(7L, "Deposit", 1.5, 3L), "ok");
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(response, single, MediaType.APPLICATION_JSON, message);
+        assertEquals(objectMapper.writeValueAsString(response), message.getBodyAsString());
+        assertEquals(message.getBodyAsBytes().length, message.getHeaders().getContentLength());
+        assertEquals(MediaType.APPLICATION_JSON, message.getHeaders().getContentType());
+    }
+
+    private void assertSameAsJackson(ApiResponse<?> response) throws Exception {
+        byte[] encoded = converter.encode(response);
+        assertEquals(objectMapper.writeValueAsString(response), encoded == null ? null : new String(encoded, "UTF-8"));
+    }
+
+    private static Type transactionList() {
+        return ResolvableType.forClassWithGenerics(ApiResponse.class,
+                ResolvableType.forClassWithGenerics(List.class, Transaction.class)).getType();
+    }
+}
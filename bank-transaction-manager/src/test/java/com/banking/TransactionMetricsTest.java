@@ -0,0 +1,90 @@
+package com.banking;
+
+import com.banking.metrics.TransactionMetrics;
+import com.banking.metrics.TransactionMetrics.Operation;
+import com.banking.model.Transaction;
+import com.banking.service.impl.TransactionServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class TransactionMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testServiceRecordsOperationsAndGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        service.setMetrics(new TransactionMetrics(registry));
+        service.bindTo(registry);
+
+        Transaction created = service.createTransaction(new Transaction(null, "Deposit", 10.0));
+        service.getTransactionById(created.getId());
+        service.getTransactionById(created.getId());
+        // 未命中的查询同样计入 GET 的延迟
+        service.findTransactionById(created.getId() + 1);
+
+        assertEquals(1, registry.get("banking.transactions.operation").tag("operation", "create").timer().count());
+        assertEquals(3, registry.get("banking.transactions.operation").tag("operation", "get").timer().count());
+        assertEquals(1.0, registry.get("banking.transactions.stored").gauge().value());
+        assertTrue(registry.get("banking.transactions.id.position").gauge().value() >= created.getId());
+    }
+
+    @Test
+    public void testRecordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TransactionMetrics metrics = new TransactionMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(Operation.GET, System.nanoTime() - i);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(Operation.GET, System.nanoTime() - i);
+            metrics.recordNotFound();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // 允许少量与循环无关的分配（如计时窗口轮转），但远小于每次记录分配一个对象的量级
+        assertTrue(allocated < 16 * 1024, "Recording allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void testPrometheusEndpointExposesMetrics() throws Exception {
+        mockMvc.perform(post("/api/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"Deposit\",\"amount\":100.0}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/transactions/999999"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("banking_transactions_operation_seconds_bucket{operation=\"create\"")))
+                .andExpect(content().string(containsString("banking_transactions_errors_total{reason=\"not_found\"")))
+                .andExpect(content().string(containsString("banking_transactions_stored ")))
+                .andExpect(content().string(containsString("banking_transactions_id_position ")));
+    }
+}
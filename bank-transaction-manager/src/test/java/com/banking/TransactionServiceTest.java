@@ -1,14 +1,35 @@
 package com.banking;
 
+import com.banking.cluster.ClusterTopology;
+import com.banking.dto.BatchItemResult;
+import com.banking.dto.TransactionStats;
+import com.banking.exception.IdRangeExhaustedException;
 import com.banking.exception.InvalidInputException;
 import com.banking.exception.ResourceNotFoundException;
+import com.banking.exception.VersionConflictException;
 import com.banking.model.Transaction;
+import com.banking.persistence.FsyncPolicy;
+import com.banking.persistence.TransactionJournal;
+import com.banking.persistence.TransactionSnapshotStore;
 import com.banking.service.TransactionService;
 import com.banking.service.impl.TransactionServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,6 +59,53 @@ class TransactionServiceImplTest {
         assertTrue(exception.getMessage().contains("Transaction amount must be greater than zero"));
     }
 
+    @Test
+    void testCreateTransactions_Batch() {
+        List<BatchItemResult> results = transactionService.createTransactions(List.of(
+                new Transaction(null, "Deposit", 100.0),
+                new Transaction(null, "", 50.0),
+                new Transaction(null, "Withdrawal", 200.0)));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getMessage().contains("Transaction type cannot be empty"));
+        assertTrue(results.get(2).isSuccess());
+        // 合法元素分配连续的ID
+        assertEquals(results.get(0).getData().getId() + 1, results.get(2).getData().getId());
+        assertEquals(2, transactionService.getTransactionCount());
+        assertEquals("Withdrawal", transactionService.getTransactionById(results.get(2).getData().getId()).getType());
+
+        assertThrows(InvalidInputException.class, () -> transactionService.createTransactions(List.of()));
+    }
+
+    @Test
+    void testCreateTransactions_MissingOrNonFiniteAmountFailsOnlyThatItem() {
+        List<BatchItemResult> results = transactionService.createTransactions(List.of(
+                new Transaction(null, "Deposit", null),
+                new Transaction(null, "Deposit", Double.NaN),
+                new Transaction(null, "Deposit", Double.POSITIVE_INFINITY),
+                new Transaction(null, "", null),
+                new Transaction(null, "Deposit", 10.0)));
+
+        assertEquals("Transaction amount is required.", results.get(0).getMessage());
+        assertEquals("Transaction amount must be a finite number.", results.get(1).getMessage());
+        assertEquals("Transaction amount must be a finite number.", results.get(2).getMessage());
+        assertEquals("Transaction type cannot be empty. | Transaction amount is required.", results.get(3).getMessage());
+        assertTrue(results.get(4).isSuccess());
+        assertEquals(1, transactionService.getTransactionCount());
+        assertThrows(InvalidInputException.class,
+                () -> transactionService.createTransaction(new Transaction(null, "Deposit", Double.NEGATIVE_INFINITY)));
+    }
+
+    @Test
+    void testCreateTransaction_TypeTooLong() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> transactionService.createTransaction(new Transaction(null, "x".repeat(257), 10.0)));
+        assertEquals("Transaction type must be at most 256 characters.", exception.getMessage());
+        assertEquals(256, transactionService.createTransaction(new Transaction(null, "x".repeat(256), 10.0)).getType().length());
+    }
+
     @Test
     void testGetAllTransactions_Pagination() {
         // 添加一些数据
@@ -53,12 +121,245 @@ class TransactionServiceImplTest {
         assertEquals("Withdrawal", result.get(0).getType());
     }
 
+    @Test
+    void testGetAllTransactions_SkipsDeletedRows() {
+        Transaction first = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        transactionService.createTransaction(new Transaction(null, "Withdrawal", 200.0));
+        transactionService.createTransaction(new Transaction(null, "Transfer", 300.0));
+        transactionService.deleteTransaction(first.getId());
+
+        List<Transaction> result = transactionService.getAllTransactions(0, 10);
+        assertEquals(2, result.size());
+        assertEquals("Withdrawal", result.get(0).getType());
+        assertEquals("Transfer", result.get(1).getType());
+        assertTrue(transactionService.getAllTransactions(1, 2).isEmpty());
+    }
+
+    @Test
+    void testGetTransactionsAfter_Cursor() {
+        Transaction first = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        Transaction second = transactionService.createTransaction(new Transaction(null, "Withdrawal", 200.0));
+        Transaction third = transactionService.createTransaction(new Transaction(null, "Transfer", 300.0));
+
+        List<Transaction> result = transactionService.getTransactionsAfter(0L, 2);
+        assertEquals(List.of(first.getId(), second.getId()), result.stream().map(Transaction::getId).toList());
+
+        result = transactionService.getTransactionsAfter(second.getId(), 2);
+        assertEquals(List.of(third.getId()), result.stream().map(Transaction::getId).toList());
+
+        assertTrue(transactionService.getTransactionsAfter(third.getId(), 2).isEmpty());
+        assertThrows(InvalidInputException.class, () -> transactionService.getTransactionsAfter(-1L, 2));
+        assertThrows(InvalidInputException.class, () -> transactionService.getTransactionsAfter(0L, 0));
+    }
+
+    @Test
+    void testFindTransactions_ByTypeAndAmount() {
+        Transaction small = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        Transaction withdrawal = transactionService.createTransaction(new Transaction(null, "Withdrawal", 50.0));
+        Transaction large = transactionService.createTransaction(new Transaction(null, "Deposit", 500.0));
+        Transaction medium = transactionService.createTransaction(new Transaction(null, "Deposit", 50.0));
+
+        List<Transaction> deposits = transactionService.findTransactions("Deposit", null, null, 0, 10);
+        assertEquals(List.of(small.getId(), large.getId(), medium.getId()), deposits.stream().map(Transaction::getId).toList());
+
+        // 按金额过滤时结果按金额升序，相同金额按ID升序
+        List<Transaction> range = transactionService.findTransactions(null, 50.0, 500.0, 0, 10);
+        assertEquals(List.of(withdrawal.getId(), medium.getId(), large.getId()), range.stream().map(Transaction::getId).toList());
+
+        List<Transaction> depositsInRange = transactionService.findTransactions("Deposit", 20.0, null, 1, 1);
+        assertEquals(List.of(large.getId()), depositsInRange.stream().map(Transaction::getId).toList());
+
+        assertTrue(transactionService.findTransactions("Transfer", null, null, 0, 10).isEmpty());
+        assertThrows(InvalidInputException.class, () -> transactionService.findTransactions(null, 10.0, 5.0, 0, 10));
+    }
+
+    @Test
+    void testFindTransactions_IndexesFollowUpdateAndDelete() {
+        Transaction transaction = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        Transaction other = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+
+        transactionService.updateTransaction(transaction.getId(), new Transaction(null, "Withdrawal", 99.0));
+        assertEquals(List.of(other.getId()),
+                transactionService.findTransactions("Deposit", null, null, 0, 10).stream().map(Transaction::getId).toList());
+        assertEquals(List.of(transaction.getId()),
+                transactionService.findTransactions("Withdrawal", 90.0, 100.0, 0, 10).stream().map(Transaction::getId).toList());
+        assertTrue(transactionService.findTransactions(null, null, 20.0, 0, 10).stream()
+                .noneMatch(found -> found.getId().equals(transaction.getId())));
+
+        transactionService.deleteTransaction(transaction.getId());
+        assertTrue(transactionService.findTransactions("Withdrawal", null, null, 0, 10).isEmpty());
+        assertTrue(transactionService.findTransactions(null, 90.0, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void testGetStatistics_MaintainedIncrementally() {
+        Transaction smallest = transactionService.createTransaction(new Transaction(null, "Deposit", 10.0));
+        transactionService.createTransaction(new Transaction(null, "Deposit", 30.0));
+        Transaction largest = transactionService.createTransaction(new Transaction(null, "Deposit", 50.0));
+        Transaction withdrawal = transactionService.createTransaction(new Transaction(null, "Withdrawal", 5.0));
+
+        TransactionStats deposits = transactionService.getStatistics().get("Deposit");
+        assertEquals(3, deposits.getCount());
+        assertEquals(90.0, deposits.getSum(), 1e-9);
+        assertEquals(10.0, deposits.getMin());
+        assertEquals(50.0, deposits.getMax());
+        assertEquals(30.0, deposits.getAverage(), 1e-9);
+
+        // 删除或修改极值后，最小值和最大值仍然准确
+        transactionService.deleteTransaction(smallest.getId());
+        transactionService.updateTransaction(largest.getId(), new Transaction(null, "Deposit", 40.0));
+        deposits = transactionService.getStatistics().get("Deposit");
+        assertEquals(2, deposits.getCount());
+        assertEquals(70.0, deposits.getSum(), 1e-9);
+        assertEquals(30.0, deposits.getMin());
+        assertEquals(40.0, deposits.getMax());
+
+        // 修改类型时统计从旧类型移到新类型，没有记录的类型不再返回
+        transactionService.updateTransaction(withdrawal.getId(), new Transaction(null, "Deposit", 5.0));
+        Map<String, TransactionStats> statistics = transactionService.getStatistics();
+        assertFalse(statistics.containsKey("Withdrawal"));
+        assertEquals(3, statistics.get("Deposit").getCount());
+        assertEquals(5.0, statistics.get("Deposit").getMin());
+    }
+
+    @Test
+    void testCreateTransaction_ConcurrentIdsAreUnique() throws InterruptedException {
+        int threads = 16;
+        int perThread = 500;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    ids.add(transactionService.createTransaction(new Transaction(null, "Deposit", 1.0)).getId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, ids.size());
+        assertEquals(threads * perThread, transactionService.getTransactionCount());
+    }
+
+    @Test
+    void testTypeIndex_EmptiedTypesAreDroppedUnderConcurrentChurn() throws InterruptedException {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                // 同一类型的记录不断被创建和删除，该类型的索引会反复变空、被移除、再重建
+                for (int j = 0; j < 2_000; j++) {
+                    Transaction churn = transactionService.createTransaction(new Transaction(null, "Churn", 1.0));
+                    transactionService.deleteTransaction(churn.getId());
+                }
+                transactionService.createTransaction(new Transaction(null, "Churn", 2.0));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads, transactionService.findTransactions("Churn", null, null, 0, 100).size());
+        assertEquals(threads, transactionService.getStatistics().get("Churn").getCount());
+
+        transactionService.findTransactions("Churn", null, null, 0, 100)
+                .forEach(transaction -> transactionService.deleteTransaction(transaction.getId()));
+        assertTrue(transactionService.getStatistics().isEmpty());
+        assertTrue(transactionService.findTransactions("Churn", null, null, 0, 100).isEmpty());
+    }
+
+    @Test
+    void testRecoverFromJournal(@TempDir Path journalDir) {
+        TransactionJournal journal = new TransactionJournal(journalDir, 64 * 1024, FsyncPolicy.PER_WRITE, 0);
+        journal.open();
+        TransactionServiceImpl journaled = new TransactionServiceImpl();
+        journaled.setJournal(journal);
+        journaled.recover();
+
+        // 写入足够多的记录以跨越多个段文件
+        for (int i = 0; i < 5_000; i++) {
+            journaled.createTransaction(new Transaction(null, "Deposit", 100.0 + i));
+        }
+        journaled.updateTransaction(2L, new Transaction(null, "Withdrawal", 50.0));
+        journaled.deleteTransaction(3L);
+        journal.close();
+
+        TransactionJournal reopened = new TransactionJournal(journalDir, 64 * 1024, FsyncPolicy.PER_WRITE, 0);
+        reopened.open();
+        TransactionServiceImpl recovered = new TransactionServiceImpl();
+        recovered.setJournal(reopened);
+        recovered.recover();
+
+        assertEquals(4_999, recovered.getTransactionCount());
+        assertEquals("Withdrawal", recovered.getTransactionById(2L).getType());
+        assertEquals(50.0, recovered.getTransactionById(2L).getAmount());
+        assertEquals(2L, recovered.getTransactionById(2L).getVersion());
+        assertThrows(ResourceNotFoundException.class, () -> recovered.getTransactionById(3L));
+        assertEquals(5_000L + 100.0 - 1, recovered.getTransactionById(5_000L).getAmount());
+
+        // 恢复后分配的ID不能与已有记录冲突
+        Transaction created = recovered.createTransaction(new Transaction(null, "Deposit", 1.0));
+        assertTrue(created.getId() > 5_000L);
+        reopened.close();
+    }
+
+    @Test
+    void testRecoverFromSnapshotAndJournalTail(@TempDir Path dataDir) throws IOException {
+        Path journalDir = dataDir.resolve("journal");
+        TransactionJournal journal = new TransactionJournal(journalDir, 64 * 1024, FsyncPolicy.OS, 0);
+        journal.open();
+        TransactionServiceImpl journaled = new TransactionServiceImpl();
+        journaled.setJournal(journal);
+        journaled.setSnapshotStore(new TransactionSnapshotStore(dataDir.resolve("snapshots"), Duration.ZERO, 1));
+        journaled.recover();
+
+        for (int i = 0; i < 5_000; i++) {
+            journaled.createTransaction(new Transaction(null, "Deposit", 100.0));
+        }
+        journaled.deleteTransaction(5_000L);
+        journaled.updateTransaction(3L, new Transaction(null, "Deposit", 200.0));
+        journaled.updateTransaction(3L, new Transaction(null, "Deposit", 300.0));
+        long segmentsBefore = countFiles(journalDir);
+        journaled.checkpoint();
+        assertTrue(countFiles(journalDir) < segmentsBefore, "Snapshot should truncate covered journal segments");
+
+        // 快照之后的写入只存在于日志尾部
+        journaled.updateTransaction(1L, new Transaction(null, "Withdrawal", 10.0));
+        journaled.deleteTransaction(2L);
+        journal.close();
+
+        TransactionJournal reopened = new TransactionJournal(journalDir, 64 * 1024, FsyncPolicy.OS, 0);
+        reopened.open();
+        TransactionServiceImpl recovered = new TransactionServiceImpl();
+        recovered.setJournal(reopened);
+        recovered.setSnapshotStore(new TransactionSnapshotStore(dataDir.resolve("snapshots"), Duration.ZERO, 1));
+        recovered.recover();
+
+        assertEquals(4_998, recovered.getTransactionCount());
+        assertEquals("Withdrawal", recovered.getTransactionById(1L).getType());
+        assertEquals(2L, recovered.getTransactionById(1L).getVersion());
+        // 快照中保存了记录的版本号
+        assertEquals(3L, recovered.getTransactionById(3L).getVersion());
+        assertThrows(ResourceNotFoundException.class, () -> recovered.getTransactionById(2L));
+        // 已删除的最大ID不能被重新分配
+        assertTrue(recovered.createTransaction(new Transaction(null, "Deposit", 1.0)).getId() > 5_000L);
+        reopened.close();
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
     @Test
     void testGetTransactionById() {
         Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
         Transaction retrieved = transactionService.getTransactionById(created.getId());
         assertNotNull(retrieved);
-        assertEquals(created, retrieved);
+        assertEquals(created.getId(), retrieved.getId());
+        assertEquals("Deposit", retrieved.getType());
+        assertEquals(100.0, retrieved.getAmount());
     }
 
     @Test
@@ -69,6 +370,52 @@ class TransactionServiceImplTest {
         assertTrue(exception.getMessage().contains("Transaction not found with ID: 999"));
     }
 
+    @Test
+    void testFindTransactionById_ReturnsEmptyWithoutThrowing() {
+        Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        Transaction found = transactionService.findTransactionById(created.getId()).orElseThrow();
+        assertEquals(created.getId(), found.getId());
+        assertEquals(100.0, found.getAmount());
+        assertTrue(transactionService.findTransactionById(999L).isEmpty());
+        assertThrows(InvalidInputException.class, () -> transactionService.findTransactionById(0L));
+    }
+
+    @Test
+    void testStoredRowsAreImmutableSnapshots() {
+        Transaction request = new Transaction(null, "Deposit", 100.0);
+        Transaction created = transactionService.createTransaction(request);
+        List<BatchItemResult> batch = transactionService.createTransactions(List.of(new Transaction(null, "Deposit", 50.0)));
+
+        // 修改调用方持有的请求对象不会影响已存储的记录
+        request.setAmount(1.0);
+        batch.get(0).getData().setType("Withdrawal");
+        assertEquals(100.0, transactionService.getTransactionById(created.getId()).getAmount());
+        assertEquals("Deposit", transactionService.getTransactionById(batch.get(0).getData().getId()).getType());
+
+        // 查询返回的记录不可修改
+        Transaction stored = transactionService.getTransactionById(created.getId());
+        assertThrows(UnsupportedOperationException.class, () -> stored.setAmount(1.0));
+        Transaction updated = transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 200.0));
+        assertThrows(UnsupportedOperationException.class, () -> updated.setType("Withdrawal"));
+        assertEquals(100.0, stored.getAmount());
+    }
+
+    @Test
+    void testErrorsCarryNoStackTrace() {
+        InvalidInputException first = assertThrows(InvalidInputException.class, () -> transactionService.getTransactionById(-1L));
+        InvalidInputException second = assertThrows(InvalidInputException.class, () -> transactionService.getTransactionById(-2L));
+        // 消息固定的错误共享同一个实例
+        assertSame(first, second);
+        assertTrue(first.isShared());
+        assertEquals(0, first.getStackTrace().length);
+        first.addSuppressed(new IllegalStateException());
+        assertEquals(0, first.getSuppressed().length);
+
+        ResourceNotFoundException notFound = assertThrows(ResourceNotFoundException.class,
+                () -> transactionService.getTransactionById(999L));
+        assertEquals(0, notFound.getStackTrace().length);
+    }
+
     @Test
     void testDeleteTransaction() {
         Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
@@ -85,6 +432,57 @@ class TransactionServiceImplTest {
         Transaction updated = transactionService.updateTransaction(created.getId(), new Transaction(null, "Withdrawal", 200.0));
         assertEquals("Withdrawal", updated.getType());
         assertEquals(200.0, updated.getAmount());
+        assertEquals(1L, created.getVersion());
+        assertEquals(2L, updated.getVersion());
+        // 已发布的旧版本对象不会被修改
+        assertEquals("Deposit", created.getType());
+        assertEquals(updated, transactionService.getTransactionById(created.getId()));
+    }
+
+    @Test
+    void testUpdateTransaction_VersionConflict() {
+        Transaction created = transactionService.createTransaction(new Transaction(null, "Deposit", 100.0));
+        transactionService.updateTransaction(created.getId(), new Transaction(null, "Deposit", 150.0), 1L);
+
+        VersionConflictException exception = assertThrows(VersionConflictException.class, () ->
+                transactionService.updateTransaction(created.getId(), new Transaction(null, "Withdrawal", 200.0), 1L));
+        assertEquals(2L, exception.getCurrentVersion());
+        Transaction current = transactionService.getTransactionById(created.getId());
+        assertEquals(150.0, current.getAmount());
+        assertEquals(1, transactionService.findTransactions("Deposit", null, null, 0, 10).size());
+        assertTrue(transactionService.findTransactions("Withdrawal", null, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void testConcurrentConditionalUpdates_NoLostUpdates() throws InterruptedException {
+        long id = transactionService.createTransaction(new Transaction(null, "Deposit", 1.0)).getId();
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                // 读取-修改-条件写入，冲突时重新读取后重试
+                for (int j = 0; j < perThread; j++) {
+                    while (true) {
+                        Transaction current = transactionService.getTransactionById(id);
+                        try {
+                            transactionService.updateTransaction(id,
+                                    new Transaction(null, "Deposit", current.getAmount() + 1), current.getVersion());
+                            break;
+                        } catch (VersionConflictException e) {
+                            // 其他线程先完成了更新
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Transaction result = transactionService.getTransactionById(id);
+        assertEquals(1.0 + threads * perThread, result.getAmount());
+        assertEquals(1L + threads * perThread, result.getVersion());
+        assertEquals(1.0 + threads * perThread, transactionService.getStatistics().get("Deposit").getSum());
     }
 
     @Test
@@ -94,4 +492,22 @@ class TransactionServiceImplTest {
         });
         assertTrue(exception.getMessage().contains("Transaction not found with ID: 999"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testClusterRangeEndRejectsCreates() {
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        // 节点 1 拥有 ID 6..10
+        service.setClusterTopology(new ClusterTopology(List.of("http://a", "http://b"), 1, 5));
+
+        List<BatchItemResult> batch = service.createTransactions(List.of(
+                new Transaction(null, "Deposit", 1.0), new Transaction(null, "Deposit", 2.0), new Transaction(null, "Deposit", 3.0)));
+        assertEquals(List.of(6L, 7L, 8L), batch.stream().map(result -> result.getData().getId()).toList());
+        assertEquals(9L, service.createTransaction(new Transaction(null, "Deposit", 4.0)).getId());
+        assertEquals(10L, service.createTransaction(new Transaction(null, "Deposit", 5.0)).getId());
+
+        assertThrows(IdRangeExhaustedException.class, () -> service.createTransaction(new Transaction(null, "Deposit", 6.0)));
+        assertThrows(IdRangeExhaustedException.class,
+                () -> service.createTransactions(List.of(new Transaction(null, "Deposit", 7.0))));
+        assertEquals(5, service.getTransactionCount());
+    }
+}